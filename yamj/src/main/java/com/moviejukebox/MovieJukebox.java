@@ -32,13 +32,16 @@ import com.moviejukebox.model.enumerations.DirtyFlag;
 import com.moviejukebox.model.enumerations.JukeboxStatistic;
 import com.moviejukebox.model.enumerations.OverrideFlag;
 import com.moviejukebox.plugin.*;
+import com.moviejukebox.plugin.trailer.TrailerQueue;
 import com.moviejukebox.reader.MovieJukeboxLibraryReader;
 import com.moviejukebox.reader.MovieJukeboxXMLReader;
 import com.moviejukebox.scanner.*;
 import com.moviejukebox.scanner.artwork.*;
 import com.moviejukebox.tools.*;
+import com.moviejukebox.tools.JukeboxMetrics.Group;
 import com.moviejukebox.tools.PropertiesUtil.KeywordMap;
 import com.moviejukebox.tools.cache.CacheMemory;
+import com.moviejukebox.tools.downloader.AsyncDownloader;
 import com.moviejukebox.writer.CompleteMoviesWriter;
 import com.moviejukebox.writer.MovieJukeboxHTMLWriter;
 import com.moviejukebox.writer.MovieJukeboxXMLWriter;
@@ -48,6 +51,10 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import javax.xml.bind.annotation.XmlElement;
@@ -57,6 +64,8 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.log4j.PropertyConfigurator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -86,6 +95,11 @@ public class MovieJukebox {
     private final boolean forceThumbnailOverwrite;
     private final boolean forceBannerOverwrite;
     private final boolean forceSkinOverwrite;
+    // The library of the last run and the changes since, for the updates of the watch mode
+    private Library previousLibrary = null;
+    private LibraryChanges libraryChanges = null;
+    // The poster downloads still running
+    private final Collection<Future<File>> pendingDownloads = new ConcurrentLinkedQueue<>();
     private final boolean forceIndexOverwrite;
     private final boolean forceFooterOverwrite;
     // Scanner Tokens
@@ -117,6 +131,7 @@ public class MovieJukebox {
     private static boolean skipHtmlGeneration = Boolean.FALSE;
     private static boolean skipPlaylistGeneration = Boolean.FALSE;
     private static boolean dumpLibraryStructure = Boolean.FALSE;
+    private static boolean watchMode = Boolean.FALSE;
     private static boolean showMemory = Boolean.FALSE;
     private static boolean peopleScan = Boolean.FALSE;
     private static boolean peopleScrape = Boolean.TRUE;
@@ -202,8 +217,12 @@ public class MovieJukebox {
             mediaLibraryPaths.add(mlp);
         }
 
+        // The build graph is read first, the overwrites are only replaced by it when the graph of the last run exists
+        BuildGraph.readFile(jukebox);
         // Check to see if we need to read the jukebox_details.xml file and process, otherwise, just create the file.
         JukeboxProperties.readDetailsFile(jukebox, mediaLibraryPaths);
+        RecheckPlanner.readPlan(jukebox);
+        TrailerQueue.readQueue(jukebox);
 
         // Read these properties after the JukeboxProperties have been read to ensure that changes are picked up
         this.forcePosterOverwrite = PropertiesUtil.getBooleanProperty("mjb.forcePostersOverwrite", Boolean.FALSE);
@@ -280,6 +299,9 @@ public class MovieJukebox {
                 } else if ("-h".equalsIgnoreCase(arg)) {
                     skipHtmlGeneration = Boolean.TRUE;
                     PropertiesUtil.setProperty("mjb.skipHtmlGeneration", Boolean.TRUE);
+                } else if ("-w".equalsIgnoreCase(arg)) {
+                    watchMode = Boolean.TRUE;
+                    PropertiesUtil.setProperty("mjb.watch", TRUE);
                 } else if ("-dump".equalsIgnoreCase(arg)) {
                     dumpLibraryStructure = Boolean.TRUE;
                 } else if ("-memory".equalsIgnoreCase(arg)) {
@@ -352,6 +374,11 @@ public class MovieJukebox {
             setProperty(propEntry.getKey(), propEntry.getValue());
         }
 
+        // Write the log on its own thread from now on
+        if (PropertiesUtil.getBooleanProperty("mjb.logging.async", Boolean.TRUE)) {
+            AsyncLogAppender.install(PropertiesUtil.getIntProperty("mjb.logging.bufferSize", 8192));
+        }
+
         // Read the information about the skin
         SkinProperties.readSkinVersion();
         // Display the information about the skin
@@ -403,6 +430,9 @@ public class MovieJukebox {
         // This duplicates the "-c" functionality, but allows you to have it in the property file
         jukeboxClean = PropertiesUtil.getBooleanProperty("mjb.jukeboxClean", Boolean.FALSE);
 
+        // This duplicates the "-w" functionality, but allows you to have it in the property file
+        watchMode = PropertiesUtil.getBooleanProperty("mjb.watch", Boolean.FALSE);
+
         MovieFilenameScanner.setSkipKeywords(tokenizeToArray(getProperty("filename.scanner.skip.keywords", ""), ",;| "),
                 PropertiesUtil.getBooleanProperty("filename.scanner.skip.caseSensitive", Boolean.TRUE));
         MovieFilenameScanner.setSkipRegexKeywords(tokenizeToArray(getProperty("filename.scanner.skip.keywords.regex", ""), ","),
@@ -497,8 +527,15 @@ public class MovieJukebox {
             ml.makeDumpStructure();
         } else {
             ml.generateLibrary();
+
+            if (watchMode) {
+                ml.watchLibraries();
+            }
         }
 
+        // Close the connections of the downloader
+        AsyncDownloader.shutdown();
+
         // Now rename the log files
         renameLogFile();
 
@@ -561,6 +598,7 @@ public class MovieJukebox {
 
             // First we need to tell Log4J to change the name of the current log file to something else so it unlocks the file
             System.setProperty("file.name", PropertiesUtil.getProperty("mjb.jukeboxTempDir", "./temp") + File.separator + LOG_FILENAME + ".tmp");
+            AsyncLogAppender.uninstall();
             PropertyConfigurator.configure("properties/log4j.properties");
 
             // Rename file (or directory)
@@ -581,6 +619,58 @@ public class MovieJukebox {
         }
     }
 
+    /**
+     * Keep running and update the jukebox each time the libraries change.
+     *
+     * Only the videos in the changed directories are scanned again, the other
+     * videos are kept from the last run and their pages are not written again.
+     *
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    private void watchLibraries() throws InterruptedException, IOException {
+        long delay = TimeUnit.SECONDS.toMillis(PropertiesUtil.getIntProperty("mjb.watch.delay", 10));
+        List<File> ignored = Arrays.asList(jukebox.getJukeboxRootLocationDetailsFile(), jukebox.getJukeboxTempLocationFile());
+
+        try (LibraryWatcher watcher = new LibraryWatcher(mediaLibraryPaths, ignored, delay)) {
+            while (true) {
+                LOG.info("");
+                LOG.info("Watching {} library directories for changes...", watcher.size());
+                Set<File> changed = watcher.waitForChanges();
+                LOG.info("Updating the jukebox for changes in {} directories", changed.size());
+                for (File directory : changed) {
+                    LOG.debug("Changed: {}", directory.getAbsolutePath());
+                }
+
+                resetRun();
+                BuildGraph.readFile(jukebox);
+                RecheckPlanner.readPlan(jukebox);
+                libraryChanges = new LibraryChanges(changed);
+                try {
+                    generateLibrary();
+                } catch (Throwable error) {
+                    LOG.error("Failed to update the jukebox: {}", error.getMessage());
+                    LOG.error(SystemTools.getStackTrace(error));
+                }
+            }
+        }
+    }
+
+    /**
+     * Clear the state left by the previous run of the jukebox
+     */
+    private static void resetRun() {
+        JukeboxStatistics.reset();
+        JukeboxStatistics.setTimeStart(System.currentTimeMillis());
+        JukeboxMetrics.reset();
+        FileTools.fileCache.clear();
+        SidecarManifest.clear();
+        ScanningLimit.reset();
+        Library.clearDirtyLibraries();
+        JukeboxProperties.reset();
+        MovieDirectoryScanner.resetCounters();
+    }
+
     @SuppressWarnings("static-method")
     private void makeDumpStructure() {
         LOG.debug("Dumping library directory structure for debug");
@@ -697,6 +787,10 @@ public class MovieJukebox {
         LOG.info("  -p propertiesFile : OPTIONAL");
         LOG.info("                      The properties file to use instead of moviejukebox.properties");
         LOG.info("");
+        LOG.info("  -w                : OPTIONAL");
+        LOG.info("                      Keep running after the jukebox has been generated and");
+        LOG.info("                      update it when videos are added, changed or removed.");
+        LOG.info("");
         LOG.info("  -memory           : OPTIONAL");
         LOG.info("                      Display and log the memory used by moviejukebox");
         LOG.info("");
@@ -824,6 +918,7 @@ public class MovieJukebox {
         // Save the current state of the preferences to the skin directory for use by the skin
         // The forceHtmlOverwrite is set by the user or by the JukeboxProperties if there has been a skin change
         if (PropertiesUtil.getBooleanProperty("mjb.forceHTMLOverwrite", Boolean.FALSE)
+                || JukeboxProperties.isPropertiesChanged()
                 || !(new File(PropertiesUtil.getPropertiesFilename(Boolean.TRUE))).exists()) {
             PropertiesUtil.writeProperties();
         }
@@ -877,27 +972,39 @@ public class MovieJukebox {
 
         ThreadExecutor<Void> tasks = new ThreadExecutor<>(maxThreadsProcess, maxThreadsDownload);
 
-        final Library library = new Library();
-        for (final MediaLibraryPath mediaLibraryPath : mediaLibraryPaths) {
-            // Multi-thread parallel processing
-            tasks.submit(new Callable<Void>() {
-                @Override
-                public Void call() {
-                    LOG.debug("Scanning media library {}", mediaLibraryPath.getPath());
-                    MovieDirectoryScanner mds = new MovieDirectoryScanner();
-                    // scan uses synchronized method Library.addMovie
-                    mds.scan(mediaLibraryPath, library);
-                    System.out.print("\n");
-                    return null;
-                }
-            });
+        // A failed run leaves no library, so the next update scans everything
+        final Library previous = previousLibrary;
+        previousLibrary = null;
+        final LibraryChanges changes = previous == null ? null : libraryChanges;
+
+        final Library library;
+        if (changes != null) {
+            // Only scan the changed directories, take the other videos from the last run
+            library = changes.scan(mediaLibraryPaths, previous);
+        } else {
+            library = new Library();
+            for (final MediaLibraryPath mediaLibraryPath : mediaLibraryPaths) {
+                // Multi-thread parallel processing
+                tasks.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        LOG.debug("Scanning media library {}", mediaLibraryPath.getPath());
+                        MovieDirectoryScanner mds = new MovieDirectoryScanner();
+                        // scan uses synchronized method Library.addMovie
+                        mds.scan(mediaLibraryPath, library);
+                        System.out.print("\n");
+                        return null;
+                    }
+                });
+            }
+            tasks.waitFor();
         }
-        tasks.waitFor();
 
         SystemTools.showMemory();
 
         // If the user asked to preserve the existing movies, scan the output directory as well
-        if (isJukeboxPreserve()) {
+        // The preserved videos of an update are already in the library of the last run
+        if (isJukeboxPreserve() && changes == null) {
             LOG.info("Scanning output directory for additional videos");
             OutputDirectoryScanner ods = new OutputDirectoryScanner(jukebox.getJukeboxRootLocationDetails());
             ods.scan(library);
@@ -941,6 +1048,11 @@ public class MovieJukebox {
                     JukeboxStatistics.increment(JukeboxStatistic.MOVIES);
                 }
 
+                if (changes != null && changes.isUnchanged(movie)) {
+                    LOG.debug("Unchanged video: {}", movieTitleExt);
+                    continue;
+                }
+
                 // Multi-thread parallel processing
                 tasks.submit(new Callable<Void>() {
                     @Override
@@ -961,45 +1073,62 @@ public class MovieJukebox {
                         if (ScanningLimit.getToken()) {
 
                             // First get movie data (title, year, director, genre, etc...)
+                            long step = JukeboxMetrics.start();
                             library.toggleDirty(updateMovieData(xmlReader, tools.miScanner, jukebox, movie, library));
+                            JukeboxMetrics.record(Group.STEP, "movieData", step);
 
                             if (!movie.getMovieType().equals(Movie.REMOVE)) {
                                 // Check for watched and unwatched files
                                 if (enableWatchScanner || enableWatchTraktTv) { // Issue 1938
+                                    step = JukeboxMetrics.start();
                                     library.toggleDirty(WatchedScanner.checkWatched(jukebox, movie));
+                                    JukeboxMetrics.record(Group.STEP, "watched", step);
                                 }
 
                                 // Get subtitle
+                                step = JukeboxMetrics.start();
                                 tools.subtitlePlugin.generate(movie);
+                                JukeboxMetrics.record(Group.STEP, "subtitles", step);
 
                                 // Get Trailers
                                 if (trailersScannerEnable) {
+                                    step = JukeboxMetrics.start();
                                     tools.trailerScanner.getTrailers(movie);
+                                    JukeboxMetrics.record(Group.STEP, "trailers", step);
                                 }
 
                                 // Then get this movie's poster
                                 LOG.debug("Updating poster for: {}", movieTitleExt);
+                                step = JukeboxMetrics.start();
                                 updateMoviePoster(jukebox, movie);
+                                JukeboxMetrics.record(Group.STEP, "poster", step);
 
                                 // Download episode images if required
                                 if (videoimageDownload) {
+                                    step = JukeboxMetrics.start();
                                     VideoImageScanner.scan(tools.imagePlugin, jukebox, movie);
+                                    JukeboxMetrics.record(Group.STEP, "videoImages", step);
                                 }
 
                                 // Get FANART only if requested
                                 // Note that the FanartScanner will check if the file is newer / different
                                 if ((fanartMovieDownload && !movie.isTVShow()) || (fanartTvDownload && movie.isTVShow())) {
+                                    step = JukeboxMetrics.start();
                                     FanartScanner.scan(tools.backgroundPlugin, jukebox, movie);
+                                    JukeboxMetrics.record(Group.STEP, "fanart", step);
                                 }
 
                                 // Get BANNER if requested and is a TV show
                                 if (bannerDownload && movie.isTVShow()) {
+                                    step = JukeboxMetrics.start();
                                     if (!BannerScanner.scan(tools.imagePlugin, jukebox, movie)) {
                                         updateTvBanner(jukebox, movie, tools.imagePlugin);
                                     }
+                                    JukeboxMetrics.record(Group.STEP, "banner", step);
                                 }
 
                                 // Get ClearART/LOGOS/etc
+                                step = JukeboxMetrics.start();
                                 if (movie.isTVShow()) {
                                     // Only scan using the TV Show artwork scanners
                                     tools.clearArtScanner.scan(jukebox, movie);
@@ -1012,12 +1141,15 @@ public class MovieJukebox {
                                     tools.movieDiscScanner.scan(jukebox, movie);
                                     tools.movieLogoScanner.scan(jukebox, movie);
                                 }
+                                JukeboxMetrics.record(Group.STEP, "artwork", step);
 
+                                step = JukeboxMetrics.start();
                                 for (int i = 0; i < footerCount; i++) {
                                     if (FOOTER_ENABLE.get(i)) {
                                         updateFooter(jukebox, movie, tools.imagePlugin, i, forceFooterOverwrite || movie.isDirty());
                                     }
                                 }
+                                JukeboxMetrics.record(Group.STEP, "footer", step);
 
                                 // If we are multipart, we need to make sure all archives have expanded names.
                                 if (PropertiesUtil.getBooleanProperty("mjb.scanner.mediainfo.rar.extended.url", Boolean.FALSE)) {
@@ -1065,6 +1197,7 @@ public class MovieJukebox {
                 });
             }
             tasks.waitFor();
+            waitForDownloads();
 
             // Add the new extra files (like trailers that were downloaded) to the library and to the corresponding movies
             library.mergeExtras();
@@ -1073,6 +1206,7 @@ public class MovieJukebox {
             AniDbPlugin.anidbClose();
 
             JukeboxStatistics.setJukeboxTime(JukeboxStatistics.JukeboxTimes.PROCESSING_END, System.currentTimeMillis());
+            HostConcurrencyLimiter.logStatus();
 
             if (peopleScan && peopleScrape && !ScanningLimit.isLimitReached()) {
                 LOG.info("Searching for people information...");
@@ -1427,6 +1561,7 @@ public class MovieJukebox {
                 });
             }
             tasks.waitFor();
+            waitForDownloads();
 
             // Clear the cache if we've used it
             CacheMemory.clear();
@@ -1648,7 +1783,9 @@ public class MovieJukebox {
             LOG.info("Copying new files to Jukebox directory...");
             String index = getProperty("mjb.indexFile", "index.htm");
 
-            FileTools.copyDir(jukebox.getJukeboxTempLocationDetails(), jukebox.getJukeboxRootLocationDetails(), Boolean.TRUE);
+            // The temporary files are deleted afterwards, so they can be moved if on the same volume
+            TreeCopy.copyTree(new File(jukebox.getJukeboxTempLocationDetails()), new File(jukebox.getJukeboxRootLocationDetails()),
+                    PropertiesUtil.getBooleanProperty("mjb.publish.move", Boolean.TRUE), Boolean.TRUE);
             FileTools.copyFile(new File(jukebox.getJukeboxTempLocation() + File.separator + index), new File(jukebox.getJukeboxRootLocation() + File.separator + index));
 
             String skinDate = jukebox.getJukeboxRootLocationDetails() + File.separator + "pictures" + File.separator + "skin.date";
@@ -1677,6 +1814,8 @@ public class MovieJukebox {
                 }
 
                 StringTokenizer st = new StringTokenizer(PropertiesUtil.getProperty("mjb.skin.copyDirs", "html"), " ,;|");
+                // The files copied before are only copied again if they have changed
+                File skinManifest = new File(jukebox.getJukeboxRootLocationDetails() + File.separator + "pictures" + File.separator + "skin.manifest");
 
                 while (st.hasMoreTokens()) {
                     String skinDirName = st.nextToken();
@@ -1684,7 +1823,8 @@ public class MovieJukebox {
 
                     if ((new File(skinDirFull).exists())) {
                         LOG.info("Copying the {} directory...", skinDirName);
-                        FileTools.copyDir(skinDirFull, jukebox.getJukeboxRootLocationDetails(), Boolean.TRUE);
+                        int copied = AssetSync.syncDirectory(new File(skinDirFull), new File(jukebox.getJukeboxRootLocationDetails()), skinManifest, forceSkinOverwrite);
+                        LOG.info("Copied {} new or changed files", copied);
                     }
                 }
 
@@ -1699,6 +1839,8 @@ public class MovieJukebox {
                 LOG.debug("Use mjb.forceSkinOverwrite=true to force the overwitting of the skin files");
             }
 
+            BuildGraph.writeFile(jukebox);
+            RecheckPlanner.writePlan(jukebox, library);
             FileTools.fileCache.saveFileList("filecache.txt");
             JukeboxStatistics.setJukeboxTime(JukeboxStatistics.JukeboxTimes.COPYING_END, System.currentTimeMillis());
 
@@ -1736,10 +1878,18 @@ public class MovieJukebox {
 
         // Output the statistics
         JukeboxStatistics.writeFile(jukebox, library, mediaLibraryPaths);
+        JukeboxMetrics.writeFile(jukebox);
 
         LOG.info("");
         LOG.info("MovieJukebox process completed at {}", new Date());
         LOG.info("Processing took {}", JukeboxStatistics.getProcessingTime());
+
+        if (watchMode) {
+            previousLibrary = library;
+        }
+
+        // The jukebox has been written, so download the queued trailers
+        TrailerQueue.drain(jukebox);
     }
 
     private static boolean comparePersonId(Filmography aPerson, Filmography bPerson) {
@@ -2086,9 +2236,9 @@ public class MovieJukebox {
     public void updateMoviePoster(Jukebox jukebox, Movie movie) {
         String posterFilename = movie.getPosterFilename();
         String skinHome = SkinProperties.getSkinHome();
-        File dummyFile = FileUtils.getFile(skinHome, LIT_RESOURCES, DUMMY_JPG);
+        final File dummyFile = FileUtils.getFile(skinHome, LIT_RESOURCES, DUMMY_JPG);
         File posterFile = new File(FilenameUtils.concat(jukebox.getJukeboxRootLocationDetails(), posterFilename));
-        File tmpDestFile = new File(FilenameUtils.concat(jukebox.getJukeboxTempLocationDetails(), posterFilename));
+        final File tmpDestFile = new File(FilenameUtils.concat(jukebox.getJukeboxTempLocationDetails(), posterFilename));
 
         FileTools.makeDirsForFile(posterFile);
         FileTools.makeDirsForFile(tmpDestFile);
@@ -2103,19 +2253,54 @@ public class MovieJukebox {
 
             if (!isValidString(movie.getPosterURL())) {
                 LOG.debug("Dummy image used for {}", movie.getBaseName());
-                FileTools.copyFile(dummyFile, tmpDestFile);
+                AssetSync.placeholder(dummyFile, tmpDestFile);
             } else {
-                try {
-                    // Issue 201 : we now download to local temp dir
-                    LOG.debug("Downloading poster for {} to '{}'", movie.getBaseName(), tmpDestFile.getName());
-                    FileTools.downloadImage(tmpDestFile, movie.getPosterURL());
-                    LOG.debug("Downloaded poster for {}", movie.getBaseName());
-                } catch (IOException error) {
-                    LOG.debug("Failed downloading movie poster: {} - Error: {}", movie.getPosterURL(), error.getMessage());
-                    FileTools.copyFile(dummyFile, tmpDestFile);
-                }
+                // Issue 201 : we now download to local temp dir
+                // The poster is only used after the processing, so the download is not waited for here
+                LOG.debug("Downloading poster for {} to '{}'", movie.getBaseName(), tmpDestFile.getName());
+                final String baseName = movie.getBaseName();
+                final String posterURL = movie.getPosterURL();
+                final BasicFuture<File> done = new BasicFuture<>(null);
+                pendingDownloads.add(done);
+                FileTools.downloadImageAsync(tmpDestFile, posterURL, new FutureCallback<File>() {
+                    @Override
+                    public void completed(File file) {
+                        LOG.debug("Downloaded poster for {}", baseName);
+                        done.completed(file);
+                    }
+
+                    @Override
+                    public void failed(Exception error) {
+                        LOG.debug("Failed downloading movie poster: {} - Error: {}", posterURL, error.getMessage());
+                        AssetSync.placeholder(dummyFile, tmpDestFile);
+                        done.completed(tmpDestFile);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        AssetSync.placeholder(dummyFile, tmpDestFile);
+                        done.completed(tmpDestFile);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Wait for the poster downloads started by updateMoviePoster
+     */
+    private void waitForDownloads() {
+        for (Future<File> download : pendingDownloads) {
+            try {
+                download.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException ex) {
+                LOG.debug("Poster download failed: {}", ex.getMessage());
             }
         }
+        pendingDownloads.clear();
     }
 
     /**
@@ -2149,14 +2334,14 @@ public class MovieJukebox {
 
             if (isNotValidString(movie.getBannerURL())) {
                 LOG.debug("Dummy banner used for {}", movie.getBaseName());
-                FileTools.copyFile(new File(skinHome + File.separator + LIT_RESOURCES + File.separator + "dummy_banner.jpg"), origDestFile);
+                AssetSync.placeholder(new File(skinHome + File.separator + LIT_RESOURCES + File.separator + "dummy_banner.jpg"), origDestFile);
             } else {
                 try {
                     LOG.debug("Downloading banner for '{}' to '{}'", movie.getBaseName(), origDestFile.getName());
                     FileTools.downloadImage(origDestFile, movie.getBannerURL());
                 } catch (IOException error) {
                     LOG.debug("Failed downloading banner: {} - Error: {}", movie.getBannerURL(), error.getMessage());
-                    FileTools.copyFile(new File(skinHome + File.separator + LIT_RESOURCES + File.separator + "dummy_banner.jpg"), origDestFile);
+                    AssetSync.placeholder(new File(skinHome + File.separator + LIT_RESOURCES + File.separator + "dummy_banner.jpg"), origDestFile);
                 }
             }
 
@@ -2278,11 +2463,13 @@ public class MovieJukebox {
         String tmpThumbnailFile = appendToPath(jukebox.getJukeboxTempLocationDetails(), safeThumbnailFilename);
         String jkbThumbnailFile = appendToPath(jukebox.getJukeboxRootLocationDetails(), safeThumbnailFilename);
         File destinationFile;
+        BuildGraph.Inputs inputs = getImageInputs(imagePlugin, skinHome, THUMBNAILS, tmpPosterFile.exists() ? tmpPosterFile : jkbPosterFile);
 
         if (movie.isDirty(DirtyFlag.POSTER)
                 || forceThumbnailOverwrite
                 || !FileTools.fileCache.fileExists(jkbThumbnailFile)
-                || tmpPosterFile.exists()) {
+                || tmpPosterFile.exists()
+                || BuildGraph.isStale(safeThumbnailFilename, inputs)) {
             // Issue 228: If the PNG files are deleted before running the jukebox this fails.
             // Therefore check to see if they exist in the original directory
             if (tmpPosterFile.exists()) {
@@ -2304,7 +2491,7 @@ public class MovieJukebox {
                 LOG.info("Using dummy thumbnail image for {}", movie.getBaseName());
                 // There was an error with the URL, assume it's a bad URL and clear it so we try again
                 movie.setPosterURL(Movie.UNKNOWN);
-                FileTools.copyFile(new File(skinHome + File.separator + LIT_RESOURCES + File.separator + DUMMY_JPG), tmpPosterFile);
+                AssetSync.placeholder(new File(skinHome + File.separator + LIT_RESOURCES + File.separator + DUMMY_JPG), tmpPosterFile);
                 try {
                     bi = GraphicTools.loadJPEGImage(tmpPosterFile);
                 } catch (IOException ex) {
@@ -2349,6 +2536,7 @@ public class MovieJukebox {
                 LOG.debug("Generating left thumbnail from {} to {}", tmpPosterFile, tmpThumbnailFile);
             }
         }
+        BuildGraph.record(safeThumbnailFilename, inputs);
     }
 
     /**
@@ -2371,11 +2559,13 @@ public class MovieJukebox {
         String tmpThumbnailFile = appendToPath(jukebox.getJukeboxTempLocationDetails(), safeDetailPosterFilename);
         String jkbThumbnailFile = appendToPath(jukebox.getJukeboxRootLocationDetails(), safeDetailPosterFilename);
         File destinationFile;
+        BuildGraph.Inputs inputs = getImageInputs(posterManager, skinHome, POSTERS, tmpPosterFile.exists() ? tmpPosterFile : jkbPosterFile);
 
         if (movie.isDirty(DirtyFlag.POSTER)
                 || forcePosterOverwrite
                 || !FileTools.fileCache.fileExists(jkbThumbnailFile)
-                || tmpPosterFile.exists()) {
+                || tmpPosterFile.exists()
+                || BuildGraph.isStale(safeDetailPosterFilename, inputs)) {
             // Issue 228: If the PNG files are deleted before running the jukebox this fails. Therefore check to see if they exist in the original directory
             if (tmpPosterFile.exists()) {
                 LOG.debug("CreatePoster: New file exists ({})", tmpPosterFile);
@@ -2396,7 +2586,7 @@ public class MovieJukebox {
             if (bi == null) {
                 // There was an error with the URL, assume it's a bad URL and clear it so we try again
                 movie.setPosterURL(Movie.UNKNOWN);
-                FileTools.copyFile(new File(skinHome + File.separator + LIT_RESOURCES + File.separator + DUMMY_JPG), jkbPosterFile);
+                AssetSync.placeholder(new File(skinHome + File.separator + LIT_RESOURCES + File.separator + DUMMY_JPG), jkbPosterFile);
                 try {
                     bi = GraphicTools.loadJPEGImage(tmpPosterFile);
                     LOG.info("Using dummy poster image for {}", movie.getOriginalTitle());
@@ -2444,6 +2634,25 @@ public class MovieJukebox {
                 LOG.debug("Generating left poster from {} to {}", tmpPosterFile, tmpThumbnailFile);
             }
         }
+        BuildGraph.record(safeDetailPosterFilename, inputs);
+    }
+
+    /**
+     * Get the inputs of a poster or thumbnail created from the original poster
+     * file.
+     *
+     * @param imagePlugin
+     * @param skinHome
+     * @param imageType
+     * @param posterFile
+     * @return
+     */
+    private static BuildGraph.Inputs getImageInputs(MovieImagePlugin imagePlugin, String skinHome, String imageType, File posterFile) {
+        return new BuildGraph.Inputs()
+                .add("plugin", imagePlugin.getClass().getName())
+                .add("skin", skinHome)
+                .addProperties(imageType + ".")
+                .addFileStamp(posterFile);
     }
 
     public static boolean isJukeboxPreserve() {
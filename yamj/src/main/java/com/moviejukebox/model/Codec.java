@@ -26,6 +26,7 @@ import com.moviejukebox.model.enumerations.CodecSource;
 import com.moviejukebox.model.enumerations.CodecType;
 import com.moviejukebox.scanner.MovieFilenameScanner;
 import com.moviejukebox.tools.PropertiesUtil;
+import com.moviejukebox.tools.StringPool;
 import com.moviejukebox.tools.StringTools;
 import java.util.ArrayList;
 import java.util.List;
@@ -100,7 +101,7 @@ public class Codec {
      */
     public Codec(CodecType codecType, String codec) {
         this.codecType = codecType;
-        this.codec = codec;
+        this.codec = StringPool.intern(codec);
         this.codecSource = CodecSource.UNKNOWN;
     }
 
@@ -109,7 +110,7 @@ public class Codec {
         if (StringUtils.isBlank(codec)) {
             this.codecFormat = Movie.UNKNOWN;
         } else {
-            this.codec = codec;
+            this.codec = StringPool.intern(codec);
         }
     }
 
@@ -117,7 +118,7 @@ public class Codec {
         if (StringUtils.isBlank(codecFormat)) {
             this.codecFormat = Movie.UNKNOWN;
         } else {
-            this.codecFormat = codecFormat;
+            this.codecFormat = StringPool.intern(codecFormat);
         }
     }
 
@@ -125,7 +126,7 @@ public class Codec {
         if (StringUtils.isBlank(codecFormatProfile)) {
             this.codecFormatProfile = Movie.UNKNOWN;
         } else {
-            this.codecFormatProfile = codecFormatProfile;
+            this.codecFormatProfile = StringPool.intern(codecFormatProfile);
         }
     }
 
@@ -133,7 +134,7 @@ public class Codec {
         if (StringUtils.isBlank(codecFormatVersion)) {
             this.codecFormatVersion = Movie.UNKNOWN;
         } else {
-            this.codecFormatVersion = codecFormatVersion;
+            this.codecFormatVersion = StringPool.intern(codecFormatVersion);
         }
     }
 
@@ -141,7 +142,7 @@ public class Codec {
         if (StringUtils.isBlank(codecId)) {
             this.codecId = Movie.UNKNOWN;
         } else {
-            this.codecId = codecId;
+            this.codecId = StringPool.intern(codecId);
         }
     }
 
@@ -149,7 +150,7 @@ public class Codec {
         if (StringUtils.isBlank(codecIdHint)) {
             this.codecIdHint = Movie.UNKNOWN;
         } else {
-            this.codecIdHint = codecIdHint;
+            this.codecIdHint = StringPool.intern(codecIdHint);
         }
     }
 
@@ -168,9 +169,9 @@ public class Codec {
                 this.codecLanguage = Movie.UNKNOWN;
             }
         } else {
-            this.codecLanguage = codecLanguage;
+            this.codecLanguage = StringPool.intern(codecLanguage);
             if (StringTools.isNotValidString(codecFullLanguage)) {
-                this.codecFullLanguage = MovieFilenameScanner.determineLanguage(this.codecLanguage);
+                this.codecFullLanguage = StringPool.intern(MovieFilenameScanner.determineLanguage(this.codecLanguage));
             }
         }
     }
@@ -179,7 +180,7 @@ public class Codec {
         if (StringUtils.isBlank(codecBitRate)) {
             this.codecBitRate = Movie.UNKNOWN;
         } else {
-            this.codecBitRate = codecBitRate;
+            this.codecBitRate = StringPool.intern(codecBitRate);
         }
     }
 
@@ -194,7 +195,7 @@ public class Codec {
     }
 
     public void setCodecFullLanguage(String codecFullLanguage) {
-        this.codecFullLanguage = codecFullLanguage;
+        this.codecFullLanguage = StringPool.intern(codecFullLanguage);
     }
 
     public void setCodecSource(CodecSource codecSource) {
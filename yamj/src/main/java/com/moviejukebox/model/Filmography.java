@@ -37,6 +37,7 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 
 import com.moviejukebox.plugin.ImdbPlugin;
 import com.moviejukebox.tools.FileTools;
+import com.moviejukebox.tools.StringPool;
 
 /**
  * This is the new bean for the Person
@@ -215,7 +216,7 @@ public class Filmography implements Identifiable {
 
     public final void setDepartment(String department) {
         if (isValidString(department) && !this.department.equalsIgnoreCase(department)) {
-            this.department = department;
+            this.department = StringPool.intern(department);
             setDirty();
         }
     }
@@ -232,7 +233,7 @@ public class Filmography implements Identifiable {
 
     public final void setJob(String job) {
         if (isValidString(job) && !this.job.equalsIgnoreCase(job)) {
-            this.job = job;
+            this.job = StringPool.intern(job);
             setDirty();
         }
     }
@@ -446,7 +447,7 @@ public class Filmography implements Identifiable {
     }
 
     public void setSource(String source) {
-        this.source = source;
+        this.source = StringPool.intern(source);
     }
 
     public String getSource() {
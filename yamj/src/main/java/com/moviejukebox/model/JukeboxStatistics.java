@@ -27,6 +27,7 @@ import java.util.Collection;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -58,7 +59,8 @@ public final class JukeboxStatistics {
     // Filename
     private static final String XML_FILENAME = "jukebox_statistics.xml";
     // Properties
-    private static final Map<JukeboxStatistic, Integer> STATISTICS = new EnumMap<>(JukeboxStatistic.class);
+    // The map is filled once, so only the counters are updated by the threads
+    private static final Map<JukeboxStatistic, AtomicInteger> STATISTICS = new EnumMap<>(JukeboxStatistic.class);
     private static final Map<JukeboxTimes, Long> TIMES = new EnumMap<>(JukeboxTimes.class);
     // Literals
     private static final String DEFAULT_FORMAT = "HH:mm:ss.S";
@@ -69,7 +71,7 @@ public final class JukeboxStatistics {
         FileTools.addJukeboxFile(XML_FILENAME);
         // Initialise the values
         for (JukeboxStatistic stat : JukeboxStatistic.values()) {
-            STATISTICS.put(stat, 0);
+            STATISTICS.put(stat, new AtomicInteger());
         }
     }
 
@@ -102,7 +104,7 @@ public final class JukeboxStatistics {
      * @return
      */
     public static int getStatistic(JukeboxStatistic stat) {
-        return STATISTICS.get(stat);
+        return STATISTICS.get(stat).get();
     }
 
     /**
@@ -111,8 +113,8 @@ public final class JukeboxStatistics {
      * @param stat
      * @param value
      */
-    public static synchronized void setStatistic(JukeboxStatistic stat, Integer value) {
-        STATISTICS.put(stat, value);
+    public static void setStatistic(JukeboxStatistic stat, Integer value) {
+        STATISTICS.get(stat).set(value);
     }
 
     /**
@@ -120,7 +122,7 @@ public final class JukeboxStatistics {
      *
      * @param stat
      */
-    public static synchronized void increment(JukeboxStatistic stat) {
+    public static void increment(JukeboxStatistic stat) {
         increment(stat, 1);
     }
 
@@ -130,9 +132,8 @@ public final class JukeboxStatistics {
      * @param stat
      * @param amount
      */
-    public static synchronized void increment(JukeboxStatistic stat, Integer amount) {
-        Integer current = STATISTICS.get(stat);
-        STATISTICS.put(stat, current + amount);
+    public static void increment(JukeboxStatistic stat, Integer amount) {
+        STATISTICS.get(stat).addAndGet(amount);
     }
 
     /**
@@ -140,7 +141,7 @@ public final class JukeboxStatistics {
      *
      * @param stat
      */
-    public static synchronized void decrement(JukeboxStatistic stat) {
+    public static void decrement(JukeboxStatistic stat) {
         decrement(stat, 1);
     }
 
@@ -150,9 +151,18 @@ public final class JukeboxStatistics {
      * @param stat
      * @param amount
      */
-    public static synchronized void decrement(JukeboxStatistic stat, Integer amount) {
-        Integer current = STATISTICS.get(stat);
-        STATISTICS.put(stat, current - amount);
+    public static void decrement(JukeboxStatistic stat, Integer amount) {
+        STATISTICS.get(stat).addAndGet(-amount);
+    }
+
+    /**
+     * Clear the statistics and times of the previous run
+     */
+    public static void reset() {
+        for (AtomicInteger value : STATISTICS.values()) {
+            value.set(0);
+        }
+        TIMES.clear();
     }
 
     /**
@@ -253,7 +263,7 @@ public final class JukeboxStatistics {
         // Build the counts
         int value;
         for (JukeboxStatistic stat : JukeboxStatistic.values()) {
-            value = STATISTICS.get(stat);
+            value = STATISTICS.get(stat).get();
             if (value > 0 || !skipZero) {
                 statOutput.append(WordUtils.capitalizeFully(stat.toString().replace("_", " ").toLowerCase()));
                 statOutput.append(" = ").append(value).append("\n");
@@ -308,7 +318,7 @@ public final class JukeboxStatistics {
             eStats = docJbStats.createElement("statistics");
             eRoot.appendChild(eStats);
 
-            for (Map.Entry<JukeboxStatistic, Integer> entry : STATISTICS.entrySet()) {
+            for (Map.Entry<JukeboxStatistic, AtomicInteger> entry : STATISTICS.entrySet()) {
                 DOMHelper.appendChild(docJbStats, eStats, entry.getKey().toString().toLowerCase(), entry.getValue().toString());
             }
             DOMHelper.appendChild(docJbStats, eStats, "libraries", Integer.toString(mediaLibraryPaths.size()));
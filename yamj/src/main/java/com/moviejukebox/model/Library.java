@@ -1889,6 +1889,13 @@ public class Library implements Map<String, Movie> {
         }
     }
 
+    /**
+     * Forget the libraries marked as dirty by a previous run
+     */
+    public static void clearDirtyLibraries() {
+        DIRTY_LIBRARIES.clear();
+    }
+
     public boolean isDirtyLibrary(String name) {
         return StringTools.isValidString(name) && DIRTY_LIBRARIES.contains(name);
     }
@@ -74,11 +74,10 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
      * Properties that control the object
      */
     private static final List<String> SORT_IGNORE_PREFIXES = new ArrayList<>();
-    private final int highdef720 = PropertiesUtil.getIntProperty("highdef.720.width", 1280);    // Get the minimum width for a high-definition movies
-    private final int highdef1080 = PropertiesUtil.getIntProperty("highdef.1080.width", 1920);  // Get the minimum width for a high-definition movies
-    private final String[] ratingSource = PropertiesUtil.getProperty("mjb.rating.source", "average").split(",");
-    private final String tmpRatingIgnore = PropertiesUtil.getProperty("mjb.rating.ignore", "");
-    private final List<String> ratingIgnore = StringTools.isValidString(tmpRatingIgnore) ? Arrays.asList(tmpRatingIgnore.split(",")) : new ArrayList<String>();
+    private static final int HIGHDEF_720 = PropertiesUtil.getIntProperty("highdef.720.width", 1280);    // Get the minimum width for a high-definition movies
+    private static final int HIGHDEF_1080 = PropertiesUtil.getIntProperty("highdef.1080.width", 1920);  // Get the minimum width for a high-definition movies
+    private static final String[] RATING_SOURCE = PropertiesUtil.getProperty("mjb.rating.source", "average").split(",");
+    private static final List<String> RATING_IGNORE = Arrays.asList(StringUtils.split(PropertiesUtil.getProperty("mjb.rating.ignore", ""), ","));
     private static final Set<String> GENRE_SKIP_LIST = new HashSet<>();   // List of genres to ignore
     private static final TitleSortType TITLE_SORT_TYPE = TitleSortType.fromString(PropertiesUtil.getProperty("mjb.sortTitle", "title"));
     // TODO: This will be removed in the future, once hashing has been completed
@@ -95,7 +94,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
      */
     private String baseName;        // Safe name for generated files
     private String baseFilename;    // Base name for finding posters, nfos, banners, etc.
-    private Map<String, String> idMap = new HashMap<>(2);
+    private Map<String, String> idMap = new HashMap<>(4);
     private String title = UNKNOWN;
     private String titleSort = UNKNOWN;
     private String strippedTitleSort = UNKNOWN; // Not saved, used to speedup the sort
@@ -114,7 +113,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
     private String subtitles = UNKNOWN;
     private Set<String> countries = new LinkedHashSet<>();
     private Set<String> directors = new LinkedHashSet<>();
-    private Map<String, Integer> sets = new HashMap<>();
+    private Map<String, Integer> sets = Collections.emptyMap();
     private Collection<String> genres = new TreeSet<>();
     private Set<String> cast = new LinkedHashSet<>();
     private Set<String> writers = new LinkedHashSet<>();
@@ -131,13 +130,13 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
     private boolean extra = Boolean.FALSE;  // TODO Move extra flag to movie file
     private boolean trailerExchange = Boolean.FALSE;    // Trailers
     private long trailerLastScan = 0;           // Trailers
-    private Collection<AwardEvent> awards = new ArrayList<>();    // Issue 1901: Awards
-    private Collection<Filmography> people = new ArrayList<>();  // Issue 1897: Cast enhancement
+    private Collection<AwardEvent> awards = Collections.emptyList();    // Issue 1901: Awards
+    private Collection<Filmography> people = Collections.emptyList();  // Issue 1897: Cast enhancement
     private String budget = UNKNOWN;                                        // Issue 2012: Financial information about movie
-    private Map<String, String> openweek = new HashMap<>();
-    private Map<String, String> gross = new HashMap<>();
+    private Map<String, String> openweek = Collections.emptyMap();
+    private Map<String, String> gross = Collections.emptyMap();
     private Map<OverrideFlag, String> overrideSources = new EnumMap<>(OverrideFlag.class);
-    private List<String> didYouKnow = new ArrayList<>();        // Issue 2013: Add trivia
+    private List<String> didYouKnow = Collections.emptyList();        // Issue 2013: Add trivia
     private String libraryPath = UNKNOWN;
     private String movieType = TYPE_MOVIE;
     private String formatType = TYPE_FILE;
@@ -149,7 +148,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
     private String posterFilename = UNKNOWN; // The poster filename
     private String detailPosterFilename = UNKNOWN; // The resized poster for skins
     private String thumbnailFilename = UNKNOWN; // The thumbnail version of the poster for skins
-    private List<String> footerFilename = new ArrayList<>(); // The footer image for skins
+    private List<String> footerFilename = Collections.emptyList(); // The footer image for skins
     private String fanartURL = UNKNOWN; // The fanart URL
     private String fanartFilename = UNKNOWN; // The resized fanart file
     private String bannerURL = UNKNOWN; // The TV Show banner URL
@@ -180,7 +179,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
     private Map<String, String> indexes = new HashMap<>();
     // Media file properties
     private Collection<MovieFile> movieFiles = new TreeSet<>();
-    private Collection<ExtraFile> extraFiles = new TreeSet<>();
+    private Collection<ExtraFile> extraFiles = Collections.emptySet();
     private Set<DirtyFlag> dirtyFlags = EnumSet.noneOf(DirtyFlag.class);    // List of the dirty flags associated with the Movie
     private File file;
     private File containerFile;
@@ -272,7 +271,10 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
         if (StringTools.isValidString(newSet)) {
             setDirty(DirtyFlag.INFO);
             LOG.debug("Set added: {}, {}", newSet, order == null ? ", unordered" : ", order: " + order);
-            sets.put(newSet, order);
+            if (sets.isEmpty()) {
+                sets = new HashMap<>(2);
+            }
+            sets.put(StringPool.intern(newSet), order);
         }
     }
 
@@ -295,6 +297,9 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
     public void addAward(AwardEvent award) {
         if (award != null) {
             setDirty(DirtyFlag.INFO);
+            if (awards.isEmpty()) {
+                awards = new ArrayList<>();
+            }
             this.awards.add(award);
         }
     }
@@ -313,6 +318,9 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
             }
             if (!duplicate) {
                 setDirty(DirtyFlag.INFO);
+                if (people.isEmpty()) {
+                    people = new ArrayList<>();
+                }
                 added = people.add(person);
             }
         }
@@ -431,6 +439,9 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
             if (isNewFile) {
                 setDirty(DirtyFlag.INFO);
             }
+            if (extraFiles.isEmpty()) {
+                extraFiles = new TreeSet<>();
+            }
             this.extraFiles.add(extraFile);
         }
     }
@@ -957,12 +968,12 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
     public boolean isHD() {
         // Depreciated this check in favour of the width check
         // return this.videoType.equals(TYPE_VIDEO_HD) || videoOutput.indexOf("720") != -1 || videoOutput.indexOf("1080") != -1;
-        return (getWidth() >= highdef720);
+        return (getWidth() >= HIGHDEF_720);
     }
 
     @XmlTransient
     public boolean isHD1080() {
-        return (getWidth() >= highdef1080);
+        return (getWidth() >= HIGHDEF_1080);
     }
 
     @XmlTransient
@@ -981,6 +992,9 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
     public void addDidYouKnow(String fact) {
         if (fact != null && !didYouKnow.contains(fact)) {
             setDirty(DirtyFlag.INFO);
+            if (didYouKnow.isEmpty()) {
+                didYouKnow = new ArrayList<>();
+            }
             didYouKnow.add(fact);
         }
     }
@@ -1196,7 +1210,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
         if (StringTools.isValidString(container)) {
             if (!container.equalsIgnoreCase(this.container)) {
                 setDirty(DirtyFlag.INFO);
-                this.container = container;
+                this.container = StringPool.intern(container);
             }
             setOverrideSource(OverrideFlag.CONTAINER, source);
         }
@@ -1212,7 +1226,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
                 tmpCountry = country;
             }
 
-            if (this.countries.add(tmpCountry)) {
+            if (this.countries.add(StringPool.intern(tmpCountry))) {
                 // country added
                 setDirty(DirtyFlag.INFO);
             }
@@ -1370,7 +1384,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
             this.genres.clear();
             for (String genre : genres) {
                 if (StringTools.isValidString(genre) && !GENRE_SKIP_LIST.contains(genre.toLowerCase())) {
-                    this.genres.add(genre);
+                    this.genres.add(StringPool.intern(genre));
                 }
             }
             setDirty(DirtyFlag.INFO);
@@ -1409,7 +1423,10 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
     public void setGross(String country, String value) {
         if (StringTools.isValidString(country) && StringTools.isValidString(value) && !value.equalsIgnoreCase(this.getGross(country))) {
             setDirty(DirtyFlag.INFO);
-            this.gross.put(country, value);
+            if (gross.isEmpty()) {
+                gross = new HashMap<>(2);
+            }
+            this.gross.put(StringPool.intern(country), value);
         }
     }
 
@@ -1422,7 +1439,10 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
     public void setOpenWeek(String country, String value) {
         if (StringTools.isValidString(country) && StringTools.isValidString(value) && !value.equalsIgnoreCase(this.getOpenWeek(country))) {
             setDirty(DirtyFlag.INFO);
-            this.openweek.put(country, value);
+            if (openweek.isEmpty()) {
+                openweek = new HashMap<>(2);
+            }
+            this.openweek.put(StringPool.intern(country), value);
         }
     }
 
@@ -1436,7 +1456,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
         if (StringUtils.isBlank(source)) {
             this.overrideSources.put(flag, UNKNOWN);
         } else {
-            this.overrideSources.put(flag, source.toUpperCase());
+            this.overrideSources.put(flag, StringPool.intern(source.toUpperCase()));
         }
     }
 
@@ -1444,7 +1464,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
         if (StringTools.isValidString(language)) {
             if (!language.equalsIgnoreCase(this.language)) {
                 setDirty(DirtyFlag.INFO);
-                this.language = language;
+                this.language = StringPool.intern(language);
             }
             setOverrideSource(OverrideFlag.LANGUAGE, source);
         }
@@ -1454,7 +1474,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
         if (StringTools.isValidString(certification)) {
             if (!certification.equalsIgnoreCase(this.certification)) {
                 setDirty(DirtyFlag.INFO);
-                this.certification = certification;
+                this.certification = StringPool.intern(certification);
             }
             setOverrideSource(OverrideFlag.CERTIFICATION, source);
         }
@@ -1573,20 +1593,20 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
             return -1;
         }
 
-        for (String site : ratingSource) {
+        for (String site : RATING_SOURCE) {
             if ("average".equalsIgnoreCase(site)) {
                 // Return the average of the ratings
                 int rating = 0;
                 int count = 0;
 
                 for (String ratingSite : ratings.keySet()) {
-                    if (!ratingIgnore.isEmpty()) {
-                        if (ratingIgnore.contains(ratingSite)) {
+                    if (!RATING_IGNORE.isEmpty()) {
+                        if (RATING_IGNORE.contains(ratingSite)) {
                             continue;
                         }
 
                         boolean found = Boolean.FALSE;
-                        for (String ignoreName : ratingIgnore) {
+                        for (String ignoreName : RATING_IGNORE) {
                             if (ratingSite.indexOf(ignoreName) == 0) {
                                 found = Boolean.TRUE;
                                 break;
@@ -1664,7 +1684,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
         if (StringTools.isValidString(resolution)) {
             if (!resolution.equalsIgnoreCase(this.resolution)) {
                 setDirty(DirtyFlag.INFO);
-                this.resolution = resolution;
+                this.resolution = StringPool.intern(resolution);
             }
             setOverrideSource(OverrideFlag.RESOLUTION, source);
         }
@@ -1682,9 +1702,9 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
                 setDirty(DirtyFlag.INFO);
                 // Escape the first "0" AlloCine gives sometimes
                 if (runtime.startsWith("0")) {
-                    this.runtime = runtime.substring(1).trim();
+                    this.runtime = StringPool.intern(runtime.substring(1).trim());
                 } else {
-                    this.runtime = runtime.trim();
+                    this.runtime = StringPool.intern(runtime.trim());
                 }
             }
             setOverrideSource(OverrideFlag.RUNTIME, source);
@@ -1692,7 +1712,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
     }
 
     public void setSubtitles(String subtitles) {
-        this.subtitles = validateString(subtitles, this.subtitles);
+        this.subtitles = StringPool.intern(validateString(subtitles, this.subtitles));
     }
 
     public void setTitle(String title, String source) {
@@ -1776,7 +1796,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
         if (StringTools.isValidString(videoOutput)) {
             if (!videoOutput.equalsIgnoreCase(this.videoOutput)) {
                 setDirty(DirtyFlag.INFO);
-                this.videoOutput = videoOutput;
+                this.videoOutput = StringPool.intern(videoOutput);
             }
             setOverrideSource(OverrideFlag.VIDEOOUTPUT, source);
         }
@@ -1786,7 +1806,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
         if (StringTools.isValidString(videoSource)) {
             if (!videoSource.equalsIgnoreCase(this.videoSource)) {
                 setDirty(DirtyFlag.INFO);
-                this.videoSource = videoSource;
+                this.videoSource = StringPool.intern(videoSource);
             }
             setOverrideSource(OverrideFlag.VIDEOSOURCE, source);
         }
@@ -1796,7 +1816,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
         if (StringTools.isValidString(year)) {
             if (!year.equalsIgnoreCase(this.year)) {
                 setDirty(DirtyFlag.INFO);
-                this.year = year;
+                this.year = StringPool.intern(year);
             }
             setOverrideSource(OverrideFlag.YEAR, source);
         }
@@ -2020,7 +2040,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
     }
 
     public void setVideoType(String videoType) {
-        this.videoType = validateString(videoType, this.videoType);
+        this.videoType = StringPool.intern(validateString(videoType, this.videoType));
     }
 
     public String getVideoType() {
@@ -2076,7 +2096,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
     }
 
     public void setLibraryDescription(String libraryDescription) {
-        this.libraryDescription = validateString(libraryDescription, this.libraryDescription);
+        this.libraryDescription = StringPool.intern(validateString(libraryDescription, this.libraryDescription));
     }
 
     public long getPrebuf() {
@@ -2312,7 +2332,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
         if (StringTools.isValidString(aspectRatio)) {
             if (!aspectRatio.equalsIgnoreCase(this.aspect)) {
                 setDirty(DirtyFlag.INFO);
-                this.aspect = aspectRatio;
+                this.aspect = StringPool.intern(aspectRatio);
             }
             setOverrideSource(OverrideFlag.ASPECTRATIO, source);
         }
@@ -2424,6 +2444,10 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
                 ff = FileTools.makeSafeFilename(footerFilename);
             }
 
+        if (this.footerFilename.isEmpty()) {
+            this.footerFilename = new ArrayList<>(inx + 1);
+        }
+
         if (this.footerFilename.size() <= inx) {
             while (this.footerFilename.size() < inx) {
                 this.footerFilename.add(UNKNOWN);
@@ -2761,7 +2785,7 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
     }
 
     public void setShowStatus(String showStatus) {
-        this.showStatus = showStatus;
+        this.showStatus = StringPool.intern(showStatus);
     }
 
     public void setMovieScanner(MovieDatabasePlugin movieScanner) {
@@ -2855,18 +2879,18 @@ public class Movie implements Comparable<Movie>, Identifiable, IMovieBasicInform
         newMovie.countries = new LinkedHashSet<>(aMovie.countries);
         newMovie.ratings = new HashMap<>(aMovie.ratings);
         newMovie.directors = new LinkedHashSet<>(aMovie.directors);
-        newMovie.sets = new HashMap<>(aMovie.sets);
+        newMovie.sets = aMovie.sets.isEmpty() ? Collections.<String, Integer>emptyMap() : new HashMap<>(aMovie.sets);
         newMovie.genres = new TreeSet<>(aMovie.genres);
         newMovie.cast = new LinkedHashSet<>(aMovie.cast);
         newMovie.writers = new LinkedHashSet<>(aMovie.writers);
-        newMovie.awards = new ArrayList<>(aMovie.awards);
-        newMovie.people = new ArrayList<>(aMovie.people);
+        newMovie.awards = aMovie.awards.isEmpty() ? Collections.<AwardEvent>emptyList() : new ArrayList<>(aMovie.awards);
+        newMovie.people = aMovie.people.isEmpty() ? Collections.<Filmography>emptyList() : new ArrayList<>(aMovie.people);
         newMovie.indexes = new HashMap<>(aMovie.indexes);
         newMovie.movieFiles = new TreeSet<>(aMovie.movieFiles);
-        newMovie.extraFiles = new TreeSet<>(aMovie.extraFiles);
+        newMovie.extraFiles = aMovie.extraFiles.isEmpty() ? Collections.<ExtraFile>emptySet() : new TreeSet<>(aMovie.extraFiles);
         newMovie.dirtyFlags = EnumSet.copyOf(aMovie.dirtyFlags);
         newMovie.codecs = new LinkedHashSet<>(aMovie.codecs);
-        newMovie.footerFilename = new ArrayList<>(aMovie.footerFilename);
+        newMovie.footerFilename = aMovie.footerFilename.isEmpty() ? Collections.<String>emptyList() : new ArrayList<>(aMovie.footerFilename);
         newMovie.overrideSources = new EnumMap<>(aMovie.overrideSources);
 
         return newMovie;
@@ -112,7 +112,44 @@ public enum JukeboxStatistic {
     /**
      * How many videos are in the "Ratings" index
      */
-    INDEX_RATINGS;
+    INDEX_RATINGS,
+    /**
+     * How many http requests were found in the http cache
+     */
+    HTTP_CACHE_HITS,
+    /**
+     * How many http requests were not found in the http cache
+     */
+    HTTP_CACHE_MISSES,
+    /**
+     * How many http responses were stored in the http cache
+     */
+    HTTP_CACHE_STORES,
+    /**
+     * How many http cache entries were updated after revalidation
+     */
+    HTTP_CACHE_UPDATES,
+    /**
+     * How many http cache entries were removed to keep the cache size
+     */
+    HTTP_CACHE_EVICTIONS,
+    /**
+     * How many files were downloaded by the asynchronous downloader
+     */
+    DOWNLOADS,
+    /**
+     * How many download requests joined a download of the same URL already in
+     * progress
+     */
+    DOWNLOADS_JOINED,
+    /**
+     * How many downloads were resumed from a partial file
+     */
+    DOWNLOADS_RESUMED,
+    /**
+     * How many downloads failed
+     */
+    DOWNLOADS_FAILED;
 
     /**
      * Convert a string into an Enum type
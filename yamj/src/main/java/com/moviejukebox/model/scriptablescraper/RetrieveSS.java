@@ -23,6 +23,9 @@
 package com.moviejukebox.model.scriptablescraper;
 
 import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -35,6 +38,7 @@ public final class RetrieveSS {
     private String url;
     private Charset encoding;
     private String cookies;
+    private Map<String, String> cookieValues = Collections.emptyMap();
     private int retries = 3;
     private int timeout = 3000;
 
@@ -98,5 +102,26 @@ public final class RetrieveSS {
 
     public void setCookies(String cookies) {
         this.cookies = cookies;
+
+        // split the "name=value&name=value" list once instead of on every retrieve
+        Map<String, String> values = new LinkedHashMap<>();
+        if (StringUtils.isNotBlank(cookies)) {
+            for (String cookie : cookies.split("&")) {
+                int pos = cookie.indexOf('=');
+                if (pos > 0) {
+                    values.put(cookie.substring(0, pos), cookie.substring(pos + 1));
+                }
+            }
+        }
+        this.cookieValues = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Get the parsed cookies
+     *
+     * @return the cookie values by name
+     */
+    public Map<String, String> getCookieValues() {
+        return cookieValues;
     }
 }
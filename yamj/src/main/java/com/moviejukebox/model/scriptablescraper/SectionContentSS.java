@@ -60,7 +60,8 @@ public class SectionContentSS extends AbstractScriptableScraper {
     private final Map<String, ParseSS> parses = new HashMap<>(2);
     private final Map<String, ReplaceSS> replaces = new HashMap<>(2);
     private final Map<String, MathSS> math = new HashMap<>(2);
-    private final Collection<ItemSS> items = new ArrayList<>();
+    private final List<ItemSS> items = new ArrayList<>();
+    private static final Pattern INDEX_PATTERN = Pattern.compile("\\[(\\d+)\\](\\[(\\d+)\\])?");
 
     public SectionContentSS(String name) {
         super();
@@ -82,7 +83,7 @@ public class SectionContentSS extends AbstractScriptableScraper {
     }
 
     public ItemSS getItem(int index) {
-        return ((index >= 0) && (index < items.size())) ? (ItemSS) items.toArray()[index] : null;
+        return ((index >= 0) && (index < items.size())) ? items.get(index) : null;
     }
 
     public void addItem(String type, String key) {
@@ -108,8 +109,7 @@ public class SectionContentSS extends AbstractScriptableScraper {
                 LOG.debug("prepareVariable: subName: {}", subName);
             }
             if (subName.indexOf('.') == -1) {
-                Pattern pattern = Pattern.compile("\\[(\\d+)\\](\\[(\\d+)\\])?");
-                Matcher matcher = pattern.matcher(subName);
+                Matcher matcher = INDEX_PATTERN.matcher(subName);
                 if (matcher.find()) {
                     variable.index0 = Integer.parseInt(matcher.group(1));
                     variable.index1 = matcher.group(3) != null ? Integer.parseInt(matcher.group(3)) : -1;
@@ -23,9 +23,10 @@
 package com.moviejukebox.model.scriptablescraper;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,10 +43,15 @@ public class SectionSS extends SectionContentSS {
 
     private final Logger LOG = LoggerFactory.getLogger(SectionSS.class);
 
-    private final Collection<SectionContentSS> content = new ArrayList<>();
+    private final List<SectionContentSS> content = new ArrayList<>();
     private final SectionContentSS parent;
     // Literals
     private static final String DOLLAR_SIGN = "__DOLLAR_SIGN__";
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("__DOLLAR_SIGN__\\{([^{}]+)\\}");
+    private static final Pattern CONDITION_PATTERN = Pattern.compile("(.*[^!])(!=|=|<|>)(.*)");
+    // The values and regular expressions of the script, compiled on first use
+    private static final Map<String, Template> TEMPLATES = new ConcurrentHashMap<>();
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
 
     public SectionSS(String name, SectionContentSS parent) {
         super(name);
@@ -82,7 +88,7 @@ public class SectionSS extends SectionContentSS {
 
     public SectionContentSS getContent(int index) {
         if (index >= 0 && index < content.size()) {
-            return (SectionContentSS) content.toArray()[index];
+            return content.get(index);
         }
 
         return null;
@@ -185,7 +191,64 @@ public class SectionSS extends SectionContentSS {
         if (isDebug()) {
             LOG.debug("compileValue: '{}'", value);
         }
-        value = escapeForRegex(value);
+
+        Template template = getTemplate(value);
+        String result = template.isNested() ? compileNested(value) : template.render(this);
+        result = normalizeValue(result);
+
+        if (isDebug()) {
+            LOG.debug("compileValue: compiled: '{}'", result);
+        }
+        return result;
+    }
+
+    /**
+     * Compile a regular expression of the script.
+     *
+     * The pattern of an expression without variables is compiled only once.
+     *
+     * @param regex
+     * @return
+     */
+    public Pattern compilePattern(String regex) {
+        if (!getTemplate(regex).isConstant()) {
+            return Pattern.compile(compileValue(regex));
+        }
+
+        Pattern pattern = PATTERNS.get(regex);
+        if (pattern == null) {
+            pattern = Pattern.compile(compileValue(regex));
+            PATTERNS.put(regex, pattern);
+        }
+        return pattern;
+    }
+
+    /**
+     * Check if the value refers to the variable
+     *
+     * @param value
+     * @param name
+     * @return
+     */
+    public static boolean refersTo(String value, String name) {
+        return value != null && value.contains("${" + name);
+    }
+
+    private static Template getTemplate(String value) {
+        Template template = TEMPLATES.get(value);
+        if (template == null) {
+            template = new Template(value);
+            TEMPLATES.put(value, template);
+        }
+        return template;
+    }
+
+    /**
+     * Replace the variables of a value with variable names built from other
+     * variables, e.g. ${movie[${count}]}
+     */
+    private String compileNested(String source) {
+        String value = escapeForRegex(source);
         if (isDebug()) {
             LOG.debug("compileValue: escaped: '{}", value);
         }
@@ -193,9 +256,8 @@ public class SectionSS extends SectionContentSS {
 
         int start, end;
         String variable;
-        Pattern pattern = Pattern.compile("__DOLLAR_SIGN__\\{([^{}]+)\\}");
         while (value.contains(DOLLAR_SIGN)) {
-            Matcher matcher = pattern.matcher(value);
+            Matcher matcher = VARIABLE_PATTERN.matcher(value);
             start = -1;
             while (matcher.find()) {
                 for (int looper = 0; looper < matcher.groupCount(); looper++) {
@@ -209,42 +271,49 @@ public class SectionSS extends SectionContentSS {
                         if (isDebug()) {
                             LOG.debug("compileValue: start: {} end: {}", start, end);
                         }
-                        variable = hasGlobalVariable(variable) ? getGlobalVariable(variable) : getVariable(variable);
-                        if (variable == null || "null".equals(variable)) {
-                            variable = "";
-                        }
-                        result = result.substring(0, start) + variable + result.substring(end + 1);
+                        result = result.substring(0, start) + lookupVariable(variable) + result.substring(end + 1);
                     }
                 }
             }
             if (start == -1) {
-                result = result.replaceAll(DOLLAR_SIGN, "\\$");
+                result = result.replace(DOLLAR_SIGN, "$");
             }
             value = result;
         }
+        return result;
+    }
 
-        result = result.trim().replaceAll("^\\s+", "");
-        if (result.contains("|")) {
-            List<String> values = Arrays.asList(result.split("\\|"));
-            result = "";
-            for (String value1 : values) {
-                if (value1.length() > 0) {
-                    if (result.length() > 0) {
-                        result += "|";
+    private String lookupVariable(String name) {
+        String value = hasGlobalVariable(name) ? getGlobalVariable(name) : getVariable(name);
+        if (value == null || "null".equals(value)) {
+            return "";
+        }
+        return value;
+    }
+
+    /**
+     * Trim the value and each of its "|" separated parts, dropping the empty
+     * parts
+     */
+    private static String normalizeValue(String value) {
+        String result = value.trim();
+        if (result.indexOf('|') > -1) {
+            StringBuilder sb = new StringBuilder(result.length());
+            for (String part : result.split("\\|")) {
+                if (part.length() > 0) {
+                    if (sb.length() > 0) {
+                        sb.append('|');
                     }
-                    result += value1.trim().replaceAll("^\\s+", "");
+                    sb.append(part.trim());
                 }
             }
-        }
-        if (isDebug()) {
-            LOG.debug("compileValue: compiled: '{}'", result);
+            result = sb.toString();
         }
         return result;
     }
 
     public boolean testCondition(String data) {
-        Pattern pattern = Pattern.compile("(.*[^!])(!=|=|<|>)(.*)");
-        Matcher matcher = pattern.matcher(data);
+        Matcher matcher = CONDITION_PATTERN.matcher(data);
         if (matcher.find()) {
             String right, condition, left;
             left = matcher.group(1);
@@ -278,23 +347,98 @@ public class SectionSS extends SectionContentSS {
 
     public String parseInput(String data, String regex) {
         if (isDebug()) {
-            LOG.debug("parseInput: data: '{}'", data);
             LOG.debug("parseInput: regex: '{}'", regex);
         }
-        Pattern pattern = Pattern.compile(regex);
+        return parseInput(data, Pattern.compile(regex));
+    }
+
+    public String parseInput(String data, Pattern pattern) {
+        if (isDebug()) {
+            LOG.debug("parseInput: data: '{}'", data);
+            LOG.debug("parseInput: pattern: '{}'", pattern.pattern());
+        }
         Matcher matcher = pattern.matcher(data);
         int looper;
-        String result = "";
+        StringBuilder result = new StringBuilder();
         while (matcher.find()) {
             for (looper = 0; looper < matcher.groupCount(); looper++) {
-                result += matcher.group(looper + 1) + ScriptableScraper.ARRAY_ITEM_DIVIDER;
+                result.append(matcher.group(looper + 1)).append(ScriptableScraper.ARRAY_ITEM_DIVIDER);
             }
-            result += ScriptableScraper.ARRAY_GROUP_DIVIDER;
+            result.append(ScriptableScraper.ARRAY_GROUP_DIVIDER);
         }
 
         if (isDebug()) {
             LOG.debug("parseInput: result: '{}'", result);
         }
-        return result;
+        return result.toString();
+    }
+
+    /**
+     * A value of the script split into its text and ${variable} parts
+     */
+    private static final class Template {
+
+        private final List<String> parts = new ArrayList<>();
+        private final List<Boolean> variables = new ArrayList<>();
+        private boolean nested = false;
+
+        private Template(String value) {
+            int pos = 0;
+            int start = value.indexOf("${");
+            while (start > -1) {
+                int end = start + 2;
+                while (end < value.length() && value.charAt(end) != '}' && value.charAt(end) != '{') {
+                    end++;
+                }
+                if (end < value.length() && value.charAt(end) == '{') {
+                    // variable name built from another variable
+                    nested = true;
+                    return;
+                }
+                if (end < value.length() && end > start + 2) {
+                    addPart(value.substring(pos, start), false);
+                    addPart(value.substring(start + 2, end), true);
+                    pos = end + 1;
+                    start = value.indexOf("${", pos);
+                } else {
+                    start = value.indexOf("${", start + 2);
+                }
+            }
+            addPart(value.substring(pos), false);
+        }
+
+        private void addPart(String part, boolean variable) {
+            if (variable || !part.isEmpty()) {
+                parts.add(part);
+                variables.add(variable);
+            }
+        }
+
+        private boolean isNested() {
+            return nested;
+        }
+
+        private boolean isConstant() {
+            return !nested && !variables.contains(Boolean.TRUE);
+        }
+
+        private String render(SectionSS section) {
+            if (parts.size() == 1 && !variables.get(0)) {
+                return parts.get(0);
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for (int looper = 0; looper < parts.size(); looper++) {
+                String part = parts.get(looper);
+                if (!variables.get(looper)) {
+                    sb.append(part);
+                } else if (section.hasGlobalVariable(part) || section.hasVariable(part)) {
+                    sb.append(section.lookupVariable(part));
+                } else {
+                    sb.append("${").append(part).append('}');
+                }
+            }
+            return sb.toString();
+        }
     }
 }
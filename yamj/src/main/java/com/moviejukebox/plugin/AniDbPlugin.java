@@ -41,11 +41,13 @@ import com.moviejukebox.model.MovieFile;
 import com.moviejukebox.model.Person;
 import com.moviejukebox.tools.*;
 import com.moviejukebox.tools.cache.CacheMemory;
+import com.moviejukebox.tools.cache.ContentHashStore;
 import com.omertron.thetvdbapi.TheTVDBApi;
 import com.omertron.thetvdbapi.TvDbException;
 import com.omertron.thetvdbapi.model.Banners;
 import com.omertron.thetvdbapi.model.Series;
 import java.io.*;
+import java.nio.file.NoSuchFileException;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.Callable;
@@ -56,7 +58,6 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import net.anidb.Anime;
 import net.anidb.Episode;
-import net.anidb.checksum.Ed2kChecksum;
 import net.anidb.udp.*;
 import net.anidb.udp.mask.AnimeFileMask;
 import net.anidb.udp.mask.AnimeMask;
@@ -88,7 +89,6 @@ public class AniDbPlugin implements MovieDatabasePlugin {
     private static final String ANIDB_CLIENT_NAME = "yamj";
     private static final int ANIDB_CLIENT_VERSION = 1;
     private static int anidbPort = PropertiesUtil.getIntProperty("anidb.port", 1025);
-    private static final int ED2K_CHUNK_SIZE = 9728000;
     private AnimeMask anidbMask;
     private AnimeMask categoryMask;
     private AnimeFileMask animeFileMask;
@@ -618,15 +618,9 @@ public class AniDbPlugin implements MovieDatabasePlugin {
     }
 
     private static String getEd2kChecksum(File file) {
-        try (FileInputStream fi = new FileInputStream(file)) {
-            Ed2kChecksum ed2kChecksum = new Ed2kChecksum();
-            byte[] buffer = new byte[ED2K_CHUNK_SIZE];
-            int k;
-            while ((k = fi.read(buffer, 0, buffer.length)) > 0) {
-                ed2kChecksum.update(buffer, 0, k);
-            }
-            return ed2kChecksum.getHexDigest();
-        } catch (FileNotFoundException error) {
+        try {
+            return ContentHashStore.getEd2k(file);
+        } catch (FileNotFoundException | NoSuchFileException error) {
             // This shouldn't happen
             LOG.error("Unable to find the file {}", file.getAbsolutePath());
         } catch (IOException error) {
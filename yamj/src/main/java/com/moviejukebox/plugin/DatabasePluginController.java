@@ -24,6 +24,8 @@ package com.moviejukebox.plugin;
 
 import com.moviejukebox.model.Movie;
 import com.moviejukebox.model.Person;
+import com.moviejukebox.tools.JukeboxMetrics;
+import com.moviejukebox.tools.JukeboxMetrics.Group;
 import com.moviejukebox.tools.PropertiesUtil;
 import static com.moviejukebox.tools.PropertiesUtil.FALSE;
 import static com.moviejukebox.tools.PropertiesUtil.TRUE;
@@ -112,19 +114,19 @@ public final class DatabasePluginController {
             if (!origType.equals(Movie.TYPE_UNKNOWN)) {
                 boolean isScanned = false;
                 if (movie.getMovieScanner() != null) {
-                    isScanned = movie.getMovieScanner().scan(movie);
+                    isScanned = scan(movie.getMovieScanner(), movie);
                 }
                 if (!isScanned) {
-                    isScanned = PLUGIN_MAP.get().get(origType).scan(movie);
+                    isScanned = scan(PLUGIN_MAP.get().get(origType), movie);
                     String newType = movie.getMovieType();
                     // so if the movie wasn't scanned and it is now a different valid type, then rescan
                     if (!isScanned && !newType.equals(Movie.TYPE_UNKNOWN) && !newType.equals(Movie.REMOVE) && !newType.equals(origType)) {
-                        isScanned = PLUGIN_MAP.get().get(newType).scan(movie);
+                        isScanned = scan(PLUGIN_MAP.get().get(newType), movie);
                     }
                     if (!isScanned && !newType.equals(Movie.TYPE_UNKNOWN) && !newType.equals(Movie.REMOVE)) {
                         MovieDatabasePlugin alternatePlugin = PLUGIN_MAP.get().get(TYPE_ALTERNATE);
                         if (alternatePlugin != null) {
-                            isScanned = alternatePlugin.scan(movie);
+                            isScanned = scan(alternatePlugin, movie);
                         }
                     }
                     if (!isScanned) {
@@ -140,11 +142,29 @@ public final class DatabasePluginController {
             LOG.debug("Skipping internet search for {}", person.getName());
             return;
         }
-        if (!PLUGIN_MAP.get().get(Movie.TYPE_PERSON).scan(person)) {
+        if (!scan(PLUGIN_MAP.get().get(Movie.TYPE_PERSON), person)) {
             LOG.warn("Person '{}' was not able to be scanned using the current plugins", person.getName());
         }
     }
 
+    private static boolean scan(MovieDatabasePlugin plugin, Movie movie) {
+        long start = JukeboxMetrics.start();
+        try {
+            return plugin.scan(movie);
+        } finally {
+            JukeboxMetrics.record(Group.PLUGIN, plugin.getPluginID(), start);
+        }
+    }
+
+    private static boolean scan(MovieDatabasePlugin plugin, Person person) {
+        long start = JukeboxMetrics.start();
+        try {
+            return plugin.scan(person);
+        } finally {
+            JukeboxMetrics.record(Group.PLUGIN, plugin.getPluginID(), start);
+        }
+    }
+
     public static boolean scanNFO(String nfo, Movie movie) {
         boolean scannedOk = Boolean.FALSE;
         if (!PLUGIN_MAP.get().get(movie.getMovieType()).scanNFO(nfo, movie) && autoDetect) {
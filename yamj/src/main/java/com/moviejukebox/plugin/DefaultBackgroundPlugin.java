@@ -67,6 +67,15 @@ public class DefaultBackgroundPlugin implements MovieImagePlugin {
 
     @Override
     public BufferedImage generate(Movie movie, BufferedImage backgroundImage, String imageType, String perspectiveDirection) {
+        long start = JukeboxMetrics.start();
+        try {
+            return generateImage(movie, backgroundImage, imageType, perspectiveDirection);
+        } finally {
+            JukeboxMetrics.record(JukeboxMetrics.Group.IMAGE, imageType == null ? "fanart" : imageType.toLowerCase(), start);
+        }
+    }
+
+    private BufferedImage generateImage(Movie movie, BufferedImage backgroundImage, String imageType, String perspectiveDirection) {
         // persepectiveDirection is not currently used. Needs to be here because of the way the plugins work.
 
         String newImageType;
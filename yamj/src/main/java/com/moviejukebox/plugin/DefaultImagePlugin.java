@@ -217,6 +217,15 @@ public class DefaultImagePlugin implements MovieImagePlugin {
 
     @Override
     public BufferedImage generate(Movie movie, BufferedImage imageGraphic, final String gImageType, final String perspectiveDirection) {
+        long start = JukeboxMetrics.start();
+        try {
+            return generateImage(movie, imageGraphic, gImageType, perspectiveDirection);
+        } finally {
+            JukeboxMetrics.record(JukeboxMetrics.Group.IMAGE, gImageType.toLowerCase(), start);
+        }
+    }
+
+    private BufferedImage generateImage(Movie movie, BufferedImage imageGraphic, final String gImageType, final String perspectiveDirection) {
         imageType = gImageType.toLowerCase();
 
         boolean isFooter = false;
@@ -0,0 +1,439 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.plugin;
+
+import com.moviejukebox.model.Codec;
+import com.moviejukebox.model.Movie;
+import com.moviejukebox.model.enumerations.CodecType;
+import com.moviejukebox.tools.StringTools;
+import java.util.Collection;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The fields of the custom CSV listing.
+ *
+ * The configured field names are resolved to these once per listing, each
+ * field then extracts its value from the video without further lookups.
+ */
+enum MovieListingField {
+
+    TYPE("Type") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return type;
+        }
+    },
+    TITLE("Title") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getTitle();
+        }
+    },
+    TITLE_SORT("TitleSort") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getTitleSort();
+        }
+    },
+    ORIGINAL_TITLE("OriginalTitle") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getOriginalTitle();
+        }
+    },
+    IMDB_ID("IMDB ID") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getId(ImdbPlugin.IMDB_PLUGIN_ID);
+        }
+    },
+    THETVDB_ID("TheTVDB ID") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getId(TheTvDBPlugin.THETVDB_PLUGIN_ID);
+        }
+    },
+    DIRECTOR("Director") {
+        @Override
+        @SuppressWarnings("deprecation")
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getDirector();
+        }
+    },
+    COMPANY("Company") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getCompany();
+        }
+    },
+    COUNTRY("Country") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getCountriesAsString();
+        }
+    },
+    LANGUAGE("Language") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getLanguage();
+        }
+    },
+    RUNTIME("Runtime") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getRuntime();
+        }
+    },
+    RELEASE_DATE("Release Date") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getReleaseDate();
+        }
+    },
+    YEAR("Year") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getYear();
+        }
+    },
+    CERTIFICATION("Certification") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getCertification();
+        }
+    },
+    SEASON("Season #") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getSeason() < 0 ? StringUtils.EMPTY : String.valueOf(movie.getSeason());
+        }
+    },
+    VIDEO_SOURCE("VideoSource") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getVideoSource();
+        }
+    },
+    CONTAINER("Container") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getContainer();
+        }
+    },
+    FILE("File") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getContainerFile().getAbsolutePath();
+        }
+    },
+    AUDIO_CODEC("Audio Codec") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return codecs(movie, CodecType.AUDIO, false);
+        }
+    },
+    AUDIO_CHANNELS("Audio Channels") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return codecs(movie, CodecType.AUDIO, true);
+        }
+    },
+    RESOLUTION("Resolution") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getResolution();
+        }
+    },
+    VIDEO_CODEC("Video Codec") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return codecs(movie, CodecType.VIDEO, false);
+        }
+    },
+    VIDEO_OUTPUT("Video Output") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getVideoOutput();
+        }
+    },
+    FPS("FPS") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return Float.toString(movie.getFps());
+        }
+    },
+    FILES("# Files") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return count(movie.getMovieFiles());
+        }
+    },
+    EXTRAS("# Extras") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return count(movie.getExtraFiles());
+        }
+    },
+    GENRE_COUNT("# Genres") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return count(movie.getGenres());
+        }
+    },
+    CAST_COUNT("# Cast") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return count(movie.getCast());
+        }
+    },
+    SUBTITLES("SubTitles?") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getSubtitles();
+        }
+    },
+    POSTER("Poster?") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return StringTools.isValidString(movie.getPosterFilename()) ? "True" : "False";
+        }
+    },
+    POSTER_FILENAME("Poster Filename") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getPosterFilename();
+        }
+    },
+    FANART("Fanart?") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return StringTools.isValidString(movie.getFanartFilename()) ? "True" : "False";
+        }
+    },
+    FANART_FILENAME("Fanart Filename") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getFanartFilename();
+        }
+    },
+    RATING("Rating #") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return listing.formatRating(movie.getRating());
+        }
+    },
+    TOP250("Top 250 #") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return Integer.toString(movie.getTop250());
+        }
+    },
+    LIBRARY_DESCRIPTION("Library Description") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getLibraryDescription();
+        }
+    },
+    LIBRARY_PATH("Library Path") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getLibraryPath();
+        }
+    },
+    ALLOCINE_ID("Allocine ID") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getId(AllocinePlugin.ALLOCINE_PLUGIN_ID);
+        }
+    },
+    FILMUPIT_ID("FilmUpIT ID") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getId(FilmUpITPlugin.FILMUPIT_PLUGIN_ID);
+        }
+    },
+    FILMWEB_ID("FilmWeb ID") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getId(FilmwebPlugin.FILMWEB_PLUGIN_ID);
+        }
+    },
+    KINOPOISK_ID("Kinopoisk ID") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getId(KinopoiskPlugin.KINOPOISK_PLUGIN_ID);
+        }
+    },
+    ANIMATOR_ID("Animator ID") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getId(AnimatorPlugin.ANIMATOR_PLUGIN_ID);
+        }
+    },
+    SRATIM_ID("Sratim ID") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getId(SratimPlugin.SRATIM_PLUGIN_ID);
+        }
+    },
+    LAST_MODIFIED("Last Modified Date") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return listing.formatDate(movie.getLastModifiedTimestamp());
+        }
+    },
+    FILE_SIZE("File Size") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getFileSizeString();
+        }
+    },
+    GENRES("Genres") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return listing.join(movie.getGenres(), listing.getLimitGenres());
+        }
+    },
+    CAST("Cast") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return listing.join(movie.getCast(), listing.getLimitCast());
+        }
+    },
+    PLOT("Plot") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getPlot();
+        }
+    },
+    OUTLINE("Outline") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getOutline();
+        }
+    },
+    THUMBNAIL_FILENAME("Thumbnail Filename") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getThumbnailFilename();
+        }
+    },
+    DETAIL_POSTER_FILENAME("Detail Poster Filename") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return movie.getDetailPosterFilename();
+        }
+    },
+    WATCHED("Watched") {
+        @Override
+        String value(MovieListingPluginCustomCsv listing, String type, Movie movie) {
+            return String.valueOf(movie.isWatched());
+        }
+    };
+
+    private final String header;
+
+    private MovieListingField(String header) {
+        this.header = header;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * Extract the value of the field from the video
+     *
+     * @param listing the listing with the formatting settings
+     * @param type the listing type of the video
+     * @param movie
+     * @return the value, may be null or UNKNOWN
+     */
+    abstract String value(MovieListingPluginCustomCsv listing, String type, Movie movie);
+
+    /**
+     * Find the field for a configured field name.
+     *
+     * The name is compared ignoring case and also without spaces and the
+     * trailing '?' or '#' of the header.
+     *
+     * @param name
+     * @return the field or null if the name is unknown
+     */
+    static MovieListingField fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+
+        for (MovieListingField field : values()) {
+            if (name.equalsIgnoreCase(field.header)) {
+                return field;
+            }
+        }
+
+        for (MovieListingField field : values()) {
+            String shortName = field.header.replace(" ", "");
+            if (shortName.endsWith("?") || shortName.endsWith("#")) {
+                shortName = shortName.substring(0, shortName.length() - 1).trim();
+            }
+            if (name.equalsIgnoreCase(shortName)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Join the codecs of the type, with the same values as the codecs of the
+     * XML writer
+     *
+     * @param movie
+     * @param codecType
+     * @param channels true for the audio channels instead of the codec names
+     * @return the codecs separated by " / ", UNKNOWN if there are none
+     */
+    private static String codecs(Movie movie, CodecType codecType, boolean channels) {
+        StringBuilder sb = new StringBuilder();
+        for (Codec codec : movie.getCodecs()) {
+            if (codec.getCodecType() != codecType) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(Movie.SPACE_SLASH_SPACE);
+            }
+            if (channels) {
+                sb.append(codec.getCodecChannels());
+            } else {
+                sb.append(codec.getCodec());
+                if (codecType == CodecType.AUDIO && StringTools.isValidString(codec.getCodecLanguage())) {
+                    sb.append(" (").append(codec.getCodecLanguage()).append(")");
+                }
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : Movie.UNKNOWN;
+    }
+
+    private static String count(Collection<?> values) {
+        return values == null ? "0" : String.valueOf(values.size());
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.plugin;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The output formats of the custom CSV listing.
+ *
+ * All the formats are written from the same extracted values, so the listing
+ * can be created in several formats with a single pass over the library.
+ */
+enum MovieListingFormat {
+
+    /**
+     * Comma (or the configured delimiter) separated values
+     */
+    CSV("csv", Charset.defaultCharset()) {
+        @Override
+        void writeHeader(Writer writer, List<String> names, String delimiter) throws IOException {
+            writeLine(writer, names.toArray(new String[names.size()]), delimiter);
+        }
+
+        @Override
+        void writeRow(Writer writer, List<String> names, String[] values, String delimiter) throws IOException {
+            String[] prepared = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                String value = values[i];
+                if (!value.isEmpty()) {
+                    // remove quotes from the string (before encapsulation)
+                    value = singleLine(value).replace("\"", "");
+
+                    // enclose strings with commas in quotes
+                    if (value.indexOf(',') >= 0) {
+                        value = "\"" + value + "\"";
+                    }
+                }
+                prepared[i] = value;
+            }
+            writeLine(writer, prepared, delimiter);
+        }
+    },
+    /**
+     * Tab separated values
+     */
+    TSV("tsv", Charset.defaultCharset()) {
+        @Override
+        void writeHeader(Writer writer, List<String> names, String delimiter) throws IOException {
+            writeLine(writer, names.toArray(new String[names.size()]), "\t");
+        }
+
+        @Override
+        void writeRow(Writer writer, List<String> names, String[] values, String delimiter) throws IOException {
+            String[] prepared = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                prepared[i] = values[i].isEmpty() ? values[i] : singleLine(values[i]);
+            }
+            writeLine(writer, prepared, "\t");
+        }
+    },
+    /**
+     * One JSON object per video and line, the field names are the keys
+     */
+    JSONL("jsonl", StandardCharsets.UTF_8) {
+        @Override
+        void writeHeader(Writer writer, List<String> names, String delimiter) {
+            // The field names are part of each line
+        }
+
+        @Override
+        void writeRow(Writer writer, List<String> names, String[] values, String delimiter) throws IOException {
+            writer.write('{');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeJson(writer, names.get(i));
+                writer.write(':');
+                writeJson(writer, values[i]);
+            }
+            writer.write("}\n");
+        }
+    };
+
+    private static final String EOL = System.getProperty("line.separator");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s");
+    private final String extension;
+    private final Charset charset;
+
+    private MovieListingFormat(String extension, Charset charset) {
+        this.extension = extension;
+        this.charset = charset;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Write the header of the listing
+     *
+     * @param writer
+     * @param names the field names
+     * @param delimiter the configured delimiter
+     * @throws IOException
+     */
+    abstract void writeHeader(Writer writer, List<String> names, String delimiter) throws IOException;
+
+    /**
+     * Write the values of one video
+     *
+     * @param writer
+     * @param names the field names
+     * @param values the values of the fields, never null
+     * @param delimiter the configured delimiter
+     * @throws IOException
+     */
+    abstract void writeRow(Writer writer, List<String> names, String[] values, String delimiter) throws IOException;
+
+    /**
+     * Find the format by its name
+     *
+     * @param name
+     * @return the format or null if unknown
+     */
+    static MovieListingFormat fromName(String name) {
+        for (MovieListingFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(name.trim())) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    private static String singleLine(String value) {
+        // convert all whitespace to a single space
+        return WHITESPACE.matcher(value).replaceAll(" ").trim();
+    }
+
+    private static void writeLine(Writer writer, String[] values, String delimiter) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(delimiter);
+            }
+            writer.write(values[i]);
+        }
+        writer.write(EOL);
+    }
+
+    private static void writeJson(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -24,12 +24,15 @@ package com.moviejukebox.plugin;
 
 import com.moviejukebox.model.Jukebox;
 import com.moviejukebox.model.Library;
+import com.moviejukebox.model.Movie;
 import com.moviejukebox.model.enumerations.VideoType;
 import com.moviejukebox.tools.FileTools;
 import com.moviejukebox.tools.PropertiesUtil;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -102,6 +105,59 @@ public class MovieListingPluginBase implements MovieListingPlugin {
         return alResult;
     } // getSelectedTypes()
 
+    /**
+     * Get the listing type of the video
+     *
+     * @param movie
+     * @return
+     */
+    protected static String getVideoType(Movie movie) {
+        if (movie.isExtra()) {
+            return VideoType.EXTRA.getType();
+        } else if (movie.isTVShow()) {
+            return VideoType.TV_SHOW.getType();
+        }
+        return VideoType.MOVIE.getType();
+    }
+
+    /**
+     * Get the videos of the selected types in the order they are listed.
+     *
+     * The library is only walked once, when grouping by type the videos are
+     * collected per type and then added in the order of the selected types.
+     *
+     * @param library
+     * @return
+     */
+    protected List<Movie> getListingVideos(Library library) {
+        List<String> types = getSelectedTypes();
+        List<Movie> videos = new ArrayList<>(library.size());
+
+        Map<String, List<Movie>> byType = new LinkedHashMap<>();
+        if (groupByType) {
+            for (String type : types) {
+                byType.put(type.toLowerCase(), new ArrayList<Movie>());
+            }
+        }
+
+        for (Movie movie : library.values()) {
+            String type = getVideoType(movie);
+            if (groupByType) {
+                List<Movie> typeVideos = byType.get(type.toLowerCase());
+                if (typeVideos != null) {
+                    typeVideos.add(movie);
+                }
+            } else if (types.contains(type)) {
+                videos.add(movie);
+            }
+        }
+
+        for (List<Movie> typeVideos : byType.values()) {
+            videos.addAll(typeVideos);
+        }
+        return videos;
+    }
+
     /**
      * @param file
      * @param filename
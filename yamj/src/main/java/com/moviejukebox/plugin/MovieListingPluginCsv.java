@@ -23,14 +23,12 @@
 package com.moviejukebox.plugin;
 
 import com.moviejukebox.model.*;
-import com.moviejukebox.model.enumerations.VideoType;
 import com.moviejukebox.tools.CSVWriter;
 import com.moviejukebox.tools.SystemTools;
 import java.io.File;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.Collection;
-import java.util.List;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -221,7 +219,6 @@ public class MovieListingPluginCsv extends MovieListingPluginBase {
         String filename = getBaseFilename() + ".csv";
         File csvFile = new File(jukebox.getJukeboxTempLocation(), filename);
 
-        List<String> alTypes = getSelectedTypes();
         CSVWriter writer = new CSVWriter(csvFile);
         try {
             LOG.debug("  Writing CSV to: {}", csvFile.getAbsolutePath());
@@ -229,40 +226,8 @@ public class MovieListingPluginCsv extends MovieListingPluginBase {
             // write header line
             writer.line(headerLine());
 
-            if (!isGroupByType()) {
-                for (Movie movie : library.values()) {
-                    LOG.debug(movie.toString());
-
-                    String sType;
-                    if (movie.isExtra()) {
-                        sType = VideoType.EXTRA.getType();
-                    } else if (movie.isTVShow()) {
-                        sType = VideoType.TV_SHOW.getType();
-                    } else {
-                        sType = VideoType.MOVIE.getType();
-                    }
-
-                    if (null != sType && alTypes.contains(sType)) {
-                        writer.line(toCSV(sType, movie));
-                    }
-                } // for movie
-            } else {
-                for (String thisType : alTypes) {
-                    for (Movie movie : library.values()) {
-                        String sType;
-                        if (movie.isExtra()) {
-                            sType = VideoType.EXTRA.getType();
-                        } else if (movie.isTVShow()) {
-                            sType = VideoType.TV_SHOW.getType();
-                        } else {
-                            sType = VideoType.MOVIE.getType();
-                        }
-
-                        if (null != sType && thisType.equalsIgnoreCase(sType)) {
-                            writer.line(toCSV(sType, movie));
-                        }
-                    }
-                }
+            for (Movie movie : getListingVideos(library)) {
+                writer.line(toCSV(getVideoType(movie), movie));
             }
         } catch (IOException ex) {
             LOG.error("Failed writing to CSV file, error: {}", ex.getMessage());
@@ -23,10 +23,9 @@
 package com.moviejukebox.plugin;
 
 import com.moviejukebox.model.*;
-import com.moviejukebox.model.enumerations.VideoType;
-import com.moviejukebox.tools.*;
-import java.io.File;
-import java.io.IOException;
+import com.moviejukebox.tools.PropertiesUtil;
+import com.moviejukebox.tools.SystemTools;
+import java.io.*;
 import java.sql.Timestamp;
 import java.text.*;
 import java.util.*;
@@ -68,252 +67,121 @@ public class MovieListingPluginCustomCsv extends MovieListingPluginBase {
     }
 
     /**
-     * @return CSV-formatted header row
+     * Format the rating with the configured factor
+     *
+     * @param rating
+     * @return
      */
-    private String headerLine() {
-        StringBuilder sb = new StringBuilder();
-        for (Iterator<String> iterator = mFields.iterator(); iterator.hasNext();) {
-            if (sb.length() > 0) {
-                sb.append(mDelimiter);
-            }
-            sb.append(iterator.next());
+    String formatRating(int rating) {
+        if (mRatingFactor != null) {
+            return mRatingFormatter.format(mRatingFactor * rating);
         }
-        return sb.toString();
-    } // headerLine();
+        return Integer.toString(rating);
+    }
 
     /**
-     * Check if a header filed matches a known type
+     * Format the date with the configured format
      *
-     * @param field The text we are checking
-     * @param knownType The type to match
-     * @return true if we got a match
+     * @param time
+     * @return
      */
-    private static boolean checkHeaderField(String field, String knownType) {
-        // See if we want all the header fields or not
-        if (field == null || knownType == null) {
-            return false; // no need to compare
-        }
-
-        if (field.equalsIgnoreCase(knownType)) {
-            return true; // it matched
+    String formatDate(long time) {
+        if (mDateFormatter != null) {
+            return mDateFormatter.format(new Date(time));
         }
-
-        // Last try - Remove all spaces, and any trailing ? or #
-        String type = knownType.replace(" ", "");
-        if (type.endsWith("?") || type.endsWith("#")) {
-            type = type.substring(0, type.length() - 1).trim();
-        }
-
-        return field.equalsIgnoreCase(type);
+        return new Timestamp(time).toString();
     }
 
     /**
-     * @param sItemType
-     * @param movie
-     * @return output string properly formatted for CSV output
+     * Join the values with the second delimiter
+     *
+     * @param values
+     * @param limit the maximum number of values to join
+     * @return
      */
-    @SuppressWarnings("deprecation")
-    private String toCSV(String sItemType, Movie movie) {
-        Collection<ExtraFile> extras = movie.getExtraFiles();
-        Collection<MovieFile> movieFiles = movie.getMovieFiles();
-        Collection<String> genres = movie.getGenres();
-        Collection<String> cast = movie.getCast();
+    String join(Collection<String> values, int limit) {
+        if (null == values) {
+            return StringUtils.EMPTY;
+        }
 
-        StringBuilder sb = new StringBuilder();
+        int counter = 1;
+        StringBuilder tmp = new StringBuilder();
+        for (String string : values) {
+            if (counter++ > limit) {
+                break;
+            }
 
-        for (String header : mFields) {
-            if (sb.length() > 0) {
-                sb.append(mDelimiter);
+            if (tmp.length() > 0) {
+                tmp.append(mSecondDelimiter);
             }
-            if (checkHeaderField(header, "Type")) {
-                sb.append(prep(sItemType));
-            } else if (checkHeaderField(header, "Title")) {
-                sb.append(prep(movie.getTitle()));
-            } else if (checkHeaderField(header, "TitleSort")) {
-                sb.append(prep(movie.getTitleSort()));
-            } else if (checkHeaderField(header, "OriginalTitle")) {
-                sb.append(prep(movie.getOriginalTitle()));
-            } else if (checkHeaderField(header, "IMDB ID")) {
-                sb.append(prep(movie.getId(ImdbPlugin.IMDB_PLUGIN_ID)));
-            } else if (checkHeaderField(header, "TheTVDB ID")) {
-                sb.append(prep(movie.getId(TheTvDBPlugin.THETVDB_PLUGIN_ID)));
-            } else if (checkHeaderField(header, "Director")) {
-                sb.append(prep(movie.getDirector()));
-            } else if (checkHeaderField(header, "Company")) {
-                sb.append(prep(movie.getCompany()));
-            } else if (checkHeaderField(header, "Country")) {
-                sb.append(prep(movie.getCountriesAsString()));
-            } else if (checkHeaderField(header, "Language")) {
-                sb.append(prep(movie.getLanguage()));
-            } else if (checkHeaderField(header, "Runtime")) {
-                sb.append(prep(movie.getRuntime()));
-            } else if (checkHeaderField(header, "Release Date")) {
-                sb.append(prep(movie.getReleaseDate()));
-            } else if (checkHeaderField(header, "Year")) {
-                sb.append(prep(movie.getYear()));
-            } else if (checkHeaderField(header, "Certification")) {
-                sb.append(prep(movie.getCertification()));
-            } else if (checkHeaderField(header, "Season #")) {
-                sb.append(prep(blankNegatives(movie.getSeason())));
-            } else if (checkHeaderField(header, "VideoSource")) {
-                sb.append(prep(movie.getVideoSource()));
-            } else if (checkHeaderField(header, "Container")) {
-                sb.append(prep(movie.getContainer()));
-            } else if (checkHeaderField(header, "File")) {
-                sb.append(prep(movie.getContainerFile().getAbsolutePath()));
-            } else if (checkHeaderField(header, "Audio Codec")) {
-                sb.append(prep(movie.getAudioCodec()));
-            } else if (checkHeaderField(header, "Audio Channels")) {
-                sb.append(prep(movie.getAudioChannels()));
-            } else if (checkHeaderField(header, "Resolution")) {
-                sb.append(prep(movie.getResolution()));
-            } else if (checkHeaderField(header, "Video Codec")) {
-                sb.append(prep(movie.getVideoCodec()));
-            } else if (checkHeaderField(header, "Video Output")) {
-                sb.append(prep(movie.getVideoOutput()));
-            } else if (checkHeaderField(header, "FPS")) {
-                sb.append(prep(Float.toString(movie.getFps())));
-            } else if (checkHeaderField(header, "# Files")) {
-                sb.append(prep(String.valueOf(null == movieFiles ? "0" : movieFiles.size())));
-            } else if (checkHeaderField(header, "# Extras")) {
-                sb.append(prep(String.valueOf(null == extras ? "0" : extras.size())));
-            } else if (checkHeaderField(header, "# Genres")) {
-                sb.append(prep(String.valueOf(null == genres ? "0" : genres.size())));
-            } else if (checkHeaderField(header, "# Cast")) {
-                sb.append(prep(String.valueOf(null == cast ? "0" : cast.size())));
-            } else if (checkHeaderField(header, "SubTitles?")) {
-                sb.append(prep(movie.getSubtitles()));
-            } else if (checkHeaderField(header, "Poster?")) {
-                sb.append(prep(String.valueOf(StringTools.isValidString(movie.getPosterFilename()) ? "True" : "False")));
-            } else if (checkHeaderField(header, "Poster Filename")) {
-                sb.append(prep(movie.getPosterFilename()));
-            } else if (checkHeaderField(header, "Fanart?")) {
-                sb.append(prep(String.valueOf(StringTools.isValidString(movie.getFanartFilename()) ? "True" : "False")));
-            } else if (checkHeaderField(header, "Fanart Filename")) {
-                sb.append(prep(movie.getFanartFilename()));
-            } else if (checkHeaderField(header, "Rating #")) {
-                if (mRatingFactor != null) {
-                    double fr = mRatingFactor * movie.getRating();
-                    sb.append(prep(mRatingFormatter.format(fr)));
-                } else {
-                    sb.append(prep(Integer.toString(movie.getRating())));
-                }
-            } else if (checkHeaderField(header, "Top 250 #")) {
-                sb.append(prep(Integer.toString(movie.getTop250())));
-            } else if (checkHeaderField(header, "Library Description")) {
-                sb.append(prep(movie.getLibraryDescription()));
-            } else if (checkHeaderField(header, "Library Path")) {
-                sb.append(prep(movie.getLibraryPath()));
-            } else if (checkHeaderField(header, "Allocine ID")) {
-                sb.append(prep(movie.getId(AllocinePlugin.ALLOCINE_PLUGIN_ID)));
-            } else if (checkHeaderField(header, "FilmUpIT ID")) {
-                sb.append(prep(movie.getId(FilmUpITPlugin.FILMUPIT_PLUGIN_ID)));
-            } else if (checkHeaderField(header, "FilmWeb ID")) {
-                sb.append(prep(movie.getId(FilmwebPlugin.FILMWEB_PLUGIN_ID)));
-            } else if (checkHeaderField(header, "Kinopoisk ID")) {
-                sb.append(prep(movie.getId(KinopoiskPlugin.KINOPOISK_PLUGIN_ID)));
-            } else if (checkHeaderField(header, "Animator ID")) {
-                sb.append(prep(movie.getId(AnimatorPlugin.ANIMATOR_PLUGIN_ID)));
-            } else if (checkHeaderField(header, "Sratim ID")) {
-                sb.append(prep(movie.getId(SratimPlugin.SRATIM_PLUGIN_ID)));
-            } else if (checkHeaderField(header, "Last Modified Date")) {
-                if (mDateFormatter != null) {
-                    sb.append(prep(mDateFormatter.format(new Date(movie.getLastModifiedTimestamp()))));
-                } else {
-                    sb.append(prep(new Timestamp(movie.getLastModifiedTimestamp()).toString()));
-                }
-            } else if (checkHeaderField(header, "File Size")) {
-                sb.append(prep(movie.getFileSizeString()));
-            } else if (checkHeaderField(header, "Genres")) {
-                if (null != genres) {
-                    int counter = 1;
-                    StringBuilder tmp = new StringBuilder();
-                    for (String string : genres) {
-                        if (counter++ > limitGenres) {
-                            break;
-                        }
+            tmp.append(string);
+        }
+        return tmp.toString();
+    }
 
-                        if (tmp.length() > 0) {
-                            tmp.append(mSecondDelimiter);
-                        }
-                        tmp.append(string);
-                    }
-                    sb.append(prep(tmp.toString()));
-                }
-            } else if (checkHeaderField(header, "Cast")) {
-                if (null != cast) {
-                    int counter = 1;
-                    StringBuilder tmp = new StringBuilder();
-                    for (String string : cast) {
-                        if (counter++ > limitCast) {
-                            break;
-                        }
+    int getLimitCast() {
+        return limitCast;
+    }
 
-                        if (tmp.length() > 0) {
-                            tmp.append(mSecondDelimiter);
-                        }
-                        tmp.append(string);
-                    }
-                    sb.append(prep(tmp.toString()));
-                }
-            } else if (checkHeaderField(header, "Plot")) {
-                sb.append(prep(movie.getPlot()));
-            } else if (checkHeaderField(header, "Outline")) {
-                sb.append(prep(movie.getOutline()));
-            } else if (checkHeaderField(header, "Thumbnail Filename")) {
-                sb.append(prep(movie.getThumbnailFilename()));
-            } else if (checkHeaderField(header, "Detail Poster Filename")) {
-                sb.append(prep(movie.getDetailPosterFilename()));
-            } else if (checkHeaderField(header, "Watched")) {
-                sb.append(prep(String.valueOf(movie.isWatched())));
-            } else {
-                LOG.debug("Unknown field: '{}'", header);
+    int getLimitGenres() {
+        return limitGenres;
+    }
 
+    /**
+     * Resolve the field names to the fields
+     *
+     * @return the fields, null for unknown field names
+     */
+    private MovieListingField[] compileFields() {
+        MovieListingField[] fields = new MovieListingField[mFields.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = MovieListingField.fromName(mFields.get(i));
+            if (fields[i] == null) {
+                LOG.debug("Unknown field: '{}'", mFields.get(i));
             }
         }
-        return sb.toString();
-    } // toCSV()
+        return fields;
+    }
 
     /**
-     * @param i
-     * @return empty string if input = -1
+     * Get the configured output formats
+     *
+     * @return
      */
-    private static String blankNegatives(int i) {
-        if (0 <= i) {
-            return String.valueOf(i);
+    private static Set<MovieListingFormat> getFormats() {
+        Set<MovieListingFormat> formats = EnumSet.noneOf(MovieListingFormat.class);
+        for (String name : StringUtils.split(PropertiesUtil.getProperty("mjb.listing.csv.formats", "csv"), ",;|")) {
+            MovieListingFormat format = MovieListingFormat.fromName(name);
+            if (format == null) {
+                LOG.warn("Unknown listing format: '{}'", name);
+            } else {
+                formats.add(format);
+            }
+        }
+        if (formats.isEmpty()) {
+            formats.add(MovieListingFormat.CSV);
         }
-        return StringUtils.EMPTY;
+        return formats;
     }
 
     /**
-     * @param str
-     * @return String cleaned up, NEVER comma appended
+     * Clean the value of a field
+     *
+     * @param value
+     * @return the value or an empty string for UNKNOWN values
      */
-    private String prep(final String input) {
-        String str = input;
-
-        if (null == str || (isBlankUnknown() && (UNKNOWN.equals(str) || getUndefined().equals(str)))) {
-            // clean 'UNKNOWN' values
-            str = "";
-        } else {
-            // convert all whitespace to a single space
-            str = str.replaceAll("[\\s]", " ").trim();
-
-            // remove quotes from the string (before encapsulation)
-            if (str.contains("\"")) {
-                str = str.replace("\"", "");
-            }
-
-            // enclose strings with commas in quotes
-            if (str.contains(",")) {
-                str = "\"" + str + "\"";
-            }
+    private String clean(String value) {
+        if (null == value || (isBlankUnknown() && (UNKNOWN.equals(value) || getUndefined().equals(value)))) {
+            return StringUtils.EMPTY;
         }
-        return str;
-    } // prepOutput()
+        return value;
+    }
 
     /**
-     * Generate the listing file
+     * Generate the listing files.
+     *
+     * The field names are resolved once, then the values of each video are
+     * extracted once and written to all the configured formats.
      *
      * @param jukebox
      * @param library
@@ -337,60 +205,48 @@ public class MovieListingPluginCustomCsv extends MovieListingPluginBase {
             mDateFormatter = new SimpleDateFormat(dateFormat);
         }
 
-        String filename = getBaseFilename() + ".csv";
-        File csvFile = new File(jukebox.getJukeboxTempLocation(), filename);
-
-        List<String> alTypes = getSelectedTypes();
+        MovieListingField[] fields = compileFields();
+        Map<MovieListingFormat, File> files = new EnumMap<>(MovieListingFormat.class);
+        Map<MovieListingFormat, Writer> writers = new EnumMap<>(MovieListingFormat.class);
         try {
-            CSVWriter writer = new CSVWriter(csvFile);
-            LOG.debug("  Writing CSV to: {}", csvFile.getAbsolutePath());
-
-            // write header line
-            writer.line(headerLine());
-
-            if (!isGroupByType()) {
-                for (Movie movie : library.values()) {
-                    LOG.debug(movie.toString());
+            for (MovieListingFormat format : getFormats()) {
+                File file = new File(jukebox.getJukeboxTempLocation(), getBaseFilename() + "." + format.getExtension());
+                LOG.debug("  Writing {} to: {}", format, file.getAbsolutePath());
+                files.put(format, file);
+                writers.put(format, new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), format.getCharset())));
+            }
 
-                    String sType;
-                    if (movie.isExtra()) {
-                        sType = VideoType.EXTRA.getType();
-                    } else if (movie.isTVShow()) {
-                        sType = VideoType.TV_SHOW.getType();
-                    } else {
-                        sType = VideoType.MOVIE.getType();
-                    }
+            for (Map.Entry<MovieListingFormat, Writer> entry : writers.entrySet()) {
+                entry.getKey().writeHeader(entry.getValue(), mFields, mDelimiter);
+            }
 
-                    if (null != sType && alTypes.contains(sType)) {
-                        writer.line(toCSV(sType, movie));
-                    }
-                } // for movie
-            } else {
-                for (String thisType : alTypes) {
-                    for (Movie movie : library.values()) {
-                        String sType;
-                        if (movie.isExtra()) {
-                            sType = VideoType.EXTRA.getType();
-                        } else if (movie.isTVShow()) {
-                            sType = VideoType.TV_SHOW.getType();
-                        } else {
-                            sType = VideoType.MOVIE.getType();
-                        }
+            String[] values = new String[fields.length];
+            for (Movie movie : getListingVideos(library)) {
+                String type = getVideoType(movie);
+                for (int i = 0; i < fields.length; i++) {
+                    values[i] = fields[i] == null ? StringUtils.EMPTY : clean(fields[i].value(this, type, movie));
+                }
 
-                        if (null != sType && thisType.equalsIgnoreCase(sType)) {
-                            writer.line(toCSV(sType, movie));
-                        }
-                    }
+                for (Map.Entry<MovieListingFormat, Writer> entry : writers.entrySet()) {
+                    entry.getKey().writeRow(entry.getValue(), mFields, values, mDelimiter);
                 }
             }
-            writer.close();
         } catch (IOException error) {
             LOG.error(SystemTools.getStackTrace(error));
+        } finally {
+            for (Writer writer : writers.values()) {
+                try {
+                    writer.close();
+                } catch (IOException ex) {
+                    LOG.trace("Failed to close listing file: {}", ex.getMessage());
+                }
+            }
         }
 
         // move to configured (default) location
-        copyListingFile(csvFile, filename);
-
+        for (File file : files.values()) {
+            copyListingFile(file, file.getName());
+        }
     } // generate()
 
     /**
@@ -26,13 +26,11 @@ import com.moviejukebox.model.Movie;
 import com.moviejukebox.model.MovieFile;
 import com.moviejukebox.model.enumerations.DirtyFlag;
 import com.moviejukebox.tools.*;
+import com.moviejukebox.tools.cache.ContentHashStore;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
-import java.nio.ByteOrder;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Scanner;
@@ -643,30 +641,6 @@ public class OpenSubtitlesPlugin {
     }
 
     private static String getHash(File f) throws IOException {
-        String s;
-        try ( // Open the file and then get a channel from the stream
-                FileInputStream fis = new FileInputStream(f);
-                FileChannel fc = fis.getChannel()) {
-            long sz = fc.size();
-            if (sz < 65536) {
-                fc.close();
-                fis.close();
-                return "NoHash";
-            }
-            MappedByteBuffer bb = fc.map(FileChannel.MapMode.READ_ONLY, 0, 65536);
-            long sum = sz;
-            bb.order(ByteOrder.LITTLE_ENDIAN);
-            for (int i = 0; i < 65536 / 8; i++) {
-                sum += bb.getLong();// sum(bb);
-            }
-            bb = fc.map(FileChannel.MapMode.READ_ONLY, sz - 65536, 65536);
-            bb.order(ByteOrder.LITTLE_ENDIAN);
-            for (int i = 0; i < 65536 / 8; i++) {
-                sum += bb.getLong();// sum(bb);
-            }
-            sum = sum & 0xffffffffffffffffL;
-            s = String.format("%016x", sum);
-        }
-        return s;
+        return ContentHashStore.getOpenSubtitlesHash(f);
     }
 }
@@ -25,6 +25,8 @@ package com.moviejukebox.plugin;
 import com.moviejukebox.model.Movie;
 import com.moviejukebox.model.scriptablescraper.*;
 import com.moviejukebox.reader.ScriptableScraperXMLReader;
+import com.moviejukebox.tools.HostConcurrencyLimiter;
+import com.moviejukebox.tools.HostConcurrencyLimiter.HostLimit;
 import com.moviejukebox.tools.PropertiesUtil;
 import com.moviejukebox.tools.StringTools;
 import com.moviejukebox.tools.WebBrowser;
@@ -32,7 +34,13 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.*;
-import org.apache.commons.lang3.StringUtils;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +55,8 @@ public class ScriptableScraperPlugin extends ImdbPlugin {
     private final boolean debug = PropertiesUtil.getBooleanProperty(SCRIPTABLESCRAPER_PLUGIN_ID + ".debug", Boolean.FALSE);
     private final boolean info = PropertiesUtil.getBooleanProperty(SCRIPTABLESCRAPER_PLUGIN_ID + ".info", Boolean.TRUE);
     private WebBrowser webBrowser;
+    // Pages retrieved during the scan of the current movie
+    private final Map<String, String> pageCache = new ConcurrentHashMap<>();
     private ScriptableScraper ssData;
     private final int maxGenres;
     private final int maxDirectors;
@@ -57,6 +67,16 @@ public class ScriptableScraperPlugin extends ImdbPlugin {
     private static final int DEFAULT_ACTORS = 10;
     private static final int DEFAULT_WRITERS = 3;
     private static final int DEFAULT_DIRECTORS = 2;
+    private static final int DEFAULT_RETRIEVE_THREADS = 4;
+    private static final int RETRIEVE_THREADS = Math.max(1, PropertiesUtil.getIntProperty(SCRIPTABLESCRAPER_PLUGIN_ID + ".retrieve.threads", DEFAULT_RETRIEVE_THREADS));
+    private static final ExecutorService RETRIEVE_POOL = Executors.newFixedThreadPool(RETRIEVE_THREADS, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ScriptableScraper-retrieve");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
 
     public ScriptableScraperPlugin() {
         super();
@@ -108,6 +128,7 @@ public class ScriptableScraperPlugin extends ImdbPlugin {
     @Override
     public boolean scan(Movie mediaFile) {
         boolean retval = false;
+        pageCache.clear();
         String movieId = mediaFile.getId(SCRIPTABLESCRAPER_PLUGIN_ID);
 
         if (StringTools.isNotValidString(movieId)) {
@@ -329,35 +350,7 @@ public class ScriptableScraperPlugin extends ImdbPlugin {
                         LOG.debug("item: {} : {}", type, key);
                     }
                     if ("retrieve".equals(type)) {
-                        RetrieveSS retrieve = cSection.getRetrieve(key);
-                        if (retrieve != null) {
-                            String url = cSection.compileValue(retrieve.getURL());
-                            if (StringUtils.isNotBlank(retrieve.getCookies())) {
-                                String domain = new URL(url).getHost();
-                                List<String> values;
-                                for (String cookie : Arrays.asList(retrieve.getCookies().split("&"))) {
-                                    values = Arrays.asList(cookie.split("="));
-                                    if (debug) {
-                                        LOG.debug("retrieve page from domain '{}' with name '{}' and value'{}'", domain, values.get(0), values.get(1));
-                                    }
-                                    webBrowser.putCookie(domain, values.get(0), values.get(1));
-                                }
-                            }
-                            if (StringTools.isValidString(url)) {
-                                String page = "";
-                                for (int looper = 0; looper <= retrieve.getRetries(); looper++) {
-                                    page = webBrowser.request(url, retrieve.getEncoding()).replaceAll("\\r", "").replaceAll("\\n", " ");
-                                    if (StringTools.isValidString(page)) {
-                                        break;
-                                    }
-                                }
-                                if (StringTools.isNotValidString(page)) {
-                                    LOG.error("Page does not retrieved for '{}' with URL {}", key, url);
-                                    page = "";
-                                }
-                                cSection.setGlobalVariable(cSection.compileValue(key), page);
-                            }
-                        }
+                        looperItem = runRetrieves(cSection, looperItem);
                     } else if ("set".equals(type)) {
                         value = cSection.getSet(key);
                         if (debug) {
@@ -370,7 +363,7 @@ public class ScriptableScraperPlugin extends ImdbPlugin {
                         ParseSS parse = cSection.getParse(key);
                         if (parse != null) {
                             key = cSection.compileValue(key);
-                            value = cSection.parseInput(cSection.compileValue(parse.getInput()), cSection.compileValue(parse.getRegex()));
+                            value = cSection.parseInput(cSection.compileValue(parse.getInput()), cSection.compilePattern(parse.getRegex()));
                             cSection.setGlobalVariable(key, value);
                         }
                     } else if ("math".equals(type)) {
@@ -473,4 +466,170 @@ public class ScriptableScraperPlugin extends ImdbPlugin {
             LOG.error("Error : {}", error.getMessage());
         }
     }
+
+    /**
+     * Run the retrieve item and the following retrieve items which do not use
+     * the pages of the previous ones. The pages are fetched concurrently.
+     *
+     * @param section
+     * @param first the index of the first retrieve item
+     * @return the index of the last item run
+     * @throws IOException
+     */
+    private int runRetrieves(SectionSS section, int first) throws IOException {
+        List<String> keys = new ArrayList<>();
+        List<RetrieveSS> retrieves = new ArrayList<>();
+        int last = first;
+        for (int looper = first; looper < section.getItems().size(); looper++) {
+            ItemSS item = section.getItem(looper);
+            if (!"retrieve".equals(item.getType())) {
+                break;
+            }
+            RetrieveSS retrieve = section.getRetrieve(item.getKey());
+            if (retrieve != null) {
+                if (!keys.isEmpty() && (RETRIEVE_THREADS <= 1 || usesPages(retrieve, keys))) {
+                    break;
+                }
+                keys.add(item.getKey());
+                retrieves.add(retrieve);
+            }
+            last = looper;
+        }
+
+        // compile the URLs and set the cookies before any page is requested
+        List<String> urls = new ArrayList<>(retrieves.size());
+        for (RetrieveSS retrieve : retrieves) {
+            String url = section.compileValue(retrieve.getURL());
+            if (!retrieve.getCookieValues().isEmpty()) {
+                String domain = new URL(url).getHost();
+                for (Map.Entry<String, String> cookie : retrieve.getCookieValues().entrySet()) {
+                    if (debug) {
+                        LOG.debug("retrieve page from domain '{}' with name '{}' and value'{}'", domain, cookie.getKey(), cookie.getValue());
+                    }
+                    webBrowser.putCookie(domain, cookie.getKey(), cookie.getValue());
+                }
+            }
+            urls.add(url);
+        }
+
+        List<String> pages = fetchPages(urls, retrieves);
+        for (int looper = 0; looper < retrieves.size(); looper++) {
+            String url = urls.get(looper);
+            if (StringTools.isValidString(url)) {
+                String page = pages.get(looper);
+                if (StringTools.isNotValidString(page)) {
+                    LOG.error("Page does not retrieved for '{}' with URL {}", keys.get(looper), url);
+                    page = "";
+                }
+                section.setGlobalVariable(section.compileValue(keys.get(looper)), page);
+            }
+        }
+
+        return last;
+    }
+
+    private static boolean usesPages(RetrieveSS retrieve, List<String> keys) {
+        for (String key : keys) {
+            if (SectionSS.refersTo(retrieve.getURL(), key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<String> fetchPages(List<String> urls, List<RetrieveSS> retrieves) throws IOException {
+        List<String> pages = new ArrayList<>(urls.size());
+        if (urls.size() == 1) {
+            pages.add(fetchPage(urls.get(0), retrieves.get(0)));
+            return pages;
+        }
+
+        List<Future<String>> futures = new ArrayList<>(urls.size());
+        for (int looper = 0; looper < urls.size(); looper++) {
+            final String url = urls.get(looper);
+            final RetrieveSS retrieve = retrieves.get(looper);
+            futures.add(RETRIEVE_POOL.submit(new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    if (StringTools.isNotValidString(url)) {
+                        return "";
+                    }
+                    // the pool threads are not managed by the ThreadExecutor, so take the host slot here
+                    HostLimit limit = HostConcurrencyLimiter.getLimit(new URL(url).getHost());
+                    limit.acquire();
+                    try {
+                        return fetchPage(url, retrieve);
+                    } finally {
+                        limit.release();
+                    }
+                }
+            }));
+        }
+
+        try {
+            for (Future<String> future : futures) {
+                pages.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while retrieving pages", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+        return pages;
+    }
+
+    /**
+     * Get the page, requesting it only once per scan
+     */
+    private String fetchPage(String url, RetrieveSS retrieve) throws IOException {
+        if (StringTools.isNotValidString(url)) {
+            return "";
+        }
+
+        String cacheKey = url + "|" + retrieve.getEncoding();
+        String page = pageCache.get(cacheKey);
+        if (page != null) {
+            if (debug) {
+                LOG.debug("retrieve page from cache: {}", url);
+            }
+            return page;
+        }
+
+        page = "";
+        for (int looper = 0; looper <= retrieve.getRetries(); looper++) {
+            page = normalizePage(webBrowser.request(url, retrieve.getEncoding()));
+            if (StringTools.isValidString(page)) {
+                pageCache.put(cacheKey, page);
+                break;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Remove the carriage returns and replace the line feeds with spaces
+     *
+     * @param page
+     * @return
+     */
+    static String normalizePage(String page) {
+        if (page == null || (page.indexOf('\r') < 0 && page.indexOf('\n') < 0)) {
+            return page;
+        }
+
+        StringBuilder sb = new StringBuilder(page.length());
+        for (int looper = 0; looper < page.length(); looper++) {
+            char c = page.charAt(looper);
+            if (c == '\n') {
+                sb.append(' ');
+            } else if (c != '\r') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
 }
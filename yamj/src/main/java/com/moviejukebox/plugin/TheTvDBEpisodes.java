@@ -0,0 +1,255 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.plugin;
+
+import com.moviejukebox.tools.FileTools;
+import com.moviejukebox.tools.PropertiesUtil;
+import com.moviejukebox.tools.StringTools;
+import com.omertron.thetvdbapi.TheTVDBApi;
+import com.omertron.thetvdbapi.TvDbException;
+import com.omertron.thetvdbapi.model.Episode;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * All the episodes of a series in one language, indexed by the aired and the
+ * DVD numbering.
+ *
+ * The episodes are fetched once per series and language for all the seasons
+ * and kept on disk with the last updated stamp of the series, so they are only
+ * fetched again when the series has been changed on TheTVDB.
+ */
+final class TheTvDBEpisodes {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TheTvDBEpisodes.class);
+    private static final String STORE_EXT = ".episodes";
+    private static final long DAY = 1000L * 60 * 60 * 24;
+    private static final String STORE_DIR = PropertiesUtil.getProperty("thetvdb.episodeStore.dir", "./cache/thetvdb");
+    private static final long MAX_AGE = PropertiesUtil.getIntProperty("thetvdb.episodeStore.maxAge", 7) * DAY;
+    private static final Map<String, TheTvDBEpisodes> EPISODES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Object> LOCKS = new ConcurrentHashMap<>();
+    private final String lastUpdated;
+    private final long fetched;
+    private final List<Episode> episodes;
+    private final Map<Long, Episode> aired = new HashMap<>();
+    private final Map<Long, Episode> dvd = new HashMap<>();
+
+    TheTvDBEpisodes(List<Episode> episodes, String lastUpdated, long fetched) {
+        this.episodes = episodes == null ? Collections.<Episode>emptyList() : episodes;
+        this.lastUpdated = StringUtils.trimToEmpty(lastUpdated);
+        this.fetched = fetched;
+
+        for (Episode episode : this.episodes) {
+            // the first episode with the number wins, like the search in the list did
+            Long key = getKey(episode.getSeasonNumber(), episode.getEpisodeNumber());
+            if (!aired.containsKey(key)) {
+                aired.put(key, episode);
+            }
+
+            int dvdSeason = NumberUtils.toInt(episode.getDvdSeason(), -1);
+            int dvdEpisode = (int) NumberUtils.toFloat(episode.getDvdEpisodeNumber(), -1.0f);
+            key = getKey(dvdSeason, dvdEpisode);
+            if (!dvd.containsKey(key)) {
+                dvd.put(key, episode);
+            }
+        }
+    }
+
+    /**
+     * Get the episodes of the series.
+     *
+     * The episodes are taken from the memory or the disk if they are still
+     * current, otherwise they are fetched from TheTVDB. If the fetch fails the
+     * outdated episodes are used, if there are any.
+     *
+     * @param tvdb
+     * @param id the id of the series
+     * @param language
+     * @param lastUpdated the last updated stamp of the series, may be null if unknown
+     * @return the episodes
+     * @throws TvDbException if the episodes could not be fetched and there are no stored ones
+     */
+    static TheTvDBEpisodes getEpisodes(TheTVDBApi tvdb, String id, String language, String lastUpdated) throws TvDbException {
+        String key = id + "_" + language;
+        long now = System.currentTimeMillis();
+
+        TheTvDBEpisodes current = EPISODES.get(key);
+        if (current != null && current.isCurrent(lastUpdated, now)) {
+            return current;
+        }
+
+        // only one thread fetches the series, the others wait for its result
+        Object lock = new Object();
+        Object existing = LOCKS.putIfAbsent(key, lock);
+        synchronized (existing == null ? lock : existing) {
+            current = EPISODES.get(key);
+            if (current != null && current.isCurrent(lastUpdated, now)) {
+                return current;
+            }
+
+            File storeFile = getStoreFile(key);
+            if (current == null && storeFile != null) {
+                current = read(storeFile);
+                if (current != null && current.isCurrent(lastUpdated, now)) {
+                    LOG.debug("Using stored episodes of series {} ({})", id, language);
+                    EPISODES.put(key, current);
+                    return current;
+                }
+            }
+
+            TheTvDBEpisodes fetchedEpisodes;
+            try {
+                LOG.debug("Fetching all episodes of series {} ({})", id, language);
+                fetchedEpisodes = new TheTvDBEpisodes(tvdb.getAllEpisodes(id, language), lastUpdated, now);
+            } catch (TvDbException ex) {
+                if (current == null) {
+                    throw ex;
+                }
+                LOG.warn("Failed to fetch the episodes of series {} ({}), using the stored ones - error: {}", id, language, ex.getMessage());
+                EPISODES.put(key, current);
+                return current;
+            }
+
+            EPISODES.put(key, fetchedEpisodes);
+            if (storeFile != null) {
+                try {
+                    fetchedEpisodes.write(storeFile);
+                } catch (IOException ex) {
+                    LOG.warn("Failed to store the episodes of series {} ({}) - error: {}", id, language, ex.getMessage());
+                }
+            }
+            return fetchedEpisodes;
+        }
+    }
+
+    /**
+     * Locate the episode by the aired numbering
+     *
+     * @param seasonNumber
+     * @param episodeNumber
+     * @return the episode or null if not found
+     */
+    Episode getEpisode(int seasonNumber, int episodeNumber) {
+        return aired.get(getKey(seasonNumber, episodeNumber));
+    }
+
+    /**
+     * Locate the episode by the DVD numbering
+     *
+     * @param seasonNumber
+     * @param episodeNumber
+     * @return the episode or null if not found
+     */
+    Episode getDvdEpisode(int seasonNumber, int episodeNumber) {
+        if (seasonNumber < 0 || episodeNumber < 0) {
+            // episodes without DVD numbering are stored with -1
+            return null;
+        }
+        return dvd.get(getKey(seasonNumber, episodeNumber));
+    }
+
+    /**
+     * Check if the episodes can still be used
+     *
+     * @param lastUpdated the last updated stamp of the series, may be null if unknown
+     * @param now
+     * @return
+     */
+    boolean isCurrent(String lastUpdated, long now) {
+        if (StringTools.isValidString(lastUpdated) && !this.lastUpdated.equals(lastUpdated.trim())) {
+            // the series has been changed
+            return false;
+        }
+        return MAX_AGE <= 0 || (now - fetched) < MAX_AGE;
+    }
+
+    /**
+     * Read the stored episodes
+     *
+     * @param storeFile
+     * @return the episodes or null if they could not be read
+     */
+    @SuppressWarnings("unchecked")
+    static TheTvDBEpisodes read(File storeFile) {
+        if (!storeFile.isFile()) {
+            return null;
+        }
+
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(storeFile)))) {
+            String stamp = ois.readUTF();
+            long fetchTime = ois.readLong();
+            List<Episode> stored = (List<Episode>) ois.readObject();
+            return new TheTvDBEpisodes(stored, stamp, fetchTime);
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            LOG.debug("Failed to read stored episodes from {} - error: {}", storeFile.getName(), ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store the episodes
+     *
+     * @param storeFile
+     * @throws IOException
+     */
+    void write(File storeFile) throws IOException {
+        FileTools.makeDirsForFile(storeFile);
+        File tempFile = new File(storeFile.getPath() + ".tmp");
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            oos.writeUTF(lastUpdated);
+            oos.writeLong(fetched);
+            oos.writeObject(new ArrayList<>(episodes));
+        }
+        Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static File getStoreFile(String key) {
+        if (StringUtils.isBlank(STORE_DIR)) {
+            return null;
+        }
+        return new File(STORE_DIR, FileTools.makeSafeFilename(key) + STORE_EXT);
+    }
+
+    private static Long getKey(int seasonNumber, int episodeNumber) {
+        return ((long) seasonNumber << 32) | (episodeNumber & 0xFFFFFFFFL);
+    }
+}
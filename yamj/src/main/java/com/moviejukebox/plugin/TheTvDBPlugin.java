@@ -274,14 +274,17 @@ public class TheTvDBPlugin extends ImdbPlugin {
             return;
         }
 
-        List<Episode> episodeList = null;
-        List<Episode> episodeList2ndLanguage = null;
+        TheTvDBEpisodes episodeList;
+        TheTvDBEpisodes episodeList2ndLanguage = null;
 
         try {
-            episodeList = TVDB.getSeasonEpisodes(id, (dvdEpisodes ? -1 : movie.getSeason()), LANGUAGE_PRIMARY);
+            // the episodes of all seasons are fetched once per series
+            Series series = getSeries(id);
+            String lastUpdated = series == null ? null : series.getLastUpdated();
+            episodeList = TheTvDBEpisodes.getEpisodes(TVDB, id, LANGUAGE_PRIMARY, lastUpdated);
 
             if (!LANGUAGE_PRIMARY.equalsIgnoreCase(LANGUAGE_SECONDARY) && StringTools.isValidString(LANGUAGE_SECONDARY)) {
-                episodeList2ndLanguage = TVDB.getSeasonEpisodes(id, (dvdEpisodes ? -1 : movie.getSeason()), LANGUAGE_SECONDARY);
+                episodeList2ndLanguage = TheTvDBEpisodes.getEpisodes(TVDB, id, LANGUAGE_SECONDARY, lastUpdated);
             }
         } catch (Exception error) {
             LOG.warn("Error getting episode information: {}", error.getMessage());
@@ -381,48 +384,33 @@ public class TheTvDBPlugin extends ImdbPlugin {
     }
 
     /**
-     * Locate the specific episode from the list of episodes
+     * Locate the specific episode from the episodes of the series
      *
      * @param episodeList
      * @param seasonNumber
      * @param episodeNumber
      * @return
      */
-    private static Episode findEpisode(List<Episode> episodeList, int seasonNumber, int episodeNumber) {
-        if (episodeList == null || episodeList.isEmpty()) {
+    private static Episode findEpisode(TheTvDBEpisodes episodeList, int seasonNumber, int episodeNumber) {
+        if (episodeList == null) {
             return null;
         }
-
-        for (Episode episode : episodeList) {
-            if (episode.getSeasonNumber() == seasonNumber && episode.getEpisodeNumber() == episodeNumber) {
-                return episode;
-            }
-        }
-        return null;
+        return episodeList.getEpisode(seasonNumber, episodeNumber);
     }
 
     /**
-     * Locate the specific DVD episode from the list of episodes
+     * Locate the specific DVD episode from the episodes of the series
      *
      * @param episodeList
      * @param seasonNumber
      * @param episodeNumber
      * @return
      */
-    private static Episode findDvdEpisode(List<Episode> episodeList, int seasonNumber, int episodeNumber) {
-        if (episodeList == null || episodeList.isEmpty()) {
+    private static Episode findDvdEpisode(TheTvDBEpisodes episodeList, int seasonNumber, int episodeNumber) {
+        if (episodeList == null) {
             return null;
         }
-
-        for (Episode episode : episodeList) {
-            int dvdSeason = NumberUtils.toInt(episode.getDvdSeason(), -1);
-            int dvdEpisode = (int) NumberUtils.toFloat(episode.getDvdEpisodeNumber(), -1.0f);
-
-            if ((dvdSeason == seasonNumber) && (dvdEpisode == episodeNumber)) {
-                return episode;
-            }
-        }
-        return null;
+        return episodeList.getDvdEpisode(seasonNumber, episodeNumber);
     }
 
     @Override
@@ -37,7 +37,6 @@ import com.moviejukebox.tools.FileTools;
 import com.moviejukebox.tools.HTMLTools;
 import com.moviejukebox.tools.PropertiesUtil;
 import com.moviejukebox.tools.StringTools;
-import com.moviejukebox.tools.ThreadExecutor;
 import com.moviejukebox.tools.YamjHttpClient;
 import com.moviejukebox.tools.YamjHttpClientBuilder;
 import com.moviejukebox.tools.downloader.Downloader;
@@ -165,6 +164,10 @@ public class TrailerPlugin implements ITrailerPlugin {
             extra.setFilename(trailerPlayFileName);
             movie.addExtraFile(extra);
             isExchangeOk = Boolean.TRUE;
+        } else if (TrailerQueue.isEnabled()) {
+            // The extra is added to the video when the download has finished
+            TrailerQueue.add(movie, extra.getTitle(), trailerUrl, trailerFile, trailerPlayFileName);
+            isExchangeOk = Boolean.TRUE;
         } else if (trailerDownload(movie, trailerUrl, trailerFile)) {
             extra.setFilename(trailerPlayFileName);
             movie.addExtraFile(extra);
@@ -200,20 +203,16 @@ public class TrailerPlugin implements ITrailerPlugin {
      * @return Doe
      */
     public boolean trailerDownload(final IMovieBasicInformation movie, String trailerUrlString, File trailerFile) {
-        ThreadExecutor.enterIO(trailerUrlString);
-        try {
-            LOG.debug("{} - Attempting to download URL '{}', saving to {}", movie.getTitle(), trailerUrlString, trailerFile.getAbsolutePath());
+        // the download slot of the host is taken by the AsyncDownloader
+        LOG.debug("{} - Attempting to download URL '{}', saving to {}", movie.getTitle(), trailerUrlString, trailerFile.getAbsolutePath());
 
-            Downloader dl = new Downloader(trailerFile.getAbsolutePath(), trailerUrlString, SHOW_PROGRESS);
+        Downloader dl = new Downloader(trailerFile.getAbsolutePath(), trailerUrlString, SHOW_PROGRESS);
 
-            if (dl.isDownloadOk()) {
-                LOG.info("Trailer downloaded in {}", dl.getDownloadTime());
-                return Boolean.TRUE;
-            }
-            return Boolean.FALSE;
-        } finally {
-            ThreadExecutor.leaveIO();
+        if (dl.isDownloadOk()) {
+            LOG.info("Trailer downloaded in {}", dl.getDownloadTime());
+            return Boolean.TRUE;
         }
+        return Boolean.FALSE;
     }
 
 }
@@ -0,0 +1,501 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.plugin.trailer;
+
+import com.moviejukebox.model.Jukebox;
+import com.moviejukebox.model.Movie;
+import com.moviejukebox.model.enumerations.DirtyFlag;
+import com.moviejukebox.reader.MovieJukeboxXMLReader;
+import com.moviejukebox.tools.DOMHelper;
+import com.moviejukebox.tools.FileTools;
+import com.moviejukebox.tools.PropertiesUtil;
+import com.moviejukebox.tools.SystemTools;
+import com.moviejukebox.tools.YamjHttpClientBuilder;
+import com.moviejukebox.tools.downloader.Downloader;
+import com.moviejukebox.writer.MovieJukeboxHTMLWriter;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Persistent queue of the trailers to download.
+ *
+ * Instead of downloading the trailers while the videos are processed, the
+ * trailer plugins add them to this queue, which is stored in the jukebox. The
+ * queue is drained after the jukebox has been written, within the configured
+ * time window, bandwidth and maximum time, so that it does not hold up the
+ * next scan in watch mode. Interrupted downloads are resumed from the partial
+ * file by a later run.
+ *
+ * When a trailer has been downloaded the extra is added to the XML of the
+ * video and only the detail pages of this video are generated again.
+ */
+public final class TrailerQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrailerQueue.class);
+    private static final String FILENAME = "jukebox_trailers.txt";
+    private static final String SEPARATOR = "\t";
+    private static final String PART_EXT = ".part";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final boolean ENABLED = PropertiesUtil.getBooleanProperty("trailers.download.queue", Boolean.FALSE);
+    private static final int MAX_RATE = PropertiesUtil.getIntProperty("trailers.queue.maxRate", 0);
+    private static final String WINDOW = PropertiesUtil.getProperty("trailers.queue.window", "");
+    private static final int MAX_ATTEMPTS = PropertiesUtil.getIntProperty("trailers.queue.maxAttempts", 5);
+    private static final int MAX_TIME = PropertiesUtil.getIntProperty("trailers.queue.maxTime", 1800);
+    // The queued trailers by their file
+    private static final Map<String, TrailerJob> JOBS = new LinkedHashMap<>();
+
+    static {
+        FileTools.addJukeboxFile(FILENAME);
+    }
+
+    private TrailerQueue() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    /**
+     * Are the trailers downloaded by the queue
+     *
+     * @return
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Read the trailers which have not been downloaded by the last run
+     *
+     * @param jukebox
+     */
+    public static void readQueue(Jukebox jukebox) {
+        if (ENABLED) {
+            readQueue(new File(jukebox.getJukeboxRootLocationDetailsFile(), FILENAME));
+        }
+    }
+
+    static synchronized void readQueue(File queueFile) {
+        JOBS.clear();
+        if (!queueFile.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(queueFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(SEPARATOR);
+                if (columns.length == 6) {
+                    TrailerJob job = new TrailerJob(columns[0], columns[1], columns[2], columns[3], columns[4]);
+                    job.attempts = Integer.parseInt(columns[5]);
+                    JOBS.put(job.trailerFile, job);
+                }
+            }
+            LOG.debug("{} trailers are queued for download", JOBS.size());
+        } catch (IOException | NumberFormatException ex) {
+            LOG.warn("Failed to read the trailer queue '{}': {}", queueFile.getAbsolutePath(), ex.getMessage());
+        }
+    }
+
+    static synchronized void writeQueue(File queueFile) {
+        if (JOBS.isEmpty()) {
+            if (queueFile.exists() && !queueFile.delete()) {
+                LOG.debug("Failed to delete the trailer queue '{}'", queueFile.getAbsolutePath());
+            }
+            return;
+        }
+
+        FileTools.makeDirsForFile(queueFile);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(FileTools.createFileOutputStream(queueFile), StandardCharsets.UTF_8))) {
+            for (TrailerJob job : JOBS.values()) {
+                writer.write(StringUtils.join(new Object[]{job.baseName, job.title, job.url, job.trailerFile, job.playFilename, job.attempts}, SEPARATOR));
+                writer.write('\n');
+            }
+        } catch (IOException ex) {
+            LOG.warn("Failed to write the trailer queue '{}': {}", queueFile.getAbsolutePath(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Add a trailer to the queue
+     *
+     * @param movie
+     * @param title the title of the extra
+     * @param url the URL of the trailer
+     * @param trailerFile the file to download to
+     * @param playFilename the filename of the extra
+     */
+    public static synchronized void add(Movie movie, String title, String url, File trailerFile, String playFilename) {
+        String key = trailerFile.getAbsolutePath();
+        if (!JOBS.containsKey(key)) {
+            LOG.debug("{} - Queued trailer '{}' for download", movie.getBaseName(), url);
+            JOBS.put(key, new TrailerJob(movie.getBaseName(), clean(title), clean(url), key, clean(playFilename)));
+        }
+    }
+
+    /**
+     * Download the queued trailers as long as the time window is open and the
+     * maximum time is not used up, and update the videos they belong to.
+     *
+     * @param jukebox
+     */
+    public static void drain(Jukebox jukebox) {
+        if (!ENABLED) {
+            return;
+        }
+
+        long deadline = MAX_TIME > 0 ? System.currentTimeMillis() + MAX_TIME * 1000L : Long.MAX_VALUE;
+        drain(jukebox, new File(jukebox.getJukeboxRootLocationDetailsFile(), FILENAME), WINDOW, deadline);
+    }
+
+    static void drain(Jukebox jukebox, File queueFile, String window, long deadline) {
+        List<TrailerJob> jobs;
+        synchronized (TrailerQueue.class) {
+            jobs = new ArrayList<>(JOBS.values());
+            // Save the trailers queued by this run before any download
+            writeQueue(queueFile);
+        }
+
+        if (!jobs.isEmpty()) {
+            LOG.info("Downloading {} queued trailers...", jobs.size());
+        }
+
+        for (TrailerJob job : jobs) {
+            if (!isInWindow(window, Calendar.getInstance())) {
+                LOG.info("Outside the trailer download window ({}), the remaining trailers are downloaded by the next run", window);
+                break;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                LOG.info("The trailer download time of {} seconds is used up, the remaining trailers are downloaded by the next run", MAX_TIME);
+                break;
+            }
+
+            boolean done;
+            try {
+                if (!download(job, deadline)) {
+                    // Not a failed attempt, the partial file is resumed by the next run
+                    LOG.info("{} - The trailer download time of {} seconds is used up, the trailer and the remaining ones are downloaded by the next run", job.baseName, MAX_TIME);
+                    break;
+                }
+                job.attempts++;
+                done = updateVideo(jukebox, job) || job.attempts >= MAX_ATTEMPTS;
+            } catch (IOException ex) {
+                job.attempts++;
+                LOG.warn("{} - Failed to download trailer '{}': {}", job.baseName, job.url, ex.getMessage());
+                done = job.attempts >= MAX_ATTEMPTS;
+                if (done) {
+                    LOG.info("{} - Giving up on trailer '{}' after {} attempts", job.baseName, job.url, job.attempts);
+                    new File(job.trailerFile + PART_EXT).delete();
+                }
+            }
+
+            synchronized (TrailerQueue.class) {
+                if (done) {
+                    JOBS.remove(job.trailerFile);
+                }
+                // Save after each trailer, so an interrupted run loses nothing
+                writeQueue(queueFile);
+            }
+        }
+    }
+
+    /**
+     * Is the time in the window
+     *
+     * @param window the window as "HH:mm-HH:mm", it may span midnight; empty
+     * for always
+     * @param time
+     * @return
+     */
+    static boolean isInWindow(String window, Calendar time) {
+        if (StringUtils.isBlank(window)) {
+            return true;
+        }
+
+        String[] limits = window.split("-");
+        int start, end;
+        try {
+            start = toMinutes(limits[0]);
+            end = toMinutes(limits[1]);
+        } catch (RuntimeException ex) {
+            LOG.warn("Invalid trailer download window '{}', use HH:mm-HH:mm", window);
+            return true;
+        }
+
+        int now = time.get(Calendar.HOUR_OF_DAY) * 60 + time.get(Calendar.MINUTE);
+        if (start <= end) {
+            return now >= start && now < end;
+        }
+        return now >= start || now < end;
+    }
+
+    private static int toMinutes(String time) {
+        String[] parts = time.trim().split(":");
+        return Integer.parseInt(parts[0]) * 60 + (parts.length > 1 ? Integer.parseInt(parts[1]) : 0);
+    }
+
+    /**
+     * Download the trailer into a partial file, resuming a previous download,
+     * and rename it once it is complete.
+     *
+     * @param job
+     * @param deadline the time to stop the download at
+     * @return false if the download was stopped at the deadline
+     * @throws IOException
+     */
+    private static boolean download(TrailerJob job, long deadline) throws IOException {
+        File trailerFile = new File(job.trailerFile);
+        if (trailerFile.exists()) {
+            return true;
+        }
+
+        File partFile = new File(job.trailerFile + PART_EXT);
+        long offset = partFile.exists() ? partFile.length() : 0L;
+
+        HttpGet request = new HttpGet(job.url);
+        request.setHeader(HttpHeaders.USER_AGENT, job.url.toLowerCase().contains(".apple.") ? Downloader.USER_AGENT_APPLE : Downloader.USER_AGENT_NORMAL);
+        if (offset > 0) {
+            request.setHeader(HttpHeaders.RANGE, "bytes=" + offset + "-");
+        }
+
+        LOG.debug("{} - Downloading trailer '{}' to {}", job.baseName, job.url, trailerFile.getAbsolutePath());
+        long start = System.currentTimeMillis();
+        HttpResponse response = YamjHttpClientBuilder.getHttpClient().execute(request);
+        HttpEntity entity = response.getEntity();
+        try {
+            int status = response.getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE && offset > 0) {
+                if (!isPartComplete(response, offset)) {
+                    // The partial file doesn't fit the trailer, start again
+                    partFile.delete();
+                    throw new IOException("Status " + status);
+                }
+                LOG.debug("{} - Partial trailer is already complete", job.baseName);
+            } else {
+                boolean append;
+                if (status == HttpStatus.SC_PARTIAL_CONTENT && offset > 0) {
+                    append = true;
+                } else if (status == HttpStatus.SC_OK) {
+                    append = false;
+                } else {
+                    throw new IOException("Status " + status);
+                }
+
+                FileTools.makeDirsForFile(partFile);
+                try (InputStream is = entity.getContent();
+                        OutputStream os = new FileOutputStream(partFile, append)) {
+                    if (!copy(is, os, deadline)) {
+                        // Close the connection instead of reading the rest of the trailer
+                        request.abort();
+                        LOG.debug("{} - Trailer download stopped after {} bytes", job.baseName, partFile.length());
+                        return false;
+                    }
+                }
+            }
+        } finally {
+            EntityUtils.consumeQuietly(entity);
+        }
+
+        Files.move(partFile.toPath(), trailerFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        LOG.info("{} - Trailer downloaded in {} seconds", job.baseName, (System.currentTimeMillis() - start) / 1000);
+        return true;
+    }
+
+    /**
+     * Check if a "range not satisfiable" response means that the partial file
+     * already holds the whole trailer.
+     *
+     * @param response
+     * @param offset the size of the partial file
+     * @return true if the trailer has no bytes after the offset
+     */
+    static boolean isPartComplete(HttpResponse response, long offset) {
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE || offset <= 0) {
+            return false;
+        }
+
+        // The server should send the full length as "bytes */length"
+        Header contentRange = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+        if (contentRange == null) {
+            return true;
+        }
+        String value = contentRange.getValue();
+        int slash = value.lastIndexOf('/');
+        if (slash < 0 || "*".equals(value.substring(slash + 1).trim())) {
+            return true;
+        }
+        try {
+            return Long.parseLong(value.substring(slash + 1).trim()) == offset;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Copy the stream, keeping the average rate below the maximum rate
+     *
+     * @param is
+     * @param os
+     * @param deadline the time to stop the copy at
+     * @return false if the copy was stopped at the deadline
+     * @throws IOException
+     */
+    private static boolean copy(InputStream is, OutputStream os, long deadline) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long start = System.currentTimeMillis();
+        long total = 0;
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            os.write(buffer, 0, read);
+            total += read;
+
+            if (MAX_RATE > 0) {
+                // The time the bytes should have taken at the maximum rate
+                long wait = total * 1000 / (MAX_RATE * 1024L) - (System.currentTimeMillis() - start);
+                if (wait > 0) {
+                    try {
+                        Thread.sleep(wait);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Trailer download interrupted");
+                    }
+                }
+            }
+
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add the downloaded trailer to the XML of the video and generate its
+     * detail pages again.
+     *
+     * @param jukebox
+     * @param job
+     * @return false if the video could not be updated
+     */
+    private static boolean updateVideo(Jukebox jukebox, TrailerJob job) {
+        File xmlFile = new File(jukebox.getJukeboxRootLocationDetailsFile(), job.baseName + ".xml");
+        if (!xmlFile.exists()) {
+            LOG.debug("{} - Video is no longer in the jukebox, trailer is not added", job.baseName);
+            return true;
+        }
+
+        try {
+            Document doc = DOMHelper.getDocFromFile(xmlFile);
+            NodeList nlMovies = doc.getElementsByTagName("movie");
+            if (nlMovies.getLength() == 0) {
+                LOG.warn("{} - No video found in {}", job.baseName, xmlFile.getName());
+                return true;
+            }
+            Element eMovie = (Element) nlMovies.item(0);
+
+            Element eExtras = DOMHelper.getElementByName(eMovie, "extras");
+            if (eExtras == null) {
+                eExtras = doc.createElement("extras");
+                eMovie.appendChild(eExtras);
+            }
+
+            NodeList nlExtras = eExtras.getElementsByTagName("extra");
+            for (int looper = 0; looper < nlExtras.getLength(); looper++) {
+                if (job.playFilename.equals(nlExtras.item(looper).getTextContent())) {
+                    LOG.debug("{} - Trailer is already in the XML", job.baseName);
+                    return true;
+                }
+            }
+
+            Element eExtra = doc.createElement("extra");
+            eExtra.setAttribute("title", job.title);
+            eExtra.setTextContent(job.playFilename);
+            eExtras.appendChild(eExtra);
+
+            if (!DOMHelper.writeDocumentToFile(doc, xmlFile)) {
+                return false;
+            }
+
+            // Generate the pages of the video from the updated XML
+            Movie movie = new Movie();
+            if (!new MovieJukeboxXMLReader().parseMovieXML(xmlFile, movie)) {
+                return false;
+            }
+            movie.setDirty(DirtyFlag.INFO, Boolean.TRUE);
+
+            String root = jukebox.getJukeboxRootLocation();
+            new MovieJukeboxHTMLWriter().generateMovieDetailsHTML(new Jukebox(root, root, jukebox.getDetailsDirName()), movie);
+            LOG.debug("{} - Added trailer {}", job.baseName, job.playFilename);
+            return true;
+        } catch (ParserConfigurationException | SAXException | IOException | TransformerException ex) {
+            LOG.warn("{} - Failed to add the trailer to the XML: {}", job.baseName, ex.getMessage());
+            LOG.warn(SystemTools.getStackTrace(ex));
+            return false;
+        }
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.replace(SEPARATOR, " ").replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * A queued trailer
+     */
+    private static final class TrailerJob {
+
+        private final String baseName;
+        private final String title;
+        private final String url;
+        private final String trailerFile;
+        private final String playFilename;
+        private int attempts = 0;
+
+        TrailerJob(String baseName, String title, String url, String trailerFile, String playFilename) {
+            this.baseName = baseName;
+            this.title = title;
+            this.url = url;
+            this.trailerFile = trailerFile;
+            this.playFilename = playFilename;
+        }
+    }
+}
@@ -23,6 +23,7 @@
 package com.moviejukebox.reader;
 
 import static com.moviejukebox.writer.MovieJukeboxXMLWriter.*;
+import static javax.xml.stream.XMLStreamConstants.*;
 
 import com.moviejukebox.MovieJukebox;
 import com.moviejukebox.model.*;
@@ -32,19 +33,28 @@ import com.moviejukebox.model.attachment.ContentType;
 import com.moviejukebox.model.enumerations.*;
 import com.moviejukebox.plugin.ImdbPlugin;
 import com.moviejukebox.tools.*;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
 import java.util.*;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.pojava.datetime.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.*;
-import org.xml.sax.SAXException;
 
+/**
+ * Read the jukebox XML files back into the model.
+ *
+ * The files are read with a single pass of a StAX stream reader; no DOM is
+ * built. Single values keep the DOM lookup semantics: the first element with
+ * the tag name wins, wherever it is in the movie.
+ */
 public class MovieJukeboxXMLReader {
 
     private static final Logger LOG = LoggerFactory.getLogger(MovieJukeboxXMLReader.class);
@@ -52,6 +62,28 @@ public class MovieJukeboxXMLReader {
     private static final AspectRatioTools ASPECT_TOOLS = new AspectRatioTools();
     // Should we scrape the trivia information
     private static final boolean ENABLE_TRIVIA = PropertiesUtil.getBooleanProperty("mjb.scrapeTrivia", Boolean.FALSE);
+    private static final XMLInputFactory XML_FACTORY = createFactory();
+    // The single value elements of the movie XML
+    private static final Set<String> MOVIE_VALUES = new HashSet<>(Arrays.asList(
+            "mjbVersion", "mjbGitSHA", "xmlGenerationDate", "baseFilenameBase", BASE_FILENAME,
+            TITLE, ORIGINAL_TITLE, SORT_TITLE, YEAR, "releaseDate", "showStatus", "watchedNFO", "watchedFile",
+            "posterURL", "fanartURL", "bannerURL", "clearArtURL", "clearLogoURL", "tvThumbURL", "seasonThumbURL", "movieDiscURL",
+            "posterFile", "detailPosterFile", "thumbnail", "fanartFile", "bannerFile", "wideBannerFile", "clearArtFile",
+            "clearLogoFile", "tvThumbFile", "seasonThumbFile", "movieDiscFile",
+            "plot", "outline", "quote", "tagline", "company", "runtime", "top250", COUNTRY, "certification", LANGUAGE,
+            "subtitles", "trailerExchange", TRAILER_LAST_SCAN, "container", "resolution", "videoSource", "videoOutput",
+            "aspect", "fps", "first", "previous", "next", "last", "libraryDescription", "prebuf"));
+    // The single value elements of the person XML
+    private static final Set<String> PERSON_VALUES = new HashSet<>(Arrays.asList(
+            TITLE, BASE_FILENAME, "biography", "birthday", "birthplace", "birthname", URL, "photoFile", "photoURL",
+            "backdropFile", "backdropURL", "knownMovies", "version", "lastModifiedAt"));
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
 
     /**
      * Parse a single movie detail XML file
@@ -62,717 +94,663 @@ public class MovieJukeboxXMLReader {
      */
     public boolean parseMovieXML(File xmlFile, Movie movie) {
         boolean forceDirtyFlag = Boolean.FALSE; // force dirty flag for example when extras have been deleted
-        Document xmlDoc;
 
-        try {
-            xmlDoc = DOMHelper.getDocFromFile(xmlFile);
-        } catch (MalformedURLException error) {
-            LOG.error(ERROR_FIXIT, xmlFile.getName());
-            LOG.error(SystemTools.getStackTrace(error));
-            return Boolean.FALSE;
-        } catch (IOException error) {
-            LOG.error(ERROR_FIXIT, xmlFile.getName());
-            LOG.error(SystemTools.getStackTrace(error));
-            return Boolean.FALSE;
-        } catch (ParserConfigurationException | SAXException error) {
+        XMLStreamReader reader = null;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(xmlFile))) {
+            reader = XML_FACTORY.createXMLStreamReader(in);
+            while (reader.hasNext()) {
+                if (reader.next() == START_ELEMENT && MOVIE.equals(reader.getLocalName())) {
+                    forceDirtyFlag |= parseMovie(reader, xmlFile, movie);
+                }
+            }
+        } catch (IOException | XMLStreamException error) {
             LOG.error(ERROR_FIXIT, xmlFile.getName());
             LOG.error(SystemTools.getStackTrace(error));
             return Boolean.FALSE;
+        } finally {
+            close(reader);
         }
 
-        NodeList nlMovies;  // Main list of movies, there should only be 1
-        Node nMovie;        // Node for the movie
+        // This is a new movie, so clear the current dirty flags
+        movie.clearDirty();
+        movie.setDirty(DirtyFlag.INFO, forceDirtyFlag || movie.hasNewMovieFiles() || movie.hasNewExtraFiles());
 
-        NodeList nlElements;    // Reusable NodeList for the other elements
-        Node nElements;         // Reusable Node for the other elements
+        return Boolean.TRUE;
+    }
 
-        nlMovies = xmlDoc.getElementsByTagName(MOVIE);
-        for (int loopMovie = 0; loopMovie < nlMovies.getLength(); loopMovie++) {
-            nMovie = nlMovies.item(loopMovie);
-            if (nMovie.getNodeType() == Node.ELEMENT_NODE) {
-                Element eMovie = (Element) nMovie;
+    /**
+     * Read the movie element the reader is positioned on.
+     *
+     * The lists are added to the movie as they are read, the single values
+     * are collected and set at the end of the element in a fixed order
+     *
+     * @param reader
+     * @param xmlFile
+     * @param movie
+     * @return true if the movie needs to be marked as dirty
+     * @throws XMLStreamException
+     */
+    private boolean parseMovie(XMLStreamReader reader, File xmlFile, Movie movie) throws XMLStreamException {
+        boolean forceDirtyFlag = Boolean.FALSE;
+        Map<String, OverridableValue> values = new HashMap<>();
+        // Only the first of these lists is read
+        Set<String> lists = new HashSet<>();
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == END_ELEMENT) {
+                depth--;
+                continue;
+            } else if (event != START_ELEMENT) {
+                continue;
+            }
 
+            String tag = reader.getLocalName();
+            if ("id".equals(tag)) {
                 // Get all the IDs associated with the movie
-                nlElements = eMovie.getElementsByTagName("id");
-                for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                    nElements = nlElements.item(looper);
-                    if (nElements.getNodeType() == Node.ELEMENT_NODE) {
-                        Element eId = (Element) nElements;
-
-                        String movieDb = eId.getAttribute(MOVIEDB);
-                        if (StringTools.isNotValidString(movieDb)) {
-                            movieDb = ImdbPlugin.IMDB_PLUGIN_ID;
-                        }
-                        movie.setId(movieDb, eId.getTextContent());
-                    }
-                }   // End of ID
+                String movieDb = getDatabase(reader, MOVIEDB);
+                movie.setId(movieDb, readText(reader));
+            } else if (MOVIE_VALUES.contains(tag)) {
+                readValue(reader, values);
+            } else if ("trivia".equals(tag)) {
+                // Issue 2013: Add trivia
+                String trivia = readText(reader);
+                if (ENABLE_TRIVIA) {
+                    movie.addDidYouKnow(trivia);
+                }
+            } else if ("business".equals(tag)) {
+                // Issue 2012: Financial information about movie
+                parseBusiness(reader, movie);
+            } else if (isList(tag) && !lists.add(tag)) {
+                skipElement(reader);
+            } else {
+                switch (tag) {
+                    case "ratings":
+                        parseRatings(reader, movie);
+                        break;
+                    case "directors":
+                    case "writers":
+                    case "cast":
+                        parsePeopleNames(reader, movie, tag);
+                        break;
+                    case "genres":
+                        parseGenres(reader, movie);
+                        break;
+                    case "sets":
+                        parseSets(reader, movie);
+                        break;
+                    case "codecs":
+                        parseCodecs(reader, movie);
+                        break;
+                    case "awards":
+                        // Issue 1901: Awards
+                        parseAwards(reader, movie);
+                        break;
+                    case "people":
+                        // Issue 1897: Cast enhancement
+                        parsePeople(reader, movie);
+                        break;
+                    case "files":
+                        parseFiles(reader, xmlFile, movie);
+                        break;
+                    case "extras":
+                        forceDirtyFlag |= parseExtras(reader, movie);
+                        break;
+                    default:
+                        // Look for the values inside the element
+                        depth++;
+                        break;
+                }
+            }
+        }
 
-                // Get the Version the XML was written with
-                movie.setMjbVersion(DOMHelper.getValueFromElement(eMovie, "mjbVersion"));
+        return applyMovieValues(movie, values) || forceDirtyFlag;
+    }
 
-                // Get the Git SHA the XML was written with
-                movie.setMjbGitSHA(DOMHelper.getValueFromElement(eMovie, "mjbGitSHA"));
+    private static boolean isList(String tag) {
+        switch (tag) {
+            case "ratings":
+            case "directors":
+            case "writers":
+            case "cast":
+            case "genres":
+            case "sets":
+            case "codecs":
+            case "awards":
+            case "people":
+            case "files":
+            case "extras":
+                return true;
+            default:
+                return false;
+        }
+    }
 
-                // Get the date/time the XML was written
-                movie.setMjbGenerationDateString(DOMHelper.getValueFromElement(eMovie, "xmlGenerationDate"));
+    /**
+     * Set the single values of the movie
+     *
+     * @param movie
+     * @param values
+     * @return true if the library description has changed
+     */
+    private boolean applyMovieValues(Movie movie, Map<String, OverridableValue> values) {
+        boolean forceDirtyFlag = Boolean.FALSE;
 
-                if (StringTools.isNotValidString(movie.getBaseFilename())) {
-                    movie.setBaseFilename(DOMHelper.getValueFromElement(eMovie, "baseFilenameBase"));
-                }
+        // Get the Version the XML was written with
+        movie.setMjbVersion(getValue(values, "mjbVersion"));
+
+        // Get the Git SHA the XML was written with
+        movie.setMjbGitSHA(getValue(values, "mjbGitSHA"));
+
+        // Get the date/time the XML was written
+        movie.setMjbGenerationDateString(getValue(values, "xmlGenerationDate"));
+
+        if (StringTools.isNotValidString(movie.getBaseFilename())) {
+            movie.setBaseFilename(getValue(values, "baseFilenameBase"));
+        }
+
+        if (StringTools.isNotValidString(movie.getBaseName())) {
+            movie.setBaseName(getValue(values, BASE_FILENAME));
+        }
+
+        // Get the title fields
+        parseOverridableTitle(movie, values);
+        parseOverridableOriginalTitle(movie, values);
+        movie.setTitleSort(getValue(values, SORT_TITLE));
+
+        // Get the year. We don't care about the attribute as that is the index
+        parseOverridableYear(movie, values);
+
+        // Get the release date
+        parseOverridableReleaseDate(movie, values);
+
+        // get the show status
+        movie.setShowStatus(getValue(values, "showStatus"));
+
+        // Get the watched flags
+        movie.setWatchedNFO(Boolean.parseBoolean(getValue(values, "watchedNFO")));
+        movie.setWatchedFile(Boolean.parseBoolean(getValue(values, "watchedFile")));
+
+        // Get artwork URLS
+        movie.setPosterURL(HTMLTools.decodeUrl(getValue(values, "posterURL")));
+        movie.setFanartURL(HTMLTools.decodeUrl(getValue(values, "fanartURL")));
+        movie.setBannerURL(HTMLTools.decodeUrl(getValue(values, "bannerURL")));
+        movie.setClearArtURL(HTMLTools.decodeHtml(getValue(values, "clearArtURL")));
+        movie.setClearLogoURL(HTMLTools.decodeHtml(getValue(values, "clearLogoURL")));
+        movie.setTvThumbURL(HTMLTools.decodeHtml(getValue(values, "tvThumbURL")));
+        movie.setSeasonThumbURL(HTMLTools.decodeHtml(getValue(values, "seasonThumbURL")));
+        movie.setMovieDiscURL(HTMLTools.decodeHtml(getValue(values, "movieDiscURL")));
+
+        // Get artwork files
+        movie.setPosterFilename(HTMLTools.decodeUrl(getValue(values, "posterFile")));
+        movie.setDetailPosterFilename(HTMLTools.decodeUrl(getValue(values, "detailPosterFile")));
+        movie.setThumbnailFilename(HTMLTools.decodeUrl(getValue(values, "thumbnail")));
+        movie.setFanartFilename(HTMLTools.decodeUrl(getValue(values, "fanartFile")));
+        movie.setBannerFilename(HTMLTools.decodeUrl(getValue(values, "bannerFile")));
+        movie.setWideBannerFilename(HTMLTools.decodeUrl(getValue(values, "wideBannerFile")));
+        movie.setClearArtFilename(HTMLTools.decodeUrl(getValue(values, "clearArtFile")));
+        movie.setClearLogoFilename(HTMLTools.decodeUrl(getValue(values, "clearLogoFile")));
+        movie.setTvThumbFilename(HTMLTools.decodeUrl(getValue(values, "tvThumbFile")));
+        movie.setSeasonThumbFilename(HTMLTools.decodeUrl(getValue(values, "seasonThumbFile")));
+        movie.setMovieDiscFilename(HTMLTools.decodeUrl(getValue(values, "movieDiscFile")));
+
+        // Get the plot and outline
+        parseOverridablePlot(movie, values);
+        parseOverridableOutline(movie, values);
+
+        // Get the quote
+        parseOverridableQuote(movie, values);
+
+        // Get the tagline
+        parseOverridableTagline(movie, values);
+
+        // Get the company name
+        parseOverridableCompany(movie, values);
+
+        // get the runtime
+        parseOverridableRuntime(movie, values);
+
+        // get the top 250
+        parseOverridableTop250(movie, values);
+
+        // Get the country
+        parseOverridableCountry(movie, values);
+
+        // Get certification
+        parseOverridableCertification(movie, values);
+
+        // Get language
+        parseOverridableLanguage(movie, values);
+
+        // Get subtitles
+        movie.setSubtitles(getValue(values, "subtitles"));
 
-                if (StringTools.isNotValidString(movie.getBaseName())) {
-                    movie.setBaseName(DOMHelper.getValueFromElement(eMovie, BASE_FILENAME));
+        // Get the TrailerExchange
+        movie.setTrailerExchange(getValue(values, "trailerExchange").equalsIgnoreCase(YES));
+
+        // Get trailerLastScan date/time
+        movie.setTrailerLastScan(getValue(values, TRAILER_LAST_SCAN));
+
+        // Get file container
+        parseOverridableContainer(movie, values);
+
+        // get the resolution
+        parseOverridableResolution(movie, values);
+
+        // get the video source
+        parseOverridableVideoSource(movie, values);
+
+        // get the video output
+        parseOverridableVideoOutput(movie, values);
+
+        // get aspect ratio
+        parseOverridableAspectRatio(movie, values);
+
+        // get frames per second
+        parseOverridableFramesPerSecond(movie, values);
+
+        // Get navigation info
+        movie.setFirst(HTMLTools.decodeUrl(getValue(values, "first")));
+        movie.setPrevious(HTMLTools.decodeUrl(getValue(values, "previous")));
+        movie.setNext(HTMLTools.decodeUrl(getValue(values, "next")));
+        movie.setLast(HTMLTools.decodeUrl(getValue(values, "last")));
+
+        // Get the library description, if it's not been set elsewhere (e.g. scanner)
+        String tempLibraryDescription = getValue(values, "libraryDescription");
+        if (StringTools.isNotValidString(movie.getLibraryDescription())) {
+            movie.setLibraryDescription(tempLibraryDescription);
+        } else if (!movie.getLibraryDescription().equals(tempLibraryDescription)) {
+            // The current description is different to the one in the XML
+            LOG.debug("Different library description! Setting dirty INFO");
+            forceDirtyFlag = Boolean.TRUE;
+        }
+
+        // Get prebuf
+        movie.setPrebuf(Long.parseLong(getValue(values, "prebuf")));
+
+        return forceDirtyFlag;
+    }
+
+    private static void parseRatings(XMLStreamReader reader, Movie movie) throws XMLStreamException {
+        // We don't care about the RATING as this is a calulated value, so just get the children of the "ratings" element
+        while (nextChild(reader)) {
+            String movieDb = getDatabase(reader, MOVIEDB);
+            movie.addRating(movieDb, Integer.parseInt(readText(reader)));
+        }
+    }
+
+    private static void parsePeopleNames(XMLStreamReader reader, Movie movie, String tag) throws XMLStreamException {
+        String source = getAttribute(reader, SOURCE);
+        while (nextChild(reader)) {
+            String name = readText(reader);
+            if ("directors".equals(tag)) {
+                movie.addDirector(name, source);
+            } else if ("writers".equals(tag)) {
+                movie.addWriter(name, source);
+            } else {
+                movie.addActor(name, source);
+            }
+        }
+    }
+
+    private static void parseGenres(XMLStreamReader reader, Movie movie) throws XMLStreamException {
+        String source = getAttribute(reader, SOURCE);
+        List<String> genres = new ArrayList<>();
+        while (nextChild(reader)) {
+            genres.add(readText(reader));
+        }
+        movie.setGenres(genres, source);
+    }
+
+    private static void parseSets(XMLStreamReader reader, Movie movie) throws XMLStreamException {
+        while (nextChild(reader)) {
+            String order = getAttribute(reader, ORDER);
+            if (StringTools.isValidString(order)) {
+                movie.addSet(readText(reader), Integer.parseInt(order));
+            } else {
+                movie.addSet(readText(reader));
+            }
+        }
+    }
+
+    private static void parseCodecs(XMLStreamReader reader, Movie movie) throws XMLStreamException {
+        while (nextChild(reader)) {
+            // The codec type is the name of the audio/video element
+            CodecType codecType;
+            if (CodecType.VIDEO.toString().equalsIgnoreCase(reader.getLocalName())) {
+                codecType = CodecType.VIDEO;
+            } else {
+                codecType = CodecType.AUDIO;
+            }
+
+            while (nextChild(reader)) {
+                Codec codec = new Codec(codecType);
+                codec.setCodecId(getAttribute(reader, "codecId"));
+                codec.setCodecIdHint(getAttribute(reader, "codecIdHint"));
+                codec.setCodecFormat(getAttribute(reader, "format"));
+                codec.setCodecFormatProfile(getAttribute(reader, "formatProfile"));
+                codec.setCodecFormatVersion(getAttribute(reader, "formatVersion"));
+                codec.setCodecLanguage(getAttribute(reader, LANGUAGE));
+                codec.setCodecBitRate(getAttribute(reader, "bitrate"));
+                String tmpValue = getAttribute(reader, "channels");
+                if (StringUtils.isNotBlank(tmpValue)) {
+                    codec.setCodecChannels(Integer.parseInt(tmpValue));
                 }
 
-                // Get the title fields
-                parseOverridableTitle(movie, eMovie);
-                parseOverridableOriginalTitle(movie, eMovie);
-                movie.setTitleSort(DOMHelper.getValueFromElement(eMovie, SORT_TITLE));
-
-                // Get the year. We don't care about the attribute as that is the index
-                parseOverridableYear(movie, eMovie);
-
-                // Get the release date
-                parseOverridableReleaseDate(movie, eMovie);
-
-                // get the show status
-                movie.setShowStatus(DOMHelper.getValueFromElement(eMovie, "showStatus"));
-
-                // Get the ratings. We don't care about the RATING as this is a calulated value.
-                // So just get the childnodes of the "ratings" node
-                nlElements = eMovie.getElementsByTagName("ratings");
-                if (nlElements.getLength() > 0) {
-                    nlElements = nlElements.item(0).getChildNodes();
-                    for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                        nElements = nlElements.item(looper);
-                        if (nElements.getNodeType() == Node.ELEMENT_NODE) {
-                            Element eRating = (Element) nElements;
-
-                            String movieDb = eRating.getAttribute(MOVIEDB);
-                            if (StringTools.isNotValidString(movieDb)) {
-                                movieDb = ImdbPlugin.IMDB_PLUGIN_ID;
-                            }
-                            movie.addRating(movieDb, Integer.parseInt(eRating.getTextContent()));
-                        }
-                    }
-                }   // End of Ratings
-
-                // Get the watched flags
-                movie.setWatchedNFO(Boolean.parseBoolean(DOMHelper.getValueFromElement(eMovie, "watchedNFO")));
-                movie.setWatchedFile(Boolean.parseBoolean(DOMHelper.getValueFromElement(eMovie, "watchedFile")));
-
-                // Get artwork URLS
-                movie.setPosterURL(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "posterURL")));
-                movie.setFanartURL(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "fanartURL")));
-                movie.setBannerURL(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "bannerURL")));
-                movie.setClearArtURL(HTMLTools.decodeHtml(DOMHelper.getValueFromElement(eMovie, "clearArtURL")));
-                movie.setClearLogoURL(HTMLTools.decodeHtml(DOMHelper.getValueFromElement(eMovie, "clearLogoURL")));
-                movie.setTvThumbURL(HTMLTools.decodeHtml(DOMHelper.getValueFromElement(eMovie, "tvThumbURL")));
-                movie.setSeasonThumbURL(HTMLTools.decodeHtml(DOMHelper.getValueFromElement(eMovie, "seasonThumbURL")));
-                movie.setMovieDiscURL(HTMLTools.decodeHtml(DOMHelper.getValueFromElement(eMovie, "movieDiscURL")));
-
-                // Get artwork files
-                movie.setPosterFilename(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "posterFile")));
-                movie.setDetailPosterFilename(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "detailPosterFile")));
-                movie.setThumbnailFilename(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "thumbnail")));
-                movie.setFanartFilename(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "fanartFile")));
-                movie.setBannerFilename(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "bannerFile")));
-                movie.setWideBannerFilename(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "wideBannerFile")));
-                movie.setClearArtFilename(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "clearArtFile")));
-                movie.setClearLogoFilename(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "clearLogoFile")));
-                movie.setTvThumbFilename(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "tvThumbFile")));
-                movie.setSeasonThumbFilename(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "seasonThumbFile")));
-                movie.setMovieDiscFilename(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "movieDiscFile")));
-
-                // Get the plot and outline
-                parseOverridablePlot(movie, eMovie);
-                parseOverridableOutline(movie, eMovie);
-
-                // Get the quote
-                parseOverridableQuote(movie, eMovie);
-
-                // Get the tagline
-                parseOverridableTagline(movie, eMovie);
-
-                // Get the company name
-                parseOverridableCompany(movie, eMovie);
-
-                // get the runtime
-                parseOverridableRuntime(movie, eMovie);
-
-                // get the top 250
-                parseOverridableTop250(movie, eMovie);
-
-                // Get the directors
-                nlElements = eMovie.getElementsByTagName("directors");
-                if (nlElements.getLength() > 0) {
-                    Element tagElement = (Element) nlElements.item(0);
-                    nlElements = tagElement.getChildNodes();
-                    for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                        nElements = nlElements.item(looper);
-                        if (nElements.getNodeType() == Node.ELEMENT_NODE) {
-                            Element ePerson = (Element) nElements;
-                            movie.addDirector(ePerson.getTextContent(), tagElement.getAttribute(SOURCE));
-                        }
-                    }
+                tmpValue = getAttribute(reader, SOURCE);
+                if (StringTools.isValidString(tmpValue)) {
+                    codec.setCodecSource(CodecSource.fromString(tmpValue));
+                } else {
+                    codec.setCodecSource(CodecSource.UNKNOWN);
                 }
 
-                // Get the writers
-                nlElements = eMovie.getElementsByTagName("writers");
-                if (nlElements.getLength() > 0) {
-                    Element tagElement = (Element) nlElements.item(0);
-                    nlElements = tagElement.getChildNodes();
-                    for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                        nElements = nlElements.item(looper);
-                        if (nElements.getNodeType() == Node.ELEMENT_NODE) {
-                            Element ePerson = (Element) nElements;
-                            movie.addWriter(ePerson.getTextContent(), tagElement.getAttribute(SOURCE));
-                        }
-                    }
+                codec.setCodec(readText(reader).trim());
+                movie.addCodec(codec);
+            }   // END of codec information for audio/video
+        }   // END of codecs loop
+    }
+
+    private static void parseAwards(XMLStreamReader reader, Movie movie) throws XMLStreamException {
+        while (nextChild(reader)) {
+            AwardEvent awardEvent = new AwardEvent();
+            awardEvent.setName(getAttribute(reader, NAME));
+
+            while (nextChild(reader)) {
+                Award award = new Award();
+                award.setNominated(Integer.parseInt(getAttribute(reader, "nominated")));
+                award.setWon(Integer.parseInt(getAttribute(reader, WON)));
+                award.setYear(Integer.parseInt(getAttribute(reader, YEAR)));
+                String tmpAward = getAttribute(reader, "wons");
+                if (StringTools.isValidString(tmpAward)) {
+                    award.setWons(Arrays.asList(tmpAward.split(Movie.SPACE_SLASH_SPACE)));
                 }
+                tmpAward = getAttribute(reader, "nominations");
+                if (StringTools.isValidString(tmpAward)) {
+                    award.setNominations(Arrays.asList(tmpAward.split(Movie.SPACE_SLASH_SPACE)));
+                }
+                award.setName(readText(reader));
 
-                // Get the cast
-                nlElements = eMovie.getElementsByTagName("cast");
-                if (nlElements.getLength() > 0) {
-                    Element tagElement = (Element) nlElements.item(0);
-                    nlElements = tagElement.getChildNodes();
-                    for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                        nElements = nlElements.item(looper);
-                        if (nElements.getNodeType() == Node.ELEMENT_NODE) {
-                            Element ePerson = (Element) nElements;
-                            movie.addActor(ePerson.getTextContent(), tagElement.getAttribute(SOURCE));
-                        }
-                    }
+                awardEvent.addAward(award);
+            }   // End of Awards
+
+            movie.addAward(awardEvent);
+        }
+    }
+
+    private static void parsePeople(XMLStreamReader reader, Movie movie) throws XMLStreamException {
+        while (nextChild(reader)) {
+            Filmography person = new Filmography();
+
+            person.setCastId(getAttribute(reader, "cast_id"));
+            person.setCharacter(getAttribute(reader, CHARACTER));
+            person.setDepartment(getAttribute(reader, DEPARTMENT));
+            person.setDoublage(getAttribute(reader, "doublage"));
+            person.setId(getAttribute(reader, "id"));
+            person.setJob(getAttribute(reader, JOB));
+            person.setName(getAttribute(reader, NAME));
+            person.setOrder(getAttribute(reader, ORDER));
+            person.setTitle(getAttribute(reader, TITLE));
+            person.setUrl(getAttribute(reader, URL));
+            person.setPhotoFilename(getAttribute(reader, "photoFile"));
+
+            // Get any "id_???" values
+            for (int loopAttr = 0; loopAttr < reader.getAttributeCount(); loopAttr++) {
+                String attrName = reader.getAttributeLocalName(loopAttr);
+                if (attrName.startsWith(ID)) {
+                    person.setId(attrName.replace(ID, ""), reader.getAttributeValue(loopAttr));
                 }
+            }
 
-                // Get the country
-                parseOverridableCountry(movie, eMovie);
-
-                // Get the genres
-                nlElements = eMovie.getElementsByTagName("genres");
-                if (nlElements.getLength() > 0) {
-                    Element tagElement = (Element) nlElements.item(0);
-                    nlElements = tagElement.getChildNodes();
-                    List<String> genres = new ArrayList<>();
-                    for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                        nElements = nlElements.item(looper);
-                        if (nElements.getNodeType() == Node.ELEMENT_NODE) {
-                            Element eGenre = (Element) nElements;
-                            genres.add(eGenre.getTextContent());
-                        }
-                    }
-                    movie.setGenres(genres, tagElement.getAttribute(SOURCE));
+            String source = getAttribute(reader, SOURCE);
+            if (StringTools.isValidString(source)) {
+                person.setSource(source);
+                if (person.getDepartment().equalsIgnoreCase(Filmography.DEPT_DIRECTING)) {
+                    movie.setOverrideSource(OverrideFlag.PEOPLE_DIRECTORS, source);
+                } else if (person.getDepartment().equalsIgnoreCase(Filmography.DEPT_WRITING)) {
+                    movie.setOverrideSource(OverrideFlag.PEOPLE_WRITERS, source);
+                } else if (person.getDepartment().equalsIgnoreCase(Filmography.DEPT_ACTORS)) {
+                    movie.setOverrideSource(OverrideFlag.PEOPLE_ACTORS, source);
                 }
+            } else {
+                person.setSource(Movie.UNKNOWN);
+            }
 
-                // Process the sets
-                nlElements = eMovie.getElementsByTagName("sets");
-                if (nlElements.getLength() > 0) {
-                    nlElements = nlElements.item(0).getChildNodes();
-                    for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                        nElements = nlElements.item(looper);
-                        if (nElements.getNodeType() == Node.ELEMENT_NODE) {
-                            Element eSet = (Element) nElements;
-                            String order = eSet.getAttribute(ORDER);
-                            if (StringTools.isValidString(order)) {
-                                movie.addSet(eSet.getTextContent(), Integer.parseInt(order));
-                            } else {
-                                movie.addSet(eSet.getTextContent());
-                            }
-                        }
+            person.setFilename(readText(reader));
+            movie.addPerson(person);
+        }
+    }
+
+    private static void parseBusiness(XMLStreamReader reader, Movie movie) throws XMLStreamException {
+        movie.setBudget(getAttribute(reader, "budget"));
+
+        while (nextChild(reader)) {
+            String tag = reader.getLocalName();
+            if ("gross".equalsIgnoreCase(tag)) {
+                String country = getAttribute(reader, COUNTRY);
+                movie.setGross(country, readText(reader));
+            } else if ("openweek".equalsIgnoreCase(tag)) {
+                String country = getAttribute(reader, COUNTRY);
+                movie.setOpenWeek(country, readText(reader));
+            } else {
+                skipElement(reader);
+            }
+        }   // End of budget info
+    }
+
+    private static void parseFiles(XMLStreamReader reader, File xmlFile, Movie movie) throws XMLStreamException {
+        while (nextChild(reader)) {
+            MovieFile movieFile = parseMovieFile(reader);
+
+            File mfFile = movieFile.getFile();
+            // Check to see if the file exists, or we are preserving the jukebox
+            if (mfFile.exists() || MovieJukebox.isJukeboxPreserve()) {
+                // This is not a new file
+                movieFile.setNewFile(Boolean.FALSE);
+
+                // Add the movie file to the movie
+                movie.addMovieFile(movieFile);
+            } else {
+                // We can't find this file anymore, so skip it.
+                LOG.debug("Missing video file in the XML file ({}), it may have been moved or no longer exist.", mfFile.getName());
+            }
+        }
+    }
+
+    private static MovieFile parseMovieFile(XMLStreamReader reader) throws XMLStreamException {
+        MovieFile movieFile = new MovieFile();
+
+        String attr = getAttribute(reader, TITLE);
+        if (StringTools.isValidString(attr)) {
+            movieFile.setTitle(attr);
+        }
+
+        attr = getAttribute(reader, SEASON);
+        if (StringUtils.isNumeric(attr)) {
+            movieFile.setSeason(Integer.parseInt(attr));
+        }
+
+        attr = getAttribute(reader, "firstPart");
+        if (StringUtils.isNumeric(attr)) {
+            movieFile.setFirstPart(Integer.parseInt(attr));
+        }
+
+        attr = getAttribute(reader, "lastPart");
+        if (StringUtils.isNumeric(attr)) {
+            movieFile.setLastPart(Integer.parseInt(attr));
+        }
+
+        attr = getAttribute(reader, "subtitlesExchange");
+        if (StringTools.isValidString(attr)) {
+            movieFile.setSubtitlesExchange(attr.equalsIgnoreCase(YES));
+        }
+
+        final boolean watched = Boolean.parseBoolean(getAttribute(reader, "watched"));
+
+        Map<String, OverridableValue> values = new HashMap<>();
+        List<Attachment> attachments = new ArrayList<>();
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == END_ELEMENT) {
+                depth--;
+                continue;
+            } else if (event != START_ELEMENT) {
+                continue;
+            }
+
+            String tag = reader.getLocalName();
+            switch (tag) {
+                case "fileLocation":
+                case "fileURL":
+                case "fileArchiveName":
+                case "watchedDate":
+                    readValue(reader, values);
+                    break;
+                case "fileTitle": {
+                    // We need to get the part from the fileTitle
+                    String part = getAttribute(reader, PART);
+                    String source = getAttribute(reader, SOURCE);
+                    if (StringUtils.isNumeric(part)) {
+                        movieFile.setTitle(NumberUtils.toInt(part, 0), readText(reader), source);
+                    } else {
+                        movieFile.setTitle(readText(reader), source);
                     }
+                    break;
                 }
-
-                // Get certification
-                parseOverridableCertification(movie, eMovie);
-
-                // Get language
-                parseOverridableLanguage(movie, eMovie);
-
-                // Get subtitles
-                movie.setSubtitles(DOMHelper.getValueFromElement(eMovie, "subtitles"));
-
-                // Get the TrailerExchange
-                movie.setTrailerExchange(DOMHelper.getValueFromElement(eMovie, "trailerExchange").equalsIgnoreCase(YES));
-
-                // Get trailerLastScan date/time
-                movie.setTrailerLastScan(DOMHelper.getValueFromElement(eMovie, TRAILER_LAST_SCAN));
-
-                // Get file container
-                parseOverridableContainer(movie, eMovie);
-
-                nlElements = eMovie.getElementsByTagName("codecs");
-                if (nlElements.getLength() > 0) {
-                    nlElements = nlElements.item(0).getChildNodes();
-                    for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                        nElements = nlElements.item(looper);
-                        if (nElements.getNodeType() == Node.ELEMENT_NODE) {
-                            String codecType = nElements.getNodeName();
-                            if (nElements.getChildNodes().getLength() > 0) {
-                                for (int cLooper = 0; cLooper < nElements.getChildNodes().getLength(); cLooper++) {
-                                    Node nCodec = nElements.getChildNodes().item(cLooper);
-                                    if (nCodec.getNodeType() == Node.ELEMENT_NODE) {
-                                        Element eCodec = (Element) nCodec;
-
-                                        Codec codec;
-                                        if (CodecType.VIDEO.toString().equalsIgnoreCase(codecType)) {
-                                            codec = new Codec(CodecType.VIDEO);
-                                        } else {
-                                            codec = new Codec(CodecType.AUDIO);
-                                        }
-                                        codec.setCodecId(eCodec.getAttribute("codecId"));
-                                        codec.setCodecIdHint(eCodec.getAttribute("codecIdHint"));
-                                        codec.setCodecFormat(eCodec.getAttribute("format"));
-                                        codec.setCodecFormatProfile(eCodec.getAttribute("formatProfile"));
-                                        codec.setCodecFormatVersion(eCodec.getAttribute("formatVersion"));
-                                        codec.setCodecLanguage(eCodec.getAttribute(LANGUAGE));
-                                        codec.setCodecBitRate(eCodec.getAttribute("bitrate"));
-                                        String tmpValue = eCodec.getAttribute("channels");
-                                        if (StringUtils.isNotBlank(tmpValue)) {
-                                            codec.setCodecChannels(Integer.parseInt(eCodec.getAttribute("channels")));
-                                        }
-                                        codec.setCodec(eCodec.getTextContent().trim());
-
-                                        tmpValue = eCodec.getAttribute(SOURCE);
-                                        if (StringTools.isValidString(tmpValue)) {
-                                            codec.setCodecSource(CodecSource.fromString(tmpValue));
-                                        } else {
-                                            codec.setCodecSource(CodecSource.UNKNOWN);
-                                        }
-
-                                        movie.addCodec(codec);
-                                    }
-                                }   // END of codec information for audio/video
-                            }
-                        }   // END of audio/video codec
-                    }   // END of codecs loop
-                }   // END of codecs
-
-                // get the resolution
-                parseOverridableResolution(movie, eMovie);
-
-                // get the video source
-                parseOverridableVideoSource(movie, eMovie);
-
-                // get the video output
-                parseOverridableVideoOutput(movie, eMovie);
-
-                // get aspect ratio
-                parseOverridableAspectRatio(movie, eMovie);
-
-                // get frames per second
-                parseOverridableFramesPerSecond(movie, eMovie);
-
-                // Get navigation info
-                movie.setFirst(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "first")));
-                movie.setPrevious(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "previous")));
-                movie.setNext(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "next")));
-                movie.setLast(HTMLTools.decodeUrl(DOMHelper.getValueFromElement(eMovie, "last")));
-
-                // Get the library description, if it's not been set elsewhere (e.g. scanner)
-                String tempLibraryDescription = DOMHelper.getValueFromElement(eMovie, "libraryDescription");
-                if (StringTools.isNotValidString(movie.getLibraryDescription())) {
-                    movie.setLibraryDescription(tempLibraryDescription);
-                } else if (!movie.getLibraryDescription().equals(tempLibraryDescription)) {
-                    // The current description is different to the one in the XML
-                    LOG.debug("Different library description! Setting dirty INFO");
-                    forceDirtyFlag = Boolean.TRUE;
+                case "airsInfo": {
+                    int part = NumberUtils.toInt(getAttribute(reader, PART), 1);
+                    movieFile.setAirsAfterSeason(part, getAttribute(reader, "afterSeason"));
+                    movieFile.setAirsBeforeEpisode(part, getAttribute(reader, "beforeEpisode"));
+                    movieFile.setAirsBeforeSeason(part, getAttribute(reader, "beforeSeason"));
+                    skipElement(reader);
+                    break;
+                }
+                case "firstAired": {
+                    int part = NumberUtils.toInt(getAttribute(reader, PART), 1);
+                    String source = getAttribute(reader, SOURCE);
+                    movieFile.setFirstAired(part, readText(reader), source);
+                    break;
+                }
+                case "filePlot": {
+                    int part = NumberUtils.toInt(getAttribute(reader, PART), 1);
+                    String source = getAttribute(reader, SOURCE);
+                    movieFile.setPlot(part, readText(reader), source, Boolean.TRUE);
+                    break;
                 }
+                case "fileRating": {
+                    int part = NumberUtils.toInt(getAttribute(reader, PART), 1);
+                    String source = getAttribute(reader, SOURCE);
+                    movieFile.setRating(part, readText(reader), source);
+                    break;
+                }
+                case "fileImageURL": {
+                    int part = NumberUtils.toInt(getAttribute(reader, PART), 1);
+                    movieFile.setVideoImageURL(part, HTMLTools.decodeUrl(readText(reader)));
+                    break;
+                }
+                case "fileImageFile": {
+                    int part = NumberUtils.toInt(getAttribute(reader, PART), 1);
+                    movieFile.setVideoImageFilename(part, HTMLTools.decodeUrl(readText(reader)));
+                    break;
+                }
+                case "fileId": {
+                    int part = NumberUtils.toInt(getAttribute(reader, PART), 1);
+                    String source = getAttribute(reader, SOURCE);
+                    movieFile.setId(part, source, readText(reader));
+                    break;
+                }
+                case "attachment":
+                    attachments.add(parseAttachment(reader));
+                    break;
+                default:
+                    // Look for the values inside the element
+                    depth++;
+                    break;
+            }
+        }
 
-                // Get prebuf
-                movie.setPrebuf(Long.parseLong(DOMHelper.getValueFromElement(eMovie, "prebuf")));
-
-                // Issue 1901: Awards
-                nlElements = eMovie.getElementsByTagName("awards");
-                if (nlElements.getLength() > 0) {
-                    nlElements = nlElements.item(0).getChildNodes();
-                    for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                        nElements = nlElements.item(looper);
-                        if (nElements.getNodeType() == Node.ELEMENT_NODE) {
-                            Element eAwardEvent = (Element) nElements;
-                            AwardEvent awardEvent = new AwardEvent();
-                            awardEvent.setName(eAwardEvent.getAttribute(NAME));
-
-                            Node nAward;
-                            for (int loopAwards = 0; loopAwards < eAwardEvent.getChildNodes().getLength(); loopAwards++) {
-                                nAward = eAwardEvent.getChildNodes().item(loopAwards);
-                                if (nAward.getNodeType() == Node.ELEMENT_NODE) {
-                                    Element eAward = (Element) nAward;
-                                    Award award = new Award();
-
-                                    award.setName(eAward.getTextContent());
-                                    award.setNominated(Integer.parseInt(eAward.getAttribute("nominated")));
-                                    award.setWon(Integer.parseInt(eAward.getAttribute(WON)));
-                                    award.setYear(Integer.parseInt(eAward.getAttribute(YEAR)));
-                                    String tmpAward = eAward.getAttribute("wons");
-                                    if (StringTools.isValidString(tmpAward)) {
-                                        award.setWons(Arrays.asList(tmpAward.split(Movie.SPACE_SLASH_SPACE)));
-                                    }
-                                    tmpAward = eAward.getAttribute("nominations");
-                                    if (StringTools.isValidString(tmpAward)) {
-                                        award.setNominations(Arrays.asList(tmpAward.split(Movie.SPACE_SLASH_SPACE)));
-                                    }
-
-                                    awardEvent.addAward(award);
-                                }
-                            }   // End of Awards
-
-                            movie.addAward(awardEvent);
-                        }
-                    }
-                }   // End of AwardEvents
-
-                // Issue 1897: Cast enhancement
-                nlElements = eMovie.getElementsByTagName("people");
-                if (nlElements.getLength() > 0) {
-                    nlElements = nlElements.item(0).getChildNodes();
-
-                    for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                        nElements = nlElements.item(looper);
-                        if (nElements.getNodeType() == Node.ELEMENT_NODE) {
-                            Element ePerson = (Element) nElements;
-                            Filmography person = new Filmography();
-
-                            person.setCastId(ePerson.getAttribute("cast_id"));
-                            person.setCharacter(ePerson.getAttribute(CHARACTER));
-                            person.setDepartment(ePerson.getAttribute(DEPARTMENT));
-                            person.setDoublage(ePerson.getAttribute("doublage"));
-                            person.setId(ePerson.getAttribute("id"));
-                            person.setJob(ePerson.getAttribute(JOB));
-                            person.setName(ePerson.getAttribute(NAME));
-                            person.setOrder(ePerson.getAttribute(ORDER));
-                            person.setTitle(ePerson.getAttribute(TITLE));
-                            person.setUrl(ePerson.getAttribute(URL));
-                            person.setPhotoFilename(ePerson.getAttribute("photoFile"));
-                            person.setFilename(ePerson.getTextContent());
-
-                            // Get any "id_???" values
-                            for (int loopAttr = 0; loopAttr < ePerson.getAttributes().getLength(); loopAttr++) {
-                                Node nPersonAttr = ePerson.getAttributes().item(loopAttr);
-                                if (nPersonAttr.getNodeName().startsWith(ID)) {
-                                    String name = nPersonAttr.getNodeName().replace(ID, "");
-                                    person.setId(name, nPersonAttr.getNodeValue());
-                                }
-                            }
-
-                            String source = ePerson.getAttribute(SOURCE);
-                            if (StringTools.isValidString(source)) {
-                                person.setSource(source);
-                                if (person.getDepartment().equalsIgnoreCase(Filmography.DEPT_DIRECTING)) {
-                                    movie.setOverrideSource(OverrideFlag.PEOPLE_DIRECTORS, source);
-                                } else if (person.getDepartment().equalsIgnoreCase(Filmography.DEPT_WRITING)) {
-                                    movie.setOverrideSource(OverrideFlag.PEOPLE_WRITERS, source);
-                                } else if (person.getDepartment().equalsIgnoreCase(Filmography.DEPT_ACTORS)) {
-                                    movie.setOverrideSource(OverrideFlag.PEOPLE_ACTORS, source);
-                                }
-                            } else {
-                                person.setSource(Movie.UNKNOWN);
-                            }
-                            movie.addPerson(person);
-                        }
-                    }
-                }   // End of Cast
+        movieFile.setFile(new File(getValue(values, "fileLocation")));
+        movieFile.setFilename(getValue(values, "fileURL"));
+        movieFile.setArchiveName(getValue(values, "fileArchiveName"));
 
-                // Issue 2012: Financial information about movie
-                nlElements = eMovie.getElementsByTagName("business");
-                for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                    nElements = nlElements.item(looper);
-                    if (nElements.getNodeType() == Node.ELEMENT_NODE) {
-                        Element eBusiness = (Element) nElements;
-                        movie.setBudget(eBusiness.getAttribute("budget"));
-
-                        Node nCountry;
-                        for (int loopBus = 0; loopBus < eBusiness.getChildNodes().getLength(); loopBus++) {
-                            nCountry = eBusiness.getChildNodes().item(loopBus);
-                            if (nCountry.getNodeType() == Node.ELEMENT_NODE) {
-                                Element eCountry = (Element) nCountry;
-                                if ("gross".equalsIgnoreCase(eCountry.getNodeName())) {
-                                    movie.setGross(eCountry.getAttribute(COUNTRY), eCountry.getTextContent());
-                                } else if ("openweek".equalsIgnoreCase(eCountry.getNodeName())) {
-                                    movie.setOpenWeek(eCountry.getAttribute(COUNTRY), eCountry.getTextContent());
-                                }
-                            }
-                        }   // End of budget info
-                    }
-                }   // End of business info
+        for (Attachment attachment : attachments) {
+            attachment.setSourceFile(movieFile.getFile());
+            movieFile.addAttachment(attachment);
+        }
 
-                // Issue 2013: Add trivia
-                if (ENABLE_TRIVIA) {
-                    nlElements = eMovie.getElementsByTagName("trivia");
-                    for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                        nElements = nlElements.item(looper);
-                        movie.addDidYouKnow(nElements.getTextContent());
-                    }
-                }   // End of trivia info
-
-                // Get the file list
-                nlElements = eMovie.getElementsByTagName("files");
-                if (nlElements.getLength() > 0) {
-                    nlElements = nlElements.item(0).getChildNodes();
-                    for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                        nElements = nlElements.item(looper);
-                        if (nElements.getNodeType() == Node.ELEMENT_NODE) {
-                            Element eFile = (Element) nElements;
-                            MovieFile movieFile = new MovieFile();
-
-                            try {
-                                File mfFile = new File(DOMHelper.getValueFromElement(eFile, "fileLocation"));
-                                // Check to see if the file exists, or we are preserving the jukebox
-                                if (mfFile.exists() || MovieJukebox.isJukeboxPreserve()) {
-                                    // Save the file to the MovieFile
-                                    movieFile.setFile(mfFile);
-                                } else {
-                                    // We can't find this file anymore, so skip it.
-                                    LOG.debug("Missing video file in the XML file ({}), it may have been moved or no longer exist.", mfFile.getName());
-                                    continue;
-                                }
-                            } catch (Exception ignore) {
-                                // If there is an error creating the file then don't save anything
-                                LOG.debug("Failed parsing file {}", xmlFile.getName());
-                                continue;
-                            }
-
-                            String attr = eFile.getAttribute(TITLE);
-                            if (StringTools.isValidString(attr)) {
-                                movieFile.setTitle(attr);
-                            }
-
-                            attr = eFile.getAttribute(SEASON);
-                            if (StringUtils.isNumeric(attr)) {
-                                movieFile.setSeason(Integer.parseInt(attr));
-                            }
-
-                            attr = eFile.getAttribute("firstPart");
-                            if (StringUtils.isNumeric(attr)) {
-                                movieFile.setFirstPart(Integer.parseInt(attr));
-                            }
-
-                            attr = eFile.getAttribute("lastPart");
-                            if (StringUtils.isNumeric(attr)) {
-                                movieFile.setLastPart(Integer.parseInt(attr));
-                            }
-
-                            attr = eFile.getAttribute("subtitlesExchange");
-                            if (StringTools.isValidString(attr)) {
-                                movieFile.setSubtitlesExchange(attr.equalsIgnoreCase(YES));
-                            }
-
-                            movieFile.setFilename(DOMHelper.getValueFromElement(eFile, "fileURL"));
-
-                            if (DOMHelper.getValueFromElement(eFile, "fileArchiveName") != null) {
-                                movieFile.setArchiveName(DOMHelper.getValueFromElement(eFile, "fileArchiveName"));
-                            }
-
-                            // We need to get the part from the fileTitle
-                            NodeList nlFileParts = eFile.getElementsByTagName("fileTitle");
-                            if (nlFileParts.getLength() > 0) {
-                                for (int looperFile = 0; looperFile < nlFileParts.getLength(); looperFile++) {
-                                    Node nFileParts = nlFileParts.item(looperFile);
-                                    if (nFileParts.getNodeType() == Node.ELEMENT_NODE) {
-                                        Element eFileParts = (Element) nFileParts;
-                                        String part = eFileParts.getAttribute(PART);
-                                        String source = eFileParts.getAttribute(SOURCE);
-                                        if (StringUtils.isNumeric(part)) {
-                                            movieFile.setTitle(NumberUtils.toInt(part, 0), eFileParts.getTextContent(), source);
-                                        } else {
-                                            movieFile.setTitle(eFileParts.getTextContent(), source);
-                                        }
-                                    }
-                                }
-                            }
-
-                            // Get the airs info
-                            nlFileParts = eFile.getElementsByTagName("airsInfo");
-                            if (nlFileParts.getLength() > 0) {
-                                for (int looperFile = 0; looperFile < nlFileParts.getLength(); looperFile++) {
-                                    Node nFileParts = nlFileParts.item(looperFile);
-                                    if (nFileParts.getNodeType() == Node.ELEMENT_NODE) {
-                                        Element eFileParts = (Element) nFileParts;
-                                        int part = NumberUtils.toInt(eFileParts.getAttribute(PART), 1);
-
-                                        movieFile.setAirsAfterSeason(part, eFileParts.getAttribute("afterSeason"));
-                                        movieFile.setAirsBeforeEpisode(part, eFileParts.getAttribute("beforeEpisode"));
-                                        movieFile.setAirsBeforeSeason(part, eFileParts.getAttribute("beforeSeason"));
-                                    }
-                                }
-                            }
-
-                            // Get first aired information
-                            nlFileParts = eFile.getElementsByTagName("firstAired");
-                            if (nlFileParts.getLength() > 0) {
-                                for (int looperFile = 0; looperFile < nlFileParts.getLength(); looperFile++) {
-                                    Node nFileParts = nlFileParts.item(looperFile);
-                                    if (nFileParts.getNodeType() == Node.ELEMENT_NODE) {
-                                        Element eFileParts = (Element) nFileParts;
-                                        int part = NumberUtils.toInt(eFileParts.getAttribute(PART), 1);
-                                        String source = eFileParts.getAttribute(SOURCE);
-                                        movieFile.setFirstAired(part, eFileParts.getTextContent(), source);
-                                    }
-                                }
-                            }
-
-                            // get the file plot
-                            nlFileParts = eFile.getElementsByTagName("filePlot");
-                            if (nlFileParts.getLength() > 0) {
-                                for (int looperFile = 0; looperFile < nlFileParts.getLength(); looperFile++) {
-                                    Node nFileParts = nlFileParts.item(looperFile);
-                                    if (nFileParts.getNodeType() == Node.ELEMENT_NODE) {
-                                        Element eFileParts = (Element) nFileParts;
-                                        int part = NumberUtils.toInt(eFileParts.getAttribute(PART), 1);
-                                        String source = eFileParts.getAttribute(SOURCE);
-                                        movieFile.setPlot(part, eFileParts.getTextContent(), source, Boolean.TRUE);
-                                    }
-                                }
-                            }
-
-                            // get the file rating
-                            nlFileParts = eFile.getElementsByTagName("fileRating");
-                            if (nlFileParts.getLength() > 0) {
-                                for (int looperFile = 0; looperFile < nlFileParts.getLength(); looperFile++) {
-                                    Node nFileParts = nlFileParts.item(looperFile);
-                                    if (nFileParts.getNodeType() == Node.ELEMENT_NODE) {
-                                        Element eFileParts = (Element) nFileParts;
-                                        int part = NumberUtils.toInt(eFileParts.getAttribute(PART), 1);
-                                        String source = eFileParts.getAttribute(SOURCE);
-                                        movieFile.setRating(part, eFileParts.getTextContent(), source);
-                                    }
-                                }
-                            }
-
-                            // get the file image url
-                            nlFileParts = eFile.getElementsByTagName("fileImageURL");
-                            if (nlFileParts.getLength() > 0) {
-                                for (int looperFile = 0; looperFile < nlFileParts.getLength(); looperFile++) {
-                                    Node nFileParts = nlFileParts.item(looperFile);
-                                    if (nFileParts.getNodeType() == Node.ELEMENT_NODE) {
-                                        Element eFileParts = (Element) nFileParts;
-                                        int part = NumberUtils.toInt(eFileParts.getAttribute(PART), 1);
-                                        movieFile.setVideoImageURL(part, HTMLTools.decodeUrl(eFileParts.getTextContent()));
-                                    }
-                                }
-                            }
-
-                            // get the file image filename
-                            nlFileParts = eFile.getElementsByTagName("fileImageFile");
-                            if (nlFileParts.getLength() > 0) {
-                                for (int looperFile = 0; looperFile < nlFileParts.getLength(); looperFile++) {
-                                    Node nFileParts = nlFileParts.item(looperFile);
-                                    if (nFileParts.getNodeType() == Node.ELEMENT_NODE) {
-                                        Element eFileParts = (Element) nFileParts;
-                                        int part = NumberUtils.toInt(eFileParts.getAttribute(PART), 1);
-                                        movieFile.setVideoImageFilename(part, HTMLTools.decodeUrl(eFileParts.getTextContent()));
-                                    }
-                                }
-                            }
-
-                            // get the file IDs
-                            nlFileParts = eFile.getElementsByTagName("fileId");
-                            if (nlFileParts.getLength() > 0) {
-                                for (int looperFile = 0; looperFile < nlFileParts.getLength(); looperFile++) {
-                                    Node nFileParts = nlFileParts.item(looperFile);
-                                    if (nFileParts.getNodeType() == Node.ELEMENT_NODE) {
-                                        Element eFileParts = (Element) nFileParts;
-                                        int part = NumberUtils.toInt(eFileParts.getAttribute(PART), 1);
-                                        String source = eFileParts.getAttribute(SOURCE);
-                                        movieFile.setId(part, source, eFileParts.getTextContent());
-                                    }
-                                }
-                            }
-
-                            NodeList nlAttachments = eMovie.getElementsByTagName("attachments");
-                            if (nlAttachments.getLength() > 0) {
-                                nlAttachments = nlAttachments.item(0).getChildNodes();
-                                for (int looperAtt = 0; looperAtt < nlAttachments.getLength(); looperAtt++) {
-                                    Node nAttachment = nlAttachments.item(looperAtt);
-                                    if (nAttachment.getNodeType() == Node.ELEMENT_NODE) {
-                                        Element eAttachment = (Element) nAttachment;
-                                        Attachment attachment = new Attachment();
-                                        attachment.setType(AttachmentType.fromString(eAttachment.getAttribute("type")));
-                                        attachment.setAttachmentId(Integer.parseInt(DOMHelper.getValueFromElement(eAttachment, "attachmentId")));
-                                        attachment.setContentType(ContentType.fromString(DOMHelper.getValueFromElement(eAttachment, "contentType")));
-                                        attachment.setMimeType(DOMHelper.getValueFromElement(eAttachment, "mimeType"));
-                                        attachment.setPart(Integer.parseInt(DOMHelper.getValueFromElement(eAttachment, "part")));
-                                        attachment.setSourceFile(movieFile.getFile());
-                                        movieFile.addAttachment(attachment);
-                                    }
-                                }
-                            }
-
-                            // Parse watched 
-                            String watchedDateString = DOMHelper.getValueFromElement(eFile, "watchedDate");
-                            final long watchedDate;
-                            if (StringTools.isNotValidString(watchedDateString)) {
-                                watchedDate = 0;
-                            } else {
-                                // strip milliseconds
-                                Calendar cal = Calendar.getInstance();
-                                cal.setTimeInMillis(DateTime.parse(watchedDateString).toMillis());
-                                cal.set(Calendar.MILLISECOND, 0);
-                                watchedDate = cal.getTimeInMillis();
-                            }
-                            final boolean watched = Boolean.parseBoolean(eFile.getAttribute("watched"));
-                            movieFile.setWatched(watched, watchedDate);
-                            
-                            // This is not a new file
-                            movieFile.setNewFile(Boolean.FALSE);
-
-                            // Add the movie file to the movie
-                            movie.addMovieFile(movieFile);
-                        }
-                    }
-                }   // END of files
-
-                // Get the extra list
-                nlElements = eMovie.getElementsByTagName("extras");
-                if (nlElements.getLength() > 0) {
-                    nlElements = nlElements.item(0).getChildNodes();
-                    for (int looper = 0; looper < nlElements.getLength(); looper++) {
-                        nElements = nlElements.item(looper);
-                        if (nElements.getNodeType() == Node.ELEMENT_NODE) {
-                            Element eExtra = (Element) nElements;
-
-                            String extraTitle = eExtra.getAttribute(TITLE);
-                            String extraFilename = eExtra.getTextContent();
-
-                            if (!extraTitle.isEmpty() && !extraFilename.isEmpty()) {
-                                boolean exist = Boolean.FALSE;
-                                if (extraFilename.startsWith("http:")) {
-                                    // This is a URL from a NFO file
-                                    ExtraFile ef = new ExtraFile();
-                                    ef.setNewFile(Boolean.FALSE);
-                                    ef.setTitle(extraTitle);
-                                    ef.setFilename(extraFilename);
-                                    movie.addExtraFile(ef, Boolean.FALSE);  // Add to the movie, but it's not dirty
-                                    exist = Boolean.TRUE;
-                                } else {
-                                    // Check for existing files
-                                    for (ExtraFile ef : movie.getExtraFiles()) {
-                                        // Check if the movie has already the extra file
-                                        if (ef.getFilename().equals(extraFilename)) {
-                                            exist = Boolean.TRUE;
-                                            // the extra file is old
-                                            ef.setNewFile(Boolean.FALSE);
-                                            break;
-                                        }
-                                    }
-                                }
-
-                                if (!exist) {
-                                    // the extra file has been deleted so force the dirty flag
-                                    forceDirtyFlag = Boolean.TRUE;
-                                }
-                            }
+        // Parse watched
+        String watchedDateString = getValue(values, "watchedDate");
+        final long watchedDate;
+        if (StringTools.isNotValidString(watchedDateString)) {
+            watchedDate = 0;
+        } else {
+            // strip milliseconds
+            Calendar cal = Calendar.getInstance();
+            cal.setTimeInMillis(DateTime.parse(watchedDateString).toMillis());
+            cal.set(Calendar.MILLISECOND, 0);
+            watchedDate = cal.getTimeInMillis();
+        }
+        movieFile.setWatched(watched, watchedDate);
+
+        return movieFile;
+    }
+
+    private static Attachment parseAttachment(XMLStreamReader reader) throws XMLStreamException {
+        Attachment attachment = new Attachment();
+        attachment.setType(AttachmentType.fromString(getAttribute(reader, "type")));
+
+        Map<String, OverridableValue> values = new HashMap<>();
+        while (nextChild(reader)) {
+            readValue(reader, values);
+        }
+
+        attachment.setAttachmentId(Integer.parseInt(getValue(values, "attachmentId")));
+        attachment.setContentType(ContentType.fromString(getValue(values, "contentType")));
+        attachment.setMimeType(getValue(values, "mimeType"));
+        attachment.setPart(Integer.parseInt(getValue(values, PART)));
+        return attachment;
+    }
+
+    private static boolean parseExtras(XMLStreamReader reader, Movie movie) throws XMLStreamException {
+        boolean forceDirtyFlag = Boolean.FALSE;
+
+        while (nextChild(reader)) {
+            String extraTitle = getAttribute(reader, TITLE);
+            String extraFilename = readText(reader);
+
+            if (!extraTitle.isEmpty() && !extraFilename.isEmpty()) {
+                boolean exist = Boolean.FALSE;
+                if (extraFilename.startsWith("http:")) {
+                    // This is a URL from a NFO file
+                    ExtraFile ef = new ExtraFile();
+                    ef.setNewFile(Boolean.FALSE);
+                    ef.setTitle(extraTitle);
+                    ef.setFilename(extraFilename);
+                    movie.addExtraFile(ef, Boolean.FALSE);  // Add to the movie, but it's not dirty
+                    exist = Boolean.TRUE;
+                } else {
+                    // Check for existing files
+                    for (ExtraFile ef : movie.getExtraFiles()) {
+                        // Check if the movie has already the extra file
+                        if (ef.getFilename().equals(extraFilename)) {
+                            exist = Boolean.TRUE;
+                            // the extra file is old
+                            ef.setNewFile(Boolean.FALSE);
+                            break;
                         }
                     }
-                }   // END of extras
-
-            }   // End of ELEMENT_NODE
-        }   // End of Movie Loop
+                }
 
-        // This is a new movie, so clear the current dirty flags
-        movie.clearDirty();
-        movie.setDirty(DirtyFlag.INFO, forceDirtyFlag || movie.hasNewMovieFiles() || movie.hasNewExtraFiles());
+                if (!exist) {
+                    // the extra file has been deleted so force the dirty flag
+                    forceDirtyFlag = Boolean.TRUE;
+                }
+            }
+        }
 
-        return Boolean.TRUE;
+        return forceDirtyFlag;
     }
 
     /**
@@ -785,33 +763,22 @@ public class MovieJukeboxXMLReader {
      */
     public boolean parseSetXML(File xmlSetFile, Movie setMaster, List<Movie> moviesList) {
         boolean forceDirtyFlag = Boolean.FALSE;
-        Document xmlDoc;
+        Collection<String> xmlSetMovieNames = new ArrayList<>();
 
-        try {
-            xmlDoc = DOMHelper.getDocFromFile(xmlSetFile);
-        } catch (MalformedURLException error) {
-            LOG.error(ERROR_FIXIT, xmlSetFile.getName(), "movie");
-            LOG.error(SystemTools.getStackTrace(error));
-            return Boolean.FALSE;
-        } catch (IOException error) {
-            LOG.error(ERROR_FIXIT, xmlSetFile.getName(), "movie");
-            LOG.error(SystemTools.getStackTrace(error));
-            return Boolean.FALSE;
-        } catch (ParserConfigurationException | SAXException error) {
+        XMLStreamReader reader = null;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(xmlSetFile))) {
+            reader = XML_FACTORY.createXMLStreamReader(in);
+            while (reader.hasNext()) {
+                if (reader.next() == START_ELEMENT && BASE_FILENAME.equals(reader.getLocalName())) {
+                    xmlSetMovieNames.add(readText(reader));
+                }
+            }
+        } catch (IOException | XMLStreamException error) {
             LOG.error(ERROR_FIXIT, xmlSetFile.getName(), "movie");
             LOG.error(SystemTools.getStackTrace(error));
             return Boolean.FALSE;
-        }
-
-        Node nFilename;
-        NodeList nlFilenames = xmlDoc.getElementsByTagName("baseFilename");
-        Collection<String> xmlSetMovieNames = new ArrayList<>();
-        for (int loopMovie = 0; loopMovie < nlFilenames.getLength(); loopMovie++) {
-            nFilename = nlFilenames.item(loopMovie);
-            if (nFilename.getNodeType() == Node.ELEMENT_NODE) {
-                Element eFilename = (Element) nFilename;
-                xmlSetMovieNames.add(eFilename.getTextContent());
-            }
+        } finally {
+            close(reader);
         }
 
         int counter = setMaster.getSetSize();
@@ -849,280 +816,379 @@ public class MovieJukeboxXMLReader {
      * @return
      */
     public boolean parsePersonXML(File xmlFile, Person person) {
-        Document xmlDoc;
-        try {
-            xmlDoc = DOMHelper.getDocFromFile(xmlFile);
-        } catch (MalformedURLException error) {
-            LOG.error(ERROR_FIXIT, xmlFile.getName(), "person");
-            LOG.error(SystemTools.getStackTrace(error));
-            return Boolean.FALSE;
-        } catch (IOException error) {
-            LOG.error(ERROR_FIXIT, xmlFile.getName(), "person");
-            LOG.error(SystemTools.getStackTrace(error));
-            return Boolean.FALSE;
-        } catch (ParserConfigurationException | SAXException error) {
+        XMLStreamReader reader = null;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(xmlFile))) {
+            reader = XML_FACTORY.createXMLStreamReader(in);
+            while (reader.hasNext()) {
+                if (reader.next() == START_ELEMENT && "person".equals(reader.getLocalName())) {
+                    parsePerson(reader, person);
+
+                    // Only process the first in the file
+                    return Boolean.TRUE;
+                }
+            }
+        } catch (IOException | XMLStreamException error) {
             LOG.error(ERROR_FIXIT, xmlFile.getName(), "person");
             LOG.error(SystemTools.getStackTrace(error));
             return Boolean.FALSE;
+        } finally {
+            close(reader);
         }
 
-        Node nPeople, nTemp;
-        NodeList nlPeople = xmlDoc.getElementsByTagName("person");
-        String sTemp;
-        Element eTemp;
-        NodeList nlTemp;
-        for (int looper = 0; looper < nlPeople.getLength(); looper++) {
-            nPeople = nlPeople.item(looper);
-            if (nPeople.getNodeType() == Node.ELEMENT_NODE) {
-                Element ePerson = (Element) nPeople;
+        // FAILED
+        return Boolean.FALSE;
+    }
 
-                // Get IDs
-                nlTemp = ePerson.getElementsByTagName("id");
-                for (int idLoop = 0; idLoop < nlTemp.getLength(); idLoop++) {
-                    nTemp = nlTemp.item(idLoop);
-
-                    if (nTemp.getNodeType() == Node.ELEMENT_NODE) {
-                        Element eId = (Element) nTemp;
-                        String personDatabase = eId.getAttribute("persondb");
-                        if (StringTools.isNotValidString(personDatabase)) {
-                            personDatabase = ImdbPlugin.IMDB_PLUGIN_ID;
-                        }
-                        person.setId(personDatabase, eId.getTextContent());
-                    }
-                }
+    private static void parsePerson(XMLStreamReader reader, Person person) throws XMLStreamException {
+        Map<String, OverridableValue> values = new HashMap<>();
+        boolean foundName = Boolean.FALSE;
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == END_ELEMENT) {
+                depth--;
+                continue;
+            } else if (event != START_ELEMENT) {
+                continue;
+            }
 
+            String tag = reader.getLocalName();
+            if ("id".equals(tag)) {
+                // Get IDs
+                String personDatabase = getDatabase(reader, "persondb");
+                person.setId(personDatabase, readText(reader));
+            } else if (NAME.equals(tag) && !foundName) {
                 // Get Name
-                eTemp = DOMHelper.getElementByName(ePerson, "name");
-                if (eTemp != null) {
-                    sTemp = eTemp.getTextContent();
-                    if (StringTools.isNotValidString(person.getName())) {
-                        person.setName(sTemp);
-                    } else {
-                        person.addAka(sTemp);
-                    }
+                foundName = Boolean.TRUE;
+                String name = readText(reader);
+                if (StringTools.isNotValidString(person.getName())) {
+                    person.setName(name);
+                } else {
+                    person.addAka(name);
                 }
+            } else if (PERSON_VALUES.contains(tag)) {
+                readValue(reader, values);
+            } else if (MOVIE.equals(tag)) {
+                person.addFilm(parseFilm(reader, person));
+            } else {
+                // Look for the values inside the element
+                depth++;
+            }
+        }
 
-                person.setTitle(DOMHelper.getValueFromElement(ePerson, "title"));
-                person.setFilename(DOMHelper.getValueFromElement(ePerson, "baseFilename"));
-                person.setBiography(DOMHelper.getValueFromElement(ePerson, "biography"));
-                person.setYear(DOMHelper.getValueFromElement(ePerson, "birthday"));
-                person.setBirthPlace(DOMHelper.getValueFromElement(ePerson, "birthplace"));
-                person.setBirthName(DOMHelper.getValueFromElement(ePerson, "birthname"));
-                person.setUrl(DOMHelper.getValueFromElement(ePerson, "url"));
-                person.setPhotoFilename(DOMHelper.getValueFromElement(ePerson, "photoFile"));
-                person.setPhotoURL(DOMHelper.getValueFromElement(ePerson, "photoURL"));
-                person.setBackdropFilename(DOMHelper.getValueFromElement(ePerson, "backdropFile"));
-                person.setBackdropURL(DOMHelper.getValueFromElement(ePerson, "backdropURL"));
-                person.setKnownMovies(Integer.parseInt(DOMHelper.getValueFromElement(ePerson, "knownMovies")));
-                person.setVersion(Integer.parseInt(DOMHelper.getValueFromElement(ePerson, "version")));
-                person.setLastModifiedAt(DOMHelper.getValueFromElement(ePerson, "lastModifiedAt"));
-
-                nlTemp = ePerson.getElementsByTagName("movie");
-                for (int movieLoop = 0; movieLoop < nlTemp.getLength(); movieLoop++) {
-                    nTemp = nlTemp.item(movieLoop);
-                    if (nTemp.getNodeType() == Node.ELEMENT_NODE) {
-                        Filmography film = new Filmography();
-                        Element eMovie = (Element) nTemp;
-
-                        film.setId(eMovie.getAttribute("id"));
-
-                        // Process the attributes
-                        NamedNodeMap nnmAttr = eMovie.getAttributes();
-                        for (int i = 0; i < nnmAttr.getLength(); i++) {
-                            Node nAttr = nnmAttr.item(i);
-                            String ns = nAttr.getNodeName();
-
-                            if ("id".equalsIgnoreCase(ns)) {
-                                film.setId(nAttr.getTextContent());
-                                continue;
-                            }
-                            if (ns.toLowerCase().contains(ID)) {
-                                person.setId(ns.substring(3), nAttr.getTextContent());
-                                continue;
-                            }
-                            if (ns.equalsIgnoreCase(NAME)) {
-                                film.setName(nAttr.getTextContent());
-                                continue;
-                            }
-                            if (ns.equalsIgnoreCase(TITLE)) {
-                                film.setTitle(nAttr.getTextContent());
-                                continue;
-                            }
-                            if (ns.equalsIgnoreCase(ORIGINAL_TITLE)) {
-                                film.setOriginalTitle(nAttr.getTextContent());
-                                continue;
-                            }
-                            if (ns.equalsIgnoreCase(YEAR)) {
-                                film.setYear(nAttr.getTextContent());
-                                continue;
-                            }
-                            if (ns.equalsIgnoreCase(RATING)) {
-                                film.setRating(nAttr.getTextContent());
-                                continue;
-                            }
-                            if (ns.equalsIgnoreCase(CHARACTER)) {
-                                film.setCharacter(nAttr.getTextContent());
-                                continue;
-                            }
-                            if (ns.equalsIgnoreCase(JOB)) {
-                                film.setJob(nAttr.getTextContent());
-                                continue;
-                            }
-                            if (ns.equalsIgnoreCase(DEPARTMENT)) {
-                                film.setDepartment(nAttr.getTextContent());
-                                continue;
-                            }
-                            if (ns.equalsIgnoreCase(URL)) {
-                                film.setUrl(nAttr.getTextContent());
-                                //continue; // Last contine not needed
-                            }
-                        }
+        person.setTitle(getValue(values, TITLE));
+        person.setFilename(getValue(values, BASE_FILENAME));
+        person.setBiography(getValue(values, "biography"));
+        person.setYear(getValue(values, "birthday"));
+        person.setBirthPlace(getValue(values, "birthplace"));
+        person.setBirthName(getValue(values, "birthname"));
+        person.setUrl(getValue(values, URL));
+        person.setPhotoFilename(getValue(values, "photoFile"));
+        person.setPhotoURL(getValue(values, "photoURL"));
+        person.setBackdropFilename(getValue(values, "backdropFile"));
+        person.setBackdropURL(getValue(values, "backdropURL"));
+        person.setKnownMovies(Integer.parseInt(getValue(values, "knownMovies")));
+        person.setVersion(Integer.parseInt(getValue(values, "version")));
+        person.setLastModifiedAt(getValue(values, "lastModifiedAt"));
+
+        person.setFilename();
+        person.setDirty(Boolean.FALSE);
+    }
 
-                        // Set the filename
-                        film.setFilename(eMovie.getTextContent());
-                        film.setDirty(Boolean.FALSE);
-                        person.addFilm(film);
+    private static Filmography parseFilm(XMLStreamReader reader, Person person) throws XMLStreamException {
+        Filmography film = new Filmography();
+
+        film.setId(getAttribute(reader, "id"));
+
+        // Process the attributes
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String ns = reader.getAttributeLocalName(i);
+            String value = reader.getAttributeValue(i);
+
+            if ("id".equalsIgnoreCase(ns)) {
+                film.setId(value);
+            } else if (ns.toLowerCase().contains(ID)) {
+                person.setId(ns.substring(3), value);
+            } else if (ns.equalsIgnoreCase(NAME)) {
+                film.setName(value);
+            } else if (ns.equalsIgnoreCase(TITLE)) {
+                film.setTitle(value);
+            } else if (ns.equalsIgnoreCase(ORIGINAL_TITLE)) {
+                film.setOriginalTitle(value);
+            } else if (ns.equalsIgnoreCase(YEAR)) {
+                film.setYear(value);
+            } else if (ns.equalsIgnoreCase(RATING)) {
+                film.setRating(value);
+            } else if (ns.equalsIgnoreCase(CHARACTER)) {
+                film.setCharacter(value);
+            } else if (ns.equalsIgnoreCase(JOB)) {
+                film.setJob(value);
+            } else if (ns.equalsIgnoreCase(DEPARTMENT)) {
+                film.setDepartment(value);
+            } else if (ns.equalsIgnoreCase(URL)) {
+                film.setUrl(value);
+            }
+        }
+
+        // Set the filename
+        film.setFilename(readText(reader));
+        film.setDirty(Boolean.FALSE);
+        return film;
+    }
+
+    /**
+     * Move to the next child element of the current element.
+     *
+     * The reader must be on the start of the parent element or on the end of
+     * the previous child.
+     *
+     * @param reader
+     * @return false when the end of the parent element has been reached
+     * @throws XMLStreamException
+     */
+    private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                return true;
+            } else if (event == END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the text of the current element, including the text of any child
+     * elements. The reader is left on the end of the element.
+     *
+     * @param reader
+     * @return the text, empty if there is none
+     * @throws XMLStreamException
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        String text = "";
+        StringBuilder sb = null;
+
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case START_ELEMENT:
+                    depth++;
+                    break;
+                case END_ELEMENT:
+                    depth--;
+                    break;
+                case CHARACTERS:
+                case CDATA:
+                case SPACE:
+                    if (sb != null) {
+                        sb.append(reader.getText());
+                    } else if (text.isEmpty()) {
+                        text = reader.getText();
+                    } else {
+                        sb = new StringBuilder(text).append(reader.getText());
                     }
-                }
+                    break;
+                default:
+                    break;
+            }
+        }
 
-                person.setFilename();
-                person.setDirty(Boolean.FALSE);
+        return sb == null ? text : sb.toString();
+    }
 
-                // Only process the first in the file
-                return Boolean.TRUE;
+    /**
+     * Skip the current element and all its children
+     *
+     * @param reader
+     * @throws XMLStreamException
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                depth++;
+            } else if (event == END_ELEMENT) {
+                depth--;
             }
         }
+    }
 
-        // FAILED
-        return Boolean.FALSE;
+    /**
+     * Store the value and source of the current element, unless an element
+     * with the same name has already been read
+     *
+     * @param reader
+     * @param values
+     * @throws XMLStreamException
+     */
+    private static void readValue(XMLStreamReader reader, Map<String, OverridableValue> values) throws XMLStreamException {
+        String tag = reader.getLocalName();
+        if (values.containsKey(tag)) {
+            skipElement(reader);
+        } else {
+            String source = getAttribute(reader, SOURCE);
+            values.put(tag, new OverridableValue(readText(reader), source));
+        }
+    }
+
+    private static String getValue(Map<String, OverridableValue> values, String tag) {
+        OverridableValue ov = values.get(tag);
+        return ov == null ? "" : ov.getValue();
     }
 
-    private void parseOverridableAspectRatio(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "aspect");
+    private static OverridableValue getOverridable(Map<String, OverridableValue> values, String tag) {
+        OverridableValue ov = values.get(tag);
+        return ov == null ? OverridableValue.EMPTY : ov;
+    }
+
+    /**
+     * Get an attribute of the current element
+     *
+     * @param reader
+     * @param name
+     * @return the value, empty if the attribute does not exist
+     */
+    private static String getAttribute(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? "" : value;
+    }
+
+    private static String getDatabase(XMLStreamReader reader, String name) {
+        String database = getAttribute(reader, name);
+        if (StringTools.isNotValidString(database)) {
+            return ImdbPlugin.IMDB_PLUGIN_ID;
+        }
+        return database;
+    }
+
+    private static void close(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException ex) {
+                LOG.trace("Failed to close XML reader: {}", ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private void parseOverridableAspectRatio(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "aspect");
         movie.setAspectRatio(ASPECT_TOOLS.cleanAspectRatio(ov.getValue()), ov.getSource());
     }
 
-    private void parseOverridableCertification(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "certification");
+    private void parseOverridableCertification(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "certification");
         movie.setCertification(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableCompany(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "company");
+    private void parseOverridableCompany(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "company");
         movie.setCompany(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableContainer(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "container");
+    private void parseOverridableContainer(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "container");
         movie.setContainer(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableCountry(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "country");
+    private void parseOverridableCountry(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, COUNTRY);
         movie.setCountries(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableFramesPerSecond(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "fps");
+    private void parseOverridableFramesPerSecond(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "fps");
         float fps = NumberUtils.toFloat(ov.getValue(), 0.0f);
         movie.setFps(fps, ov.getSource());
     }
 
-    private void parseOverridableLanguage(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, LANGUAGE);
+    private void parseOverridableLanguage(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, LANGUAGE);
         movie.setLanguage(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableOriginalTitle(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, ORIGINAL_TITLE);
+    private void parseOverridableOriginalTitle(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, ORIGINAL_TITLE);
         movie.setOriginalTitle(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableOutline(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "outline");
+    private void parseOverridableOutline(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "outline");
         movie.setOutline(ov.getValue(), ov.getSource(), Boolean.FALSE);
     }
 
-    private void parseOverridablePlot(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "plot");
+    private void parseOverridablePlot(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "plot");
         movie.setPlot(ov.getValue(), ov.getSource(), Boolean.FALSE);
     }
 
-    private void parseOverridableQuote(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "quote");
+    private void parseOverridableQuote(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "quote");
         movie.setQuote(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableReleaseDate(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "releaseDate");
+    private void parseOverridableReleaseDate(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "releaseDate");
         movie.setReleaseDate(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableResolution(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "resolution");
+    private void parseOverridableResolution(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "resolution");
         movie.setResolution(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableRuntime(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "runtime");
+    private void parseOverridableRuntime(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "runtime");
         movie.setRuntime(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableTagline(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "tagline");
+    private void parseOverridableTagline(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "tagline");
         movie.setTagline(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableTitle(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, TITLE);
+    private void parseOverridableTitle(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, TITLE);
         movie.setTitle(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableTop250(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "top250");
+    private void parseOverridableTop250(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "top250");
         movie.setTop250(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableVideoOutput(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "videoOutput");
+    private void parseOverridableVideoOutput(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "videoOutput");
         movie.setVideoOutput(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableVideoSource(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, "videoSource");
+    private void parseOverridableVideoSource(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, "videoSource");
         movie.setVideoSource(ov.getValue(), ov.getSource());
     }
 
-    private void parseOverridableYear(Movie movie, Element element) {
-        OverridableValue ov = new OverridableValue(element, YEAR);
+    private void parseOverridableYear(Movie movie, Map<String, OverridableValue> values) {
+        OverridableValue ov = getOverridable(values, YEAR);
         movie.setYear(ov.getValue(), ov.getValue());
     }
 
     /**
-     * Returns the value and source for an overridable element
+     * The value and source of an overridable element
      */
-    private class OverridableValue {
-
-        private String value = "";
-        private String source = "";
-
-        public OverridableValue(Element element, String tagName) {
-            NodeList nlElement = element.getElementsByTagName(tagName);
-            if (nlElement != null && nlElement.getLength() > 0) {
-                Element tagElement = (Element) nlElement.item(0);
-
-                // Get the value if it exists
-                if (tagElement.getChildNodes() != null && tagElement.getChildNodes().getLength() > 0) {
-                    try {
-                        value = (tagElement.getChildNodes().item(0)).getNodeValue();
-                        // Get the source
-                        source = tagElement.getAttribute(SOURCE);
-                    } catch (DOMException ex) {
-                        // Log the error but otherwise ignore it
-                        LOG.trace("Failed getting '{}': {}", tagName, ex.getMessage(), ex);
-                    }
-                }
-            }
+    private static final class OverridableValue {
+
+        private static final OverridableValue EMPTY = new OverridableValue("", "");
+        private final String value;
+        private final String source;
+
+        public OverridableValue(String value, String source) {
+            this.value = value;
+            // The source is only used when there is a value
+            this.source = value.isEmpty() ? "" : source;
         }
 
         public String getValue() {
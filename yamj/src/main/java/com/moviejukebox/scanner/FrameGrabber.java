@@ -0,0 +1,371 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner;
+
+import com.moviejukebox.model.Movie;
+import com.moviejukebox.model.MovieFile;
+import com.moviejukebox.tools.DateTimeTools;
+import com.moviejukebox.tools.FileTools;
+import com.moviejukebox.tools.GraphicTools;
+import com.moviejukebox.tools.PropertiesUtil;
+import com.moviejukebox.tools.StringTools;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Grab a frame from the video file to use as video image.
+ *
+ * H.264 videos in MP4 and MKV files are decoded in process: the frame at the
+ * configured offset is searched in the index of the container and only the
+ * key frame before it is decoded. Other videos are grabbed with ffmpeg if it
+ * is configured. The grabs run on a pool that is bounded by the number of
+ * cores, so the decoding does not starve the rest of the jukebox, and each
+ * grab is limited to framegrabber.timeout seconds.
+ */
+public final class FrameGrabber {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FrameGrabber.class);
+    private static final boolean IS_ENABLED = PropertiesUtil.getBooleanProperty("framegrabber.enable", Boolean.FALSE);
+    private static final String FFMPEG_HOME = PropertiesUtil.getProperty("framegrabber.ffmpeg.home", "");
+    private static final String FFMPEG_FILENAME_WINDOWS = "ffmpeg.exe";
+    private static final String FFMPEG_FILENAME_LINUX = "ffmpeg";
+    private static final String OFFSET = PropertiesUtil.getProperty("framegrabber.offset", "20%");
+    private static final int TIMEOUT = Math.max(1, PropertiesUtil.getIntProperty("framegrabber.timeout", 60));
+    /**
+     * The offset in seconds if a relative offset is configured, but the
+     * runtime of the video is unknown
+     */
+    private static final int DEFAULT_OFFSET = 60;
+    private static final int GRAB_THREADS = getThreads(PropertiesUtil.getIntProperty("framegrabber.threads", 0), Runtime.getRuntime().availableProcessors());
+    private static final ExecutorService GRAB_POOL = Executors.newFixedThreadPool(GRAB_THREADS, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "FrameGrabber");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+    // stops the ffmpeg processes that take too long
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "FrameGrabberWatchdog");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final String FFMPEG_EXE;
+
+    static {
+        if (IS_ENABLED && StringUtils.isNotBlank(FFMPEG_HOME)) {
+            String exeName = MediaInfoScanner.OS_NAME.contains("Windows") ? FFMPEG_FILENAME_WINDOWS : FFMPEG_FILENAME_LINUX;
+            File ffmpeg = new File(StringTools.appendToPath(new File(FFMPEG_HOME).getAbsolutePath(), exeName));
+            if (ffmpeg.canExecute()) {
+                FFMPEG_EXE = ffmpeg.getAbsolutePath();
+            } else {
+                LOG.info("Couldn't find ffmpeg executable in '{}', only H.264 in MP4 and MKV files is grabbed", FFMPEG_HOME);
+                FFMPEG_EXE = null;
+            }
+        } else {
+            FFMPEG_EXE = null;
+        }
+    }
+
+    private FrameGrabber() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    /**
+     * Check if video images can be grabbed from the video files
+     *
+     * @return
+     */
+    public static boolean isActivated() {
+        return IS_ENABLED;
+    }
+
+    /**
+     * Start grabbing the video image of the part from the video file.
+     *
+     * @param movie
+     * @param mf
+     * @param part
+     * @param target the image file to write
+     * @return the pending grab or null if the frame can not be grabbed from the file
+     */
+    public static Future<File> grabFrame(Movie movie, MovieFile mf, int part, File target) {
+        if (!IS_ENABLED) {
+            return null;
+        }
+        return grabFrame(FFMPEG_EXE, TIMEOUT, movie, mf, part, target);
+    }
+
+    /**
+     * Start grabbing the video image of the part from the video file.
+     *
+     * @param ffmpeg the ffmpeg executable for the videos that can't be decoded in process, may be null
+     * @param timeout the time in seconds a grab may take
+     * @param movie
+     * @param mf
+     * @param part
+     * @param target the image file to write
+     * @return the pending grab or null if the frame can not be grabbed from the file
+     */
+    static Future<File> grabFrame(final String ffmpeg, final int timeout, Movie movie, MovieFile mf, int part, final File target) {
+        final File video = mf.getFile();
+        if (video == null || !video.isFile()) {
+            // disc structures and missing files can not be grabbed
+            return null;
+        }
+        final boolean decode = KeyFrameDecoder.canDecode(video);
+        if (!decode && ffmpeg == null) {
+            return null;
+        }
+
+        final int offset = getOffset(OFFSET, DateTimeTools.processRuntime(movie.getRuntime()) * 60, part - mf.getFirstPart(), mf.getLastPart() - mf.getFirstPart() + 1);
+        LOG.debug("Grabbing videoimage for part {} of {} at {}s", part, video.getName(), offset);
+
+        Grab grab = new Grab(timeout, new Callable<File>() {
+            @Override
+            public File call() throws IOException, InterruptedException {
+                if (decode) {
+                    try {
+                        return decode(video, offset, target);
+                    } catch (InterruptedIOException ex) {
+                        throw ex;
+                    } catch (IOException ex) {
+                        if (ffmpeg == null) {
+                            throw ex;
+                        }
+                        LOG.debug("{}, grabbing with ffmpeg", ex.getMessage());
+                    }
+                }
+                return execute(buildCommand(ffmpeg, video, offset, target), target, timeout);
+            }
+        });
+        GRAB_POOL.execute(grab);
+        return grab;
+    }
+
+    /**
+     * Wait for a grab.
+     *
+     * The time of the grab only runs once it has a thread of the pool, a grab
+     * that takes longer is cancelled.
+     *
+     * @param grab a grab started by this class
+     * @return the image file
+     * @throws InterruptedException
+     * @throws ExecutionException if the grab failed
+     * @throws TimeoutException if the grab took too long
+     */
+    public static File await(Future<File> grab) throws InterruptedException, ExecutionException, TimeoutException {
+        Grab pending = (Grab) grab;
+        long timeout = TimeUnit.SECONDS.toMillis(pending.timeout);
+        while (true) {
+            long started = pending.started;
+            long remaining = started == 0 ? timeout : started + timeout - System.currentTimeMillis();
+            try {
+                return pending.get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                started = pending.started;
+                if (started > 0 && started + timeout <= System.currentTimeMillis()) {
+                    pending.cancel(true);
+                    throw ex;
+                }
+                // still waiting behind the other grabs
+            }
+        }
+    }
+
+    /**
+     * Calculate the position in the file to grab the frame from.
+     *
+     * An offset ending with '%' is relative to the runtime of the part, all
+     * other offsets are seconds from the start of the part.
+     *
+     * @param offset the configured offset
+     * @param runtime the runtime of one part in seconds or a negative value if unknown
+     * @param partIndex the index of the part within the file, starting with 0
+     * @param partCount the number of parts in the file
+     * @return the offset from the start of the file in seconds
+     */
+    static int getOffset(String offset, int runtime, int partIndex, int partCount) {
+        String value = StringUtils.trimToEmpty(offset);
+        int partStart = runtime > 0 ? runtime * partIndex : 0;
+
+        if (value.endsWith("%")) {
+            int percent = Math.min(100, Math.max(0, NumberUtils.toInt(value.substring(0, value.length() - 1).trim(), 0)));
+            if (runtime <= 0) {
+                // without the runtime we can only guess a position
+                return DEFAULT_OFFSET;
+            }
+            return partStart + runtime * percent / 100;
+        }
+
+        int seconds = Math.max(0, NumberUtils.toInt(value, DEFAULT_OFFSET));
+        if (runtime > 0 && seconds >= runtime) {
+            // stay within the part
+            seconds = runtime / 2;
+        }
+        return partStart + seconds;
+    }
+
+    /**
+     * Create the command line to grab the frame
+     *
+     * @param ffmpeg the ffmpeg executable
+     * @param video the video file
+     * @param offset the offset in seconds
+     * @param target the image file to write
+     * @return
+     */
+    static List<String> buildCommand(String ffmpeg, File video, int offset, File target) {
+        List<String> command = new ArrayList<>();
+        command.add(ffmpeg);
+        command.add("-y");
+        command.add("-v");
+        command.add("error");
+        // decode key frames only, the seek before the input jumps to the key frame
+        command.add("-skip_frame");
+        command.add("nokey");
+        command.add("-ss");
+        command.add(Integer.toString(offset));
+        command.add("-i");
+        command.add(video.getAbsolutePath());
+        command.add("-frames:v");
+        command.add("1");
+        command.add("-an");
+        command.add("-sn");
+        command.add(target.getAbsolutePath());
+        return command;
+    }
+
+    /**
+     * Get the size of the grab pool
+     *
+     * @param configured the configured number of threads, 0 or less to use the cores
+     * @param cores the number of cores
+     * @return
+     */
+    static int getThreads(int configured, int cores) {
+        int max = Math.max(1, cores);
+        if (configured <= 0) {
+            return max;
+        }
+        return Math.min(configured, max);
+    }
+
+    private static File decode(File video, int offset, File target) throws IOException {
+        FileTools.makeDirsForFile(target);
+        GraphicTools.saveImageToDisk(KeyFrameDecoder.decode(video, offset), target.getAbsolutePath());
+        if (!target.isFile() || target.length() == 0) {
+            throw new IOException("No frame grabbed to " + target.getName());
+        }
+        return target;
+    }
+
+    private static File execute(List<String> command, File target, int timeout) throws IOException, InterruptedException {
+        FileTools.makeDirsForFile(target);
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(true);
+        final Process p = pb.start();
+        final AtomicBoolean timedOut = new AtomicBoolean(false);
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(new Runnable() {
+            @Override
+            public void run() {
+                timedOut.set(true);
+                p.destroy();
+            }
+        }, timeout, TimeUnit.SECONDS);
+
+        try {
+            // drain the output so the process can't block on a full pipe
+            try (InputStream in = p.getInputStream()) {
+                byte[] buffer = new byte[4096];
+                while (in.read(buffer) != -1) {
+                    // ignore the output
+                }
+            }
+
+            int exitValue = p.waitFor();
+            if (timedOut.get()) {
+                throw new IOException("ffmpeg timed out after " + timeout + "s for " + command.get(command.size() - 1));
+            }
+            if (exitValue != 0) {
+                throw new IOException("ffmpeg exited with " + exitValue + " for " + command.get(command.size() - 1));
+            }
+        } finally {
+            watchdog.cancel(false);
+            // stops the process if the grab was cancelled
+            p.destroy();
+        }
+
+        if (!target.isFile() || target.length() == 0) {
+            throw new IOException("No frame grabbed to " + target.getName());
+        }
+        return target;
+    }
+
+    /**
+     * A grab that knows when it started to run
+     */
+    private static final class Grab extends FutureTask<File> {
+
+        private final int timeout;
+        private volatile long started = 0;
+
+        Grab(int timeout, Callable<File> callable) {
+            super(callable);
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void run() {
+            started = System.currentTimeMillis();
+            super.run();
+        }
+    }
+}
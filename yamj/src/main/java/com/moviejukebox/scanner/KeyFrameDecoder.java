@@ -0,0 +1,214 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.io.FilenameUtils;
+import org.jcodec.codecs.h264.H264Decoder;
+import org.jcodec.common.Codec;
+import org.jcodec.common.DemuxerTrack;
+import org.jcodec.common.DemuxerTrackMeta;
+import org.jcodec.common.SeekableDemuxerTrack;
+import org.jcodec.common.io.NIOUtils;
+import org.jcodec.common.io.SeekableByteChannel;
+import org.jcodec.common.model.ColorSpace;
+import org.jcodec.common.model.Packet;
+import org.jcodec.common.model.Picture;
+import org.jcodec.common.model.Size;
+import org.jcodec.containers.mkv.demuxer.MKVDemuxer;
+import org.jcodec.containers.mp4.demuxer.MP4Demuxer;
+import org.jcodec.scale.AWTUtil;
+
+/**
+ * Decode a single key frame of a H.264 video in a MP4 or MKV container.
+ *
+ * The demuxer only reads the index of the container, the frame at the offset
+ * is found by a binary search over the time stamps of the frames and only the
+ * key frame at or before it is decoded.
+ */
+final class KeyFrameDecoder {
+
+    private static final List<String> MP4_EXTENSIONS = Arrays.asList("mp4", "m4v", "mov");
+    private static final List<String> MKV_EXTENSIONS = Arrays.asList("mkv");
+    private static final double NANOS_PER_SECOND = 1000000000D;
+
+    private KeyFrameDecoder() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    /**
+     * Check if the container of the video can be read
+     *
+     * @param video
+     * @return
+     */
+    static boolean canDecode(File video) {
+        String extension = FilenameUtils.getExtension(video.getName()).toLowerCase();
+        return MP4_EXTENSIONS.contains(extension) || MKV_EXTENSIONS.contains(extension);
+    }
+
+    /**
+     * Decode the key frame at or before the offset
+     *
+     * @param video the video file
+     * @param offset the offset in seconds
+     * @return the frame
+     * @throws IOException if the video can't be read or is not H.264
+     */
+    static BufferedImage decode(File video, double offset) throws IOException {
+        boolean mkv = MKV_EXTENSIONS.contains(FilenameUtils.getExtension(video.getName()).toLowerCase());
+
+        try (SeekableByteChannel channel = NIOUtils.readableChannel(video)) {
+            SeekableDemuxerTrack track;
+            int frameCount;
+            if (mkv) {
+                List<DemuxerTrack> tracks = new MKVDemuxer(channel).getVideoTracks();
+                if (tracks.isEmpty()) {
+                    throw new IOException("No video track in " + video.getName());
+                }
+                MKVDemuxer.VideoTrack videoTrack = (MKVDemuxer.VideoTrack) tracks.get(0);
+                track = videoTrack;
+                frameCount = videoTrack.getFrameCount();
+            } else {
+                DemuxerTrack videoTrack = MP4Demuxer.createMP4Demuxer(channel).getVideoTrack();
+                if (videoTrack == null) {
+                    throw new IOException("No video track in " + video.getName());
+                }
+                track = (SeekableDemuxerTrack) videoTrack;
+                frameCount = videoTrack.getMeta().getTotalFrames();
+            }
+
+            DemuxerTrackMeta meta = track.getMeta();
+            if (meta.getCodec() != Codec.H264) {
+                throw new IOException("Unsupported codec " + meta.getCodec() + " in " + video.getName());
+            }
+            if (frameCount <= 0) {
+                throw new IOException("No frames in " + video.getName());
+            }
+
+            Packet keyFrame = findKeyFrame(track, frameCount, offset, mkv);
+            return decodeFrame(meta, keyFrame);
+        } catch (InterruptedIOException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            // the demuxers and the decoder fail with runtime exceptions on broken or unsupported streams
+            throw new IOException("Failed to decode " + video.getName() + ": " + ex, ex);
+        }
+    }
+
+    /**
+     * Find the key frame at or before the offset, or the first key frame
+     * after it if there is none before
+     */
+    private static Packet findKeyFrame(SeekableDemuxerTrack track, int frameCount, double offset, boolean mkv) throws IOException {
+        // the last frame at or before the offset
+        int low = 0;
+        int high = frameCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (getSeconds(readFrame(track, middle), mkv) <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        // the index of the key frames is only known for MP4
+        int[] seekFrames = track.getMeta().getSeekFrames();
+        if (seekFrames != null) {
+            int keyFrame = -1;
+            for (int frame : seekFrames) {
+                if (frame <= low) {
+                    keyFrame = Math.max(keyFrame, frame);
+                }
+            }
+            if (keyFrame >= 0) {
+                return readFrame(track, keyFrame);
+            }
+        }
+
+        for (int frame = low; frame >= 0; frame--) {
+            Packet packet = readFrame(track, frame);
+            if (packet.isKeyFrame()) {
+                return packet;
+            }
+        }
+
+        // the stream does not start with a key frame
+        track.gotoFrame(low + 1L);
+        for (int frame = low + 1; frame < frameCount; frame++) {
+            checkInterrupted();
+            Packet packet = track.nextFrame();
+            if (packet == null) {
+                break;
+            }
+            if (packet.isKeyFrame()) {
+                return packet;
+            }
+        }
+        throw new IOException("No key frame found");
+    }
+
+    private static Packet readFrame(SeekableDemuxerTrack track, int frame) throws IOException {
+        checkInterrupted();
+        if (!track.gotoFrame(frame)) {
+            throw new IOException("Can't seek to frame " + frame);
+        }
+        Packet packet = track.nextFrame();
+        if (packet == null) {
+            throw new IOException("Can't read frame " + frame);
+        }
+        return packet;
+    }
+
+    private static double getSeconds(Packet packet, boolean mkv) {
+        if (mkv) {
+            // the MKV demuxer keeps the block time codes and reports the TimecodeScale (in ns) as time scale
+            return packet.getPts() * (double) packet.getTimescale() / NANOS_PER_SECOND;
+        }
+        return packet.getPtsD();
+    }
+
+    private static BufferedImage decodeFrame(DemuxerTrackMeta meta, Packet keyFrame) throws IOException {
+        H264Decoder decoder = H264Decoder.createH264DecoderFromCodecPrivate(meta.getCodecPrivate());
+        Size size = decoder.getCodecMeta(meta.getCodecPrivate()).getSize();
+        // the decoder works on whole macro blocks of 16x16 pixels
+        Picture buffer = Picture.create((size.getWidth() + 15) & ~15, (size.getHeight() + 15) & ~15, ColorSpace.YUV420J);
+        Picture picture = decoder.decodeFrame(keyFrame.getData(), buffer.getData());
+        if (picture == null) {
+            throw new IOException("Key frame could not be decoded");
+        }
+        return AWTUtil.toBufferedImage(picture.cropped());
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Frame grab cancelled");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner;
+
+import com.moviejukebox.model.Library;
+import com.moviejukebox.model.MediaLibraryPath;
+import com.moviejukebox.model.Movie;
+import com.moviejukebox.model.MovieFile;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The changes of the libraries reported by the {@link LibraryWatcher}.
+ *
+ * Only the videos with files in the changed directories are scanned again,
+ * the other videos are taken unchanged from the library of the previous run.
+ * Their XML and pages are not written again and the indexes only change where
+ * they contain a changed video.
+ */
+public class LibraryChanges {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LibraryChanges.class);
+    // The changed files and directories
+    private final List<Path> changed = new ArrayList<>();
+    // The directories to scan without their sub directories
+    private final Set<Path> directories = new TreeSet<>();
+    // The directories to scan with their sub directories
+    private final Set<Path> trees = new TreeSet<>();
+    // The videos taken from the previous run
+    private final Set<Movie> unchanged = Collections.newSetFromMap(new IdentityHashMap<Movie, Boolean>());
+
+    /**
+     * Create the changes
+     *
+     * @param changedFiles the changed files and directories
+     */
+    public LibraryChanges(Collection<File> changedFiles) {
+        for (File file : changedFiles) {
+            Path path = toPath(file);
+            changed.add(path);
+            if (file.isDirectory()) {
+                trees.add(getVideoDirectory(path));
+            } else if (path.getParent() != null) {
+                directories.add(getVideoDirectory(path.getParent()));
+            }
+        }
+    }
+
+    /**
+     * Build the library from the library of the previous run and the scan of
+     * the changed directories
+     *
+     * @param libraries
+     * @param previous the library of the previous run
+     * @return the new library
+     */
+    public Library scan(Collection<MediaLibraryPath> libraries, Library previous) {
+        Library library = new Library();
+        Set<Movie> affected = Collections.newSetFromMap(new IdentityHashMap<Movie, Boolean>());
+        Set<Path> scannedDirectories = new HashSet<>();
+        Set<Path> scannedTrees = new HashSet<>();
+
+        // Repeat until the scanned videos don't collide with the videos of the previous run
+        boolean repeat = true;
+        while (repeat) {
+            repeat = false;
+            for (Map.Entry<String, Movie> entry : previous.entrySet()) {
+                Movie movie = entry.getValue();
+                if (!affected.contains(movie) && (movie.isSkipped() || affects(movie) || library.containsKey(entry.getKey()))) {
+                    affected.add(movie);
+                    addVideo(movie);
+                    repeat = true;
+                }
+            }
+
+            List<File> pendingTrees = new ArrayList<>();
+            for (Path tree : trees) {
+                if (scannedTrees.add(tree)) {
+                    pendingTrees.add(tree.toFile());
+                }
+            }
+            List<File> pendingDirectories = new ArrayList<>();
+            for (Path directory : directories) {
+                if (!isInTree(directory, scannedTrees) && scannedDirectories.add(directory)) {
+                    pendingDirectories.add(directory.toFile());
+                }
+            }
+
+            if (!pendingTrees.isEmpty() || !pendingDirectories.isEmpty()) {
+                for (MediaLibraryPath mediaLibraryPath : libraries) {
+                    MovieDirectoryScanner mds = new MovieDirectoryScanner();
+                    mds.scan(mediaLibraryPath, pendingTrees, true, library);
+                    mds.scan(mediaLibraryPath, pendingDirectories, false, library);
+                }
+                repeat = true;
+            }
+        }
+
+        for (Map.Entry<String, Movie> entry : previous.entrySet()) {
+            Movie movie = entry.getValue();
+            if (!affected.contains(movie)) {
+                movie.clearDirty();
+                unchanged.add(movie);
+                library.addMovie(entry.getKey(), movie);
+            }
+        }
+
+        LOG.info("Scanned {} changed directories, {} videos are unchanged", scannedDirectories.size() + scannedTrees.size(), unchanged.size());
+        return library;
+    }
+
+    /**
+     * Is the video taken unchanged from the previous run
+     *
+     * @param movie
+     * @return
+     */
+    public boolean isUnchanged(Movie movie) {
+        return unchanged.contains(movie);
+    }
+
+    /**
+     * Check if one of the files of the video is affected by the changes
+     *
+     * @param movie
+     * @return
+     */
+    boolean affects(Movie movie) {
+        for (MovieFile movieFile : movie.getMovieFiles()) {
+            File file = movieFile.getFile();
+            if (file == null) {
+                continue;
+            }
+
+            Path path = toPath(file);
+            if (directories.contains(path) || (path.getParent() != null && directories.contains(path.getParent())) || isInTree(path, trees)) {
+                return true;
+            }
+            for (Path change : changed) {
+                // The file itself, or a file in the folder of a DVD or BluRay
+                if (path.startsWith(change) || change.startsWith(path)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scan all the files of the video again
+     */
+    private void addVideo(Movie movie) {
+        for (MovieFile movieFile : movie.getMovieFiles()) {
+            File file = movieFile.getFile();
+            if (file == null) {
+                continue;
+            }
+
+            Path path = toPath(file);
+            if (file.isDirectory()) {
+                // DVD or BluRay folder
+                directories.add(path);
+            } else if (path.getParent() != null) {
+                directories.add(getVideoDirectory(path.getParent()));
+            }
+        }
+    }
+
+    private static boolean isInTree(Path path, Collection<Path> trees) {
+        for (Path tree : trees) {
+            if (path.startsWith(tree)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The files inside the VIDEO_TS or BDMV folder belong to the video of its
+     * parent directory
+     */
+    static Path getVideoDirectory(Path directory) {
+        for (Path current = directory; current != null && current.getFileName() != null; current = current.getParent()) {
+            String name = current.getFileName().toString();
+            if ("VIDEO_TS".equalsIgnoreCase(name) || "BDMV".equalsIgnoreCase(name)) {
+                return current.getParent() == null ? current : current.getParent();
+            }
+        }
+        return directory;
+    }
+
+    private static Path toPath(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+}
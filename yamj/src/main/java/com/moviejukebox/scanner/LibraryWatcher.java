@@ -0,0 +1,217 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import com.moviejukebox.model.MediaLibraryPath;
+import com.moviejukebox.tools.PropertiesUtil;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watch the media libraries for new, changed or removed videos.
+ *
+ * Every directory of the libraries is registered with the WatchService of the
+ * file system. The events are collected until the libraries have been quiet
+ * for the debounce delay, so copying a season results in one update of the
+ * jukebox. Changes inside the jukebox itself and to files which are neither
+ * videos nor side car files are ignored.
+ */
+public final class LibraryWatcher implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LibraryWatcher.class);
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final List<Path> ignoredPaths = new ArrayList<>();
+    private final Set<String> videoExtensions = new HashSet<>();
+    private final long delay;
+
+    /**
+     * Create the watcher and register the directories of the libraries
+     *
+     * @param libraries
+     * @param ignored the directories whose changes are ignored, e.g. the
+     * jukebox
+     * @param delay the time in milliseconds without changes before the changes
+     * are returned
+     * @throws IOException
+     */
+    public LibraryWatcher(Collection<MediaLibraryPath> libraries, Collection<File> ignored, long delay) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.delay = delay;
+
+        for (String extension : PropertiesUtil.getProperty("mjb.extensions", "AVI DIVX MKV WMV M2TS TS RM QT ISO VOB MPG MOV").toLowerCase().split(" ")) {
+            videoExtensions.add(extension);
+        }
+        for (File file : ignored) {
+            ignoredPaths.add(file.toPath().toAbsolutePath().normalize());
+        }
+
+        for (MediaLibraryPath library : libraries) {
+            Path path = Paths.get(library.getPath()).toAbsolutePath().normalize();
+            if (Files.isDirectory(path)) {
+                registerTree(path);
+            } else {
+                LOG.warn("Library '{}' is not a directory and will not be watched", library.getPath());
+            }
+        }
+        LOG.debug("Watching {} directories", directories.size());
+    }
+
+    /**
+     * The number of watched directories
+     *
+     * @return
+     */
+    public int size() {
+        return directories.size();
+    }
+
+    /**
+     * Wait until the libraries have changed and then have been quiet for the
+     * delay
+     *
+     * @return the changed videos and side car files and the created or
+     * deleted directories
+     * @throws InterruptedException
+     */
+    public Set<File> waitForChanges() throws InterruptedException {
+        Set<File> changed = new TreeSet<>();
+        while (changed.isEmpty()) {
+            WatchKey key = watchService.take();
+            while (key != null) {
+                processEvents(key, changed);
+                key = watchService.poll(changed.isEmpty() ? Long.MAX_VALUE : delay, TimeUnit.MILLISECONDS);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void processEvents(WatchKey key, Set<File> changed) {
+        Path directory = directories.get(key);
+        if (directory != null) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    // events were lost, so the whole directory has to be checked
+                    changed.add(directory.toFile());
+                    continue;
+                }
+
+                Path child = directory.resolve((Path) event.context());
+                if (isIgnored(child)) {
+                    continue;
+                }
+
+                boolean isDirectory = Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS);
+                if (isDirectory && event.kind() == ENTRY_CREATE) {
+                    try {
+                        registerTree(child);
+                    } catch (IOException ex) {
+                        LOG.warn("Failed to watch new directory {}: {}", child, ex.getMessage());
+                    }
+                }
+
+                // The changes inside a directory are reported by the directory itself
+                if ((isDirectory && event.kind() != ENTRY_MODIFY) || event.kind() == ENTRY_DELETE || (!isDirectory && isRelevant(child))) {
+                    LOG.debug("Library change: {} {}", event.kind().name(), child);
+                    changed.add(child.toFile());
+                }
+            }
+        }
+
+        if (!key.reset()) {
+            // the directory is no longer accessible
+            directories.remove(key);
+        }
+    }
+
+    private boolean isIgnored(Path path) {
+        for (Path ignored : ignoredPaths) {
+            if (path.startsWith(ignored)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if the file is a video or a side car file of a video
+     */
+    private boolean isRelevant(Path path) {
+        String filename = path.getFileName().toString();
+        return videoExtensions.contains(FilenameUtils.getExtension(filename).toLowerCase())
+                || SidecarManifest.classify(filename) != null;
+    }
+
+    private void registerTree(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (isIgnored(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                directories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException ex) {
+                LOG.debug("Unable to watch {}: {}", file, ex.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
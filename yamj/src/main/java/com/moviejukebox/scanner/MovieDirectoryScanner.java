@@ -28,13 +28,16 @@ import com.moviejukebox.model.Movie;
 import com.moviejukebox.model.MovieFile;
 import com.moviejukebox.model.MovieFileNameDTO;
 import com.moviejukebox.scanner.BDRipScanner.BDFilePropertiesMovie;
+import com.moviejukebox.scanner.SidecarManifest.SidecarType;
 import com.moviejukebox.tools.DateTimeTools;
 import com.moviejukebox.tools.FileTools;
 import com.moviejukebox.tools.HTMLTools;
 import com.moviejukebox.tools.OverrideTools;
 import com.moviejukebox.tools.PropertiesUtil;
 import java.io.File;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
@@ -42,6 +45,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -102,6 +106,14 @@ public class MovieDirectoryScanner {
         localBDRipScanner = new BDRipScanner();
     }
 
+    /**
+     * Reset the progress counters of the previous run
+     */
+    public static void resetCounters() {
+        dirCount = 1;
+        fileCount = 0;
+    }
+
     /**
      * Scan the specified directory for video files.
      *
@@ -126,6 +138,53 @@ public class MovieDirectoryScanner {
         return library;
     }
 
+    /**
+     * Scan only the specified directories of the library for video files.
+     *
+     * The directories outside the library and those excluded from the scan,
+     * directly or by one of their parents, are skipped.
+     *
+     * @param srcPath
+     * @param directories the directories to scan
+     * @param recursive scan the sub directories too
+     * @param library
+     * @return the library
+     */
+    public Library scan(MediaLibraryPath srcPath, Collection<File> directories, boolean recursive, Library library) {
+        File root = new FileTools.FileEx(srcPath.getPath(), archiveScanners);
+        if (!root.isDirectory()) {
+            return library;
+        }
+        Path rootPath = root.toPath().toAbsolutePath().normalize();
+        mediaLibraryRootPathIndex = FileTools.getDirPathWithSeparator(root.getAbsolutePath()).length();
+
+        for (File directory : directories) {
+            Path path = directory.toPath().toAbsolutePath().normalize();
+            if (path.startsWith(rootPath) && directory.isDirectory() && !isExcluded(srcPath, rootPath, path)) {
+                scanDirectory(srcPath, new FileTools.FileEx(directory.getAbsolutePath(), archiveScanners), library, recursive);
+            }
+        }
+        return library;
+    }
+
+    /**
+     * Check if the directory, or one of its parents below the library root,
+     * is excluded from the scan
+     */
+    private boolean isExcluded(MediaLibraryPath srcPath, Path rootPath, Path path) {
+        for (Path current = path; current != null && current.startsWith(rootPath); current = current.getParent()) {
+            File directory = current.toFile();
+            if (!current.equals(rootPath) && isFiltered(srcPath, directory)) {
+                return true;
+            }
+            if (new File(directory, ".mjbignore").exists()
+                    || (nmjCompliant && (new File(directory, ".no_all.nmj").exists() || new File(directory, ".no_video.nmj").exists()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Recursively scan the directory for video files
      *
@@ -134,6 +193,18 @@ public class MovieDirectoryScanner {
      * @param collection
      */
     protected void scanDirectory(MediaLibraryPath srcPath, File directory, Library collection) {
+        scanDirectory(srcPath, directory, collection, true);
+    }
+
+    /**
+     * Scan the directory for video files
+     *
+     * @param srcPath
+     * @param directory
+     * @param collection
+     * @param recursive scan the sub directories too
+     */
+    private void scanDirectory(MediaLibraryPath srcPath, File directory, Library collection, boolean recursive) {
         FileTools.fileCache.fileAdd(directory);
         if (directory.isFile()) {
             scanFile(srcPath, directory, collection);
@@ -180,6 +251,8 @@ public class MovieDirectoryScanner {
 
                 // add all files to the global cache, after ignore check but before the actual scan
                 FileTools.fileCache.addFiles(files);
+                // and classify the side car files once for the later lookups
+                SidecarManifest.register(directory, files);
 
                 for (File file : fileList) {
                     if (!isFiltered(srcPath, file)) {
@@ -188,7 +261,9 @@ public class MovieDirectoryScanner {
                         } else if (file.isDirectory() && "BDMV".equalsIgnoreCase(file.getName())) {
                             scanFile(srcPath, file.getParentFile(), collection);
                         } else if (file.isDirectory()) {
-                            scanDirectory(srcPath, file, collection);
+                            if (recursive) {
+                                scanDirectory(srcPath, file, collection, true);
+                            }
                         } else {
                             scanFile(srcPath, file, collection);
                         }
@@ -284,6 +359,11 @@ public class MovieDirectoryScanner {
      * @return
      */
     protected static boolean hasSubtitles(File fileToScan) {
+        SidecarManifest manifest = SidecarManifest.get(fileToScan.getParentFile());
+        if (manifest != null) {
+            String baseName = FilenameUtils.removeExtension(fileToScan.getName());
+            return manifest.find(baseName, SidecarType.SUBTITLE) != null;
+        }
 
         File found = FileTools.findSubtitles(fileToScan);
         return found.exists();
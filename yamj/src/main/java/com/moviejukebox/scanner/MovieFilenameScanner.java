@@ -27,10 +27,14 @@ import static java.util.regex.Pattern.CASE_INSENSITIVE;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -64,6 +68,16 @@ import com.moviejukebox.tools.StringTools;
 public final class MovieFilenameScanner {
 
     private static final Logger LOG = LoggerFactory.getLogger(MovieFilenameScanner.class);
+    /**
+     * Lower case keywords of the patterns; a pattern can only match if the
+     * filename contains at least one of its keywords
+     */
+    private static final Map<Pattern, String[]> PATTERN_KEYWORDS = new ConcurrentHashMap<>();
+    /**
+     * Patterns whose keywords must be surrounded by word delimiters
+     */
+    private static final Set<Pattern> WORD_PATTERNS = Collections.newSetFromMap(new ConcurrentHashMap<Pattern, Boolean>());
+    private static final String REGEX_META_CHARS = ".[]{}()*+?^$|\\";
     private static final boolean SKIP_EP_TITLE;
     private static boolean useParentRegex;
     private static final boolean ARCHIVE_SCAN_RAR;
@@ -95,10 +109,10 @@ public final class MovieFilenameScanner {
     private static String[] movieVersionKeywords;
     private static final List<Pattern> MOVIE_VERSION_PATTERNS = new ArrayList<>();
     // Allow the use of [IMDB tt123456] to define the IMDB reference
-    private static final Pattern ID_PATTERN = patt("\\[ID ([^\\[\\]]*)\\]");
-    private static final Pattern IMDB_PATTERN = patt("(?i)(tt\\d{6,7})\\b");    // Search for tt followed by 6 or 7 digits and then a word boundary
+    private static final Pattern ID_PATTERN = keywords(patt("\\[ID ([^\\[\\]]*)\\]"), "[id ");
+    private static final Pattern IMDB_PATTERN = keywords(patt("(?i)(tt\\d{6,7})\\b"), "tt");    // Search for tt followed by 6 or 7 digits and then a word boundary
     // Everything in format [SET something] (case insensitive)
-    private static final Pattern SET_PATTERN = ipatt("\\[SET(?:\\s|-)([^\\[\\]]*)\\]");
+    private static final Pattern SET_PATTERN = keywords(ipatt("\\[SET(?:\\s|-)([^\\[\\]]*)\\]"), "[set");
     // Number at the end of string preceded with '-'
     private static final Pattern SET_INDEX_PATTERN = patt("-\\s*(\\d+)\\s*$");
     private static final String[] AUDIO_CODECS_ARRAY = new String[]{"AC3", "DTS", "DD", "AAC", "FLAC"};
@@ -126,9 +140,9 @@ public final class MovieFilenameScanner {
         private static final long serialVersionUID = 2534565160759765860L;
 
         {
-            add(iwpatt("CD ([0-9]+)"));
-            add(iwpatt("(?:(?:CD)|(?:DISC)|(?:DISK)|(?:PART))([0-9]+)"));
-            add(tpatt("([0-9]{1,2})[ \\.]{0,1}DVD"));
+            add(keywords(iwpatt("CD ([0-9]+)"), "cd "));
+            add(keywords(iwpatt("(?:(?:CD)|(?:DISC)|(?:DISK)|(?:PART))([0-9]+)"), "cd", "disc", "disk", "part"));
+            add(keywords(tpatt("([0-9]{1,2})[ \\.]{0,1}DVD"), "dvd"));
         }
     };
     /**
@@ -141,7 +155,7 @@ public final class MovieFilenameScanner {
 
         {
             for (Pattern p : PART_PATTERNS) {
-                add(Pattern.compile("^" + p, CASE_INSENSITIVE));
+                add(keywords(Pattern.compile("^" + p, CASE_INSENSITIVE), PATTERN_KEYWORDS.get(p)));
             }
             add(Pattern.compile("^" + TV_PATTERN, CASE_INSENSITIVE));
         }
@@ -315,6 +329,8 @@ public final class MovieFilenameScanner {
     private final File file;
     private final String filename;
     private String rest;
+    private String lowerRestSource;
+    private String lowerRest;
 
     private MovieFilenameScanner(File file) {
         // CHECK FOR USE_PARENT_PATTERN matches
@@ -367,8 +383,7 @@ public final class MovieFilenameScanner {
 
         // Detect incomplete filenames and add parent folder name to parser
         for (Pattern pattern : PARENT_FOLDER_PART_PATTERNS) {
-            final Matcher matcher = pattern.matcher(rest);
-            if (matcher.find()) {
+            if (find(pattern) != null) {
                 final File folder = this.file.getParentFile();
                 if (folder == null) {
                     break;
@@ -381,15 +396,17 @@ public final class MovieFilenameScanner {
 
         // Remove version info
         for (Pattern pattern : MOVIE_VERSION_PATTERNS) {
-            rest = pattern.matcher(rest).replaceAll("./.");
+            if (find(pattern) != null) {
+                rest = pattern.matcher(rest).replaceAll("./.");
+            }
         }
         LOG.trace("After version info: '{}'", rest);
 
         // EXTRAS (Including Trailers)
         {
             for (Pattern pattern : EXTRAS_PATTERNS) {
-                Matcher matcher = pattern.matcher(rest);
-                if (matcher.find()) {
+                Matcher matcher = find(pattern);
+                if (matcher != null) {
                     dto.setExtra(Boolean.TRUE);
                     dto.setPartTitle(matcher.group(1));
                     rest = cutMatch(rest, matcher, "./EXTRA/.");
@@ -432,8 +449,8 @@ public final class MovieFilenameScanner {
         // PART
         {
             for (Pattern pattern : PART_PATTERNS) {
-                Matcher matcher = pattern.matcher(rest);
-                if (matcher.find()) {
+                Matcher matcher = find(pattern);
+                if (matcher != null) {
                     rest = cutMatch(rest, matcher, " /PART/ ");
                     dto.setPart(Integer.parseInt(matcher.group(1)));
                     break;
@@ -445,8 +462,8 @@ public final class MovieFilenameScanner {
         // SETS
         {
             for (;;) {
-                final Matcher matcher = SET_PATTERN.matcher(rest);
-                if (!matcher.find()) {
+                final Matcher matcher = find(SET_PATTERN);
+                if (matcher == null) {
                     break;
                 }
                 rest = cutMatch(rest, matcher, Movie.SPACE_SLASH_SPACE);
@@ -467,8 +484,8 @@ public final class MovieFilenameScanner {
 
         // Movie ID detection
         {
-            Matcher matcher = ID_PATTERN.matcher(rest);
-            if (matcher.find()) {
+            Matcher matcher = find(ID_PATTERN);
+            if (matcher != null) {
                 rest = cutMatch(rest, matcher, " /ID/ ");
 
                 String[] idString = matcher.group(1).split("[-\\s+]");
@@ -478,8 +495,8 @@ public final class MovieFilenameScanner {
                     LOG.debug("Error decoding ID from filename: {}", matcher.group(1));
                 }
             } else {
-                matcher = IMDB_PATTERN.matcher(rest);
-                if (matcher.find()) {
+                matcher = find(IMDB_PATTERN);
+                if (matcher != null) {
                     rest = cutMatch(rest, matcher, " /ID/ ");
                     dto.setId(ImdbPlugin.IMDB_PLUGIN_ID, matcher.group(1));
                 }
@@ -546,9 +563,9 @@ public final class MovieFilenameScanner {
 
                     // Loose language search
                     if (token.length() >= 2 && token.indexOf('-') < 0) {
+                        String lowerToken = toLower(token);
                         for (Map.Entry<String, Pattern> e : LOOSE_LANGUAGE_MAP.entrySet()) {
-                            Matcher matcher = e.getValue().matcher(token);
-                            if (matcher.find()) {
+                            if (hasKeyword(e.getValue(), lowerToken) && e.getValue().matcher(token).find()) {
                                 dto.getLanguages().add(e.getKey());
                             }
                         }
@@ -602,7 +619,7 @@ public final class MovieFilenameScanner {
                 }
             }
         }
-        LOG.trace("Final: {}", dto.toString());
+        LOG.trace("Final: {}", dto);
 
     }
 
@@ -638,7 +655,7 @@ public final class MovieFilenameScanner {
      * @return Case insensitive pattern matched somewhere in square brackets
      */
     private static Pattern pattInSBrackets(String regex) {
-        return ipatt("\\[([^\\[\\]]*" + regex + "[^\\[]*)\\]");
+        return keywords(ipatt("\\[([^\\[\\]]*" + regex + "[^\\[]*)\\]"), literals(regex));
     }
 
     /**
@@ -646,9 +663,9 @@ public final class MovieFilenameScanner {
      * @return Case insensitive pattern with word delimiters around
      */
     public static Pattern iwpatt(String regex) {
-        return Pattern.compile("(?<=" + WORD_DELIMITERS_MATCH_PATTERN
+        return wordKeywords(Pattern.compile("(?<=" + WORD_DELIMITERS_MATCH_PATTERN
                 + ")(?:" + regex + ")(?="
-                + WORD_DELIMITERS_MATCH_PATTERN + ")", Pattern.CASE_INSENSITIVE);
+                + WORD_DELIMITERS_MATCH_PATTERN + ")", Pattern.CASE_INSENSITIVE), literals(regex));
     }
 
     /**
@@ -656,9 +673,9 @@ public final class MovieFilenameScanner {
      * @return Case sensitive pattern with word delimiters around
      */
     public static Pattern wpatt(String regex) {
-        return Pattern.compile("(?<=" + WORD_DELIMITERS_MATCH_PATTERN
+        return wordKeywords(Pattern.compile("(?<=" + WORD_DELIMITERS_MATCH_PATTERN
                 + ")(?:" + regex + ")(?="
-                + WORD_DELIMITERS_MATCH_PATTERN + ")");
+                + WORD_DELIMITERS_MATCH_PATTERN + ")"), literals(regex));
     }
 
     /**
@@ -666,15 +683,22 @@ public final class MovieFilenameScanner {
      * @return Case sensitive pattern with token delimiters around
      */
     private static Pattern tpatt(String regex) {
-        return Pattern.compile(TOKEN_DELIMITERS_MATCH_PATTERN + "(?:" + NOTOKEN_DELIMITERS_MATCH_PATTERN + "*)" + "(?:" + regex + ")" + "(?:"
-                + NOTOKEN_DELIMITERS_MATCH_PATTERN + "*)" + TOKEN_DELIMITERS_MATCH_PATTERN);
+        return wordKeywords(Pattern.compile(TOKEN_DELIMITERS_MATCH_PATTERN + "(?:" + NOTOKEN_DELIMITERS_MATCH_PATTERN + "*)" + "(?:" + regex + ")" + "(?:"
+                + NOTOKEN_DELIMITERS_MATCH_PATTERN + "*)" + TOKEN_DELIMITERS_MATCH_PATTERN), literals(regex));
     }
 
     private static String cleanUp(String filename) {
         // SKIP
         String rFilename = filename; // We can't modify the parameter, so copy it
+        String lowerFilename = toLower(rFilename);
         for (Pattern p : SKIP_PATTERNS) {
-            rFilename = p.matcher(rFilename).replaceAll("./.");
+            if (hasKeyword(p, lowerFilename)) {
+                String replaced = p.matcher(rFilename).replaceAll("./.");
+                if (!replaced.equals(rFilename)) {
+                    rFilename = replaced;
+                    lowerFilename = toLower(rFilename);
+                }
+            }
         }
         return rFilename;
     }
@@ -725,8 +749,8 @@ public final class MovieFilenameScanner {
 
     private <T> T seekPatternAndUpdateRest(Map<T, Pattern> map, T oldValue) {
         for (Map.Entry<T, Pattern> e : map.entrySet()) {
-            Matcher matcher = e.getValue().matcher(rest);
-            if (matcher.find()) {
+            Matcher matcher = find(e.getValue());
+            if (matcher != null) {
                 rest = cutMatch(rest, matcher, "./.");
                 return e.getKey();
             }
@@ -745,11 +769,11 @@ public final class MovieFilenameScanner {
      */
     private <T> T seekPatternAndUpdateRest(Map<T, Pattern> map, T oldValue, Collection<Pattern> protectPatterns) {
         for (Map.Entry<T, Pattern> e : map.entrySet()) {
-            Matcher matcher = e.getValue().matcher(rest);
-            if (matcher.find()) {
+            Matcher matcher = find(e.getValue());
+            if (matcher != null) {
                 String restCut = cutMatch(rest, matcher, "./.");
                 for (Pattern protectPattern : protectPatterns) {
-                    if (protectPattern.matcher(rest).find()
+                    if (find(protectPattern) != null
                             && !protectPattern.matcher(restCut).find()) {
                         return e.getKey();
                     }
@@ -761,6 +785,135 @@ public final class MovieFilenameScanner {
         return oldValue;
     }
 
+    /**
+     * Search the pattern in the rest of the filename.
+     *
+     * The matcher is only run when the rest contains one of the keywords of
+     * the pattern, which skips most of the patterns for a filename.
+     *
+     * @param pattern
+     * @return the matcher positioned on the first match, or null
+     */
+    private Matcher find(Pattern pattern) {
+        if (lowerRestSource != rest) {
+            lowerRestSource = rest;
+            lowerRest = toLower(rest);
+        }
+        if (!hasKeyword(pattern, lowerRest)) {
+            return null;
+        }
+        Matcher matcher = pattern.matcher(rest);
+        return matcher.find() ? matcher : null;
+    }
+
+    private static boolean hasKeyword(Pattern pattern, String lowerText) {
+        String[] keywords = PATTERN_KEYWORDS.get(pattern);
+        if (keywords == null) {
+            return true;
+        }
+        boolean word = WORD_PATTERNS.contains(pattern);
+        for (String keyword : keywords) {
+            int index = lowerText.indexOf(keyword);
+            while (index >= 0) {
+                if (!word || (isWordBoundary(lowerText, index - 1) && isWordBoundary(lowerText, index + keyword.length()))) {
+                    return true;
+                }
+                index = lowerText.indexOf(keyword, index + 1);
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWordBoundary(String text, int index) {
+        if (index < 0 || index >= text.length()) {
+            return true;
+        }
+        char c = text.charAt(index);
+        // line terminators can be matched by '$'
+        return WORD_DELIMITERS_STRING.indexOf(c) >= 0 || c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static String toLower(String text) {
+        return text.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Register the keywords of the pattern
+     *
+     * @param pattern
+     * @param keywords the lower case keywords, null if the pattern has none
+     * @return the pattern
+     */
+    private static Pattern keywords(Pattern pattern, String... keywords) {
+        if (keywords != null) {
+            PATTERN_KEYWORDS.put(pattern, keywords);
+        }
+        return pattern;
+    }
+
+    /**
+     * Register the keywords of a pattern which matches whole words only
+     *
+     * @param pattern
+     * @param keywords the lower case keywords, null if the pattern has none
+     * @return the pattern
+     */
+    private static Pattern wordKeywords(Pattern pattern, String... keywords) {
+        if (keywords != null) {
+            PATTERN_KEYWORDS.put(pattern, keywords);
+            WORD_PATTERNS.add(pattern);
+        }
+        return pattern;
+    }
+
+    /**
+     * Get the literal alternatives of a simple regular expression.
+     *
+     * @param regex
+     * @return the lower case alternatives or null if the regex is not a plain
+     * list of literals
+     */
+    private static String[] literals(String regex) {
+        List<String> result = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int pos = 0;
+        while (pos < regex.length()) {
+            char c = regex.charAt(pos);
+            if (c == '\\') {
+                if (regex.startsWith("\\Q", pos)) {
+                    int end = regex.indexOf("\\E", pos + 2);
+                    if (end < 0) {
+                        end = regex.length();
+                    }
+                    literal.append(regex, pos + 2, end);
+                    pos = end + 2;
+                } else if (pos + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(pos + 1))) {
+                    literal.append(regex.charAt(pos + 1));
+                    pos += 2;
+                } else {
+                    return null;
+                }
+            } else if (c == '|') {
+                if (literal.length() == 0) {
+                    return null;
+                }
+                result.add(toLower(literal.toString()));
+                literal.setLength(0);
+                pos++;
+            } else if (REGEX_META_CHARS.indexOf(c) >= 0) {
+                return null;
+            } else {
+                literal.append(c);
+                pos++;
+            }
+        }
+        if (literal.length() == 0) {
+            return null;
+        }
+        result.add(toLower(literal.toString()));
+        return result.toArray(new String[result.size()]);
+    }
+
     private static String cutMatch(String rest, Matcher matcher) {
         return (rest.substring(0, matcher.start()) + rest.substring(matcher.end())).trim();
     }
@@ -824,8 +977,9 @@ public final class MovieFilenameScanner {
         MovieFilenameScanner.movieVersionKeywords = movieVersionKeywords.clone();
         MOVIE_VERSION_PATTERNS.clear();
         for (String s : MovieFilenameScanner.movieVersionKeywords) {
-            MOVIE_VERSION_PATTERNS.add(
-                    iwpatt(s.replace(" ", WORD_DELIMITERS_MATCH_PATTERN.pattern())));
+            // every word must be in the filename, so the first one is enough as keyword
+            MOVIE_VERSION_PATTERNS.add(wordKeywords(
+                    iwpatt(s.replace(" ", WORD_DELIMITERS_MATCH_PATTERN.pattern())), literals(s.split(" ")[0])));
         }
     }
 
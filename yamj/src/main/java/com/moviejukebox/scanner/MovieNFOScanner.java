@@ -26,8 +26,8 @@ import com.moviejukebox.model.Movie;
 import com.moviejukebox.model.MovieFile;
 import com.moviejukebox.model.enumerations.DirtyFlag;
 import com.moviejukebox.reader.MovieNFOReader;
+import com.moviejukebox.scanner.SidecarManifest.SidecarType;
 import com.moviejukebox.tools.FileTools;
-import com.moviejukebox.tools.GenericFileFilter;
 import com.moviejukebox.tools.PropertiesUtil;
 import com.moviejukebox.tools.StringTools;
 import static com.moviejukebox.tools.StringTools.appendToPath;
@@ -58,7 +58,6 @@ public final class MovieNFOScanner {
     // For now, this is deprecated and we should see if there are issues before looking at a solution as the DOM Parser seems a lot more stable
     private static final String NFO_DIR = PropertiesUtil.getProperty("filename.nfo.directory", "");
     private static final boolean ACCEPT_ALL_NFO = PropertiesUtil.getBooleanProperty("filename.nfo.acceptAllNfo", Boolean.FALSE);
-    private static final String NFO_EXT_REGEX;
     private static final String[] NFO_EXTENSIONS = PropertiesUtil.getProperty("filename.nfo.extensions", "NFO").split(",");
     private static final Pattern PART_PATTERN = Pattern.compile("(?i)(?:(?:CD)|(?:DISC)|(?:DISK)|(?:PART))([0-9]+)");
     private static final boolean ARCHIVE_SCAN_RAR = PropertiesUtil.getBooleanProperty("mjb.scanner.archivescan.rar", Boolean.FALSE);
@@ -69,23 +68,6 @@ public final class MovieNFOScanner {
             LOG.info("Accepting all NFO files in the directory");
         }
 
-        // Construct regex for filtering NFO files
-        // Target format is: ".*\\(ext1|ext2|ext3|..|extN)"
-        {
-            boolean first = Boolean.TRUE;
-            StringBuilder regexBuilder = new StringBuilder("(?i).*\\.("); // Start of REGEX
-            for (String ext : NFO_EXTENSIONS) {
-                if (first) {
-                    first = Boolean.FALSE;
-                } else {
-                    regexBuilder.append("|"); // Add seperator
-                }
-                regexBuilder.append(ext).append("$"); // Add extension
-            }
-            regexBuilder.append(")"); // End of REGEX
-            NFO_EXT_REGEX = regexBuilder.toString();
-        }
-
         // Set the date format to dd-MM-yyyy
 //        DateTimeConfig.globalEuropeanDateFormat();
         DateTimeConfigBuilder.newInstance().setDmyOrder(true);
@@ -123,7 +105,6 @@ public final class MovieNFOScanner {
      */
     public static List<File> locateNFOs(Movie movie) {
         List<File> nfoFiles = new ArrayList<>();
-        GenericFileFilter fFilter;
 
         File currentDir = movie.getFirstFile().getFile();
 
@@ -217,14 +198,13 @@ public final class MovieNFOScanner {
              */
 
             // Check the current directory
-            fFilter = new GenericFileFilter(NFO_EXT_REGEX);
-            checkRNFO(nfoFiles, currentDir.getParentFile(), fFilter);
+            checkRNFO(nfoFiles, currentDir.getParentFile(), "");
 
             // Also check the directory above, for the case where movies are in a multi-part named directory (CD/PART/DISK/Etc.)
             Matcher allNfoMatch = PART_PATTERN.matcher(currentDir.getAbsolutePath());
             if (allNfoMatch.find()) {
                 LOG.debug("Found multi-part directory, checking parent directory for NFOs");
-                checkRNFO(nfoFiles, currentDir.getParentFile().getParentFile(), fFilter);
+                checkRNFO(nfoFiles, currentDir.getParentFile().getParentFile(), "");
             }
         } else {
             // This file should be named the same as the directory that it is in
@@ -232,15 +212,12 @@ public final class MovieNFOScanner {
             // We search up through all containing directories up to the library root
 
             // Check the current directory for the video filename
-            fFilter = new GenericFileFilter("(?i)" + movie.getBaseFilename() + NFO_EXT_REGEX);
-            checkRNFO(nfoFiles, currentDir, fFilter);
+            checkRNFO(nfoFiles, currentDir, movie.getBaseFilename());
         }
 
         // Recurse through the directories to the library root looking for NFO files
         String libraryRootPath = new File(movie.getLibraryPath()).getAbsolutePath();
         while (currentDir != null && !currentDir.getAbsolutePath().equals(libraryRootPath)) {
-            //fFilter.setPattern("(?i)" + currentDir.getName() + nfoExtRegex);
-            //checkRNFO(nfos, currentDir, fFilter);
             currentDir = currentDir.getParentFile();
             if (currentDir != null) {
                 final String path = currentDir.getPath();
@@ -259,16 +236,19 @@ public final class MovieNFOScanner {
     }
 
     /**
-     * Search the current directory for all NFO files using a file filter
+     * Search the current directory for all NFO files containing the name
+     *
+     * The side car manifest of the directory is used, so the directory is only
+     * listed once for all the movies in it.
      *
      * @param nfoFiles
      * @param currentDir
-     * @param fFilter
+     * @param name the text the NFO filename must contain, empty for all
      */
-    private static void checkRNFO(List<File> nfoFiles, File currentDir, GenericFileFilter fFilter) {
-        File[] fFiles = currentDir.listFiles(fFilter);
-        if (fFiles != null && fFiles.length > 0) {
-            for (File foundFile : fFiles) {
+    private static void checkRNFO(List<File> nfoFiles, File currentDir, String name) {
+        SidecarManifest manifest = SidecarManifest.forDirectory(currentDir);
+        if (manifest != null) {
+            for (File foundFile : manifest.getFiles(SidecarType.NFO, name)) {
                 LOG.debug("Found {}", foundFile.getName());
                 nfoFiles.add(foundFile);
             }
@@ -22,7 +22,29 @@
  */
 package com.moviejukebox.scanner;
 
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
@@ -32,87 +54,334 @@ import com.moviejukebox.model.Library;
 import com.moviejukebox.model.Movie;
 import com.moviejukebox.model.MovieFileNameDTO;
 import com.moviejukebox.reader.MovieJukeboxXMLReader;
+import com.moviejukebox.tools.BuildGraph;
 import com.moviejukebox.tools.FileTools;
+import com.moviejukebox.tools.PropertiesUtil;
 import com.moviejukebox.tools.StringTools;
 
+/**
+ * Add the videos of the existing jukebox which are no longer in the libraries.
+ *
+ * The XML files are read by several workers, each taking a part of the
+ * directory listing. The videos are staged and added to the library in the
+ * order of the file names once all the workers are done.
+ */
 public class OutputDirectoryScanner {
 
     private static final Logger LOG = LoggerFactory.getLogger(OutputDirectoryScanner.class);
+    /**
+     * The attribute of the movie element holding the key derived from the XML
+     * filename
+     */
+    public static final String KEY_ATTRIBUTE = "libraryKey";
+    /**
+     * The attribute of the movie element holding the hash of the filename
+     * scanner settings the key was derived with
+     */
+    public static final String KEY_HASH_ATTRIBUTE = "libraryKeyHash";
+    private static final String KEY_HASH = new BuildGraph.Inputs().addProperties("filename.").getHash();
+    private static final PrefixTrie INDEX_PREFIXES = new PrefixTrie();
+    private static final int THREADS = getThreads(PropertiesUtil.getIntProperty("mjb.outputScanner.threads", 0));
+    // Smaller listings are not worth to be split
+    private static final int MIN_PARTITION = 32;
+    private static final XMLInputFactory XML_FACTORY = XMLInputFactory.newInstance();
     private final String scanDir;
 
+    static {
+        for (String prefix : Library.getPrefixes()) {
+            INDEX_PREFIXES.add(prefix + "_");
+        }
+        XML_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    }
+
     public OutputDirectoryScanner(String scanDir) {
         this.scanDir = scanDir;
     }
 
     public void scan(Library library) {
-        /*
-         Map<String, Movie> xmlLibrary = new HashMap<String, Movie>();
-         scanXMLFiles(xmlLibrary);
-
-         // Because the XML can have additional info, the key is not stable between rns
-
-         protected void scanXMLFiles(Map<String, Movie> library) {
-         */
         LOG.debug("Scanning {}", scanDir);
         File scanDirFile = new FileTools.FileEx(scanDir);
-        if (scanDirFile.isDirectory()) {
-            MovieJukeboxXMLReader xmlReader = new MovieJukeboxXMLReader();
-
-            for (File file : scanDirFile.listFiles()) {
-
-                String filename = file.getName();
-
-                if (filename.length() > 4 && "xml".equalsIgnoreCase(FilenameUtils.getExtension(filename))) {
-                    FileTools.fileCache.fileAdd(file);
-                    String filenameUpper = filename.toUpperCase();
-                    boolean skip = "CATEGORIES.XML".equals(filenameUpper);
-                    if (!skip) {
-                        for (String prefix : Library.getPrefixes()) {
-                            if (filenameUpper.startsWith(prefix + "_")) {
-                                skip = true;
-                                break;
-                            }
-                        }
-                    }
+        File[] files = scanDirFile.isDirectory() ? scanDirFile.listFiles() : null;
+        if (files == null) {
+            LOG.debug("  Specified path is not a directory: {}", scanDir);
+            return;
+        }
+
+        List<File> xmlFiles = new ArrayList<>();
+        for (File file : files) {
+            String filename = file.getName();
+            if (filename.length() > 4 && "xml".equalsIgnoreCase(FilenameUtils.getExtension(filename))) {
+                xmlFiles.add(file);
+            } else {
+                LOG.debug("  Skipping file: {}", filename);
+            }
+        }
+        FileTools.fileCache.addFiles(xmlFiles.toArray(new File[xmlFiles.size()]));
+
+        // Stage the videos with the name of their XML file, so they are added in a stable order
+        ConcurrentSkipListMap<String, StagedMovie> staging = new ConcurrentSkipListMap<>();
+        int partitions = Math.min(THREADS, (xmlFiles.size() + MIN_PARTITION - 1) / MIN_PARTITION);
+        if (partitions <= 1) {
+            stage(xmlFiles, library, staging);
+        } else {
+            stageParallel(xmlFiles, partitions, library, staging);
+        }
+
+        // Merge the staged videos into the library
+        for (StagedMovie staged : staging.values()) {
+            Movie movie = staged.getMovie();
+            if (library.containsKey(staged.getKey())) {
+                LOG.debug("  Video already in library: {}", staged.getKey());
+            } else if (!library.containsKey(Library.getMovieKey(movie))) {
+                LOG.debug("  Adding unscanned video {}", Library.getMovieKey(movie));
+                library.addMovie(staged.getKey(), movie);
+            }
+        }
+    }
+
+    private static void stageParallel(List<File> xmlFiles, int partitions, final Library library, final ConcurrentMap<String, StagedMovie> staging) {
+        ExecutorService pool = Executors.newFixedThreadPool(partitions, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "OutputScanner");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
 
-                    if (skip) {
-                        continue;
+        try {
+            List<Future<Void>> results = new ArrayList<>(partitions);
+            int size = (xmlFiles.size() + partitions - 1) / partitions;
+            for (int start = 0; start < xmlFiles.size(); start += size) {
+                final List<File> partition = xmlFiles.subList(start, Math.min(start + size, xmlFiles.size()));
+                results.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        stage(partition, library, staging);
+                        return null;
                     }
+                }));
+            }
+
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException ex) {
+                    LOG.error("Failed to scan the jukebox XML files: {}", ex.getCause() == null ? ex.getMessage() : ex.getCause().getMessage(), ex);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Read the video XML files which are not in the library yet.
+     *
+     * The library is only read here, it is not changed until all files are
+     * staged.
+     *
+     * @param xmlFiles
+     * @param library
+     * @param staging
+     */
+    private static void stage(List<File> xmlFiles, Library library, ConcurrentMap<String, StagedMovie> staging) {
+        MovieJukeboxXMLReader xmlReader = new MovieJukeboxXMLReader();
+
+        for (File file : xmlFiles) {
+            String filename = file.getName();
+            if (isIndexFile(filename.toUpperCase())) {
+                continue;
+            }
+
+            LOG.debug("  Found XML file: {}", filename);
+
+            /*
+             *  Because the XML can have more info available than the original filename did,
+             *  the usual key construction method is not stable across runs. So we have to find
+             *  what the key *would* have been, if all we knew about the movie was the filename.
+             *  The key is stored in the XML when it's written, so it's only derived for older files.
+             */
+            String key = readFileKey(file);
+            if (key == null) {
+                key = getFileKey(file);
+            }
+
+            if (library.containsKey(key)) {
+                LOG.debug("  Video already in library: {}", key);
+                continue;
+            }
 
-                    LOG.debug("  Found XML file: {}", filename);
-
-                    Movie movie = new Movie();
-                    /*
-                     *  Because the XML can have more info available than the original filename did,
-                     *  the usual key construction method is not stable across runs. So we have to find
-                     *  what the key *would* have been, if all we knew about the movie was the filename.
-                     */
-                    MovieFileNameDTO dto = MovieFilenameScanner.scan(file);
-                    movie.mergeFileNameDTO(dto);
-                    String key = Library.getMovieKey(movie);
-
-                    if (library.containsKey(key)) {
-                        LOG.debug("  Video already in library: {}", key);
-                    } else {
-                        if (xmlReader.parseMovieXML(file, movie) && StringTools.isValidString(movie.getBaseName())) {
-                            LOG.debug("  Parsed movie: {}", movie.getTitle());
-
-                            if (!library.containsKey(Library.getMovieKey(movie))) {
-                                LOG.debug("  Adding unscanned video {}", Library.getMovieKey(movie));
-                                movie.setFile(file);
-                                library.addMovie(key, movie);
-                            }
-
-                        } else {
-                            LOG.debug("  Invalid video XML file");
+            Movie movie = new Movie();
+            if (xmlReader.parseMovieXML(file, movie) && StringTools.isValidString(movie.getBaseName())) {
+                LOG.debug("  Parsed movie: {}", movie.getTitle());
+                movie.setFile(file);
+                staging.put(filename, new StagedMovie(key, movie));
+            } else {
+                LOG.debug("  Invalid video XML file");
+            }
+        }
+    }
+
+    /**
+     * Check if the file is an index or the categories file
+     *
+     * @param filenameUpper the filename in upper case
+     * @return
+     */
+    static boolean isIndexFile(String filenameUpper) {
+        return "CATEGORIES.XML".equals(filenameUpper) || INDEX_PREFIXES.matches(filenameUpper);
+    }
+
+    /**
+     * Get the key of the video as derived from the filename of the XML file
+     * only.
+     *
+     * The XML file does not need to exist yet, so the key can be derived when
+     * the file is written.
+     *
+     * @param xmlFile
+     * @return
+     */
+    public static String getFileKey(File xmlFile) {
+        Movie movie = new Movie();
+        MovieFileNameDTO dto = MovieFilenameScanner.scan(new XmlFile(xmlFile));
+        movie.mergeFileNameDTO(dto);
+        return Library.getMovieKey(movie);
+    }
+
+    /**
+     * Get the hash of the filename scanner settings the key is derived with
+     *
+     * @return
+     */
+    public static String getKeyHash() {
+        return KEY_HASH;
+    }
+
+    /**
+     * Read the key stored in the XML file.
+     *
+     * Only the start of the file is read.
+     *
+     * @param xmlFile
+     * @return the key or null if there is none or it was derived with other settings
+     */
+    static String readFileKey(File xmlFile) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(xmlFile))) {
+            XMLStreamReader reader = XML_FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == START_ELEMENT && "movie".equals(reader.getLocalName())) {
+                        String key = reader.getAttributeValue(null, KEY_ATTRIBUTE);
+                        if (key != null && KEY_HASH.equals(reader.getAttributeValue(null, KEY_HASH_ATTRIBUTE))) {
+                            return key;
                         }
+                        return null;
                     }
-                } else {
-                    LOG.debug("  Skipping file: {}", filename);
                 }
+            } finally {
+                reader.close();
             }
-        } else {
-            LOG.debug("  Specified path is not a directory: {}", scanDir);
+        } catch (IOException | XMLStreamException ex) {
+            LOG.trace("Failed to read the key from {}: {}", xmlFile.getName(), ex.getMessage());
+        }
+        return null;
+    }
+
+    private static int getThreads(int configured) {
+        if (configured > 0) {
+            return configured;
+        }
+        return Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * An XML file of the jukebox, which is always taken as existing file
+     */
+    private static final class XmlFile extends File {
+
+        private static final long serialVersionUID = 1L;
+
+        XmlFile(File xmlFile) {
+            super(xmlFile.getPath());
+        }
+
+        @Override
+        public boolean isFile() {
+            return true;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+    }
+
+    /**
+     * A video read from the jukebox waiting to be added to the library
+     */
+    private static final class StagedMovie {
+
+        private final String key;
+        private final Movie movie;
+
+        StagedMovie(String key, Movie movie) {
+            this.key = key;
+            this.movie = movie;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        Movie getMovie() {
+            return movie;
+        }
+    }
+
+    /**
+     * The prefixes of the index files, the filename is checked in a single
+     * pass instead of once per prefix
+     */
+    private static final class PrefixTrie {
+
+        private final Node root = new Node();
+
+        void add(String prefix) {
+            Node node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                Character c = prefix.charAt(i);
+                Node next = node.children.get(c);
+                if (next == null) {
+                    next = new Node();
+                    node.children.put(c, next);
+                }
+                node = next;
+            }
+            node.terminal = true;
+        }
+
+        boolean matches(String value) {
+            Node node = root;
+            for (int i = 0; i < value.length(); i++) {
+                node = node.children.get(value.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+                if (node.terminal) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static final class Node {
+
+            private final Map<Character, Node> children = new HashMap<>();
+            private boolean terminal = false;
         }
     }
 }
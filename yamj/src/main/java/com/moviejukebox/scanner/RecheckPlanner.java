@@ -0,0 +1,222 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner;
+
+import com.moviejukebox.model.Jukebox;
+import com.moviejukebox.model.Library;
+import com.moviejukebox.model.Movie;
+import com.moviejukebox.tools.FileTools;
+import com.moviejukebox.tools.PropertiesUtil;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.pojava.datetime.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Plans which videos are rechecked in a run.
+ *
+ * At the end of a run every video of the library is scored by the
+ * RecheckScanner and the plan is written to the jukebox, highest score first.
+ * The next run grants the recheck to the first mjb.recheck.Max videos of the
+ * plan, so the budget goes to the most incomplete videos and not to the ones
+ * which happen to be processed first. The budget left over by a shorter plan
+ * is granted to the other videos in processing order.
+ *
+ * Videos which are rechecked and are still incomplete lose priority for the
+ * following runs, so they don't use the whole budget run after run. Their
+ * failures are kept with a priority of 0 while they are not due for a recheck
+ * again, those entries are never planned.
+ */
+public final class RecheckPlanner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecheckPlanner.class);
+    private static final String FILENAME = "jukebox_recheck.txt";
+    private static final String SEPARATOR = "\t";
+    private static final int RECHECK_MAX = PropertiesUtil.getIntProperty("mjb.recheck.Max", 50);
+    // The score is halved for each failed recheck, up to this many times
+    private static final int MAX_BACKOFF = 3;
+    // The planned videos, null if there is no plan
+    private static volatile Set<String> planned = null;
+    private static final Map<String, Integer> FAILURES = new ConcurrentHashMap<>();
+    private static final Set<String> RECHECKED = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // The rechecks granted outside of the plan
+    private static final AtomicInteger UNPLANNED = new AtomicInteger(0);
+
+    static {
+        FileTools.addJukeboxFile(FILENAME);
+    }
+
+    private RecheckPlanner() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    /**
+     * Read the plan written by the last run
+     *
+     * @param jukebox
+     */
+    public static void readPlan(Jukebox jukebox) {
+        readPlan(new File(jukebox.getJukeboxRootLocationDetailsFile(), FILENAME));
+    }
+
+    static synchronized void readPlan(File planFile) {
+        FAILURES.clear();
+        RECHECKED.clear();
+        UNPLANNED.set(0);
+        planned = null;
+
+        if (!planFile.exists()) {
+            LOG.debug("No recheck plan found, the rechecks are done in processing order");
+            return;
+        }
+
+        Set<String> plan = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(planFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(SEPARATOR);
+                if (columns.length < 3) {
+                    continue;
+                }
+                if (plan.size() < RECHECK_MAX && Integer.parseInt(columns[1]) > 0) {
+                    plan.add(columns[0]);
+                }
+                FAILURES.put(columns[0], Integer.valueOf(columns[2]));
+            }
+        } catch (IOException | NumberFormatException ex) {
+            LOG.warn("Failed to read the recheck plan '{}': {}", planFile.getAbsolutePath(), ex.getMessage());
+            FAILURES.clear();
+            return;
+        }
+
+        LOG.debug("Recheck plan contains {} of {} videos needing a recheck", plan.size(), FAILURES.size());
+        planned = Collections.unmodifiableSet(plan);
+    }
+
+    /**
+     * Can the video be rechecked in this run
+     *
+     * @param movie
+     * @return
+     */
+    public static boolean isGranted(Movie movie) {
+        Set<String> plan = planned;
+        boolean granted;
+        if (plan != null && plan.contains(movie.getBaseName())) {
+            granted = true;
+        } else {
+            // The budget not used by the plan is granted in processing order
+            int budget = plan == null ? RECHECK_MAX : RECHECK_MAX - plan.size();
+            int count = UNPLANNED.incrementAndGet();
+            if (count == budget + 1) {
+                LOG.debug("Threshold of {} rechecked videos reached. No more will be checked until the next run.", RECHECK_MAX);
+            }
+            granted = count <= budget;
+        }
+
+        if (granted) {
+            RECHECKED.add(movie.getBaseName());
+        }
+        return granted;
+    }
+
+    /**
+     * Score the videos of the library and write the plan for the next run
+     *
+     * @param jukebox
+     * @param library
+     */
+    public static void writePlan(Jukebox jukebox, Library library) {
+        writePlan(new File(jukebox.getJukeboxRootLocationDetailsFile(), FILENAME), library.values());
+    }
+
+    static synchronized void writePlan(File planFile, Collection<Movie> movies) {
+        List<PlanEntry> entries = new ArrayList<>();
+        DateTime now = new DateTime();
+
+        for (Movie movie : movies) {
+            // The XML of a changed video has been written in this run
+            DateTime generationDate = movie.isDirty() ? now : movie.getMjbGenerationDate();
+            int score = RecheckScanner.getScore(movie, generationDate, null);
+            if (score == 0 && RecheckScanner.getMissingScore(movie, null) == 0) {
+                // Complete, the failures are forgotten
+                continue;
+            }
+
+            Integer failures = FAILURES.get(movie.getBaseName());
+            int count = failures == null ? 0 : failures;
+            if (RECHECKED.contains(movie.getBaseName())) {
+                // Rechecked, but still incomplete
+                count++;
+            }
+
+            if (score == 0) {
+                // Not due yet, e.g. within mjb.recheck.minDays of the recheck
+                if (count > 0) {
+                    entries.add(new PlanEntry(movie.getBaseName(), 0, count));
+                }
+            } else {
+                entries.add(new PlanEntry(movie.getBaseName(), Math.max(1, score >> Math.min(count, MAX_BACKOFF)), count));
+            }
+        }
+
+        Collections.sort(entries);
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(FileTools.createFileOutputStream(planFile), StandardCharsets.UTF_8))) {
+            for (PlanEntry entry : entries) {
+                writer.write(entry.baseName + SEPARATOR + entry.priority + SEPARATOR + entry.failures + "\n");
+            }
+            LOG.debug("Wrote recheck plan with {} videos", entries.size());
+        } catch (IOException ex) {
+            LOG.warn("Failed to write the recheck plan '{}': {}", planFile.getAbsolutePath(), ex.getMessage());
+        }
+    }
+
+    /**
+     * A video of the plan, ordered by priority and then name
+     */
+    private static final class PlanEntry implements Comparable<PlanEntry> {
+
+        private final String baseName;
+        private final int priority;
+        private final int failures;
+
+        PlanEntry(String baseName, int priority, int failures) {
+            this.baseName = baseName;
+            this.priority = priority;
+            this.failures = failures;
+        }
+
+        @Override
+        public int compareTo(PlanEntry other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return baseName.compareTo(other.baseName);
+        }
+    }
+}
@@ -29,8 +29,10 @@ import com.moviejukebox.scanner.artwork.ArtworkScanner;
 import com.moviejukebox.tools.GitRepositoryState;
 import com.moviejukebox.tools.PropertiesUtil;
 import static com.moviejukebox.tools.StringTools.isNotValidString;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import org.pojava.datetime.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,23 +40,27 @@ import org.slf4j.LoggerFactory;
  * This function will validate the current movie object and return true if the
  * movie needs to be re-scanned.
  *
+ * The videos which need a recheck are scored by the age of their XML and the
+ * missing information, the RecheckPlanner decides which of them are rechecked
+ * in this run.
+ *
  * @author Stuart
  */
 public final class RecheckScanner {
 
     private static final Logger LOG = LoggerFactory.getLogger(RecheckScanner.class);
     // Recheck variables
-    private static final int RECHECK_MAX = PropertiesUtil.getIntProperty("mjb.recheck.Max", 50);
     private static final boolean RECHECK_XML = PropertiesUtil.getBooleanProperty("mjb.recheck.XML", Boolean.TRUE);
     private static final boolean RECHECK_VERSION = PropertiesUtil.getBooleanProperty("mjb.recheck.Version", Boolean.TRUE);
     private static final int RECHECK_DAYS = PropertiesUtil.getIntProperty("mjb.recheck.Days", 30);
     private static final int RECHECK_MIN_DAYS = PropertiesUtil.getIntProperty("mjb.recheck.minDays", 7);
     private static final boolean RECHECK_UNKNOWN = PropertiesUtil.getBooleanProperty("mjb.recheck.Unknown", Boolean.TRUE);
     private static final boolean RECHECK_EPISODE_PLOTS = PropertiesUtil.getBooleanProperty("mjb.includeEpisodePlots", Boolean.FALSE);
-    // How many rechecks have been performed
-    private static int recheckCount = 0;
     private static final String ERROR_IS_MISSING = "{} is missing {}, will rescan";
-    private static final String ERROR_TV_MISSING = "{} - Part {} XML is missing {}, will rescan";
+    private static final long MILLIS_PER_DAY = 1000L * 60 * 60 * 24;
+    // Score weights
+    private static final int MAX_STALE_SCORE = 4;
+    private static final int MAX_EPISODE_SCORE = 10;
 
     // Property values
     private static final boolean FANART_MOVIE_DOWNLOAD = PropertiesUtil.getBooleanProperty("fanart.movie.download", Boolean.FALSE);
@@ -79,116 +85,150 @@ public final class RecheckScanner {
 
         LOG.debug("Checking {}", movie.getBaseName());
 
-        // Always perform these checks, regardless of the recheckCount
+        // Always perform these checks, regardless of the recheck plan
         if (recheckAlways(movie)) {
             return true;
         }
 
-        if (recheckCount >= RECHECK_MAX) {
-            // We are over the recheck maximum, so we won't recheck again this run
+        List<String> reasons = new ArrayList<>();
+        int score = getScore(movie, movie.getMjbGenerationDate(), reasons);
+        if (score == 0) {
             return false;
-        } else if (recheckCount == RECHECK_MAX) {
-            LOG.debug("Threshold of {} rechecked videos reached. No more will be checked until the next run.", RECHECK_MAX);
-            recheckCount++; // By incrementing this variable we will only display this message once.
+        }
+
+        if (!RecheckPlanner.isGranted(movie)) {
+            LOG.debug("{} needs a recheck for {}, but is not planned for this run", movie.getBaseName(), reasons);
             return false;
         }
 
-        Date currentDate = new Date();
-        long dateDiff = (currentDate.getTime() - movie.getMjbGenerationDate().toDate().getTime()) / (1000 * 60 * 60 * 24);
+        LOG.debug("{} needs a recheck for {} (score {}), will rescan", movie.getBaseName(), reasons, score);
+        if (RECHECK_UNKNOWN && movie.isTVShow()) {
+            for (MovieFile mf : movie.getMovieFiles()) {
+                if (isIncomplete(mf)) {
+                    mf.setNewFile(true); // This forces the episodes to be rechecked
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Score how much the video needs a recheck.
+     *
+     * The score grows with the age of the XML and the missing information,
+     * a video with a score of 0 doesn't need a recheck.
+     *
+     * @param movie
+     * @param generationDate the date the XML of the video was written
+     * @param reasons the reasons for the recheck are added to this list, may be
+     * null
+     * @return
+     */
+    public static int getScore(Movie movie, DateTime generationDate, List<String> reasons) {
+        if (!RECHECK_XML || movie.isExtra()) {
+            return 0;
+        }
+
+        long dateDiff = (System.currentTimeMillis() - generationDate.toDate().getTime()) / MILLIS_PER_DAY;
 
         // Check the date the XML file was last written to and skip if it's less than minDays
         if ((RECHECK_MIN_DAYS > 0) && (dateDiff <= RECHECK_MIN_DAYS)) {
-            LOG.debug("{} - XML is {} days old, less than recheckMinDays ({}), not checking.", movie.getBaseName(), dateDiff, RECHECK_MIN_DAYS);
-            return false;
+            return 0;
         }
 
+        int score = 0;
+
         // Check the date the XML file was written vs the current date
         if ((RECHECK_DAYS > 0) && (dateDiff > RECHECK_DAYS)) {
-            LOG.debug("{} XML is {} days old, will rescan", movie.getBaseName(), dateDiff);
-            recheckCount++;
-            return true;
+            score += add(reasons, "age of " + dateDiff + " days", (int) Math.min(dateDiff / RECHECK_DAYS, MAX_STALE_SCORE));
         }
 
+        return score + getMissingScore(movie, reasons);
+    }
+
+    /**
+     * Score the information missing from the video, regardless of the age of
+     * the XML
+     *
+     * @param movie
+     * @param reasons the missing information is added to this list, may be null
+     * @return 0 if nothing is missing
+     */
+    static int getMissingScore(Movie movie, List<String> reasons) {
+        int score = 0;
+
         // Check for "UNKNOWN" values in the XML
         if (RECHECK_UNKNOWN) {
             if (isNotValidString(movie.getTitle()) && isNotValidString(movie.getYear())) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "the title");
-                recheckCount++;
-                return true;
+                score += add(reasons, "title", 5);
             }
 
             if (isNotValidString(movie.getPlot())) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "plot");
-                recheckCount++;
-                return true;
+                score += add(reasons, "plot", 2);
             }
 
             if (isNotValidString(movie.getYear())) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "year");
-                recheckCount++;
-                return true;
+                score += add(reasons, "year", 2);
             }
 
             if (movie.getGenres().isEmpty()) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "genres");
-                recheckCount++;
-                return true;
+                score += add(reasons, "genres", 2);
             }
 
             if (isNotValidString(movie.getPosterURL())) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "poster");
-                recheckCount++;
-                return true;
+                score += add(reasons, "poster", 3);
             }
 
             if (isNotValidString(movie.getFanartURL()) && ((FANART_MOVIE_DOWNLOAD && !movie.isTVShow()) || (FANART_TV_DOWNLOAD && movie.isTVShow()))) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "fanart");
-                recheckCount++;
-                return true;
+                score += add(reasons, "fanart", 1);
             }
 
             // Check the FanartTV URLs
-            if (fanartTvCheck(movie)) {
-                return true;
-            }
+            score += fanartTvScore(movie, reasons);
 
             // Only get ratings if the rating list is null or empty - We assume it's OK to have a -1 rating if there are entries in the array
             if (movie.getRatings() == null || movie.getRatings().isEmpty()) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "rating");
-                recheckCount++;
-                return true;
+                score += add(reasons, "rating", 1);
             }
 
             if (movie.isTVShow()) {
                 if (BANNER_DOWNLOAD && isNotValidString(movie.getBannerURL())) {
-                    LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "banner artwork");
-                    recheckCount++;
-                    return true;
+                    score += add(reasons, "banner artwork", 1);
                 }
 
                 if (isNotValidString(movie.getShowStatus())) {
-                    LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "show status");
-                    recheckCount++;
-                    return true;
+                    score += add(reasons, "show status", 1);
                 }
 
                 if (isNotValidString(movie.getReleaseDate())) {
-                    LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "show release date");
-                    recheckCount++;
-                    return true;
+                    score += add(reasons, "show release date", 1);
                 }
 
                 // Check the TV Episodes
-                if (tvEpisodesCheck(movie)) {
-                    return true;
+                int episodes = 0;
+                for (MovieFile mf : movie.getMovieFiles()) {
+                    if (isIncomplete(mf)) {
+                        episodes++;
+                    }
+                }
+                if (episodes > 0) {
+                    score += add(reasons, episodes + " episodes", Math.min(episodes, MAX_EPISODE_SCORE));
                 }
             } // isTVShow
         }
-        return false;
+        return score;
+    }
+
+    private static int add(List<String> reasons, String reason, int score) {
+        if (reasons != null) {
+            reasons.add(reason);
+        }
+        return score;
     }
 
     /**
-     * Always perform these checks regardless of recheck count.
+     * Always perform these checks regardless of the recheck plan.
      *
      * @param movie
      * @return
@@ -211,107 +251,71 @@ public final class RecheckScanner {
      * FANART.TV checking
      *
      * @param movie
+     * @param reasons
      * @return
      */
-    private static boolean fanartTvCheck(Movie movie) {
+    private static int fanartTvScore(Movie movie, List<String> reasons) {
+        int score = 0;
         if (movie.isTVShow()) {
             if (isNotValidString(movie.getClearArtURL()) && ARTWORK_REQUIRED.contains(ArtworkType.CLEARART)) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "ClearArt");
-                recheckCount++;
-                return true;
+                score += add(reasons, "ClearArt", 1);
             }
 
             if (isNotValidString(movie.getClearLogoURL()) && ARTWORK_REQUIRED.contains(ArtworkType.CLEARLOGO)) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "ClearLogo");
-                recheckCount++;
-                return true;
+                score += add(reasons, "ClearLogo", 1);
             }
 
             if (isNotValidString(movie.getSeasonThumbURL()) && ARTWORK_REQUIRED.contains(ArtworkType.SEASONTHUMB)) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "SeasonThumb");
-                recheckCount++;
-                return true;
+                score += add(reasons, "SeasonThumb", 1);
             }
 
             if (isNotValidString(movie.getTvThumbURL()) && ARTWORK_REQUIRED.contains(ArtworkType.TVTHUMB)) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "TvThumb");
-                recheckCount++;
-                return true;
+                score += add(reasons, "TvThumb", 1);
             }
         } else {
             if (isNotValidString(movie.getClearArtURL()) && ARTWORK_REQUIRED.contains(ArtworkType.MOVIEART)) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "MovieArt");
-                recheckCount++;
-                return true;
+                score += add(reasons, "MovieArt", 1);
             }
 
             if (isNotValidString(movie.getClearLogoURL()) && ARTWORK_REQUIRED.contains(ArtworkType.MOVIELOGO)) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "MovieLogo");
-                recheckCount++;
-                return true;
+                score += add(reasons, "MovieLogo", 1);
             }
 
             if (isNotValidString(movie.getMovieDiscURL()) && ARTWORK_REQUIRED.contains(ArtworkType.MOVIEDISC)) {
-                LOG.debug(ERROR_IS_MISSING, movie.getBaseName(), "MovieDisc");
-                recheckCount++;
-                return true;
+                score += add(reasons, "MovieDisc", 1);
             }
         }
-        return false;
+        return score;
     }
 
     /**
-     * Scan the TV episodes
+     * Is the information of the TV episodes incomplete
      *
-     * @param movie
+     * @param mf
      * @return
      */
-    private static boolean tvEpisodesCheck(Movie movie) {
-        for (MovieFile mf : movie.getMovieFiles()) {
-            if (isNotValidString(mf.getTitle())) {
-                LOG.debug(ERROR_TV_MISSING, movie.getBaseName(), mf.getFirstPart(), "Title");
-                mf.setNewFile(true); // This forces the episodes to be rechecked
-                recheckCount++;
+    private static boolean isIncomplete(MovieFile mf) {
+        if (isNotValidString(mf.getTitle())) {
+            return true;
+        }
+
+        for (int part = mf.getFirstPart(); part <= mf.getLastPart(); part++) {
+            if (RECHECK_EPISODE_PLOTS && isNotValidString(mf.getPlot(part))) {
                 return true;
             }
 
-            if (RECHECK_EPISODE_PLOTS || VIDEOIMAGE_DOWNLOAD) {
-                for (int part = mf.getFirstPart(); part <= mf.getLastPart(); part++) {
-                    if (RECHECK_EPISODE_PLOTS && isNotValidString(mf.getPlot(part))) {
-                        LOG.debug(ERROR_TV_MISSING, movie.getBaseName(), mf.getFirstPart(), "TV plot");
-                        mf.setNewFile(true); // This forces the episodes to be rechecked
-                        recheckCount++;
-                        return true;
-                    } // plots
-
-                    if (VIDEOIMAGE_DOWNLOAD && isNotValidString(mf.getVideoImageURL(part))) {
-                        LOG.debug(ERROR_TV_MISSING, movie.getBaseName(), mf.getFirstPart(), "TV video image");
-                        mf.setNewFile(true); // This forces the episodes to be rechecked
-                        recheckCount++;
-                        return true;
-                    } // videoimages
-                } // moviefile parts loop
-            } // if
-
-            for (int part = mf.getFirstPart(); part <= mf.getLastPart(); part++) {
-                if (isNotValidString(mf.getFirstAired(part))) {
-                    LOG.debug(ERROR_TV_MISSING, movie.getBaseName(), mf.getFirstPart(), "TV first aired date");
-                    mf.setNewFile(true); // This forces the episodes to be rechecked
-                    recheckCount++;
-                    return true;
-                }
+            if (VIDEOIMAGE_DOWNLOAD && isNotValidString(mf.getVideoImageURL(part))) {
+                return true;
             }
 
-            for (int part = mf.getFirstPart(); part <= mf.getLastPart(); part++) {
-                if (INCLUDE_EPISODE_RATING && isNotValidString(mf.getRating(part))) {
-                    LOG.debug(ERROR_TV_MISSING, movie.getBaseName(), mf.getFirstPart(), "TV rating");
-                    mf.setNewFile(true); // This forces the episodes to be rechecked
-                    recheckCount++;
-                    return true;
-                }
+            if (isNotValidString(mf.getFirstAired(part))) {
+                return true;
             }
-        } // moviefiles loop
 
+            if (INCLUDE_EPISODE_RATING && isNotValidString(mf.getRating(part))) {
+                return true;
+            }
+        }
         return false;
     }
 }
@@ -0,0 +1,303 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner;
+
+import com.moviejukebox.tools.PropertiesUtil;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * Immutable list of the side car files of one directory.
+ *
+ * The manifest is built by the MovieDirectoryScanner from the single listing
+ * of the directory. The files are grouped by their normalised base name (lower
+ * case, without the extension and artwork token) and classified, so that the NFO, subtitle,
+ * artwork and watched lookups do not need to access the file system again.
+ */
+public final class SidecarManifest {
+
+    /**
+     * The kind of side car file
+     */
+    public enum SidecarType {
+
+        NFO,
+        SUBTITLE,
+        POSTER,
+        FANART,
+        BANNER,
+        TRAILER,
+        WATCHED
+    }
+
+    private static final Map<String, SidecarManifest> MANIFESTS = new ConcurrentHashMap<>();
+    private static final Set<String> NFO_EXTENSIONS = toLowerSet(PropertiesUtil.getProperty("filename.nfo.extensions", "NFO"), ",");
+    private static final Set<String> SUBTITLE_EXTENSIONS = toLowerSet(PropertiesUtil.getProperty("filename.scanner.subtitle", "SRT,SUB,SSA,SMI,PGS"), ",");
+    private static final Set<String> IMAGE_EXTENSIONS = toLowerSet(PropertiesUtil.getProperty("poster.scanner.coverArtExtensions", "jpg,png,gif"), ",;| ");
+    private static final Set<String> WATCHED_EXTENSIONS = toLowerSet("watched,unwatched," + PropertiesUtil.getProperty("mjb.watchedExtensions", "watched"), ",;|");
+    private static final String FANART_TOKEN = PropertiesUtil.getProperty("mjb.scanner.fanartToken", ".fanart").toLowerCase();
+    private static final String BANNER_TOKEN = PropertiesUtil.getProperty("mjb.scanner.bannerToken", ".banner").toLowerCase();
+    private static final String TRAILER_TOKEN = "[trailer";
+    private final File directory;
+    private final Map<String, File> byName;
+    private final Map<String, List<File>> byBaseName;
+    private final Map<SidecarType, List<File>> byType;
+
+    private SidecarManifest(File directory, File[] files) {
+        this.directory = directory;
+
+        Map<String, File> names = new HashMap<>();
+        Map<String, List<File>> baseNames = new HashMap<>();
+        Map<SidecarType, List<File>> types = new EnumMap<>(SidecarType.class);
+
+        for (File file : files) {
+            String name = file.getName().toLowerCase();
+            names.put(name, file);
+
+            SidecarType type = classify(name);
+            if (type == null || file.isDirectory()) {
+                continue;
+            }
+
+            String baseName = FilenameUtils.removeExtension(name);
+            if (type == SidecarType.FANART) {
+                baseName = baseName.substring(0, baseName.length() - FANART_TOKEN.length());
+            } else if (type == SidecarType.BANNER) {
+                baseName = baseName.substring(0, baseName.length() - BANNER_TOKEN.length());
+            }
+
+            List<File> group = baseNames.get(baseName);
+            if (group == null) {
+                group = new ArrayList<>(2);
+                baseNames.put(baseName, group);
+            }
+            group.add(file);
+
+            List<File> typed = types.get(type);
+            if (typed == null) {
+                typed = new ArrayList<>();
+                types.put(type, typed);
+            }
+            typed.add(file);
+        }
+
+        this.byName = Collections.unmodifiableMap(names);
+        this.byBaseName = Collections.unmodifiableMap(baseNames);
+        this.byType = Collections.unmodifiableMap(types);
+    }
+
+    /**
+     * Build the manifest of the directory from its listing and register it
+     *
+     * @param directory
+     * @param files the content of the directory
+     * @return
+     */
+    public static SidecarManifest register(File directory, File[] files) {
+        SidecarManifest manifest = new SidecarManifest(directory, files);
+        MANIFESTS.put(directory.getAbsolutePath(), manifest);
+        return manifest;
+    }
+
+    /**
+     * Get the manifest of a scanned directory
+     *
+     * @param directory
+     * @return the manifest or null if the directory has not been scanned
+     */
+    public static SidecarManifest get(File directory) {
+        if (directory == null) {
+            return null;
+        }
+        return MANIFESTS.get(directory.getAbsolutePath());
+    }
+
+    /**
+     * Get the manifest of the directory, listing and registering it if it
+     * has not been scanned
+     *
+     * @param directory
+     * @return the manifest or null if the directory can not be listed
+     */
+    public static SidecarManifest forDirectory(File directory) {
+        SidecarManifest manifest = get(directory);
+        if (manifest == null && directory != null && directory.isDirectory()) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                manifest = register(directory, files);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Remove all the registered manifests
+     */
+    public static void clear() {
+        MANIFESTS.clear();
+    }
+
+    /**
+     * Determine the side car type from the file name
+     *
+     * @param filename
+     * @return the type or null if the file is no side car file
+     */
+    public static SidecarType classify(String filename) {
+        String name = filename.toLowerCase();
+        String extension = FilenameUtils.getExtension(name);
+
+        if (NFO_EXTENSIONS.contains(extension)) {
+            return SidecarType.NFO;
+        }
+        if (SUBTITLE_EXTENSIONS.contains(extension)) {
+            return SidecarType.SUBTITLE;
+        }
+        if (WATCHED_EXTENSIONS.contains(extension)) {
+            return SidecarType.WATCHED;
+        }
+        if (name.contains(TRAILER_TOKEN)) {
+            return SidecarType.TRAILER;
+        }
+        if (IMAGE_EXTENSIONS.contains(extension)) {
+            String baseName = FilenameUtils.removeExtension(name);
+            if (!FANART_TOKEN.isEmpty() && baseName.endsWith(FANART_TOKEN)) {
+                return SidecarType.FANART;
+            }
+            if (!BANNER_TOKEN.isEmpty() && baseName.endsWith(BANNER_TOKEN)) {
+                return SidecarType.BANNER;
+            }
+            return SidecarType.POSTER;
+        }
+        return null;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Check if the directory contains a file with this name (case insensitive)
+     *
+     * @param filename
+     * @return
+     */
+    public boolean contains(String filename) {
+        return byName.containsKey(filename.toLowerCase());
+    }
+
+    /**
+     * Find the first file with the base name and one of the extensions
+     *
+     * @param baseName the file name without extension
+     * @param extensions
+     * @return the file or null if not found
+     */
+    public File find(String baseName, Collection<String> extensions) {
+        String lowerName = baseName.toLowerCase();
+        for (String extension : extensions) {
+            File file = byName.get(lowerName + "." + extension.toLowerCase());
+            if (file != null) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the first side car file of the type with the base name
+     *
+     * @param baseName the file name without extension
+     * @param type
+     * @return the file or null if not found
+     */
+    public File find(String baseName, SidecarType type) {
+        for (File file : getSidecars(baseName)) {
+            if (classify(file.getName()) == type) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get all the side car files with the base name
+     *
+     * @param baseName the file name without extension
+     * @return
+     */
+    public List<File> getSidecars(String baseName) {
+        List<File> files = byBaseName.get(baseName.toLowerCase());
+        return files == null ? Collections.<File>emptyList() : Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Get all the side car files of the type
+     *
+     * @param type
+     * @return
+     */
+    public List<File> getFiles(SidecarType type) {
+        List<File> files = byType.get(type);
+        return files == null ? Collections.<File>emptyList() : Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Get the side car files of the type which contain the text in their name
+     * (case insensitive)
+     *
+     * @param type
+     * @param text
+     * @return
+     */
+    public List<File> getFiles(SidecarType type, String text) {
+        String lowerText = text.toLowerCase();
+        List<File> result = new ArrayList<>();
+        for (File file : getFiles(type)) {
+            if (file.getName().toLowerCase().contains(lowerText)) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> toLowerSet(String values, String separators) {
+        Set<String> result = new HashSet<>();
+        for (String value : values.toLowerCase().split("[" + separators + "]")) {
+            if (!value.trim().isEmpty()) {
+                result.add(value.trim());
+            }
+        }
+        return result;
+    }
+}
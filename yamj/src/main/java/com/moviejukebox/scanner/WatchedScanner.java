@@ -35,15 +35,19 @@ import com.moviejukebox.plugin.*;
 import com.moviejukebox.tools.FileTools;
 import com.moviejukebox.tools.PropertiesUtil;
 import com.moviejukebox.tools.TraktTV;
+import com.moviejukebox.tools.TraktWatchedIndex;
+import com.moviejukebox.tools.TraktWatchedIndex.IdType;
+import com.moviejukebox.tools.TraktWatchedIndex.WatchedEntry;
 import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.yamj.api.trakttv.model.*;
 
 public class WatchedScanner {
 
@@ -60,6 +64,36 @@ public class WatchedScanner {
         throw new UnsupportedOperationException("Watched Scanner cannot be initialised");
     }
 
+    /**
+     * Find the watched file for the video file.
+     *
+     * Watched files stored with the video are looked up in the side car
+     * manifest of the scanned directory, everything else is searched in the
+     * file cache.
+     *
+     * @param jukebox
+     * @param videoFile
+     * @param filename
+     * @return the watched file or null if not found
+     */
+    private static File findWatchedFile(Jukebox jukebox, File videoFile, String filename) {
+        if (LOCATION == WatchedWithLocation.WITHVIDEO) {
+            SidecarManifest manifest = SidecarManifest.get(videoFile.getParentFile());
+            if (manifest != null && videoFile.getName().startsWith(filename)) {
+                File watchedFile = manifest.find(filename, EXTENSIONS);
+                if (watchedFile == null) {
+                    watchedFile = manifest.find(FileTools.makeSafeFilename(filename), EXTENSIONS);
+                }
+                return watchedFile;
+            }
+        }
+
+        if (LOCATION == WatchedWithLocation.WITHJUKEBOX) {
+            return FileTools.findFilenameInCache(filename, EXTENSIONS, jukebox, Boolean.TRUE);
+        }
+        return FileTools.findFilenameInCache(filename, EXTENSIONS, jukebox, Boolean.FALSE);
+    }
+
     /**
      * Calculate the watched state of a movie based on the files
      * {filename}.watched & {filename}.unwatched
@@ -79,8 +113,8 @@ public class WatchedScanner {
             warned = Boolean.TRUE;
         }
 
-        TrackedShow trackedShow = null;
-        TrackedMovie trackedMovie = null;
+        WatchedEntry trackedShow = null;
+        WatchedEntry trackedMovie = null;
         boolean watchTraktTV = WATCH_TRAKTTV; 
         if (watchTraktTV) {
             if (movie.isTVShow()) {
@@ -139,22 +173,14 @@ public class WatchedScanner {
                     }
     
                     if (WITH_EXTENSION == WatchedWithExtension.EXTENSION || WITH_EXTENSION == WatchedWithExtension.BOTH || movie.isBluray()) {
-                        if (LOCATION == WatchedWithLocation.WITHJUKEBOX) {
-                            foundFile = FileTools.findFilenameInCache(filename, EXTENSIONS, jukebox, Boolean.TRUE);
-                        } else {
-                            foundFile = FileTools.findFilenameInCache(filename, EXTENSIONS, jukebox, Boolean.FALSE);
-                        }
+                        foundFile = findWatchedFile(jukebox, mf.getFile(), filename);
                     }
     
                     if (foundFile == null && (WITH_EXTENSION == WatchedWithExtension.NOEXTENSION || WITH_EXTENSION == WatchedWithExtension.BOTH) && !movie.isBluray()) {
                         // Remove the extension from the filename
                         filename = FilenameUtils.removeExtension(filename);
                         // Check again without the extension
-                        if (LOCATION == WatchedWithLocation.WITHJUKEBOX) {
-                            foundFile = FileTools.findFilenameInCache(filename, EXTENSIONS, jukebox, Boolean.TRUE);
-                        } else {
-                            foundFile = FileTools.findFilenameInCache(filename, EXTENSIONS, jukebox, Boolean.FALSE);
-                        }
+                        foundFile = findWatchedFile(jukebox, mf.getFile(), filename);
                     }
     
                     if (foundFile != null) {
@@ -226,111 +252,43 @@ public class WatchedScanner {
         return returnStatus;
     }
 
-    private static boolean isMatchingMovie(TrackedMovie tracked, Movie movie) {
-        final Ids ids = tracked.getMovie().getIds();
-        final String traktId = StringUtils.trimToNull(movie.getId(TraktTV.SCANNER_ID));
-        final String tmdbId = StringUtils.trimToNull(movie.getId(TheMovieDbPlugin.TMDB_PLUGIN_ID));
-        final String imdbId = StringUtils.trimToNull(movie.getId(ImdbPlugin.IMDB_PLUGIN_ID));
-
-        if (ids.trakt() != null && StringUtils.equals(traktId, ids.trakt().toString())) {
-            return true;
-        }
-        if (ids.slug() != null && StringUtils.equalsIgnoreCase(traktId, ids.slug())) {
-            setTraktId(ids, traktId, movie);
-            return true;
-        }
-        if (ids.tmdb() != null && StringUtils.equals(tmdbId, ids.tmdb().toString())) {
-            setTraktId(ids, traktId, movie);
-            return true;
-        }
-        if (ids.imdb() != null && StringUtils.equalsIgnoreCase(imdbId, ids.imdb())) {
-            setTraktId(ids, traktId, movie);
-            return true;
-        }
-        return false;
-    }
-
-    private static boolean isMatchingShow(TrackedShow tracked, Movie movie) {
-        final Ids ids = tracked.getShow().getIds();
-        final String traktId = StringUtils.trimToNull(movie.getId(TraktTV.SCANNER_ID));
-        final String tvdbId = StringUtils.trimToNull(movie.getId(TheTvDBPlugin.THETVDB_PLUGIN_ID));
-        final String tvRageId = StringUtils.trimToNull(movie.getId(TVRagePlugin.TVRAGE_PLUGIN_ID));
-        final String tmdbId = StringUtils.trimToNull(movie.getId(TheMovieDbPlugin.TMDB_PLUGIN_ID));
-        final String imdbId = StringUtils.trimToNull(movie.getId(ImdbPlugin.IMDB_PLUGIN_ID));
-        
-        if (ids.trakt() != null && StringUtils.equals(traktId, ids.trakt().toString())) {
-            return true;
-        }
-        if (ids.slug() != null && StringUtils.equalsIgnoreCase(traktId, ids.slug())) {
-            setTraktId(ids, traktId, movie);
-            return true;
-        }
-        if (ids.tvdb() != null && StringUtils.equals(tvdbId, ids.tvdb().toString())) {
-            setTraktId(ids, traktId, movie);
-            return true;
-        }
-        if (ids.tvRage() != null && StringUtils.equalsIgnoreCase(tvRageId, ids.tvRage())) {
-            setTraktId(ids, traktId, movie);
-            return true;
-        }
-        if (ids.tmdb() != null && StringUtils.equals(tmdbId, ids.tmdb().toString())) {
-            setTraktId(ids, traktId, movie);
-            return true;
-        }
-        if (ids.imdb() != null && StringUtils.equalsIgnoreCase(imdbId, ids.imdb())) {
-            setTraktId(ids, traktId, movie);
-            return true;
-        }
-        return false;
-    }
-
-    private static void setTraktId(Ids ids, String presentTraktId, Movie movie) {
-        if (presentTraktId == null && ids.trakt() != null) {
-            movie.setId(TraktTV.SCANNER_ID, ids.trakt().toString());
-        }
+    private static WatchedEntry getMatchingMovie(Movie movie) {
+        Map<IdType, String> ids = new EnumMap<>(IdType.class);
+        ids.put(IdType.TRAKT, movie.getId(TraktTV.SCANNER_ID));
+        ids.put(IdType.TMDB, movie.getId(TheMovieDbPlugin.TMDB_PLUGIN_ID));
+        ids.put(IdType.IMDB, movie.getId(ImdbPlugin.IMDB_PLUGIN_ID));
+        return getMatching(TRAKT_TV_SCANNER.getWatchedMovies(), ids, movie);
     }
 
-    private static TrackedMovie getMatchingMovie(Movie movie) {
-        for (TrackedMovie tracked : TRAKT_TV_SCANNER.getWatchedMovies()) {
-            if (isMatchingMovie(tracked, movie)) {
-                return tracked;
-            }
-        }
-        return null;
+    private static WatchedEntry getMatchingShow(Movie movie) {
+        Map<IdType, String> ids = new EnumMap<>(IdType.class);
+        ids.put(IdType.TRAKT, movie.getId(TraktTV.SCANNER_ID));
+        ids.put(IdType.TVDB, movie.getId(TheTvDBPlugin.THETVDB_PLUGIN_ID));
+        ids.put(IdType.TVRAGE, movie.getId(TVRagePlugin.TVRAGE_PLUGIN_ID));
+        ids.put(IdType.TMDB, movie.getId(TheMovieDbPlugin.TMDB_PLUGIN_ID));
+        ids.put(IdType.IMDB, movie.getId(ImdbPlugin.IMDB_PLUGIN_ID));
+        return getMatching(TRAKT_TV_SCANNER.getWatchedShows(), ids, movie);
     }
 
-    private static TrackedShow getMatchingShow(Movie movie) {
-        for (TrackedShow tracked : TRAKT_TV_SCANNER.getWatchedShows()) {
-            if (isMatchingShow(tracked, movie)) {
-                return tracked;
-            }
+    private static WatchedEntry getMatching(TraktWatchedIndex index, Map<IdType, String> ids, Movie movie) {
+        WatchedEntry tracked = index.find(ids);
+        if (tracked != null && tracked.getTraktId() != null && StringUtils.isBlank(ids.get(IdType.TRAKT))) {
+            movie.setId(TraktTV.SCANNER_ID, tracked.getTraktId());
         }
-        return null;
+        return tracked;
     }
 
-    private static TrackedSeason getMatchingSeason(TrackedShow show, MovieFile movieFile) {
-        if (show != null) {
-            for (TrackedSeason season : show.getSeasons()) {
-                if (season.getNumber() != null && season.getNumber().intValue() == movieFile.getSeason()) {
-                    return season;
-                }
-            }
-        }
-        return null;
-    }
-
-    private static long watchedDate(TrackedMovie tracked, Movie movie) {
+    private static long watchedDate(WatchedEntry tracked, Movie movie) {
         if (tracked == null) {
             // not watched if not found
             return 0;
         }
         LOG.debug("TraktTV watched movie: {} ({})", movie.getTitle(), movie.getYear());
-        return tracked.getLastWatchedAt().withMillisOfSecond(0).getMillis();
+        return tracked.getLastWatched();
     }
 
-    private static long watchedDate(TrackedShow show, Movie movie, MovieFile movieFile) {
-        TrackedSeason season = getMatchingSeason(show, movieFile);
-        if (season == null) {
+    private static long watchedDate(WatchedEntry show, Movie movie, MovieFile movieFile) {
+        if (show == null) {
             // not watched if not found
             return 0;
         }
@@ -338,24 +296,14 @@ public class WatchedScanner {
         // NOTE: all parts must be watched, so that the movie file can be set to watched
         long watchedDate = 0;
         for (int epNr = movieFile.getFirstPart(); epNr <= movieFile.getLastPart(); epNr++) {
-            watchedDate = Math.max(watchedDate, watchedDate(season, epNr));
-            if (watchedDate == 0) {
+            long episodeDate = TRAKT_TV_SCANNER.getWatchedShows().getWatchedDate(show, movieFile.getSeason(), epNr);
+            if (episodeDate == 0) {
                 // not all episodes in file are watched
                 return 0;
             }
+            watchedDate = Math.max(watchedDate, episodeDate);
             LOG.debug("TraktTV watched episode {} ({}) - S{} - E{}", movie.getTitle(), movie.getYear(), movieFile.getSeason(), epNr);
         }
         return watchedDate;
     }
-
-    private static long watchedDate(TrackedSeason season, int epNr) {
-        for (TrackedEpisode episode : season.getEpisodes()) {
-            if (episode.getNumber() != null && episode.getNumber().intValue() == epNr) {
-                return episode.getLastWatchedAt().withMillisOfSecond(0).getMillis();
-            }
-        }
-        
-        // not watched
-        return 0;
-    }
-}
\ No newline at end of file
+}
@@ -162,7 +162,7 @@ public final class PhotoScanner {
         } else if ((OVERWRITE || (!photoFile.exists() && !tmpDestFile.exists()))) {
             if (dummyFile.exists()) {
                 LOG.debug("Dummy image used for {}", person.getName());
-                FileTools.copyFile(dummyFile, tmpDestFile);
+                AssetSync.placeholder(dummyFile, tmpDestFile);
             } else {
                 person.clearPhotoFilename();
                 if (prevPhotoFilename.equals(Movie.UNKNOWN)) {
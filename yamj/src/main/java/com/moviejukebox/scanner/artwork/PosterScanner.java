@@ -32,6 +32,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Set;
@@ -95,6 +96,13 @@ public final class PosterScanner {
     private static final int POSTER_HEIGHT;
     private static final String TV_POSTER_SEARCH_PRIORITY;
     private static final String MOVIE_POSTER_SEARCH_PRIORITY;
+    private static final long POSTER_SEARCH_TIMEOUT = PropertiesUtil.getIntProperty("poster.scanner.timeout", 30) * 1000L;
+    private static final PosterSearch.Validator POSTER_VALIDATOR = new PosterSearch.Validator() {
+        @Override
+        public boolean isValid(IImage posterImage) {
+            return validatePoster(posterImage, POSTER_WIDTH, POSTER_HEIGHT, POSTER_VALIDATE_ASPECT);
+        }
+    };
 
     static {
         StringTokenizer st;
@@ -330,7 +338,9 @@ public final class PosterScanner {
             st = new StringTokenizer(MOVIE_POSTER_SEARCH_PRIORITY, ",");
         }
 
-        while (st.hasMoreTokens() && StringTools.isNotValidString(posterImage.getUrl())) {
+        // Collect the plugins in the order of the search priority
+        LinkedHashMap<String, IPosterPlugin> searchPlugins = new LinkedHashMap<>();
+        while (st.hasMoreTokens()) {
             posterSearchToken = st.nextToken();
 
             IPosterPlugin iPosterPlugin = PLUGINS.get(posterSearchToken);
@@ -352,22 +362,34 @@ public final class PosterScanner {
 
             if (iPosterPlugin == null) {
                 LOG.info("{} is not a {} Poster plugin - skipping", posterSearchToken, msg);
-            } else {
-                LOG.debug("Using {} to search for a {} poster for {}", posterSearchToken, msg, movie.getTitle());
-                posterImage = iPosterPlugin.getPosterUrl(movie, movie);
+            } else if (!searchPlugins.containsKey(posterSearchToken)) {
+                searchPlugins.put(posterSearchToken, iPosterPlugin);
             }
+        }
 
-            // Validate the poster- No need to validate if we're UNKNOWN
-            if (!Movie.UNKNOWN.equalsIgnoreCase(posterImage.getUrl()) && POSTER_VALIDATE && !validatePoster(posterImage, POSTER_WIDTH, POSTER_HEIGHT, POSTER_VALIDATE_ASPECT)) {
-                posterImage = Image.UNKNOWN;
-            } else {
-                if (!Movie.UNKNOWN.equalsIgnoreCase(posterImage.getUrl())) {
-                    LOG.debug("Poster URL found at {}: {}", posterSearchToken, posterImage.getUrl());
-                    // TODO: This is a hack, but seeing as only one poster scanner uses it, it should be safe until it's all refactored to use the Artwork class
-                    posterImage.setSubimage(posterSearchToken);
-                    movie.setDirty(DirtyFlag.POSTER, Boolean.TRUE);
+        // The plugins are searched ahead concurrently, but the results are used in the priority order
+        PosterSearch search = new PosterSearch(searchPlugins, movie, PosterSearch.WIDTH, POSTER_SEARCH_TIMEOUT, POSTER_VALIDATOR);
+        try {
+            while (search.hasNext() && StringTools.isNotValidString(posterImage.getUrl())) {
+                PosterSearch.Result result = search.next();
+                posterSearchToken = result.getName();
+                LOG.debug("Using {} to search for a {} poster for {}", posterSearchToken, movie.isTVShow() ? "TvShow" : "Movie", movie.getTitle());
+                posterImage = result.getPosterImage();
+
+                // Validate the poster- No need to validate if we're UNKNOWN
+                if (!Movie.UNKNOWN.equalsIgnoreCase(posterImage.getUrl()) && POSTER_VALIDATE && !result.isValid()) {
+                    posterImage = Image.UNKNOWN;
+                } else {
+                    if (!Movie.UNKNOWN.equalsIgnoreCase(posterImage.getUrl())) {
+                        LOG.debug("Poster URL found at {}: {}", posterSearchToken, posterImage.getUrl());
+                        // TODO: This is a hack, but seeing as only one poster scanner uses it, it should be safe until it's all refactored to use the Artwork class
+                        posterImage.setSubimage(posterSearchToken);
+                        movie.setDirty(DirtyFlag.POSTER, Boolean.TRUE);
+                    }
                 }
             }
+        } finally {
+            search.close();
         }
 
         return posterImage;
@@ -0,0 +1,386 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner.artwork;
+
+import com.moviejukebox.model.IImage;
+import com.moviejukebox.model.IMovieBasicInformation;
+import com.moviejukebox.model.Identifiable;
+import com.moviejukebox.model.Image;
+import com.moviejukebox.model.Movie;
+import com.moviejukebox.plugin.poster.IPosterPlugin;
+import com.moviejukebox.tools.PropertiesUtil;
+import com.moviejukebox.tools.ThreadExecutor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Search the poster plugins of the search priority list concurrently.
+ *
+ * Up to "width" plugins are searched ahead of the one that is needed next,
+ * but the results are handed out strictly in the order of the list. The ids a
+ * plugin sets on the video are held back until its result is handed out, so a
+ * plugin that is not reached in the list leaves no trace on the video. Closing
+ * the search cancels the plugins that are still running.
+ */
+final class PosterSearch {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PosterSearch.class);
+    /**
+     * The number of searches that run at the same time
+     */
+    static final int WIDTH = Math.max(1, PropertiesUtil.getIntProperty("poster.scanner.parallel", 3));
+    // the threads are not run by the ThreadExecutor, but take the host slots like its threads
+    private static final ExecutorService SEARCH_POOL = Executors.newFixedThreadPool(WIDTH, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return ThreadExecutor.newIoThread(runnable, "PosterSearch");
+        }
+    });
+    private final List<Map.Entry<String, IPosterPlugin>> plugins;
+    private final Identifiable ident;
+    private final Map<String, String> ids;
+    private final IMovieBasicInformation information;
+    private final int width;
+    private final long timeout;
+    private final Validator validator;
+    private final List<Future<Result>> searches = new ArrayList<>();
+    private final List<AtomicLong> started = new ArrayList<>();
+    private final List<SearchIdent> idents = new ArrayList<>();
+    private int current = 0;
+
+    /**
+     * Check a poster found by a plugin
+     */
+    interface Validator {
+
+        /**
+         * @param posterImage the poster, never UNKNOWN
+         * @return true if the poster can be used
+         */
+        boolean isValid(IImage posterImage);
+    }
+
+    /**
+     * The result of one plugin
+     */
+    static final class Result {
+
+        private final String name;
+        private final IImage posterImage;
+        private final boolean valid;
+
+        Result(String name, IImage posterImage, boolean valid) {
+            this.name = name;
+            this.posterImage = posterImage;
+            this.valid = valid;
+        }
+
+        /**
+         * @return the name of the plugin in the search priority list
+         */
+        String getName() {
+            return name;
+        }
+
+        IImage getPosterImage() {
+            return posterImage;
+        }
+
+        /**
+         * @return the result of the validation, false if the poster is UNKNOWN
+         */
+        boolean isValid() {
+            return valid;
+        }
+    }
+
+    /**
+     * Create the search
+     *
+     * @param plugins the plugins in the order of the search priority list
+     * @param movie the video to search the poster for
+     * @param width the number of plugins to search concurrently, 1 to search one after the other
+     * @param timeout the time in milliseconds a plugin may take, 0 for no limit
+     * @param validator
+     */
+    PosterSearch(LinkedHashMap<String, IPosterPlugin> plugins, Movie movie, int width, long timeout, Validator validator) {
+        this.plugins = new ArrayList<>(plugins.entrySet());
+        this.ident = movie;
+        this.ids = new HashMap<>(movie.getIdMap());
+        this.information = new Information(movie);
+        this.width = Math.max(1, width);
+        this.timeout = Math.max(0, timeout);
+        this.validator = validator;
+    }
+
+    boolean hasNext() {
+        return current < plugins.size();
+    }
+
+    /**
+     * Get the result of the next plugin in the list.
+     *
+     * The plugins up to "width" ahead are started, then this waits for the
+     * next plugin until it finishes or its time is up.
+     *
+     * @return the result, the poster is UNKNOWN if the plugin failed or timed out
+     */
+    Result next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        while (searches.size() < plugins.size() && searches.size() < current + width) {
+            start(searches.size());
+        }
+
+        int index = current++;
+        String name = plugins.get(index).getKey();
+        Future<Result> search = searches.get(index);
+        Result result;
+        try {
+            result = await(search, started.get(index));
+        } catch (TimeoutException ex) {
+            search.cancel(true);
+            LOG.debug("Poster search with {} timed out after {}ms", name, timeout);
+            return new Result(name, Image.UNKNOWN, false);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            close();
+            return new Result(name, Image.UNKNOWN, false);
+        } catch (ExecutionException ex) {
+            // the plugin failed just like it would have without the search
+            idents.get(index).apply(ident);
+            close();
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+
+        // the plugin is reached in the list, so its ids are kept now
+        idents.get(index).apply(ident);
+        return result;
+    }
+
+    /**
+     * Wait for a search, the time of the search only runs once it has a thread
+     */
+    private Result await(Future<Result> search, AtomicLong startedAt) throws InterruptedException, ExecutionException, TimeoutException {
+        if (timeout == 0) {
+            return search.get();
+        }
+
+        while (true) {
+            long start = startedAt.get();
+            long remaining = start == 0 ? timeout : start + timeout - System.currentTimeMillis();
+            try {
+                return search.get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                start = startedAt.get();
+                if (start > 0 && start + timeout <= System.currentTimeMillis()) {
+                    throw ex;
+                }
+                // still waiting behind the searches of other videos
+            }
+        }
+    }
+
+    /**
+     * Cancel the plugins that are still running
+     */
+    void close() {
+        for (int i = current; i < searches.size(); i++) {
+            searches.get(i).cancel(true);
+        }
+        current = plugins.size();
+    }
+
+    private void start(int index) {
+        final String name = plugins.get(index).getKey();
+        final IPosterPlugin plugin = plugins.get(index).getValue();
+        final SearchIdent searchIdent = new SearchIdent(ids);
+        final AtomicLong startedAt = new AtomicLong();
+
+        idents.add(searchIdent);
+        started.add(startedAt);
+        searches.add(SEARCH_POOL.submit(new Callable<Result>() {
+            @Override
+            public Result call() {
+                startedAt.set(System.currentTimeMillis());
+                IImage posterImage = plugin.getPosterUrl(searchIdent, information);
+                if (posterImage == null) {
+                    posterImage = Image.UNKNOWN;
+                }
+                if (Movie.UNKNOWN.equalsIgnoreCase(posterImage.getUrl())) {
+                    return new Result(name, posterImage, false);
+                }
+
+                // the validation downloads the poster
+                ThreadExecutor.enterIO(posterImage.getUrl());
+                try {
+                    return new Result(name, posterImage, validator.isValid(posterImage));
+                } finally {
+                    ThreadExecutor.leaveIO();
+                }
+            }
+        }));
+    }
+
+    /**
+     * The ids of the video as seen by one plugin.
+     *
+     * The ids are read from a copy taken when the search was created and the
+     * ids set by the plugin are kept apart until the plugin is reached.
+     */
+    private static final class SearchIdent implements Identifiable {
+
+        private final Map<String, String> ids;
+        private final Map<String, String> changed = new LinkedHashMap<>();
+
+        SearchIdent(Map<String, String> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public synchronized String getId(String key) {
+            String id = changed.get(key);
+            if (id == null) {
+                id = ids.get(key);
+            }
+            return id == null ? Movie.UNKNOWN : id;
+        }
+
+        @Override
+        public synchronized void setId(String key, String id) {
+            changed.put(key, id);
+        }
+
+        synchronized void apply(Identifiable target) {
+            for (Map.Entry<String, String> entry : changed.entrySet()) {
+                target.setId(entry.getKey(), entry.getValue());
+            }
+            changed.clear();
+        }
+    }
+
+    /**
+     * A copy of the basic information of the video, so the plugins do not read
+     * the video while it is changed
+     */
+    private static final class Information implements IMovieBasicInformation {
+
+        private final String baseName;
+        private final String language;
+        private final int season;
+        private final String title;
+        private final String titleSort;
+        private final String originalTitle;
+        private final String year;
+        private final boolean tvShow;
+        private final Boolean trailerExchange;
+        private final boolean setMaster;
+
+        Information(IMovieBasicInformation movie) {
+            this.baseName = movie.getBaseName();
+            this.language = movie.getLanguage();
+            this.season = movie.getSeason();
+            this.title = movie.getTitle();
+            this.titleSort = movie.getTitleSort();
+            this.originalTitle = movie.getOriginalTitle();
+            this.year = movie.getYear();
+            this.tvShow = movie.isTVShow();
+            this.trailerExchange = movie.isTrailerExchange();
+            this.setMaster = movie.isSetMaster();
+        }
+
+        @Override
+        public String getBaseName() {
+            return baseName;
+        }
+
+        @Override
+        public String getLanguage() {
+            return language;
+        }
+
+        @Override
+        public int getSeason() {
+            return season;
+        }
+
+        @Override
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public String getTitleSort() {
+            return titleSort;
+        }
+
+        @Override
+        public String getOriginalTitle() {
+            return originalTitle;
+        }
+
+        @Override
+        public String getYear() {
+            return year;
+        }
+
+        @Override
+        public boolean isTVShow() {
+            return tvShow;
+        }
+
+        @Override
+        public Boolean isTrailerExchange() {
+            return trailerExchange;
+        }
+
+        @Override
+        public boolean isSetMaster() {
+            return setMaster;
+        }
+    }
+}
@@ -28,13 +28,18 @@ import com.moviejukebox.model.MovieFile;
 import com.moviejukebox.model.enumerations.DirtyFlag;
 import com.moviejukebox.plugin.MovieImagePlugin;
 import com.moviejukebox.scanner.AttachmentScanner;
+import com.moviejukebox.scanner.FrameGrabber;
 import com.moviejukebox.tools.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -92,6 +97,8 @@ public final class VideoImageScanner {
         boolean foundLocalVideoImage;
         boolean localOverwrite;
         int firstPart, lastPart;
+        // the downloads are started for all the parts first and processed once they have finished
+        List<PendingVideoImage> downloads = new ArrayList<>();
 
         LOG.debug("Checking for videoimages for {} [Season {}]", movie.getTitle(), movie.getSeason());
 
@@ -263,7 +270,7 @@ public final class VideoImageScanner {
                             LOG.debug("Failed loading videoimage : {}", fullVideoImageFilename);
 
                             // Copy the dummy videoimage to the temp folder
-                            FileTools.copyFile(new File(SKIN_HOME + File.separator + "resources" + File.separator + "dummy_videoimage.jpg"), tmpDestFile);
+                            AssetSync.placeholder(new File(SKIN_HOME + File.separator + "resources" + File.separator + "dummy_videoimage.jpg"), tmpDestFile);
 
                             // Process the dummy videoimage in the temp folder
                             if (processImage(imagePlugin, movie, tmpDestFilename, tmpDestFilename, part)) {
@@ -281,10 +288,20 @@ public final class VideoImageScanner {
                     }
                 } else {
                     // logger.debug("VideoImageScanner : No local VideoImage found for {}", movie.getBaseName() + " attempting to download");
-                    downloadVideoImage(imagePlugin, jukebox, movie, mf, part);
+                    PendingVideoImage pending = downloadVideoImage(jukebox, movie, mf, part);
+                    if (pending == null) {
+                        pending = grabVideoImage(jukebox, movie, mf, part);
+                    }
+                    if (pending != null) {
+                        downloads.add(pending);
+                    }
                 }
             }
         }
+
+        for (PendingVideoImage pending : downloads) {
+            processDownloadedVideoImage(imagePlugin, movie, pending);
+        }
     }
 
     /**
@@ -315,15 +332,16 @@ public final class VideoImageScanner {
     }
 
     /**
-     * Download the videoimage from the URL. Initially this is populated from
-     * TheTVDB plugin
+     * Start the download of the videoimage from the URL. Initially this is
+     * populated from TheTVDB plugin
      *
-     * @param imagePlugin
-     * @param jukeboxDetailsRoot
-     * @param tempJukeboxDetailsRoot
+     * @param jukebox
      * @param movie
+     * @param mf
+     * @param part
+     * @return the pending download or null if there is nothing to download
      */
-    private static void downloadVideoImage(MovieImagePlugin imagePlugin, Jukebox jukebox, Movie movie, MovieFile mf, int part) {
+    private static PendingVideoImage downloadVideoImage(Jukebox jukebox, Movie movie, MovieFile mf, int part) {
 
         if (StringTools.isValidString(mf.getVideoImageURL(part))) {
 //            String safeVideoImageFilename = FileTools.makeSafeFilename(mf.getVideoImageFilename(part));
@@ -332,7 +350,6 @@ public final class VideoImageScanner {
             File videoimageFile = FileTools.fileCache.getFile(videoimageFilename);
             String tmpDestFilename = StringTools.appendToPath(jukebox.getJukeboxTempLocationDetails(), safeVideoImageFilename);
             File tmpDestFile = new File(tmpDestFilename);
-            boolean fileOK = true;
             // Add file to safe list
             FileTools.addJukeboxFile(safeVideoImageFilename);
 
@@ -344,34 +361,185 @@ public final class VideoImageScanner {
                     || movie.isDirty(DirtyFlag.WATCHED)) {
                 FileTools.makeDirsForFile(videoimageFile);
 
-                // Download the videoimage using the proxy save downloadImage
+                // Start the download of the videoimage using the proxy save downloadImage
+                Future<File> download = FileTools.downloadImageAsync(tmpDestFile, mf.getVideoImageURL(part), null);
+                return new PendingVideoImage(mf, part, safeVideoImageFilename, tmpDestFilename, download, false);
+            }
+            LOG.debug("VideoImage exists for {}", mf.getVideoImageFilename(part));
+        }
+        return null;
+    }
+
+    /**
+     * Start grabbing the videoimage from the video file if there is neither a
+     * local image nor an URL to download it from.
+     *
+     * @param jukebox
+     * @param movie
+     * @param mf
+     * @param part
+     * @return the pending grab or null if there is nothing to grab
+     */
+    private static PendingVideoImage grabVideoImage(Jukebox jukebox, Movie movie, MovieFile mf, int part) {
+        if (!FrameGrabber.isActivated() || StringTools.isValidString(mf.getVideoImageURL(part)) || StringTools.isNotValidString(mf.getVideoImageFilename(part))) {
+            return null;
+        }
+
+        String safeVideoImageFilename = mf.getVideoImageFilename(part);
+        File videoimageFile = FileTools.fileCache.getFile(StringTools.appendToPath(jukebox.getJukeboxRootLocationDetails(), safeVideoImageFilename));
+        String tmpDestFilename = StringTools.appendToPath(jukebox.getJukeboxTempLocationDetails(), safeVideoImageFilename);
+        File tmpDestFile = new File(tmpDestFilename);
+        // Add file to safe list
+        FileTools.addJukeboxFile(safeVideoImageFilename);
+
+        if ((!videoimageFile.exists() && !tmpDestFile.exists())
+                || OVERWRITE
+                || movie.isDirty(DirtyFlag.RECHECK)
+                || movie.isDirty(DirtyFlag.WATCHED)) {
+            Future<File> grab = FrameGrabber.grabFrame(movie, mf, part, tmpDestFile);
+            if (grab != null) {
+                return new PendingVideoImage(mf, part, safeVideoImageFilename, tmpDestFilename, grab, true);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wait for the download of the videoimage and process it, using the dummy
+     * videoimage if the download failed.
+     *
+     * @param imagePlugin
+     * @param movie
+     * @param pending
+     */
+    private static void processDownloadedVideoImage(MovieImagePlugin imagePlugin, Movie movie, PendingVideoImage pending) {
+        MovieFile mf = pending.getMovieFile();
+        int part = pending.getPart();
+        String tmpDestFilename = pending.getTmpDestFilename();
+        File tmpDestFile = new File(tmpDestFilename);
+        boolean fileOK = true;
+
+        try {
+            if (pending.isGrabbed()) {
+                FrameGrabber.await(pending.getDownload());
+            } else {
+                pending.getDownload().get();
+            }
+        } catch (TimeoutException error) {
+            LOG.debug("Grabbing videoimage from {} timed out", mf.getFile().getName());
+            fileOK = false;
+        } catch (ExecutionException error) {
+            if (pending.isGrabbed()) {
+                LOG.debug("Failed to grab videoimage from {} - error: {}", mf.getFile().getName(), error.getCause() == null ? error.getMessage() : error.getCause().getMessage());
+                fileOK = false;
+            } else {
+                LOG.debug("Failed to download videoimage : {} - error: {}", mf.getVideoImageURL(part), error.getCause() == null ? error.getMessage() : error.getCause().getMessage());
+                // Try again with the retries of the synchronous download
                 try {
-                    FileTools.downloadImage(tmpDestFile, mf.getVideoImageURL(part));
-                } catch (IOException error) {
-                    LOG.debug("Failed to download videoimage : {} - error: {}", mf.getVideoImageURL(part), error.getMessage());
+                    fileOK = FileTools.downloadImage(tmpDestFile, mf.getVideoImageURL(part));
+                } catch (IOException ex) {
                     fileOK = false;
                 }
+            }
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            fileOK = false;
+        }
 
-                if (fileOK && processImage(imagePlugin, movie, tmpDestFilename, tmpDestFilename, part)) {
-                    LOG.debug("Downloaded videoimage for {} to {}", mf.getVideoImageFilename(part), tmpDestFilename);
-                } else {
-                    // failed use dummy
-                    FileTools.copyFile(new File(SKIN_HOME + File.separator + "resources" + File.separator + "dummy_videoimage.jpg"), tmpDestFile);
+        if (fileOK && processImage(imagePlugin, movie, tmpDestFilename, tmpDestFilename, part)) {
+            LOG.debug("Downloaded videoimage for {} to {}", mf.getVideoImageFilename(part), tmpDestFilename);
+        } else if (!pending.isGrabbed() && grabFailedDownload(imagePlugin, movie, pending)) {
+            LOG.debug("Grabbed videoimage for {} to {}", mf.getVideoImageFilename(part), tmpDestFilename);
+        } else {
+            // failed use dummy
+            AssetSync.placeholder(new File(SKIN_HOME + File.separator + "resources" + File.separator + "dummy_videoimage.jpg"), tmpDestFile);
 
-                    if (processImage(imagePlugin, movie, tmpDestFilename, tmpDestFilename, part)) {
-                        LOG.debug("Using default videoimage");
-                        mf.setVideoImageURL(part, Movie.UNKNOWN); // So we know this is a dummy videoimage
-                        mf.setVideoImageFilename(part, safeVideoImageFilename); // See MovieFile.java: setVideoImageURL sets setVideoImageFilename=UNKNOWN !!??
-                    } else {
-                        // Copying the default image failed, so leave everything blank
-                        LOG.debug("Failed loading default videoimage");
-                        mf.setVideoImageFilename(part, Movie.UNKNOWN);
-                        mf.setVideoImageURL(part, Movie.UNKNOWN);
-                    }
-                }
+            if (processImage(imagePlugin, movie, tmpDestFilename, tmpDestFilename, part)) {
+                LOG.debug("Using default videoimage");
+                mf.setVideoImageURL(part, Movie.UNKNOWN); // So we know this is a dummy videoimage
+                mf.setVideoImageFilename(part, pending.getSafeVideoImageFilename()); // See MovieFile.java: setVideoImageURL sets setVideoImageFilename=UNKNOWN !!??
             } else {
-                LOG.debug("VideoImage exists for {}", mf.getVideoImageFilename(part));
+                // Copying the default image failed, so leave everything blank
+                LOG.debug("Failed loading default videoimage");
+                mf.setVideoImageFilename(part, Movie.UNKNOWN);
+                mf.setVideoImageURL(part, Movie.UNKNOWN);
             }
         }
     }
+
+    /**
+     * Grab the frame from the video file after the download of the videoimage
+     * failed.
+     *
+     * @param imagePlugin
+     * @param movie
+     * @param pending
+     * @return true if the grabbed frame has been processed
+     */
+    private static boolean grabFailedDownload(MovieImagePlugin imagePlugin, Movie movie, PendingVideoImage pending) {
+        Future<File> grab = FrameGrabber.grabFrame(movie, pending.getMovieFile(), pending.getPart(), new File(pending.getTmpDestFilename()));
+        if (grab == null) {
+            return false;
+        }
+
+        try {
+            FrameGrabber.await(grab);
+        } catch (TimeoutException error) {
+            LOG.debug("Grabbing videoimage from {} timed out", pending.getMovieFile().getFile().getName());
+            return false;
+        } catch (ExecutionException error) {
+            LOG.debug("Failed to grab videoimage from {} - error: {}", pending.getMovieFile().getFile().getName(), error.getCause() == null ? error.getMessage() : error.getCause().getMessage());
+            return false;
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return processImage(imagePlugin, movie, pending.getTmpDestFilename(), pending.getTmpDestFilename(), pending.getPart());
+    }
+
+    /**
+     * A videoimage download or grab that has been started but not yet processed
+     */
+    private static final class PendingVideoImage {
+
+        private final MovieFile movieFile;
+        private final int part;
+        private final String safeVideoImageFilename;
+        private final String tmpDestFilename;
+        private final Future<File> download;
+        private final boolean grabbed;
+
+        PendingVideoImage(MovieFile movieFile, int part, String safeVideoImageFilename, String tmpDestFilename, Future<File> download, boolean grabbed) {
+            this.movieFile = movieFile;
+            this.part = part;
+            this.safeVideoImageFilename = safeVideoImageFilename;
+            this.tmpDestFilename = tmpDestFilename;
+            this.download = download;
+            this.grabbed = grabbed;
+        }
+
+        MovieFile getMovieFile() {
+            return movieFile;
+        }
+
+        int getPart() {
+            return part;
+        }
+
+        String getSafeVideoImageFilename() {
+            return safeVideoImageFilename;
+        }
+
+        String getTmpDestFilename() {
+            return tmpDestFilename;
+        }
+
+        Future<File> getDownload() {
+            return download;
+        }
+
+        boolean isGrabbed() {
+            return grabbed;
+        }
+    }
 }
@@ -0,0 +1,367 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copy the skin assets and placeholder images into the jukebox without
+ * writing the same content again and again.
+ *
+ * The skin directories are synchronised with a manifest of the content hashes
+ * of the copied files, so only new and changed files are copied.
+ *
+ * The placeholder (dummy) images are hard links to one copy of the image for
+ * each file system, if the file system doesn't support hard links the image
+ * is copied.
+ */
+public final class AssetSync {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AssetSync.class);
+    private static final String SEPARATOR = "\t";
+    private static final boolean LINK_PLACEHOLDERS = PropertiesUtil.getBooleanProperty("mjb.placeholder.link", Boolean.TRUE);
+    // the copies the placeholders are linked to, for each source image
+    private static final ConcurrentMap<String, List<Canonical>> CANONICALS = new ConcurrentHashMap<>();
+    // the copies by their file key
+    private static final Map<Object, Canonical> COPIES = new ConcurrentHashMap<>();
+
+    private AssetSync() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    /**
+     * Copy the new and changed files of the source directory into the target
+     * directory.
+     *
+     * A file is copied if it is missing in the target, if the target file has
+     * been changed since it was copied or if the content of the source file
+     * has changed. The hash of the source file is only calculated if its size
+     * or date has changed.
+     *
+     * @param sourceDir the directory to copy the files from
+     * @param targetDir the directory to copy the files to
+     * @param manifestFile the manifest of the files copied into the target
+     * directory
+     * @param force copy all the files
+     * @return the number of copied files
+     */
+    public static int syncDirectory(File sourceDir, File targetDir, File manifestFile, boolean force) {
+        if (!sourceDir.isDirectory()) {
+            LOG.error("Source directory {} does not exist!", sourceDir);
+            return 0;
+        }
+
+        Map<String, ManifestEntry> manifest = readManifest(manifestFile);
+        int[] counts = new int[2];
+        syncDirectory(sourceDir, targetDir, "", manifest, force, counts);
+        writeManifest(manifestFile, manifest);
+
+        LOG.debug("Copied {} of {} files from {}", counts[0], counts[1], sourceDir.getAbsolutePath());
+        return counts[0];
+    }
+
+    private static void syncDirectory(File sourceDir, File targetDir, String relativeDir, Map<String, ManifestEntry> manifest, boolean force, int[] counts) {
+        File[] files = sourceDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        FileTools.makeDirs(targetDir);
+
+        for (File file : files) {
+            if (".svn".equals(file.getName())) {
+                continue;
+            }
+
+            File target = new File(targetDir, file.getName());
+            String relativePath = relativeDir + file.getName();
+            if (file.isDirectory()) {
+                syncDirectory(file, target, relativePath + "/", manifest, force, counts);
+                continue;
+            }
+
+            counts[1]++;
+            try {
+                if (syncFile(file, target, relativePath, manifest, force)) {
+                    counts[0]++;
+                }
+            } catch (IOException ex) {
+                LOG.error("Failed copying file '{}' to '{}': {}", file, target, ex.getMessage());
+                manifest.remove(relativePath);
+            }
+        }
+    }
+
+    private static boolean syncFile(File source, File target, String relativePath, Map<String, ManifestEntry> manifest, boolean force) throws IOException {
+        ManifestEntry entry = manifest.get(relativePath);
+        long sourceSize = source.length();
+        long sourceModified = source.lastModified();
+
+        String hash = null;
+        if (!force && entry != null && target.isFile() && entry.targetSize == target.length() && entry.targetModified == target.lastModified()) {
+            if (entry.sourceSize == sourceSize && entry.sourceModified == sourceModified) {
+                // unchanged since the last copy
+                return false;
+            }
+
+            hash = hash(source);
+            if (hash.equals(entry.hash)) {
+                // only the date of the source has changed
+                manifest.put(relativePath, new ManifestEntry(sourceSize, sourceModified, hash, entry.targetSize, entry.targetModified));
+                return false;
+            }
+        }
+
+        if (hash == null) {
+            hash = hash(source);
+        }
+        Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        manifest.put(relativePath, new ManifestEntry(sourceSize, sourceModified, hash, target.length(), target.lastModified()));
+        LOG.trace("Copied: {}", relativePath);
+        return true;
+    }
+
+    private static String hash(File file) throws IOException {
+        try (InputStream is = new FileInputStream(file)) {
+            return DigestUtils.sha1Hex(is);
+        }
+    }
+
+    private static Map<String, ManifestEntry> readManifest(File manifestFile) {
+        Map<String, ManifestEntry> manifest = new TreeMap<>();
+        if (!manifestFile.exists()) {
+            return manifest;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifestFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(SEPARATOR);
+                if (parts.length == 6) {
+                    try {
+                        manifest.put(parts[0], new ManifestEntry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3], Long.parseLong(parts[4]), Long.parseLong(parts[5])));
+                    } catch (NumberFormatException ex) {
+                        LOG.trace("Invalid manifest line: {}", line);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            LOG.warn("Failed to read the manifest {}: {}", manifestFile.getAbsolutePath(), ex.getMessage());
+            manifest.clear();
+        }
+        return manifest;
+    }
+
+    private static void writeManifest(File manifestFile, Map<String, ManifestEntry> manifest) {
+        FileTools.makeDirsForFile(manifestFile);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(manifestFile), StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, ManifestEntry> entry : manifest.entrySet()) {
+                ManifestEntry value = entry.getValue();
+                writer.write(entry.getKey() + SEPARATOR + value.sourceSize + SEPARATOR + value.sourceModified + SEPARATOR + value.hash
+                        + SEPARATOR + value.targetSize + SEPARATOR + value.targetModified + "\n");
+            }
+        } catch (IOException ex) {
+            LOG.warn("Failed to write the manifest {}: {}", manifestFile.getAbsolutePath(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Create the placeholder image.
+     *
+     * The target is linked to an earlier copy of the same image on the same
+     * file system, or becomes that copy if there is none.
+     *
+     * @param source the placeholder image of the skin
+     * @param target the file to create
+     * @return true if the placeholder was created
+     */
+    public static boolean placeholder(File source, File target) {
+        if (!source.exists()) {
+            LOG.error("The file '{}' does not exist!", source);
+            return false;
+        }
+
+        if (!LINK_PLACEHOLDERS) {
+            return FileTools.copyFile(source, target);
+        }
+
+        String key = source.getAbsolutePath();
+        List<Canonical> canonicals = CANONICALS.get(key);
+        if (canonicals == null) {
+            canonicals = new CopyOnWriteArrayList<>();
+            List<Canonical> existing = CANONICALS.putIfAbsent(key, canonicals);
+            if (existing != null) {
+                canonicals = existing;
+            }
+        }
+
+        Path targetPath = target.toPath();
+        try {
+            Files.deleteIfExists(targetPath);
+            for (Canonical canonical : canonicals) {
+                if (!canonical.isValid()) {
+                    canonicals.remove(canonical);
+                    COPIES.remove(canonical.fileKey);
+                    continue;
+                }
+                try {
+                    Files.createLink(targetPath, canonical.path);
+                    return true;
+                } catch (UnsupportedOperationException | IOException ex) {
+                    // another file system, or no hard links
+                    LOG.trace("Unable to link {} to {}: {}", target, canonical.path, ex.getMessage());
+                }
+            }
+
+            // the target becomes the copy the next placeholders are linked to
+            Files.copy(source.toPath(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+            BasicFileAttributes attr = Files.readAttributes(targetPath, BasicFileAttributes.class);
+            if (attr.fileKey() != null) {
+                Canonical canonical = new Canonical(source, targetPath, attr);
+                canonicals.add(canonical);
+                COPIES.put(attr.fileKey(), canonical);
+            }
+            return true;
+        } catch (IOException ex) {
+            LOG.error("Failed creating the placeholder '{}' from '{}': {}", target, source, ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * If the source file is a placeholder link, create the target as a
+     * placeholder too rather than copying it.
+     *
+     * @param source
+     * @param target
+     * @return true if the target was created, false if the source is no
+     * placeholder
+     */
+    static boolean copyPlaceholder(File source, File target) {
+        if (COPIES.isEmpty()) {
+            return false;
+        }
+
+        Canonical canonical;
+        try {
+            Object fileKey = Files.readAttributes(source.toPath(), BasicFileAttributes.class).fileKey();
+            canonical = fileKey == null ? null : COPIES.get(fileKey);
+        } catch (IOException ex) {
+            return false;
+        }
+        return canonical != null && canonical.isValid() && placeholder(canonical.source, target);
+    }
+
+    /**
+     * Delete the file if it's one of several hard links to the same content,
+     * so writing the file doesn't change the other links.
+     *
+     * Where the number of links is not known, the file is always deleted.
+     *
+     * @param file
+     */
+    public static void unlinkShared(File file) {
+        Path path = file.toPath();
+        try {
+            Object links = Files.getAttribute(path, "unix:nlink");
+            if (links instanceof Integer && (Integer) links < 2) {
+                return;
+            }
+        } catch (UnsupportedOperationException | IllegalArgumentException ex) {
+            // not available on this file system
+        } catch (IOException ex) {
+            // the file doesn't exist
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            LOG.trace("Unable to delete {}: {}", file, ex.getMessage());
+        }
+    }
+
+    /**
+     * A copy of a placeholder image the other placeholders are linked to
+     */
+    private static final class Canonical {
+
+        private final File source;
+        private final Path path;
+        private final Object fileKey;
+        private final long size;
+        private final long modified;
+
+        Canonical(File source, Path path, BasicFileAttributes attr) {
+            this.source = source;
+            this.path = path;
+            this.fileKey = attr.fileKey();
+            this.size = attr.size();
+            this.modified = attr.lastModifiedTime().toMillis();
+        }
+
+        /**
+         * Check that the copy has not been replaced or changed
+         */
+        boolean isValid() {
+            try {
+                BasicFileAttributes attr = Files.readAttributes(path, BasicFileAttributes.class);
+                return fileKey.equals(attr.fileKey()) && size == attr.size() && modified == attr.lastModifiedTime().toMillis();
+            } catch (IOException ex) {
+                return false;
+            }
+        }
+    }
+
+    private static final class ManifestEntry {
+
+        private final long sourceSize;
+        private final long sourceModified;
+        private final String hash;
+        private final long targetSize;
+        private final long targetModified;
+
+        ManifestEntry(long sourceSize, long sourceModified, String hash, long targetSize, long targetModified) {
+            this.sourceSize = sourceSize;
+            this.sourceModified = sourceModified;
+            this.hash = hash;
+            this.targetSize = targetSize;
+            this.targetModified = targetModified;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Layout;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Write the log events of the root logger on a dedicated thread.
+ *
+ * The appenders configured in log4j.properties are moved behind this
+ * appender. The logging threads only prepare the event and put it into a
+ * lock-free ring buffer; the writer thread formats and writes the events in
+ * the order they were logged. If the buffer is full the logging thread waits
+ * for free space, so no events are lost.
+ */
+public class AsyncLogAppender extends AppenderSkeleton {
+
+    // the conversion characters of the pattern layout that need the location of the caller
+    private static final Pattern LOCATION_PATTERN = Pattern.compile("%[-\\d.]*[CFLMl]");
+    private static final long WRITER_PARK = TimeUnit.MILLISECONDS.toNanos(10);
+    private static AsyncLogAppender installed = null;
+    private static Level originalLevel = null;
+    private static Thread shutdownHook = null;
+    private final List<Appender> appenders;
+    private final boolean locationInfo;
+    private final RingBuffer<LoggingEvent> buffer;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean sleeping = false;
+
+    /**
+     * Create the appender
+     *
+     * @param appenders the appenders to write the events to
+     * @param capacity the number of events the buffer can hold, rounded up to a power of two
+     */
+    AsyncLogAppender(List<Appender> appenders, int capacity) {
+        this.appenders = Collections.unmodifiableList(new ArrayList<>(appenders));
+        this.buffer = new RingBuffer<>(capacity);
+
+        boolean location = false;
+        for (Appender appender : appenders) {
+            location |= needsLocation(appender.getLayout());
+        }
+        this.locationInfo = location;
+
+        setName("ASYNC");
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, "LogWriter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Move the appenders of the root logger behind an asynchronous appender.
+     *
+     * The level of the root logger is raised to the lowest threshold of its
+     * appenders, so the messages no appender would write are not formatted.
+     *
+     * @param capacity the number of events the buffer can hold
+     */
+    public static synchronized void install(int capacity) {
+        if (installed != null) {
+            return;
+        }
+
+        Logger root = Logger.getRootLogger();
+        List<Appender> appenders = new ArrayList<>();
+        Level threshold = null;
+        for (Enumeration<?> e = root.getAllAppenders(); e.hasMoreElements();) {
+            Appender appender = (Appender) e.nextElement();
+            appenders.add(appender);
+
+            Level appenderThreshold = Level.ALL;
+            if (appender instanceof AppenderSkeleton && ((AppenderSkeleton) appender).getThreshold() != null) {
+                appenderThreshold = (Level) ((AppenderSkeleton) appender).getThreshold();
+            }
+            if (threshold == null || !appenderThreshold.isGreaterOrEqual(threshold)) {
+                threshold = appenderThreshold;
+            }
+        }
+
+        if (appenders.isEmpty()) {
+            return;
+        }
+
+        installed = new AsyncLogAppender(appenders, capacity);
+        root.removeAllAppenders();
+        root.addAppender(installed);
+
+        originalLevel = root.getLevel();
+        if (originalLevel != null && threshold != null && !originalLevel.isGreaterOrEqual(threshold)) {
+            root.setLevel(threshold);
+        }
+
+        shutdownHook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                AsyncLogAppender appender = installed;
+                if (appender != null) {
+                    appender.close();
+                }
+            }
+        }, "LogShutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Write the pending events and put the appenders back on the root logger,
+     * e.g. before the logging is configured again.
+     */
+    public static synchronized void uninstall() {
+        if (installed == null) {
+            return;
+        }
+
+        Logger root = Logger.getRootLogger();
+        root.removeAppender(installed);
+        installed.close();
+        for (Appender appender : installed.appenders) {
+            root.addAppender(appender);
+        }
+        if (originalLevel != null) {
+            root.setLevel(originalLevel);
+        }
+
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ex) {
+            // already shutting down
+        }
+        installed = null;
+        originalLevel = null;
+        shutdownHook = null;
+    }
+
+    /**
+     * Hand the event to the writer thread. This is not synchronized, so the
+     * logging threads don't wait for each other.
+     *
+     * @param event
+     */
+    @Override
+    public void doAppend(LoggingEvent event) {
+        if (!running) {
+            dispatch(event);
+            return;
+        }
+
+        // Take everything from the logging thread that is needed to format the event later
+        event.getNDC();
+        event.getThreadName();
+        event.getMDCCopy();
+        event.getRenderedMessage();
+        event.getThrowableStrRep();
+        if (locationInfo) {
+            event.getLocationInformation();
+        }
+
+        while (!buffer.offer(event)) {
+            if (!running) {
+                dispatch(event);
+                return;
+            }
+            // the buffer is full, wait for the writer
+            LockSupport.unpark(writer);
+            Thread.yield();
+        }
+
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    @Override
+    protected void append(LoggingEvent event) {
+        doAppend(event);
+    }
+
+    /**
+     * Stop the writer thread and write the pending events
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        // anything left if the writer didn't finish in time
+        synchronized (buffer) {
+            LoggingEvent event;
+            while ((event = buffer.poll()) != null) {
+                dispatch(event);
+            }
+        }
+        closed = true;
+    }
+
+    @Override
+    public boolean requiresLayout() {
+        return false;
+    }
+
+    private void write() {
+        while (true) {
+            LoggingEvent event;
+            synchronized (buffer) {
+                event = buffer.poll();
+            }
+
+            if (event != null) {
+                dispatch(event);
+            } else if (!running) {
+                return;
+            } else {
+                sleeping = true;
+                if (buffer.isEmpty() && running) {
+                    LockSupport.parkNanos(this, WRITER_PARK);
+                }
+                sleeping = false;
+            }
+        }
+    }
+
+    private void dispatch(LoggingEvent event) {
+        for (Appender appender : appenders) {
+            try {
+                appender.doAppend(event);
+            } catch (RuntimeException ex) {
+                LogLog.error("Failed to write the log event to " + appender.getName(), ex);
+            }
+        }
+    }
+
+    /**
+     * Check if the layout uses the location of the caller
+     *
+     * @param layout
+     * @return
+     */
+    static boolean needsLocation(Layout layout) {
+        if (layout instanceof PatternLayout) {
+            String pattern = ((PatternLayout) layout).getConversionPattern();
+            return pattern != null && LOCATION_PATTERN.matcher(pattern).find();
+        }
+        // other layouts may use anything
+        return layout != null;
+    }
+
+    /**
+     * A bounded lock-free queue for many producers and one consumer.
+     *
+     * Each slot has a sequence number: the producers claim a slot by moving
+     * the tail and publish the element by advancing the sequence of the slot,
+     * the consumer frees the slot by advancing it once more.
+     *
+     * @param <E>
+     */
+    static final class RingBuffer<E> {
+
+        private final int mask;
+        private final AtomicReferenceArray<E> elements;
+        private final AtomicLongArray sequences;
+        private final AtomicLong tail = new AtomicLong(0);
+        private final AtomicLong head = new AtomicLong(0);
+
+        RingBuffer(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+            mask = size - 1;
+            elements = new AtomicReferenceArray<>(size);
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        /**
+         * Add the element
+         *
+         * @param element
+         * @return false if the buffer is full
+         */
+        boolean offer(E element) {
+            while (true) {
+                long position = tail.get();
+                int index = (int) position & mask;
+                long difference = sequences.get(index) - position;
+                if (difference == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        elements.set(index, element);
+                        sequences.set(index, position + 1);
+                        return true;
+                    }
+                } else if (difference < 0) {
+                    return false;
+                }
+                // another producer took the slot, try the next one
+            }
+        }
+
+        /**
+         * Take the oldest element, must only be called by one thread at a
+         * time
+         *
+         * @return the element or null if the buffer is empty
+         */
+        E poll() {
+            long position = head.get();
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                return null;
+            }
+            E element = elements.get(index);
+            elements.set(index, null);
+            sequences.set(index, position + mask + 1);
+            head.set(position + 1);
+            return element;
+        }
+
+        boolean isEmpty() {
+            return sequences.get((int) head.get() & mask) != head.get() + 1;
+        }
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import static com.moviejukebox.model.enumerations.PropertyOverwrites.HTML;
+import static com.moviejukebox.model.enumerations.PropertyOverwrites.POSTERS;
+import static com.moviejukebox.model.enumerations.PropertyOverwrites.THUMBNAILS;
+
+import com.moviejukebox.model.Jukebox;
+import com.moviejukebox.model.enumerations.PropertyOverwrites;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dependency graph of the generated jukebox files.
+ *
+ * For each generated file (detail and index pages, posters and thumbnails)
+ * the hash of the inputs which produced it is recorded: the source XML, the
+ * stylesheet with the files it includes and the values of the parameters it
+ * declares and uses, the source artwork and the properties used for it. A file is
+ * stale when the hash of its current inputs differs from the recorded one, so
+ * a changed stylesheet or property only regenerates the files depending on it
+ * instead of forcing the overwrite of the whole jukebox.
+ *
+ * Files without a recorded hash (e.g. on the first run) are left to the usual
+ * checks, their hash is recorded for the next run.
+ */
+public final class BuildGraph {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BuildGraph.class);
+    private static final String FILENAME = "jukebox_graph.txt";
+    private static final String SEPARATOR = "\t";
+    private static final String XSL_NAMESPACE = "http://www.w3.org/1999/XSL/Transform";
+    private static final String MISSING = "missing";
+    // The references to variables and parameters in the XPath expressions
+    private static final Pattern REFERENCE = Pattern.compile("\\$([A-Za-z_][\\w.\\-]*)");
+    private static final boolean ENABLED = PropertiesUtil.getBooleanProperty("mjb.buildGraph.enable", Boolean.TRUE);
+    // The overwrites which are replaced by the graph
+    private static final Set<PropertyOverwrites> TRACKED = EnumSet.of(HTML, POSTERS, THUMBNAILS);
+    private static final XMLInputFactory XML_FACTORY = createFactory();
+    // The hashes of the last run and of this run
+    private static final Map<String, String> PREVIOUS = new ConcurrentHashMap<>();
+    private static final Map<String, String> CURRENT = new ConcurrentHashMap<>();
+    // The hashes of the files and stylesheets read during this run
+    private static final Map<String, String> FILE_HASHES = new ConcurrentHashMap<>();
+    private static final Map<String, Stylesheet> STYLESHEETS = new ConcurrentHashMap<>();
+
+    static {
+        FileTools.addJukeboxFile(FILENAME);
+    }
+
+    private BuildGraph() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.FALSE);
+        return factory;
+    }
+
+    /**
+     * Is the graph used to find the stale files?
+     *
+     * @return
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Are the files of the overwrite type checked with the graph, so they
+     * don't need to be overwritten when a monitored property is changed?
+     *
+     * @param overwrite
+     * @return
+     */
+    public static boolean isTracked(PropertyOverwrites overwrite) {
+        return isLoaded() && TRACKED.contains(overwrite);
+    }
+
+    /**
+     * Has the graph of the last run been read? Without it no file is stale, so
+     * the graph can't find the files to regenerate.
+     *
+     * @return
+     */
+    public static boolean isLoaded() {
+        return ENABLED && !PREVIOUS.isEmpty();
+    }
+
+    /**
+     * Read the hashes recorded by the last run
+     *
+     * @param jukebox
+     */
+    public static void readFile(Jukebox jukebox) {
+        readFile(new File(jukebox.getJukeboxRootLocationDetailsFile(), FILENAME));
+    }
+
+    static synchronized void readFile(File graphFile) {
+        PREVIOUS.clear();
+        CURRENT.clear();
+        FILE_HASHES.clear();
+        STYLESHEETS.clear();
+        if (!ENABLED || !graphFile.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(graphFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int pos = line.lastIndexOf(SEPARATOR);
+                if (pos > 0) {
+                    PREVIOUS.put(line.substring(0, pos), line.substring(pos + 1));
+                }
+            }
+            LOG.debug("Read {} build hashes from {}", PREVIOUS.size(), graphFile.getName());
+        } catch (IOException ex) {
+            LOG.warn("Failed to read the build graph '{}': {}", graphFile.getAbsolutePath(), ex.getMessage());
+            PREVIOUS.clear();
+        }
+    }
+
+    /**
+     * Write the hashes recorded by this run, the files which haven't been
+     * checked during this run are dropped.
+     *
+     * @param jukebox
+     */
+    public static void writeFile(Jukebox jukebox) {
+        writeFile(new File(jukebox.getJukeboxRootLocationDetailsFile(), FILENAME));
+    }
+
+    static synchronized void writeFile(File graphFile) {
+        if (!ENABLED) {
+            return;
+        }
+
+        FileTools.makeDirsForFile(graphFile);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(FileTools.createFileOutputStream(graphFile), StandardCharsets.UTF_8))) {
+            for (Entry<String, String> entry : new TreeMap<>(CURRENT).entrySet()) {
+                writer.write(entry.getKey());
+                writer.write(SEPARATOR);
+                writer.write(entry.getValue());
+                writer.write('\n');
+            }
+            LOG.debug("Wrote {} build hashes to {}", CURRENT.size(), graphFile.getName());
+        } catch (IOException ex) {
+            LOG.warn("Failed to write the build graph '{}': {}", graphFile.getAbsolutePath(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Have the inputs of the file changed since it was generated?
+     *
+     * Files without a recorded hash are not stale, the caller has to check if
+     * they exist.
+     *
+     * @param output the name of the generated file in the jukebox
+     * @param inputs
+     * @return
+     */
+    public static boolean isStale(String output, Inputs inputs) {
+        if (!ENABLED) {
+            return false;
+        }
+
+        String previous = PREVIOUS.get(output);
+        if (previous == null || previous.equals(inputs.getHash())) {
+            return false;
+        }
+        LOG.debug("Inputs of '{}' have changed", output);
+        return true;
+    }
+
+    /**
+     * Record the inputs of a file which is up to date or has been generated
+     *
+     * @param output the name of the generated file in the jukebox
+     * @param inputs
+     */
+    public static void record(String output, Inputs inputs) {
+        if (ENABLED) {
+            CURRENT.put(output, inputs.getHash());
+        }
+    }
+
+    /**
+     * Get the hash of the content of the file, it is only read once per run
+     *
+     * @param file
+     * @return
+     */
+    private static String getFileHash(File file) {
+        if (!file.exists()) {
+            return MISSING;
+        }
+
+        String key = file.getAbsolutePath() + "@" + file.lastModified() + "@" + file.length();
+        String hash = FILE_HASHES.get(key);
+        if (hash == null) {
+            try (InputStream is = new FileInputStream(file)) {
+                hash = DigestUtils.sha1Hex(is);
+            } catch (IOException ex) {
+                LOG.debug("Failed to read '{}': {}", file.getAbsolutePath(), ex.getMessage());
+                return MISSING;
+            }
+            FILE_HASHES.put(key, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Get the stylesheet with the files it includes or imports, these are only
+     * read once per run
+     *
+     * @param xslFile
+     * @return
+     */
+    private static Stylesheet getStylesheet(File xslFile) {
+        String key = xslFile.getAbsolutePath() + "@" + xslFile.lastModified();
+        Stylesheet stylesheet = STYLESHEETS.get(key);
+        if (stylesheet == null) {
+            Inputs files = new Inputs();
+            Set<String> names = new TreeSet<>();
+            Set<String> references = new HashSet<>();
+            if (addStylesheetFiles(files, xslFile, names, references, new HashSet<File>())) {
+                // The parameters which are declared but not used, like most of the preferences, don't change the output
+                names.retainAll(references);
+                stylesheet = new Stylesheet(files.getHash(), names);
+            } else {
+                // The parameters are unknown, so all of them are used
+                stylesheet = new Stylesheet(files.getHash(), null);
+            }
+            STYLESHEETS.put(key, stylesheet);
+        }
+        return stylesheet;
+    }
+
+    private static boolean addStylesheetFiles(Inputs inputs, File xslFile, Set<String> names, Set<String> references, Set<File> visited) {
+        if (!visited.add(xslFile.getAbsoluteFile())) {
+            return true;
+        }
+        inputs.add(xslFile.getName(), getFileHash(xslFile));
+        if (!xslFile.exists()) {
+            return true;
+        }
+
+        boolean parsed = true;
+        XMLStreamReader reader = null;
+        try (InputStream is = new FileInputStream(xslFile)) {
+            reader = XML_FACTORY.createXMLStreamReader(is);
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                } else if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    for (int index = 0; index < reader.getAttributeCount(); index++) {
+                        addReferences(reader.getAttributeValue(index), references);
+                    }
+                    // Only the top level elements of the stylesheet are needed
+                    if (depth == 2 && XSL_NAMESPACE.equals(reader.getNamespaceURI())) {
+                        String localName = reader.getLocalName();
+                        if ("param".equals(localName)) {
+                            String name = reader.getAttributeValue(null, "name");
+                            if (name != null) {
+                                names.add(name);
+                            }
+                        } else if ("include".equals(localName) || "import".equals(localName)) {
+                            String href = reader.getAttributeValue(null, "href");
+                            if (href != null && href.indexOf(':') < 0) {
+                                parsed &= addStylesheetFiles(inputs, new File(xslFile.getParentFile(), href), names, references, visited);
+                            } else {
+                                inputs.add("href", href);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException | XMLStreamException ex) {
+            LOG.debug("Failed to read the parameters of '{}': {}", xslFile.getAbsolutePath(), ex.getMessage());
+            parsed = false;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ex) {
+                    // ignore
+                }
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Add the names of the variables and parameters used in the expression
+     *
+     * @param expression
+     * @param references
+     */
+    private static void addReferences(String expression, Set<String> references) {
+        if (expression == null || expression.indexOf('$') < 0) {
+            return;
+        }
+        Matcher matcher = REFERENCE.matcher(expression);
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            references.add(name);
+            // A name followed by a dot or a dash, e.g. in a string
+            references.add(name.replaceAll("[.\\-]+$", ""));
+        }
+    }
+
+    /**
+     * The inputs of a generated file
+     */
+    public static final class Inputs {
+
+        private final MessageDigest digest = DigestUtils.getSha1Digest();
+        private String hash = null;
+
+        /**
+         * Add a named value
+         *
+         * @param name
+         * @param value
+         * @return
+         */
+        public Inputs add(String name, String value) {
+            update(name);
+            update(value == null ? "" : value);
+            return this;
+        }
+
+        /**
+         * Add the content of the file
+         *
+         * @param file
+         * @return
+         */
+        public Inputs addFile(File file) {
+            return add("file", getFileHash(file));
+        }
+
+        /**
+         * Add the size and modification date of the file, used for large files
+         * like the artwork which are replaced rather than edited.
+         *
+         * @param file
+         * @return
+         */
+        public Inputs addFileStamp(File file) {
+            if (file.exists()) {
+                return add("stamp", file.length() + "@" + file.lastModified());
+            }
+            return add("stamp", MISSING);
+        }
+
+        /**
+         * Add the values of all the properties starting with the prefix
+         *
+         * @param prefix
+         * @return
+         */
+        public Inputs addProperties(String prefix) {
+            SortedMap<String, String> properties = new TreeMap<>();
+            for (Entry<Object, Object> entry : PropertiesUtil.getEntrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null && entry.getKey().toString().startsWith(prefix)) {
+                    properties.put(entry.getKey().toString(), entry.getValue().toString());
+                }
+            }
+            for (Entry<String, String> entry : properties.entrySet()) {
+                add(entry.getKey(), entry.getValue());
+            }
+            return this;
+        }
+
+        /**
+         * Add the stylesheet, the files it includes and the values of the
+         * parameters it declares.
+         *
+         * @param xslFile
+         * @param parameters the values of the parameters which are not
+         * properties
+         * @return
+         */
+        public Inputs addStylesheet(File xslFile, Map<String, String> parameters) {
+            Stylesheet stylesheet = getStylesheet(xslFile);
+            add("stylesheet", stylesheet.filesHash);
+
+            if (stylesheet.parameterNames == null) {
+                for (Entry<String, String> entry : new TreeMap<>(parameters).entrySet()) {
+                    add(entry.getKey(), entry.getValue());
+                }
+                return addProperties("");
+            }
+
+            for (String name : stylesheet.parameterNames) {
+                String value = parameters.get(name);
+                add(name, value == null ? PropertiesUtil.getProperty(name, null) : value);
+            }
+            return this;
+        }
+
+        /**
+         * Get the hash of the inputs, no more inputs can be added afterwards
+         *
+         * @return
+         */
+        public String getHash() {
+            if (hash == null) {
+                hash = Hex.encodeHexString(digest.digest());
+            }
+            return hash;
+        }
+
+        private void update(String value) {
+            if (hash != null) {
+                throw new IllegalStateException("The hash has already been calculated");
+            }
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+    }
+
+    /**
+     * The files of a stylesheet and the names of its parameters
+     */
+    private static final class Stylesheet {
+
+        private final String filesHash;
+        private final Set<String> parameterNames;
+
+        Stylesheet(String filesHash, Set<String> parameterNames) {
+            this.filesHash = filesHash;
+            this.parameterNames = parameterNames;
+        }
+    }
+}
@@ -22,6 +22,7 @@
  */
 package com.moviejukebox.tools;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -35,7 +36,7 @@ public class CSVWriter {
 
     private static final Logger LOG = LoggerFactory.getLogger(CSVWriter.class);
     private static final String S_EOL = System.getProperty("line.separator");
-    private FileWriter writer;
+    private BufferedWriter writer;
 
     /**
      * Create the CSV file and leave it open for writing
@@ -44,7 +45,7 @@ public class CSVWriter {
      */
     public CSVWriter(File csvFile) {
         try {
-            writer = new FileWriter(csvFile);
+            writer = new BufferedWriter(new FileWriter(csvFile));
         } catch (IOException ex) {
             LOG.error("Error creating CSV file: {},error: {}", csvFile, ex.getMessage());
         }
@@ -57,7 +58,8 @@ public class CSVWriter {
      * @throws java.io.IOException
      */
     public void line(String str) throws IOException {
-        writer.write(str + S_EOL);
+        writer.write(str);
+        writer.write(S_EOL);
     }
 
     /**
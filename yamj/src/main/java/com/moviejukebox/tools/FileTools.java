@@ -31,15 +31,20 @@ import com.moviejukebox.model.Jukebox;
 import com.moviejukebox.model.Movie;
 import com.moviejukebox.model.MovieFile;
 import com.moviejukebox.scanner.IArchiveScanner;
+import com.moviejukebox.tools.downloader.AsyncDownloader;
 import java.io.*;
 import java.net.URL;
 import java.nio.channels.FileChannel;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,6 +66,8 @@ public final class FileTools {
     private static Lock fsLock = new ReentrantLock();
     private static final String DEFAULT_CHARSET = "UTF-8";
     private static final int MAX_TRIES = 5;
+    private static final boolean ASYNC_DOWNLOAD = PropertiesUtil.getBooleanProperty("mjb.download.async", Boolean.TRUE);
+    private static final int IMAGE_RETRY_COUNT = Math.max(1, PropertiesUtil.getIntProperty("mjb.imageRetryCount", 3));
 
     /**
      * Gabriel Corneanu: One buffer for each thread to allow threaded copies
@@ -197,6 +204,10 @@ public final class FileTools {
             makeDirs(dst);
             returnValue = copyFile(src, new File(dst + File.separator + src.getName()));
         } else {
+            if (AssetSync.copyPlaceholder(src, dst)) {
+                return Boolean.TRUE;
+            }
+            AssetSync.unlinkShared(dst);
 
             try (FileInputStream inSource = new FileInputStream(src);
                  FileOutputStream outSource = new FileOutputStream(dst);
@@ -619,25 +630,112 @@ public final class FileTools {
      * @throws IOException
      */
     public static boolean downloadImage(File imageFile, String imageURL) throws IOException {
-        URL url;
-        if (imageURL.contains(" ")) {
-            url = new URL(imageURL.replaceAll(" ", "%20"));
-        } else {
-            url = new URL(imageURL);
-        }
+        URL url = getImageUrl(imageURL);
+        AssetSync.unlinkShared(imageFile);
 
         if ("file".equals(url.getProtocol())) {
-            LOG.debug("Copy from url: '{}'", url);
-            try (InputStream in = url.openStream();
-                 OutputStream out = new FileOutputStream(imageFile))
-             {
-                copy(in, out);
-             }
-             return true;
+            copyImage(imageFile, url);
+            return true;
         }
-        
+
+        if (!ASYNC_DOWNLOAD) {
+            return YamjHttpClientBuilder.getHttpClient().downloadImage(imageFile, url);
+        }
+
         // download image
-        return YamjHttpClientBuilder.getHttpClient().downloadImage(imageFile, url);
+        try {
+            downloadImageAsync(imageFile, imageURL, null).get();
+            return true;
+        } catch (ExecutionException ex) {
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Start the download of the image for the specified URL into the specified file without waiting for it.
+     *
+     * The download is retried up to mjb.imageRetryCount times, the returned future fails if the image could still not be
+     * downloaded.
+     *
+     * @param imageFile
+     * @param imageURL
+     * @param callback optional callback, called when the download has finished
+     * @return the future of the downloaded file
+     */
+    public static Future<File> downloadImageAsync(File imageFile, String imageURL, FutureCallback<File> callback) {
+        BasicFuture<File> future = new BasicFuture<>(callback);
+        if (ASYNC_DOWNLOAD) {
+            try {
+                URL url = getImageUrl(imageURL);
+                if (!"file".equals(url.getProtocol())) {
+                    AssetSync.unlinkShared(imageFile);
+                    downloadImageAsync(imageFile, url.toString(), future, 1);
+                    return future;
+                }
+            } catch (IOException ex) {
+                future.failed(ex);
+                return future;
+            }
+        }
+
+        // nothing to download asynchronously
+        try {
+            if (downloadImage(imageFile, imageURL)) {
+                future.completed(imageFile);
+            } else {
+                future.failed(new IOException("Failed to download " + imageURL));
+            }
+        } catch (IOException ex) {
+            future.failed(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Start the given attempt of the download and start the next one when it fails
+     */
+    private static void downloadImageAsync(final File imageFile, final String url, final BasicFuture<File> future, final int attempt) {
+        AsyncDownloader.download(url, imageFile, new FutureCallback<File>() {
+            @Override
+            public void completed(File file) {
+                future.completed(file);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                LOG.debug("Image download attempt {} failed: {}", attempt, ex.getMessage());
+                if (attempt < IMAGE_RETRY_COUNT) {
+                    downloadImageAsync(imageFile, url, future, attempt + 1);
+                } else {
+                    LOG.debug("Failed {} times to download image, aborting. URL: {}", IMAGE_RETRY_COUNT, url);
+                    future.failed(ex);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel();
+            }
+        });
+    }
+
+    private static URL getImageUrl(String imageURL) throws IOException {
+        if (imageURL.contains(" ")) {
+            return new URL(imageURL.replaceAll(" ", "%20"));
+        }
+        return new URL(imageURL);
+    }
+
+    private static void copyImage(File imageFile, URL url) throws IOException {
+        LOG.debug("Copy from url: '{}'", url);
+        try (InputStream in = url.openStream();
+             OutputStream out = new FileOutputStream(imageFile))
+         {
+            copy(in, out);
+         }
     }
 
     /**
@@ -1028,6 +1126,13 @@ public final class FileTools {
             cachedFiles.putAll(map);
         }
 
+        /**
+         * Remove all the files, e.g. before the libraries are scanned again
+         */
+        public void clear() {
+            cachedFiles.clear();
+        }
+
         public long size() {
             return cachedFiles.size();
         }
@@ -22,10 +22,10 @@
  */
 package com.moviejukebox.tools;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import org.apache.log4j.Logger;
 import org.apache.log4j.PatternLayout;
 import org.apache.log4j.spi.LoggingEvent;
 
@@ -35,45 +35,36 @@ import org.apache.log4j.spi.LoggingEvent;
  *
  */
 public class FilteringLayout extends PatternLayout {
-    private static Pattern apiKeys = Pattern.compile("DO_NOT_MATCH");
+    private static volatile KeywordMasker apiKeys = new KeywordMasker(Collections.<String>emptyList(), "[APIKEY]");
 
     @Override
     public String format(LoggingEvent event) {
-        if (event.getMessage() instanceof String) {
-            String message = event.getRenderedMessage();
-
-            Matcher matcher = apiKeys.matcher(message);
-            if (matcher.find()) {
-                String maskedMessage = matcher.replaceAll("[APIKEY]");
-
-                Throwable throwable = event.getThrowableInformation() != null ?
-                        event.getThrowableInformation().getThrowable() : null;
-
-                LoggingEvent maskedEvent = new LoggingEvent(event.fqnOfCategoryClass,
-                        Logger.getLogger(event.getLoggerName()), event.timeStamp,
-                        event.getLevel(), maskedMessage, throwable);
+        // Mask the formatted line, so the event doesn't need to be copied
+        return apiKeys.mask(super.format(event));
+    }
 
-                return super.format(maskedEvent);
-            }
-        }
-        return super.format(event);
+    /**
+     * Mask the API keys in the text
+     *
+     * @param text
+     * @return the text without the API keys
+     */
+    public static String maskApiKeys(String text) {
+        return apiKeys.mask(text);
     }
 
     /**
      * Once the properties files have been loaded then add the API_KEYs to the static list
      */
     public static void addApiKeys() {
-        StringBuilder apis = new StringBuilder("");
+        List<String> apis = new ArrayList<>();
 
         for (Map.Entry<Object, Object> propEntry : PropertiesUtil.getEntrySet()) {
             if (propEntry.getKey().toString().toUpperCase().startsWith("API_KEY")) {
-                apis.append("|").append(propEntry.getValue().toString());
+                apis.add(propEntry.getValue().toString().trim());
             }
         }
 
-        if (apis.length() > 0) {
-            apis.deleteCharAt(0);   // Remove the first "|"
-        }
-        apiKeys = Pattern.compile(apis.toString());
+        apiKeys = new KeywordMasker(apis, "[APIKEY]");
     }
 }
@@ -115,6 +115,8 @@ public final class GraphicTools {
             File outputFile = new File(filename);
             // Create the output directories if needed
             FileTools.makeDirsForFile(outputFile);
+            // don't write through a placeholder link
+            AssetSync.unlinkShared(outputFile);
 
             try (FileImageOutputStream output = new FileImageOutputStream(outputFile)) {
                 writer.setOutput(output);
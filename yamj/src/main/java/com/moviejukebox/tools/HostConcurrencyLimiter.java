@@ -0,0 +1,414 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.utils.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per host group download slot limits.
+ *
+ * The groups and their initial limits are read from mjb.MaxDownloadSlots. When
+ * the adaptive mode is enabled the limit of each group is raised by one slot
+ * after a full window of healthy requests and halved when the host throttles
+ * (429/503) or times out (AIMD). A Retry-After sent by the host blocks the
+ * whole group until it has expired.
+ *
+ * A slot can be waited for, or requested with a task which is run once the
+ * slot is free, so asynchronous downloads don't hold a thread while queued.
+ */
+public final class HostConcurrencyLimiter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HostConcurrencyLimiter.class);
+    private static final String DEFAULT_GROUP = ".*";
+    private static final boolean ADAPTIVE = PropertiesUtil.getBooleanProperty("mjb.adaptiveDownloadSlots", Boolean.TRUE);
+    private static final int ADAPTIVE_MAX = PropertiesUtil.getIntProperty("mjb.adaptiveDownloadSlots.max", 8);
+    private static final long MAX_RETRY_AFTER = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * Status to report when the request failed without a response, e.g. a
+     * timeout
+     */
+    public static final int STATUS_IO_ERROR = -1;
+    /**
+     * Status to report when the outcome of the request is unknown
+     */
+    public static final int STATUS_UNKNOWN = 0;
+    private static final Map<String, HostLimit> GROUP_LIMITS = new LinkedHashMap<>();
+    private static final Map<String, HostLimit> HOST_GROUP = new ConcurrentHashMap<>();
+    // Runs the queued tasks of a group once its Retry-After block has expired
+    private static final Timer WAKE_UP = new Timer("DownloadSlots", true);
+
+    static {
+        // Default, can be overridden
+        GROUP_LIMITS.put(DEFAULT_GROUP, new HostLimit(DEFAULT_GROUP, 1));
+
+        String limitsProperty = PropertiesUtil.getProperty("mjb.MaxDownloadSlots", ".*=1");
+        LOG.debug("Using download limits: {}", limitsProperty);
+
+        Pattern limitPattern = Pattern.compile(",?\\s*([^=]+)=(\\d+)");
+        Matcher limitMatcher = limitPattern.matcher(limitsProperty);
+        while (limitMatcher.find()) {
+            String group = limitMatcher.group(1);
+            try {
+                Pattern.compile(group);
+                LOG.debug("{}={}", group, limitMatcher.group(2));
+                GROUP_LIMITS.put(group, new HostLimit(group, Integer.parseInt(limitMatcher.group(2))));
+            } catch (PatternSyntaxException | NumberFormatException error) {
+                LOG.debug("Rule '{}' is not valid regexp, ignored", group);
+            }
+        }
+    }
+
+    private HostConcurrencyLimiter() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    /**
+     * Is the adaptive mode enabled
+     *
+     * @return
+     */
+    public static boolean isAdaptive() {
+        return ADAPTIVE;
+    }
+
+    /**
+     * The highest number of slots a group can reach
+     *
+     * @param initialLimit
+     * @return
+     */
+    public static int getMaximumLimit(int initialLimit) {
+        return ADAPTIVE ? Math.max(initialLimit, ADAPTIVE_MAX) : initialLimit;
+    }
+
+    /**
+     * Find the limit for the host.
+     *
+     * The longest matching rule of mjb.MaxDownloadSlots is used.
+     *
+     * @param host
+     * @return
+     */
+    public static HostLimit getLimit(String host) {
+        String lowerHost = host.toLowerCase();
+        HostLimit limit = HOST_GROUP.get(lowerHost);
+        if (limit == null) {
+            String hostGroup = DEFAULT_GROUP;
+            for (String searchGroup : GROUP_LIMITS.keySet()) {
+                if (lowerHost.matches(searchGroup) && searchGroup.length() > hostGroup.length()) {
+                    hostGroup = searchGroup;
+                }
+            }
+            LOG.debug("IO download host: {}; rule: {}", lowerHost, hostGroup);
+            limit = GROUP_LIMITS.get(hostGroup);
+            HOST_GROUP.put(lowerHost, limit);
+        }
+        return limit;
+    }
+
+    /**
+     * Get a snapshot of all the group limits
+     *
+     * @return
+     */
+    public static Map<String, HostLimit> getLimits() {
+        return Collections.unmodifiableMap(GROUP_LIMITS);
+    }
+
+    /**
+     * Output the current limits and queue depths to the log
+     */
+    public static void logStatus() {
+        if (LOG.isDebugEnabled()) {
+            for (HostLimit limit : GROUP_LIMITS.values()) {
+                if (limit.getRequests() > 0) {
+                    LOG.debug("Download slots '{}': limit={}, active={}, queued={}, requests={}, throttled={}, avg latency={}ms",
+                            limit.getGroup(), limit.getLimit(), limit.getActive(), limit.getQueued(),
+                            limit.getRequests(), limit.getThrottled(), limit.getAverageLatency());
+                }
+            }
+        }
+    }
+
+    /**
+     * Convert a Retry-After header value into milliseconds.
+     *
+     * @param retryAfter the header value, either in seconds or a HTTP date
+     * @return the delay in milliseconds, 0 if not set or invalid
+     */
+    public static long parseRetryAfter(String retryAfter) {
+        if (StringUtils.isBlank(retryAfter)) {
+            return 0;
+        }
+
+        long delay;
+        if (StringUtils.isNumeric(retryAfter.trim())) {
+            delay = TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } else {
+            Date retryDate = DateUtils.parseDate(retryAfter.trim());
+            if (retryDate == null) {
+                return 0;
+            }
+            delay = retryDate.getTime() - System.currentTimeMillis();
+        }
+        return Math.max(0, Math.min(delay, MAX_RETRY_AFTER));
+    }
+
+    /**
+     * The adaptive slot limit for one host group
+     */
+    public static final class HostLimit {
+
+        private final String group;
+        private final int maxLimit;
+        private final Lock lock = new ReentrantLock(true);
+        private final Condition available = lock.newCondition();
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+        private volatile int limit;
+        private volatile int active = 0;
+        private volatile int queued = 0;
+        private int healthy = 0;
+        private long blockedUntil = 0;
+        private long wakeUpAt = 0;
+        private long requests = 0;
+        private long throttled = 0;
+        private double latency = 0;
+        private double minLatency = Double.MAX_VALUE;
+
+        HostLimit(String group, int initialLimit) {
+            this.group = group;
+            this.limit = Math.max(1, initialLimit);
+            this.maxLimit = getMaximumLimit(this.limit);
+        }
+
+        /**
+         * Wait for a free slot
+         */
+        public void acquire() {
+            lock.lock();
+            try {
+                queued++;
+                boolean interrupted = false;
+                long now = System.currentTimeMillis();
+                while (active >= limit || now < blockedUntil) {
+                    if (now < blockedUntil) {
+                        // a Retry-After block is not signalled, so wait with a timeout
+                        try {
+                            available.await(blockedUntil - now, TimeUnit.MILLISECONDS);
+                        } catch (InterruptedException ex) {
+                            interrupted = true;
+                        }
+                    } else {
+                        available.awaitUninterruptibly();
+                    }
+                    now = System.currentTimeMillis();
+                }
+                queued--;
+                active++;
+                JukeboxMetrics.gauge("io.slots." + group, active);
+
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Run the task once a slot is free, without waiting for it.
+         *
+         * The task is run by the calling thread when a slot is free, otherwise
+         * by the thread freeing the slot. The task holds the slot and must
+         * release it.
+         *
+         * @param task
+         */
+        public void acquire(Runnable task) {
+            lock.lock();
+            try {
+                pending.add(task);
+                queued++;
+            } finally {
+                lock.unlock();
+            }
+            dispatch();
+        }
+
+        /**
+         * Run the queued tasks for the free slots
+         */
+        private void dispatch() {
+            List<Runnable> ready = new ArrayList<>();
+            lock.lock();
+            try {
+                long now = System.currentTimeMillis();
+                if (now < blockedUntil) {
+                    if (!pending.isEmpty() && wakeUpAt != blockedUntil) {
+                        wakeUpAt = blockedUntil;
+                        WAKE_UP.schedule(new TimerTask() {
+                            @Override
+                            public void run() {
+                                dispatch();
+                            }
+                        }, new Date(blockedUntil));
+                    }
+                    return;
+                }
+
+                while (!pending.isEmpty() && active < limit) {
+                    ready.add(pending.poll());
+                    queued--;
+                    active++;
+                }
+                if (!ready.isEmpty()) {
+                    JukeboxMetrics.gauge("io.slots." + group, active);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            for (Runnable task : ready) {
+                task.run();
+            }
+        }
+
+        /**
+         * Free the slot without reporting an outcome
+         */
+        public void release() {
+            release(-1, STATUS_UNKNOWN, 0);
+        }
+
+        /**
+         * Free the slot and adjust the limit from the outcome of the request
+         *
+         * @param latencyMillis time taken by the request, negative if unknown
+         * @param statusCode the HTTP status, STATUS_IO_ERROR or STATUS_UNKNOWN
+         * @param retryAfterMillis the delay requested by the host
+         */
+        public void release(long latencyMillis, int statusCode, long retryAfterMillis) {
+            lock.lock();
+            try {
+                active--;
+
+                if (statusCode != STATUS_UNKNOWN) {
+                    requests++;
+                    if (ADAPTIVE) {
+                        adjust(latencyMillis, statusCode, retryAfterMillis);
+                    }
+                }
+
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            dispatch();
+        }
+
+        private void adjust(long latencyMillis, int statusCode, long retryAfterMillis) {
+            if (retryAfterMillis > 0) {
+                blockedUntil = Math.max(blockedUntil, System.currentTimeMillis() + retryAfterMillis);
+                LOG.debug("Download slots '{}': host requested a pause of {}ms", group, retryAfterMillis);
+            }
+
+            if (statusCode == STATUS_IO_ERROR || statusCode == 429 || statusCode == 503) {
+                // multiplicative decrease
+                throttled++;
+                healthy = 0;
+                int newLimit = Math.max(1, limit / 2);
+                if (newLimit != limit) {
+                    LOG.debug("Download slots '{}': decreasing limit from {} to {} (status {})", group, limit, newLimit, statusCode);
+                    limit = newLimit;
+                }
+                return;
+            }
+
+            if (latencyMillis >= 0) {
+                latency = (latency == 0) ? latencyMillis : (0.8 * latency) + (0.2 * latencyMillis);
+                minLatency = Math.min(minLatency, latency);
+            }
+
+            // only grow while the latency stays within twice the best seen and all slots are in use
+            if (latency <= 2 * minLatency && active + 1 >= limit) {
+                healthy++;
+                if (healthy >= limit && limit < maxLimit) {
+                    healthy = 0;
+                    limit++;
+                    LOG.debug("Download slots '{}': increasing limit to {}", group, limit);
+                }
+            } else if (latency > 2 * minLatency) {
+                healthy = 0;
+            }
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getQueued() {
+            return queued;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getThrottled() {
+            return throttled;
+        }
+
+        public long getAverageLatency() {
+            return Math.round(latency);
+        }
+    }
+}
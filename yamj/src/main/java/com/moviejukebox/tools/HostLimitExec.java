@@ -0,0 +1,78 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import com.moviejukebox.tools.HostConcurrencyLimiter.HostLimit;
+import com.moviejukebox.tools.JukeboxMetrics.Group;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.Header;
+import org.apache.http.HttpException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.execchain.ClientExecChain;
+
+/**
+ * Execution chain element that takes a download slot of the target host for
+ * every request sent to the network and reports the outcome back to the
+ * HostConcurrencyLimiter.
+ *
+ * Responses served from the http cache never reach this element, so they do
+ * not use a slot.
+ */
+public class HostLimitExec implements ClientExecChain {
+
+    private final ClientExecChain backend;
+
+    public HostLimitExec(ClientExecChain backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public CloseableHttpResponse execute(HttpRoute route, HttpRequestWrapper request, HttpClientContext clientContext,
+            HttpExecutionAware execAware) throws IOException, HttpException {
+        String host = route.getTargetHost().getHostName();
+        HostLimit limit = HostConcurrencyLimiter.getLimit(host);
+        limit.acquire();
+
+        long start = System.currentTimeMillis();
+        int statusCode = HostConcurrencyLimiter.STATUS_IO_ERROR;
+        long retryAfter = 0;
+        try {
+            CloseableHttpResponse response = backend.execute(route, request, clientContext, execAware);
+            statusCode = response.getStatusLine().getStatusCode();
+            Header retryHeader = response.getFirstHeader("Retry-After");
+            if (retryHeader != null) {
+                retryAfter = HostConcurrencyLimiter.parseRetryAfter(retryHeader.getValue());
+            }
+            return response;
+        } finally {
+            long latency = System.currentTimeMillis() - start;
+            limit.release(latency, statusCode, retryAfter);
+            JukeboxMetrics.recordNanos(Group.HOST, host.toLowerCase(), TimeUnit.MILLISECONDS.toNanos(latency));
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import com.moviejukebox.model.Jukebox;
+import com.moviejukebox.model.JukeboxStatistics;
+import com.moviejukebox.model.JukeboxStatistics.JukeboxTimes;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.xml.parsers.ParserConfigurationException;
+import org.pojava.datetime.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Runtime metrics of the jukebox run.
+ *
+ * Holds latency histograms for the processing steps, plugins, hosts, XSLT
+ * transforms and image generation, plus counters and gauges (queue depth, IO
+ * slots, memory). The values are updated with atomic operations, so the
+ * processing threads do not contend on a lock. At the end of the run the
+ * metrics are written to jukebox_metrics.xml, so runs can be compared without
+ * a profiler.
+ */
+public final class JukeboxMetrics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JukeboxMetrics.class);
+    private static final String XML_FILENAME = "jukebox_metrics.xml";
+    private static final boolean ENABLED = PropertiesUtil.getBooleanProperty("mjb.metrics.enabled", Boolean.TRUE);
+    // returned by start() when the metrics are disabled, System.nanoTime() can be negative or zero
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+    private static final ConcurrentMap<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, AtomicLong> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Gauge> GAUGES = new ConcurrentHashMap<>();
+
+    static {
+        // Add the file to the list of safe files
+        FileTools.addJukeboxFile(XML_FILENAME);
+    }
+
+    /**
+     * The groups of the timers
+     */
+    public enum Group {
+
+        PHASE,
+        STEP,
+        PLUGIN,
+        HOST,
+        TRANSFORM,
+        IMAGE
+    }
+
+    private JukeboxMetrics() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Get the start time of a measure
+     *
+     * @return the time in nanoseconds, Long.MIN_VALUE if the metrics are disabled
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : NOT_STARTED;
+    }
+
+    /**
+     * Record the time elapsed since the start of the measure
+     *
+     * @param group
+     * @param name
+     * @param startNanos the value returned by start()
+     */
+    public static void record(Group group, String name, long startNanos) {
+        if (ENABLED && startNanos != NOT_STARTED) {
+            recordNanos(group, name, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Record a measured time
+     *
+     * @param group
+     * @param name
+     * @param nanos
+     */
+    public static void recordNanos(Group group, String name, long nanos) {
+        if (ENABLED && name != null) {
+            getTimer(group, name).record(nanos);
+        }
+    }
+
+    /**
+     * Get the timer, creating it if needed
+     *
+     * @param group
+     * @param name
+     * @return
+     */
+    public static Timer getTimer(Group group, String name) {
+        String key = group.name() + ":" + name;
+        Timer timer = TIMERS.get(key);
+        if (timer == null) {
+            timer = new Timer(group, name);
+            Timer existing = TIMERS.putIfAbsent(key, timer);
+            if (existing != null) {
+                timer = existing;
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Add the amount to the counter
+     *
+     * @param name
+     * @param amount
+     */
+    public static void increment(String name, long amount) {
+        if (ENABLED) {
+            AtomicLong counter = COUNTERS.get(name);
+            if (counter == null) {
+                counter = new AtomicLong();
+                AtomicLong existing = COUNTERS.putIfAbsent(name, counter);
+                if (existing != null) {
+                    counter = existing;
+                }
+            }
+            counter.addAndGet(amount);
+        }
+    }
+
+    public static void increment(String name) {
+        increment(name, 1);
+    }
+
+    public static long getCounter(String name) {
+        AtomicLong counter = COUNTERS.get(name);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Record a sample of the gauge, e.g. the current queue depth
+     *
+     * @param name
+     * @param value
+     */
+    public static void gauge(String name, long value) {
+        if (ENABLED) {
+            Gauge gauge = GAUGES.get(name);
+            if (gauge == null) {
+                gauge = new Gauge();
+                Gauge existing = GAUGES.putIfAbsent(name, gauge);
+                if (existing != null) {
+                    gauge = existing;
+                }
+            }
+            gauge.sample(value);
+        }
+    }
+
+    public static Gauge getGauge(String name) {
+        return GAUGES.get(name);
+    }
+
+    /**
+     * Remove all the recorded values
+     */
+    public static void reset() {
+        TIMERS.clear();
+        COUNTERS.clear();
+        GAUGES.clear();
+    }
+
+    /**
+     * Write the metrics to the jukebox details folder
+     *
+     * @param jukebox
+     */
+    public static void writeFile(Jukebox jukebox) {
+        if (!ENABLED) {
+            return;
+        }
+
+        recordPhases();
+
+        File metricsFile = new File(jukebox.getJukeboxRootLocationDetailsFile(), XML_FILENAME);
+        FileTools.addJukeboxFile(metricsFile.getName());
+        LOG.debug("Creating metrics file: {}", metricsFile.getAbsolutePath());
+
+        try {
+            Document doc = DOMHelper.createDocument();
+            String tempString = (new DateTime(System.currentTimeMillis())).toString(DateTimeTools.getDateFormatLongString());
+            doc.appendChild(doc.createComment("This file was created on: " + tempString));
+
+            Element eRoot = doc.createElement("metrics");
+            doc.appendChild(eRoot);
+
+            Element eTimers = doc.createElement("timers");
+            eRoot.appendChild(eTimers);
+            for (Timer timer : new TreeMap<>(TIMERS).values()) {
+                Map<String, String> attributes = new HashMap<>();
+                attributes.put("group", timer.getGroup().name().toLowerCase());
+                attributes.put("name", timer.getName());
+                attributes.put("count", Long.toString(timer.getCount()));
+                attributes.put("totalMs", Long.toString(toMillis(timer.getTotalNanos())));
+                attributes.put("meanMs", Long.toString(toMillis(timer.getMeanNanos())));
+                attributes.put("p50Ms", Long.toString(timer.getPercentileMillis(50)));
+                attributes.put("p90Ms", Long.toString(timer.getPercentileMillis(90)));
+                attributes.put("p99Ms", Long.toString(timer.getPercentileMillis(99)));
+                attributes.put("maxMs", Long.toString(toMillis(timer.getMaxNanos())));
+                DOMHelper.appendChild(doc, eTimers, "timer", "", attributes);
+            }
+
+            Element eCounters = doc.createElement("counters");
+            eRoot.appendChild(eCounters);
+            for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(COUNTERS).entrySet()) {
+                DOMHelper.appendChild(doc, eCounters, "counter", Long.toString(entry.getValue().get()), "name", entry.getKey());
+            }
+
+            Element eGauges = doc.createElement("gauges");
+            eRoot.appendChild(eGauges);
+            for (Map.Entry<String, Gauge> entry : new TreeMap<>(GAUGES).entrySet()) {
+                Gauge gauge = entry.getValue();
+                Map<String, String> attributes = new HashMap<>();
+                attributes.put("name", entry.getKey());
+                attributes.put("samples", Long.toString(gauge.getSamples()));
+                attributes.put("mean", Long.toString(gauge.getMean()));
+                attributes.put("max", Long.toString(gauge.getMax()));
+                attributes.put("last", Long.toString(gauge.getLast()));
+                DOMHelper.appendChild(doc, eGauges, "gauge", "", attributes);
+            }
+
+            DOMHelper.writeDocumentToFile(doc, metricsFile.getAbsolutePath());
+        } catch (ParserConfigurationException | DOMException ex) {
+            LOG.error("Error creating {} file: {}", metricsFile.getName(), ex.getMessage());
+            LOG.error(SystemTools.getStackTrace(ex));
+        }
+    }
+
+    /**
+     * Record the duration of each processing phase from the jukebox times
+     */
+    private static void recordPhases() {
+        long previous = JukeboxStatistics.getTime(JukeboxTimes.START);
+        for (JukeboxTimes timeType : JukeboxTimes.values()) {
+            long time = JukeboxStatistics.getTime(timeType);
+            if (timeType != JukeboxTimes.START && previous > 0 && time >= previous) {
+                getTimer(Group.PHASE, timeType.name().toLowerCase()).record(TimeUnit.MILLISECONDS.toNanos(time - previous));
+                previous = time;
+            }
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Latency histogram with power of two millisecond buckets
+     */
+    public static final class Timer {
+
+        // bucket 0 holds the times below 1ms, bucket n the times below 2^n ms
+        private static final int BUCKETS = 32;
+        private final Group group;
+        private final String name;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private Timer(Group group, String name) {
+            this.group = group;
+            this.name = name;
+        }
+
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            count.incrementAndGet();
+            totalNanos.addAndGet(value);
+            long max = maxNanos.get();
+            while (value > max && !maxNanos.compareAndSet(max, value)) {
+                max = maxNanos.get();
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(value);
+            int bucket = millis == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+            buckets.incrementAndGet(bucket);
+        }
+
+        public Group getGroup() {
+            return group;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public long getMeanNanos() {
+            long samples = count.get();
+            return samples == 0 ? 0 : totalNanos.get() / samples;
+        }
+
+        /**
+         * Get the upper bound of the bucket holding the percentile
+         *
+         * @param percentile 0 to 100
+         * @return the time in milliseconds
+         */
+        public long getPercentileMillis(int percentile) {
+            long samples = count.get();
+            if (samples == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (samples * percentile + 99) / 100);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += buckets.get(bucket);
+                if (seen >= rank) {
+                    return Math.min(1L << bucket, toMillis(maxNanos.get()));
+                }
+            }
+            return toMillis(maxNanos.get());
+        }
+    }
+
+    /**
+     * Samples of a value like a queue depth
+     */
+    public static final class Gauge {
+
+        private final AtomicLong samples = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+        private volatile long last;
+
+        private void sample(long value) {
+            samples.incrementAndGet();
+            total.addAndGet(value);
+            last = value;
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        public long getSamples() {
+            return samples.get();
+        }
+
+        public long getMean() {
+            long count = samples.get();
+            return count == 0 ? 0 : total.get() / count;
+        }
+
+        public long getMax() {
+            return samples.get() == 0 ? 0 : max.get();
+        }
+
+        public long getLast() {
+            return last;
+        }
+    }
+}
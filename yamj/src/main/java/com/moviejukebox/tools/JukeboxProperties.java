@@ -47,6 +47,8 @@ import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -86,6 +88,8 @@ public final class JukeboxProperties {
     private static final boolean MONITOR = PropertiesUtil.getBooleanProperty("mjb.monitorJukeboxProperties", Boolean.FALSE);
     private static final Collection<PropertyInformation> PROPINFO = new ArrayList<>();
     private static boolean scanningLimitReached = Boolean.FALSE;   // Were videos skipped during processing?
+    private static boolean propertiesChanged = Boolean.FALSE;      // Have the monitored properties changed?
+    private static final Map<String, String> FORCED = new HashMap<>(); // The original values of the forced overwrites
     // Literals
     private static final String JUKEBOX = "jukebox";
     private static final String SKIN_ELEMENT = "skin";
@@ -265,9 +269,19 @@ public final class JukeboxProperties {
 
                 if (!pi.getOverwrites().isEmpty()) {
                     LOG.debug("Found {} overwites to set.", pi.getOverwrites().size());
+                    propertiesChanged = Boolean.TRUE;
                     for (PropertyOverwrites po : pi.getOverwrites()) {
+                        if (BuildGraph.isTracked(po)) {
+                            // The changed files are found with the build graph
+                            LOG.debug("Not setting 'force{}Overwrite', the build graph finds the changed files", po.toString());
+                            continue;
+                        }
                         LOG.debug("Setting 'force{}Overwrite = true' due to property file changes", po.toString());
-                        PropertiesUtil.setProperty("mjb.force" + po.toString() + "Overwrite", Boolean.TRUE);
+                        String key = "mjb.force" + po.toString() + "Overwrite";
+                        if (!FORCED.containsKey(key)) {
+                            FORCED.put(key, PropertiesUtil.getProperty(key, Boolean.FALSE.toString()));
+                        }
+                        PropertiesUtil.setProperty(key, Boolean.TRUE);
                     }
                 } else {
                     LOG.debug("Properties haven't changed, no updates necessary");
@@ -594,6 +608,15 @@ public final class JukeboxProperties {
         return MONITOR;
     }
 
+    /**
+     * Have the monitored properties changed since the last run
+     *
+     * @return
+     */
+    public static boolean isPropertiesChanged() {
+        return propertiesChanged;
+    }
+
     /**
      * Were videos skipped during the processing
      *
@@ -611,4 +634,20 @@ public final class JukeboxProperties {
     public static void setScanningLimitReached(boolean scanningLimitReached) {
         JukeboxProperties.scanningLimitReached = scanningLimitReached;
     }
+
+    /**
+     * Reset the state of the last run before the jukebox is updated again.
+     *
+     * The overwrites forced by the changed properties are set back to their
+     * original values, the next run only forces them if the properties change
+     * again.
+     */
+    public static void reset() {
+        scanningLimitReached = Boolean.FALSE;
+        propertiesChanged = Boolean.FALSE;
+        for (Map.Entry<String, String> entry : FORCED.entrySet()) {
+            PropertiesUtil.setProperty(entry.getKey(), entry.getValue());
+        }
+        FORCED.clear();
+    }
 }
@@ -0,0 +1,178 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Mask all occurrences of a set of keywords in a text.
+ *
+ * The keywords are compiled into an Aho-Corasick automaton, so the text is
+ * scanned once regardless of the number of keywords. Overlapping occurrences
+ * are masked as one.
+ */
+public final class KeywordMasker {
+
+    private static final int ROOT = 0;
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final int[] failure;
+    // the length of the longest keyword ending in the state
+    private final int[] longest;
+    private final String replacement;
+
+    /**
+     * Create the masker
+     *
+     * @param keywords the keywords to mask, empty keywords are ignored
+     * @param replacement the text to replace the keywords with
+     */
+    public KeywordMasker(Collection<String> keywords, String replacement) {
+        this.replacement = replacement;
+
+        List<Integer> lengths = new ArrayList<>();
+        transitions.add(new HashMap<Character, Integer>());
+        lengths.add(0);
+        for (String keyword : keywords) {
+            if (keyword == null || keyword.isEmpty()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                Character c = keyword.charAt(i);
+                Integer next = transitions.get(state).get(c);
+                if (next == null) {
+                    next = transitions.size();
+                    transitions.add(new HashMap<Character, Integer>());
+                    lengths.add(0);
+                    transitions.get(state).put(c, next);
+                }
+                state = next;
+            }
+            lengths.set(state, keyword.length());
+        }
+
+        failure = new int[transitions.size()];
+        longest = new int[transitions.size()];
+
+        // Breadth first, so the failure state is always done before the state
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (Integer child : transitions.get(ROOT).values()) {
+            failure[child] = ROOT;
+            longest[child] = lengths.get(child);
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            for (Map.Entry<Character, Integer> entry : transitions.get(state).entrySet()) {
+                int child = entry.getValue();
+                int fail = failure[state];
+                while (fail != ROOT && !transitions.get(fail).containsKey(entry.getKey())) {
+                    fail = failure[fail];
+                }
+                Integer target = transitions.get(fail).get(entry.getKey());
+                failure[child] = (target == null || target == child) ? ROOT : target;
+                longest[child] = Math.max(lengths.get(child), longest[failure[child]]);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Check if there are any keywords to mask
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return transitions.size() == 1;
+    }
+
+    /**
+     * Mask the keywords in the text
+     *
+     * @param text
+     * @return the masked text or the same text if it contains no keyword
+     */
+    public String mask(String text) {
+        if (text == null || isEmpty()) {
+            return text;
+        }
+
+        // the start and end of the masked ranges
+        int[] ranges = null;
+        int count = 0;
+
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            Character c = text.charAt(i);
+            Integer next = transitions.get(state).get(c);
+            while (next == null && state != ROOT) {
+                state = failure[state];
+                next = transitions.get(state).get(c);
+            }
+            state = next == null ? ROOT : next;
+
+            if (longest[state] > 0) {
+                int start = i - longest[state] + 1;
+                if (ranges == null) {
+                    ranges = new int[8];
+                }
+                // drop the ranges within this one
+                while (count > 0 && start <= ranges[count * 2 - 2]) {
+                    count--;
+                }
+                if (count > 0 && start <= ranges[count * 2 - 1]) {
+                    // overlapping, extend the last range
+                    ranges[count * 2 - 1] = i;
+                } else {
+                    if (ranges.length < (count + 1) * 2) {
+                        int[] larger = new int[ranges.length * 2];
+                        System.arraycopy(ranges, 0, larger, 0, ranges.length);
+                        ranges = larger;
+                    }
+                    ranges[count * 2] = start;
+                    ranges[count * 2 + 1] = i;
+                    count++;
+                }
+            }
+        }
+
+        if (count == 0) {
+            return text;
+        }
+
+        StringBuilder masked = new StringBuilder(text.length());
+        int position = 0;
+        for (int r = 0; r < count; r++) {
+            masked.append(text, position, ranges[r * 2]).append(replacement);
+            position = ranges[r * 2 + 1] + 1;
+        }
+        masked.append(text, position, text.length());
+        return masked.toString();
+    }
+}
@@ -67,6 +67,14 @@ public final class ScanningLimit {
         return (!limitReached);
     }
 
+    /**
+     * Return all the tokens to the pool for a new run
+     */
+    public static synchronized void reset() {
+        tokensUsed = 0;
+        limitReached = Boolean.FALSE;
+    }
+
     /**
      * Get the limit for scanning
      *
@@ -0,0 +1,77 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pool of canonical string instances.
+ *
+ * Values such as genres, countries, certifications, codecs and sources
+ * repeat across thousands of videos. Routing them through the pool lets all
+ * the videos share one instance per distinct value instead of each keeping
+ * its own copy from the parser.
+ *
+ * The pool is never trimmed, so only use it for values with a limited
+ * vocabulary, never for names, paths or free text like plots or titles.
+ */
+public final class StringPool {
+
+    private static final ConcurrentMap<String, String> POOL = new ConcurrentHashMap<>(4096);
+
+    private StringPool() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    /**
+     * Get the canonical instance of the value
+     *
+     * @param value
+     * @return the pooled instance, or null if the value is null
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        String pooled = POOL.putIfAbsent(value, value);
+        return pooled == null ? value : pooled;
+    }
+
+    /**
+     * Get the number of distinct values in the pool
+     *
+     * @return
+     */
+    public static int size() {
+        return POOL.size();
+    }
+
+    /**
+     * Remove all values from the pool
+     */
+    public static void clear() {
+        POOL.clear();
+    }
+}
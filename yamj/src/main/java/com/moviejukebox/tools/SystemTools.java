@@ -54,6 +54,7 @@ public final class SystemTools {
         long memoryMaximum = Runtime.getRuntime().maxMemory();
         long memoryAllocated = Runtime.getRuntime().totalMemory();
         long memoryFree = Runtime.getRuntime().freeMemory();
+        JukeboxMetrics.gauge("memory.used", memoryAllocated - memoryFree);
         float memoryPercentage = ((memoryFree / memoryMaximum) * 100F);
 
         if (SHOW_MEMORY) {
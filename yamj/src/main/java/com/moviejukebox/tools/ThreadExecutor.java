@@ -22,13 +22,12 @@
  */
 package com.moviejukebox.tools;
 
+import com.moviejukebox.tools.HostConcurrencyLimiter.HostLimit;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Stack;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -40,8 +39,6 @@ import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,38 +51,6 @@ public class ThreadExecutor<T> implements ThreadFactory {
     private final int threadsRun, threadsIo, threadsTotal;
     private final boolean ignoreErrors = true;
     private Semaphore runningThreads, ioThreads;
-    private static final Map<String, String> HOST_GROUP = new HashMap<>();
-    private static final Map<String, Semaphore> GROUP_LIMITS = new HashMap<>();
-
-    /**
-     * Handle IO slots allocation to avoid throttling / ban on source sites
-     * <p>
-     * Find the proper semaphore for each host:<br/>
-     * - Map each unique host to a group (hostgrp)<br/>
-     * - Max each group (rule) to a semaphore
-     *
-     * @author Gabriel Corneanu
-     */
-    static {
-        // First we have to read/create the rules
-        // Default, can be overridden
-        GROUP_LIMITS.put(".*", new Semaphore(1));
-        String limitsProperty = PropertiesUtil.getProperty("mjb.MaxDownloadSlots", ".*=1");
-        LOG.debug("Using download limits: {}", limitsProperty);
-
-        Pattern semaphorePattern = Pattern.compile(",?\\s*([^=]+)=(\\d+)");
-        Matcher semaphoreMatcher = semaphorePattern.matcher(limitsProperty);
-        while (semaphoreMatcher.find()) {
-            String group = semaphoreMatcher.group(1);
-            try {
-                Pattern.compile(group);
-                LOG.debug("{}={}", group, semaphoreMatcher.group(2));
-                GROUP_LIMITS.put(group, new Semaphore(Integer.parseInt(semaphoreMatcher.group(2))));
-            } catch (NumberFormatException error) {
-                LOG.debug("Rule '{}' is not valid regexp, ignored", group);
-            }
-        }
-    }
 
     /**
      * Helper class Encapsulates a fixed thread pool ExecutorService Saves
@@ -108,12 +73,16 @@ public class ThreadExecutor<T> implements ThreadFactory {
     }
 
     /*
-     * Thread descendant class used for our execution scheduling
+     * Thread descendant class used for our execution scheduling; without the
+     * semaphores the thread only takes the slots of the hosts
      */
     private static final class ScheduledThread extends Thread {
 
         private final Semaphore sRun, sIo;
-        private Semaphore sIotarget;
+        private HostLimit sIotarget;
+        private long ioStart;
+        private int ioStatus = HostConcurrencyLimiter.STATUS_UNKNOWN;
+        private long ioRetryAfter;
         private final Stack<String> hosts = new Stack<>();
 
         private ScheduledThread(Runnable r, Semaphore sRun, Semaphore sIo) {
@@ -124,6 +93,10 @@ public class ThreadExecutor<T> implements ThreadFactory {
 
         @Override
         public void run() {
+            if (sRun == null) {
+                super.run();
+                return;
+            }
             sRun.acquireUninterruptibly();
             try {
                 super.run();
@@ -143,37 +116,30 @@ public class ThreadExecutor<T> implements ThreadFactory {
                 hosts.push(host);
                 return;
             }
-            String semaphoreGroup;
-            synchronized (HOST_GROUP) {
-                semaphoreGroup = HOST_GROUP.get(host);
-                // first time not found, search for matching group
-                if (semaphoreGroup == null) {
-                    semaphoreGroup = ".*";
-                    for (String searchGroup : GROUP_LIMITS.keySet()) {
-                        if (host.matches(searchGroup)) {
-                            if (searchGroup.length() > semaphoreGroup.length()) {
-                                semaphoreGroup = searchGroup;
-                            }
-                        }
-                    }
-                    LOG.debug("IO download host: {}; rule: {}", host, semaphoreGroup);
-                    HOST_GROUP.put(host, semaphoreGroup);
-                }
-            }
 
             // there should be NO way to fail
-            //String dbgstr = "host="+host+"; thread="+getName();
-            //logger.finest("ThreadExecutor: Try EnterIO: "+dbgstr);
-            Semaphore s = GROUP_LIMITS.get(semaphoreGroup);
-            sIotarget = s;
-            sRun.release(); // exit running state; another thread might be released;
-            sIotarget.acquireUninterruptibly(); // aquire URL target semaphore
+            sIotarget = HostConcurrencyLimiter.getLimit(host);
+            if (sRun != null) {
+                sRun.release(); // exit running state; another thread might be released;
+            }
+            sIotarget.acquire(); // aquire URL target slot
             hosts.push(host);
-            sIo.acquireUninterruptibly(); // enter io state
-            //logger.finest("ThreadExecutor: EnterIO done: "+dbgstr);
+            if (sIo != null) {
+                sIo.acquireUninterruptibly(); // enter io state
+            }
+            ioStart = System.currentTimeMillis();
+            ioStatus = HostConcurrencyLimiter.STATUS_UNKNOWN;
+            ioRetryAfter = 0;
             //ready to go...
         }
 
+        private void reportIO(int statusCode, long retryAfterMillis) {
+            if (!hosts.empty()) {
+                ioStatus = statusCode;
+                ioRetryAfter = retryAfterMillis;
+            }
+        }
+
         private void leaveIO() {
             if (hosts.empty()) {
                 LOG.info(SystemTools.getStackTrace(new Throwable("ThreadExecutor: Unbalanced LeaveIO call.")));
@@ -187,13 +153,12 @@ public class ThreadExecutor<T> implements ThreadFactory {
                 return;
             }
 
-            //String dbgstr = "host="+host+"; thread="+getName();
-            sIotarget.release();
-            sIo.release();
+            sIotarget.release(System.currentTimeMillis() - ioStart, ioStatus, ioRetryAfter);
             sIotarget = null;
-            //logger.finest("ThreadExecutor: Try LeaveIO: "+dbgstr);
-            sRun.acquireUninterruptibly(); //back to running state
-            //logger.finest("ThreadExecutor: LeaveIO done: "+dbgstr);
+            if (sIo != null) {
+                sIo.release();
+                sRun.acquireUninterruptibly(); //back to running state
+            }
         }
     }
 
@@ -222,6 +187,19 @@ public class ThreadExecutor<T> implements ThreadFactory {
         enterIO(u);
     }
 
+    /**
+     * Report the outcome of the current IO operation, used to adapt the slot
+     * limit of the host when the IO is left
+     *
+     * @param statusCode the HTTP status or HostConcurrencyLimiter.STATUS_IO_ERROR
+     * @param retryAfterMillis the delay requested by the host
+     */
+    public static void reportIO(int statusCode, long retryAfterMillis) {
+        if (Thread.currentThread() instanceof ScheduledThread) {
+            ((ScheduledThread) Thread.currentThread()).reportIO(statusCode, retryAfterMillis);
+        }
+    }
+
     public static void leaveIO() {
         if (!(Thread.currentThread() instanceof ScheduledThread)) {
             //logger.info(getStackTrace(new Throwable("ThreadExecutor: Unmanaged thread call to LeaveIO; ignored.")));
@@ -231,6 +209,24 @@ public class ThreadExecutor<T> implements ThreadFactory {
         ((ScheduledThread) Thread.currentThread()).leaveIO();
     }
 
+    /**
+     * Create a daemon thread for a pool that is not run by a ThreadExecutor.
+     *
+     * The thread is not counted against the running and io threads, but
+     * EnterIO and LeaveIO take and release the slot of the host just like on
+     * the processing threads.
+     *
+     * @param r
+     * @param name
+     * @return the thread
+     */
+    public static Thread newIoThread(Runnable r, String name) {
+        Thread thread = new ScheduledThread(r, null, null);
+        thread.setName(name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
     @Override
     public Thread newThread(Runnable r) {
         return new ScheduledThread(r, runningThreads, ioThreads);
@@ -261,6 +257,8 @@ public class ThreadExecutor<T> implements ThreadFactory {
             Thread.sleep(5);
         }
         values.add(pool.submit(c));
+        JukeboxMetrics.gauge("threadexecutor.queue", queue.size());
+        JukeboxMetrics.gauge("threadexecutor.active", pool.getActiveCount());
     }
 
     public void submit(Runnable r) throws InterruptedException {
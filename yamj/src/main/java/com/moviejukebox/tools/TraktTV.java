@@ -22,8 +22,12 @@
  */
 package com.moviejukebox.tools;
 
+import com.moviejukebox.tools.TraktWatchedIndex.IdType;
+import com.moviejukebox.tools.TraktWatchedIndex.WatchedEntry;
 import java.io.*;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import org.apache.commons.lang.math.NumberUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -31,7 +35,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamj.api.trakttv.TraktTvApi;
 import org.yamj.api.trakttv.auth.TokenResponse;
+import org.yamj.api.trakttv.model.Ids;
+import org.yamj.api.trakttv.model.TrackedEpisode;
 import org.yamj.api.trakttv.model.TrackedMovie;
+import org.yamj.api.trakttv.model.TrackedSeason;
 import org.yamj.api.trakttv.model.TrackedShow;
 import org.yamj.api.trakttv.model.enumeration.Extended;
 
@@ -49,8 +56,8 @@ public class TraktTV {
     private boolean initialized = false;
     private boolean preloadWatchedMovies = false;
     private boolean preloadWatchedShows = false;
-    private List<TrackedMovie> watchedMovies;
-    private List<TrackedShow> watchedShows;
+    private TraktWatchedIndex watchedMovies;
+    private TraktWatchedIndex watchedShows;
     private String refreshToken = null;
     private long expirationDate = 0;
     
@@ -178,7 +185,7 @@ public class TraktTV {
         if (this.initialized && !this.preloadWatchedMovies) {
             try {
                 // get watched movies from Trakt.TV
-                this.watchedMovies = traktTvApi.syncService().getWatchedMovies(Extended.MINIMAL);
+                this.watchedMovies = indexMovies(traktTvApi.syncService().getWatchedMovies(Extended.MINIMAL));
                 LOG.info("Found {} watched movies on Trakt.TV", this.watchedMovies.size());
                 this.preloadWatchedMovies = true;
             } catch (Exception ex) {
@@ -189,7 +196,7 @@ public class TraktTV {
         if (this.initialized && !this.preloadWatchedShows) {
             try {
                 // get watched movies from Trakt.TV
-                this.watchedShows = traktTvApi.syncService().getWatchedShows(Extended.MINIMAL);
+                this.watchedShows = indexShows(traktTvApi.syncService().getWatchedShows(Extended.MINIMAL));
                 LOG.info("Found {} watched shows on Trakt.TV", this.watchedShows.size());
                 this.preloadWatchedShows = true;
             } catch (Exception ex) {
@@ -206,11 +213,49 @@ public class TraktTV {
         return preloadWatchedShows;
     }
 
-    public List<TrackedMovie> getWatchedMovies() {
+    public TraktWatchedIndex getWatchedMovies() {
         return watchedMovies;
     }
 
-    public List<TrackedShow> getWatchedShows() {
+    public TraktWatchedIndex getWatchedShows() {
         return watchedShows;
     }
+
+    private static TraktWatchedIndex indexMovies(List<TrackedMovie> trackedMovies) {
+        TraktWatchedIndex index = new TraktWatchedIndex();
+        for (TrackedMovie tracked : trackedMovies) {
+            index.add(getIds(tracked.getMovie().getIds()), tracked.getLastWatchedAt().withMillisOfSecond(0).getMillis());
+        }
+        return index;
+    }
+
+    private static TraktWatchedIndex indexShows(List<TrackedShow> trackedShows) {
+        TraktWatchedIndex index = new TraktWatchedIndex();
+        for (TrackedShow tracked : trackedShows) {
+            WatchedEntry show = index.add(getIds(tracked.getShow().getIds()), 0);
+            for (TrackedSeason season : tracked.getSeasons()) {
+                if (season.getNumber() == null) {
+                    continue;
+                }
+                for (TrackedEpisode episode : season.getEpisodes()) {
+                    if (episode.getNumber() != null) {
+                        index.addEpisode(show, season.getNumber().intValue(), episode.getNumber().intValue(),
+                                episode.getLastWatchedAt().withMillisOfSecond(0).getMillis());
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    private static Map<IdType, String> getIds(Ids ids) {
+        Map<IdType, String> result = new EnumMap<>(IdType.class);
+        result.put(IdType.TRAKT, ids.trakt() == null ? null : ids.trakt().toString());
+        result.put(IdType.SLUG, ids.slug());
+        result.put(IdType.TVDB, ids.tvdb() == null ? null : ids.tvdb().toString());
+        result.put(IdType.TVRAGE, ids.tvRage());
+        result.put(IdType.TMDB, ids.tmdb() == null ? null : ids.tmdb().toString());
+        result.put(IdType.IMDB, ids.imdb());
+        return result;
+    }
 }
@@ -0,0 +1,173 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Index of the watched movies or shows preloaded from Trakt.TV.
+ *
+ * Every id of a watched entry is hashed, so a video is matched with one lookup
+ * per id type instead of comparing it with the whole watched history. The
+ * watched episodes are stored by (show, season, episode).
+ */
+public final class TraktWatchedIndex {
+
+    /**
+     * The ids a watched entry can be found by, in the order they are checked
+     */
+    public enum IdType {
+
+        TRAKT,
+        SLUG,
+        TVDB,
+        TVRAGE,
+        TMDB,
+        IMDB
+    }
+
+    private final Map<IdType, Map<String, WatchedEntry>> ids = new EnumMap<>(IdType.class);
+    private final Map<Long, Long> episodes = new HashMap<>();
+    private int size = 0;
+
+    public TraktWatchedIndex() {
+        for (IdType idType : IdType.values()) {
+            ids.put(idType, new HashMap<String, WatchedEntry>());
+        }
+    }
+
+    /**
+     * Add a watched movie or show.
+     *
+     * If an id is used by more than one entry, the first added entry is kept.
+     *
+     * @param entryIds the ids of the entry, missing ids can be null
+     * @param lastWatched the watched date in milliseconds
+     * @return the entry
+     */
+    public WatchedEntry add(Map<IdType, String> entryIds, long lastWatched) {
+        WatchedEntry entry = new WatchedEntry(size++, entryIds.get(IdType.TRAKT), lastWatched);
+        for (Map.Entry<IdType, String> id : entryIds.entrySet()) {
+            String key = normalize(id.getValue());
+            if (key != null && !ids.get(id.getKey()).containsKey(key)) {
+                ids.get(id.getKey()).put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Add a watched episode of a show
+     *
+     * @param show
+     * @param season
+     * @param episode
+     * @param lastWatched the watched date in milliseconds
+     */
+    public void addEpisode(WatchedEntry show, int season, int episode, long lastWatched) {
+        episodes.put(episodeKey(show, season, episode), lastWatched);
+    }
+
+    /**
+     * Find the entry for the ids of a video.
+     *
+     * The Trakt.TV id of the video is checked against the trakt id and the
+     * slug of the entries.
+     *
+     * @param videoIds the ids of the video, missing ids can be null
+     * @return the matching entry or null if the video is not watched
+     */
+    public WatchedEntry find(Map<IdType, String> videoIds) {
+        for (IdType idType : IdType.values()) {
+            String key = normalize(videoIds.get(idType == IdType.SLUG ? IdType.TRAKT : idType));
+            if (key != null) {
+                WatchedEntry entry = ids.get(idType).get(key);
+                if (entry != null) {
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the watched date of an episode
+     *
+     * @param show
+     * @param season
+     * @param episode
+     * @return the watched date in milliseconds, 0 if not watched
+     */
+    public long getWatchedDate(WatchedEntry show, int season, int episode) {
+        if (show == null) {
+            return 0;
+        }
+        Long watched = episodes.get(episodeKey(show, season, episode));
+        return watched == null ? 0 : watched;
+    }
+
+    /**
+     * The number of watched movies or shows
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    private static Long episodeKey(WatchedEntry show, int season, int episode) {
+        return ((long) show.index << 32) | ((season & 0xFFFFL) << 16) | (episode & 0xFFFFL);
+    }
+
+    private static String normalize(String id) {
+        String key = StringUtils.trimToNull(id);
+        return key == null ? null : key.toLowerCase();
+    }
+
+    /**
+     * A watched movie or show
+     */
+    public static final class WatchedEntry {
+
+        private final int index;
+        private final String traktId;
+        private final long lastWatched;
+
+        private WatchedEntry(int index, String traktId, long lastWatched) {
+            this.index = index;
+            this.traktId = StringUtils.trimToNull(traktId);
+            this.lastWatched = lastWatched;
+        }
+
+        public String getTraktId() {
+            return traktId;
+        }
+
+        public long getLastWatched() {
+            return lastWatched;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copy a directory tree with several threads.
+ *
+ * The tree is walked once; the files are copied by a bounded pool, the small
+ * files in batches so a task is not needed for each of them. Files whose
+ * size and date already match the target are skipped, the copies keep the
+ * date of the source for this. When the source may be moved and both trees
+ * are on the same volume, the files are renamed instead of copied.
+ */
+public final class TreeCopy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TreeCopy.class);
+    private static final int THREADS = Math.max(1, PropertiesUtil.getIntProperty("mjb.publish.threads", 4));
+    // files up to this size are copied in batches
+    private static final long SMALL_FILE = 64 * 1024L;
+    private static final int BATCH_FILES = 64;
+    private static final long BATCH_BYTES = 1024 * 1024L;
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "TreeCopy");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private TreeCopy() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    /**
+     * Copy the files of the source directory into the target directory
+     *
+     * @param sourceDir The source directory to copy from
+     * @param targetDir The target directory to copy to
+     * @param move The files may be moved rather than copied
+     * @param updateDisplay Display an update to the console
+     * @return the number of copied or moved files
+     */
+    public static int copyTree(File sourceDir, File targetDir, boolean move, boolean updateDisplay) {
+        Path source = sourceDir.toPath();
+        Path target = targetDir.toPath();
+        if (!Files.isDirectory(source)) {
+            LOG.error("Source directory {} does not exist!", sourceDir);
+            return 0;
+        }
+
+        try {
+            Files.createDirectories(target);
+        } catch (IOException ex) {
+            LOG.error("Target directory {} does not exist!", targetDir);
+            return 0;
+        }
+
+        boolean rename = move && isSameVolume(source, target);
+        // the walk copies a batch itself when the pool is busy
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(THREADS * 4), THREAD_FACTORY, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        Walker walker = new Walker(source, target, rename, pool, updateDisplay);
+        try {
+            Files.walkFileTree(source, walker);
+        } catch (IOException ex) {
+            LOG.error("Failed to copy '{}' to '{}'", sourceDir, targetDir);
+            LOG.error(SystemTools.getStackTrace(ex));
+        }
+        walker.submitBatch();
+        pool.shutdown();
+
+        try {
+            while (!pool.awaitTermination(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS)) {
+                walker.showProgress(false);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        walker.showProgress(true);
+
+        LOG.debug("{} {} files from {}, {} unchanged, {} failed", rename ? "Moved" : "Copied", walker.copied.get(),
+                sourceDir.getAbsolutePath(), walker.skipped.get(), walker.failed.get());
+        return walker.copied.get();
+    }
+
+    private static boolean isSameVolume(Path source, Path target) {
+        try {
+            return Files.getFileStore(source).equals(Files.getFileStore(target));
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Walk the source tree, create the directories and hand the files to the
+     * pool
+     */
+    private static final class Walker extends SimpleFileVisitor<Path> {
+
+        private final Path source;
+        private final Path target;
+        private final boolean rename;
+        private final ThreadPoolExecutor pool;
+        private final boolean updateDisplay;
+        private final AtomicInteger copied = new AtomicInteger(0);
+        private final AtomicInteger skipped = new AtomicInteger(0);
+        private final AtomicInteger failed = new AtomicInteger(0);
+        private int total = 0;
+        private long lastProgress = 0;
+        private List<Path> batch = new ArrayList<>();
+        private List<BasicFileAttributes> batchAttributes = new ArrayList<>();
+        private long batchBytes = 0;
+
+        Walker(Path source, Path target, boolean rename, ThreadPoolExecutor pool, boolean updateDisplay) {
+            this.source = source;
+            this.target = target;
+            this.rename = rename;
+            this.pool = pool;
+            this.updateDisplay = updateDisplay;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+            if (".svn".equals(String.valueOf(dir.getFileName()))) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+            Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            total++;
+            batch.add(file);
+            batchAttributes.add(attrs);
+            batchBytes += attrs.size();
+            if (attrs.size() > SMALL_FILE || batch.size() >= BATCH_FILES || batchBytes >= BATCH_BYTES) {
+                submitBatch();
+            }
+            showProgress(false);
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException ex) {
+            LOG.error("Failed to read '{}': {}", file, ex.getMessage());
+            failed.incrementAndGet();
+            return FileVisitResult.CONTINUE;
+        }
+
+        void submitBatch() {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            final List<Path> files = batch;
+            final List<BasicFileAttributes> attributes = batchAttributes;
+            batch = new ArrayList<>();
+            batchAttributes = new ArrayList<>();
+            batchBytes = 0;
+
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < files.size(); i++) {
+                        copy(files.get(i), attributes.get(i));
+                    }
+                }
+            });
+        }
+
+        private void copy(Path file, BasicFileAttributes attrs) {
+            Path targetFile = target.resolve(source.relativize(file).toString());
+            try {
+                if (rename) {
+                    try {
+                        Files.move(file, targetFile, StandardCopyOption.ATOMIC_MOVE);
+                        copied.incrementAndGet();
+                        return;
+                    } catch (IOException ex) {
+                        // copy it instead
+                        LOG.trace("Unable to move {}: {}", file, ex.getMessage());
+                    }
+                }
+
+                if (isUnchanged(targetFile, attrs)) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+
+                if (!AssetSync.copyPlaceholder(file.toFile(), targetFile.toFile())) {
+                    AssetSync.unlinkShared(targetFile.toFile());
+                    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+                            FileChannel out = FileChannel.open(targetFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                        long position = 0;
+                        long size = in.size();
+                        while (position < size) {
+                            position += in.transferTo(position, size - position, out);
+                        }
+                    }
+                    Files.setLastModifiedTime(targetFile, attrs.lastModifiedTime());
+                }
+                copied.incrementAndGet();
+            } catch (IOException ex) {
+                LOG.error("Failed copying file '{}' to '{}': {}", file, targetFile, ex.getMessage());
+                failed.incrementAndGet();
+            }
+        }
+
+        private static boolean isUnchanged(Path targetFile, BasicFileAttributes attrs) {
+            try {
+                BasicFileAttributes targetAttrs = Files.readAttributes(targetFile, BasicFileAttributes.class);
+                return targetAttrs.isRegularFile()
+                        && targetAttrs.size() == attrs.size()
+                        && targetAttrs.lastModifiedTime().toMillis() == attrs.lastModifiedTime().toMillis();
+            } catch (IOException ex) {
+                // no target file
+                return false;
+            }
+        }
+
+        void showProgress(boolean last) {
+            if (!updateDisplay) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (last || now - lastProgress >= PROGRESS_INTERVAL) {
+                lastProgress = now;
+                int done = copied.get() + skipped.get() + failed.get();
+                System.out.print("\r    Copying files (" + done + "/" + total + ")" + (last ? "\n" : ""));
+            }
+        }
+    }
+}
@@ -104,6 +104,7 @@ public class WebBrowser {
 
         // get the download limit for the host
         ThreadExecutor.enterIO(url);
+        long start = JukeboxMetrics.start();
         StringWriter content = new StringWriter(10 * 1024);
         try {
 
@@ -115,6 +116,12 @@ public class WebBrowser {
                 sendHeader(cnx);
                 readHeader(cnx);
 
+                if (cnx instanceof HttpURLConnection) {
+                    // report the outcome to adapt the download slots of the host
+                    HttpURLConnection httpCnx = (HttpURLConnection) cnx;
+                    ThreadExecutor.reportIO(httpCnx.getResponseCode(), HostConcurrencyLimiter.parseRetryAfter(httpCnx.getHeaderField("Retry-After")));
+                }
+
                 InputStreamReader inputStreamReader = null;
                 BufferedReader bufferedReader = null;
 
@@ -156,6 +163,7 @@ public class WebBrowser {
                 }
             } catch (SocketTimeoutException ex) {
                 LOG.error("Timeout Error with {}", url.toString());
+                ThreadExecutor.reportIO(HostConcurrencyLimiter.STATUS_IO_ERROR, 0);
             } finally {
                 if (cnx != null) {
                     if (cnx instanceof HttpURLConnection) {
@@ -166,6 +174,7 @@ public class WebBrowser {
             return content.toString();
         } finally {
             content.close();
+            JukeboxMetrics.record(JukeboxMetrics.Group.HOST, url.getHost().toLowerCase(), start);
             ThreadExecutor.leaveIO();
         }
     }
@@ -215,7 +224,7 @@ public class WebBrowser {
         checkRequest(cnx);
     }
 
-    private String createCookieHeader(URLConnection cnx) {
+    private synchronized String createCookieHeader(URLConnection cnx) {
         String host = cnx.getURL().getHost();
         StringBuilder cookiesHeader = new StringBuilder();
         for (Map.Entry<String, Map<String, String>> domainCookies : cookies.entrySet()) {
@@ -265,7 +274,7 @@ public class WebBrowser {
         }
     }
 
-    public void putCookie(String cookieDomain, String cookieName, String cookieValue) {
+    public synchronized void putCookie(String cookieDomain, String cookieName, String cookieValue) {
         if (cookieDomain != null) {
             Map<String, String> domainCookies = cookies.get(cookieDomain);
             if (domainCookies == null) {
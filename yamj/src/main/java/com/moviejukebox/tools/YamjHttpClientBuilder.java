@@ -22,9 +22,13 @@
  */
 package com.moviejukebox.tools;
 
+import com.moviejukebox.tools.cache.HttpFreshnessExec;
+import com.moviejukebox.tools.cache.PersistentHttpCacheStorage;
+import java.io.File;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.SocketAddress;
+import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
@@ -38,10 +42,10 @@ import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.config.SocketConfig;
 import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.cache.CacheConfig;
 import org.apache.http.impl.client.cache.CachingHttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.execchain.ClientExecChain;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamj.api.common.http.WebBrowserUserAgentSelector;
@@ -60,6 +64,12 @@ public class YamjHttpClientBuilder {
     private static final int TIMEOUT_SOCKET = PropertiesUtil.getIntProperty("mjb.Timeout.Socket", 90000);
     private static final int TIMEOUT_CONNECT = PropertiesUtil.getIntProperty("mjb.Timeout.Connect", 25000);
     private static final int TIMEOUT_READ = PropertiesUtil.getIntProperty("mjb.Timeout.Read", 90000);
+    private static final boolean CACHE_PERSISTENT = PropertiesUtil.getBooleanProperty("mjb.httpCache.persistent", Boolean.TRUE);
+    private static final String CACHE_DIR = PropertiesUtil.getProperty("mjb.httpCache.dir", "./cache/http");
+    private static final int CACHE_MAX_ENTRIES = PropertiesUtil.getIntProperty("mjb.httpCache.maxEntries", 20000);
+    private static final long CACHE_MAX_SIZE = PropertiesUtil.getLongProperty("mjb.httpCache.maxSize", 536870912L);
+    private static final int CACHE_MAX_OBJECT_SIZE = PropertiesUtil.getIntProperty("mjb.httpCache.maxObjectSize", 1048576);
+    private static final String CACHE_FRESHNESS = PropertiesUtil.getProperty("mjb.httpCache.freshness", "");
 
     private static YamjHttpClient YAMJ_HTTP_CLIENT;
     private static Lock LOCK = new ReentrantLock(true);
@@ -79,6 +89,49 @@ public class YamjHttpClientBuilder {
         return PROXY;
     }
     
+    /**
+     * Get the proxy as http host
+     *
+     * @return the proxy host or null if no proxy is set
+     */
+    public static HttpHost getProxyHost() {
+        if (StringUtils.isNotBlank(PROXY_HOST) && PROXY_PORT > 0) {
+            return new HttpHost(PROXY_HOST, PROXY_PORT);
+        }
+        return null;
+    }
+
+    /**
+     * Get the credentials for the proxy
+     *
+     * @return the credentials provider or null if no proxy credentials are set
+     */
+    public static CredentialsProvider getProxyCredentials() {
+        if (StringUtils.isNotBlank(PROXY_HOST) && PROXY_PORT > 0
+                && StringUtils.isNotBlank(PROXY_USERNAME) && StringUtils.isNotBlank(PROXY_PASSWORD)) {
+            CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+            credentialsProvider.setCredentials(
+                    new AuthScope(PROXY_HOST, PROXY_PORT),
+                    new UsernamePasswordCredentials(PROXY_USERNAME, PROXY_PASSWORD));
+            return credentialsProvider;
+        }
+        return null;
+    }
+
+    /**
+     * Get the default request configuration with the configured timeouts
+     *
+     * @return
+     */
+    public static RequestConfig.Builder getRequestConfig() {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(TIMEOUT_READ)
+                .setConnectTimeout(TIMEOUT_CONNECT)
+                .setSocketTimeout(TIMEOUT_SOCKET)
+                .setCookieSpec(CookieSpecs.IGNORE_COOKIES)
+                .setProxy(getProxyHost());
+    }
+
     public static void showStatus() {
         if (LOG.isTraceEnabled()) {
             if (StringUtils.isNotBlank(PROXY_HOST) && PROXY_PORT > 0) {
@@ -100,6 +153,12 @@ public class YamjHttpClientBuilder {
             LOG.trace("Socket Timeout:  {}", TIMEOUT_SOCKET);
             LOG.trace("Connect Timeout: {}", TIMEOUT_CONNECT);
             LOG.trace("Read Timeout   : {}", TIMEOUT_READ);
+
+            if (CACHE_PERSISTENT) {
+                LOG.trace("Http cache: {} ({} entries, {} bytes in total, {} bytes per response max)", CACHE_DIR, CACHE_MAX_ENTRIES, CACHE_MAX_SIZE, CACHE_MAX_OBJECT_SIZE);
+            } else {
+                LOG.trace("Http cache: in memory");
+            }
         }
     }
 
@@ -125,43 +184,47 @@ public class YamjHttpClientBuilder {
         LOG.trace("Create new YAMJ http client");
         
         // create proxy
-        HttpHost proxy = null;
-        CredentialsProvider credentialsProvider = null;
-        
-        if (StringUtils.isNotBlank(PROXY_HOST) && PROXY_PORT > 0) {
-            proxy = new HttpHost(PROXY_HOST, PROXY_PORT);
-          
-            if (StringUtils.isNotBlank(PROXY_USERNAME) && StringUtils.isNotBlank(PROXY_PASSWORD)) {
-                credentialsProvider = new BasicCredentialsProvider();
-                credentialsProvider.setCredentials(
-                        new AuthScope(PROXY_HOST, PROXY_PORT),
-                        new UsernamePasswordCredentials(PROXY_USERNAME, PROXY_PASSWORD));
-            }
-        }
-
+        HttpHost proxy = getProxyHost();
+        CredentialsProvider credentialsProvider = getProxyCredentials();
         
         PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager();
         connManager.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout(TIMEOUT_SOCKET).build());
         connManager.setMaxTotal(20);
         connManager.setDefaultMaxPerRoute(2);
         
-        CacheConfig cacheConfig = CacheConfig.custom()
-                        .setMaxCacheEntries(1000)
-                        .setMaxObjectSize(8192)
-                        .build();
-        
-        HttpClientBuilder builder = CachingHttpClientBuilder.create()
-                .setCacheConfig(cacheConfig)
-                .setConnectionManager(connManager)
+        final Map<Pattern, Integer> freshness = HttpFreshnessExec.parseRules(CACHE_PERSISTENT ? CACHE_FRESHNESS : null);
+
+        CachingHttpClientBuilder builder = new CachingHttpClientBuilder() {
+            @Override
+            protected ClientExecChain decorateMainExec(ClientExecChain mainExec) {
+                // take the host download slots for the requests going to the network and
+                // apply the host freshness policies before the response reaches the cache
+                ClientExecChain limitedExec = new HostLimitExec(mainExec);
+                if (freshness.isEmpty()) {
+                    return super.decorateMainExec(limitedExec);
+                }
+                return super.decorateMainExec(new HttpFreshnessExec(limitedExec, freshness));
+            }
+        };
+
+        if (CACHE_PERSISTENT) {
+            builder.setCacheConfig(CacheConfig.custom()
+                    .setMaxObjectSize(CACHE_MAX_OBJECT_SIZE)
+                    .setSharedCache(false)
+                    .setHeuristicCachingEnabled(true)
+                    .build());
+            builder.setHttpCacheStorage(new PersistentHttpCacheStorage(new File(CACHE_DIR), CACHE_MAX_ENTRIES, CACHE_MAX_SIZE));
+        } else {
+            builder.setCacheConfig(CacheConfig.custom()
+                    .setMaxCacheEntries(1000)
+                    .setMaxObjectSize(8192)
+                    .build());
+        }
+
+        builder.setConnectionManager(connManager)
                 .setProxy(proxy)
                 .setDefaultCredentialsProvider(credentialsProvider)
-                .setDefaultRequestConfig(RequestConfig.custom()
-                        .setConnectionRequestTimeout(TIMEOUT_READ)
-                        .setConnectTimeout(TIMEOUT_CONNECT)
-                        .setSocketTimeout(TIMEOUT_SOCKET)
-                        .setCookieSpec(CookieSpecs.IGNORE_COOKIES)
-                        .setProxy(proxy)
-                        .build());
+                .setDefaultRequestConfig(getRequestConfig().build());
 
         // show status
         showStatus();
@@ -169,7 +232,7 @@ public class YamjHttpClientBuilder {
         // build the client
         YamjHttpClient wrapper = new YamjHttpClient(builder.build(), connManager);
         wrapper.setUserAgentSelector(new WebBrowserUserAgentSelector());
-        wrapper.addGroupLimit(".*", 1); // default limit, can be overwritten
+        wrapper.addGroupLimit(".*", HostConcurrencyLimiter.getMaximumLimit(1)); // default limit, can be overwritten
         
         // First we have to read/create the rules
         String maxDownloadSlots = PropertiesUtil.getProperty("mjb.MaxDownloadSlots");
@@ -181,7 +244,9 @@ public class YamjHttpClientBuilder {
             while (matcher.find()) {
                 String group = matcher.group(1);
                 try {
-                    final Integer maxResults = Integer.valueOf(matcher.group(2));
+                    // the connection pool must allow the highest adaptive limit,
+                    // the actual limit is handled by the HostLimitExec
+                    final Integer maxResults = HostConcurrencyLimiter.getMaximumLimit(Integer.parseInt(matcher.group(2)));
                     wrapper.addGroupLimit(group, maxResults);
                     LOG.trace("Added download slot '{}' with max results {}", group, maxResults);
                 } catch (NumberFormatException error) {
@@ -0,0 +1,374 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools.cache;
+
+import com.moviejukebox.tools.PropertiesUtil;
+import com.moviejukebox.tools.SystemTools;
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import net.anidb.checksum.Md4Checksum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent store of the content hashes of the video files.
+ *
+ * The ed2k hash used by AniDB and the OpenSubtitles hash are stored together
+ * with the size, modification time and file key (inode) of the file. As long
+ * as these are unchanged the stored hash is returned, so a file is only read
+ * once for its lifetime and later runs cost a single stat call.
+ *
+ * The store is an append only text file, the last line for a file wins. It is
+ * compacted when loaded if it contains too many outdated lines.
+ */
+public final class ContentHashStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContentHashStore.class);
+    /**
+     * The size of an ed2k chunk
+     */
+    public static final int ED2K_CHUNK_SIZE = 9728000;
+    private static final int READ_SIZE = 65536;
+    private static final String NO_HASH = "NoHash";
+    private static final String SEPARATOR = "\t";
+    private static final String TYPE_ED2K = "ed2k";
+    private static final String TYPE_OPENSUBTITLES = "osdb";
+    private static final String STORE_FILE = PropertiesUtil.getProperty("mjb.hashStore.file", "./cache/hashes.txt");
+    private static final int HASH_THREADS = Math.max(1, PropertiesUtil.getIntProperty("mjb.hashStore.threads", 2));
+    private static final ExecutorService HASH_POOL = Executors.newFixedThreadPool(HASH_THREADS, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ContentHash");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final Map<String, HashEntry> ENTRIES = new ConcurrentHashMap<>();
+    private static File storeFile = new File(STORE_FILE);
+    private static boolean loaded = false;
+
+    private ContentHashStore() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    /**
+     * Get the ed2k hash of the file, calculating it if the file is not in the
+     * store or has been changed.
+     *
+     * @param file
+     * @return the hash in lower case hex
+     * @throws IOException
+     */
+    public static String getEd2k(File file) throws IOException {
+        BasicFileAttributes attr = readAttributes(file);
+        String hash = lookup(TYPE_ED2K, file, attr);
+        if (hash == null) {
+            hash = calculateEd2k(file);
+            store(TYPE_ED2K, file, attr, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Get the OpenSubtitles hash of the file, calculating it if the file is not
+     * in the store or has been changed.
+     *
+     * @param file
+     * @return the hash or "NoHash" if the file is too small
+     * @throws IOException
+     */
+    public static String getOpenSubtitlesHash(File file) throws IOException {
+        BasicFileAttributes attr = readAttributes(file);
+        String hash = lookup(TYPE_OPENSUBTITLES, file, attr);
+        if (hash == null) {
+            hash = calculateOpenSubtitlesHash(file);
+            store(TYPE_OPENSUBTITLES, file, attr, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Use another store file, the entries are loaded again on the next lookup.
+     *
+     * @param file
+     */
+    public static synchronized void setStoreFile(File file) {
+        storeFile = file;
+        ENTRIES.clear();
+        loaded = false;
+    }
+
+    /**
+     * Calculate the ed2k hash of the file.
+     *
+     * The chunks are mapped from the file channel and hashed in parallel, the
+     * result is identical to the one of net.anidb.checksum.Ed2kChecksum: a
+     * file with a single chunk uses the MD4 of this chunk, otherwise the MD4
+     * of the chunk hashes is used. A file which is a multiple of the chunk size
+     * ends with an empty chunk.
+     *
+     * @param file
+     * @return the hash in lower case hex
+     * @throws IOException
+     */
+    public static String calculateEd2k(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunkCount = (int) (size / ED2K_CHUNK_SIZE) + 1;
+
+            List<Future<byte[]>> futures = new ArrayList<>(chunkCount);
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                long position = (long) chunk * ED2K_CHUNK_SIZE;
+                futures.add(HASH_POOL.submit(new ChunkHash(channel, position, (int) Math.min(ED2K_CHUNK_SIZE, size - position))));
+            }
+
+            List<byte[]> chunkHashes = new ArrayList<>(chunkCount);
+            for (Future<byte[]> future : futures) {
+                chunkHashes.add(getResult(future));
+            }
+
+            if (chunkHashes.size() == 1) {
+                return toHex(chunkHashes.get(0));
+            }
+
+            Md4Checksum md4 = new Md4Checksum();
+            for (byte[] chunkHash : chunkHashes) {
+                md4.update(chunkHash, 0, chunkHash.length);
+            }
+            return toHex(md4.getDigest());
+        }
+    }
+
+    /**
+     * Calculate the OpenSubtitles hash of the file: the size plus the sum of
+     * the little endian longs of the first and last 64KB.
+     *
+     * @param file
+     * @return the hash or "NoHash" if the file is too small
+     * @throws IOException
+     */
+    public static String calculateOpenSubtitlesHash(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < READ_SIZE) {
+                return NO_HASH;
+            }
+
+            long sum = size;
+            for (long position : new long[]{0, size - READ_SIZE}) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, READ_SIZE);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < READ_SIZE / 8; i++) {
+                    sum += buffer.getLong();
+                }
+            }
+            return String.format("%016x", sum);
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(File file) throws IOException {
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    }
+
+    private static String lookup(String type, File file, BasicFileAttributes attr) {
+        load();
+        HashEntry entry = ENTRIES.get(key(type, file));
+        if (entry != null && entry.matches(attr)) {
+            return entry.hash;
+        }
+        return null;
+    }
+
+    private static synchronized void store(String type, File file, BasicFileAttributes attr, String hash) {
+        HashEntry entry = new HashEntry(attr, hash);
+        String key = key(type, file);
+        ENTRIES.put(key, entry);
+
+        File parent = storeFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            LOG.warn("Failed to create the directory for the hash store {}", storeFile.getAbsolutePath());
+            return;
+        }
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(storeFile, true), StandardCharsets.UTF_8)) {
+            writer.write(entry.toLine(key));
+        } catch (IOException ex) {
+            LOG.warn("Failed to write the hash store {}: {}", storeFile.getAbsolutePath(), ex.getMessage());
+        }
+    }
+
+    private static synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        if (!storeFile.exists()) {
+            return;
+        }
+
+        int lines = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(storeFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(SEPARATOR);
+                if (parts.length == 6) {
+                    try {
+                        ENTRIES.put(parts[0] + SEPARATOR + parts[1], new HashEntry(Long.parseLong(parts[2]), Long.parseLong(parts[3]), parts[4], parts[5]));
+                        lines++;
+                    } catch (NumberFormatException ex) {
+                        LOG.trace("Invalid hash store line: {}", line);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            LOG.warn("Failed to read the hash store {}: {}", storeFile.getAbsolutePath(), ex.getMessage());
+            return;
+        }
+
+        LOG.debug("Hash store '{}' contains {} entries", storeFile.getAbsolutePath(), ENTRIES.size());
+        if (lines > 2 * ENTRIES.size() + 100) {
+            compact();
+        }
+    }
+
+    private static void compact() {
+        File tempFile = new File(storeFile.getAbsolutePath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, HashEntry> entry : ENTRIES.entrySet()) {
+                writer.write(entry.getValue().toLine(entry.getKey()));
+            }
+        } catch (IOException ex) {
+            LOG.warn("Failed to compact the hash store {}: {}", storeFile.getAbsolutePath(), ex.getMessage());
+            return;
+        }
+
+        if (!storeFile.delete() || !tempFile.renameTo(storeFile)) {
+            LOG.warn("Failed to replace the hash store {}", storeFile.getAbsolutePath());
+        }
+    }
+
+    private static String key(String type, File file) {
+        return type + SEPARATOR + file.getAbsolutePath();
+    }
+
+    private static String fileKey(BasicFileAttributes attr) {
+        Object fileKey = attr.fileKey();
+        return fileKey == null ? "-" : fileKey.toString().replace(SEPARATOR, " ");
+    }
+
+    private static byte[] getResult(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while hashing");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(SystemTools.getStackTrace(ex.getCause()));
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The MD4 hash of one ed2k chunk
+     */
+    private static final class ChunkHash implements Callable<byte[]> {
+
+        private final FileChannel channel;
+        private final long position;
+        private final int length;
+
+        ChunkHash(FileChannel channel, long position, int length) {
+            this.channel = channel;
+            this.position = position;
+            this.length = length;
+        }
+
+        @Override
+        public byte[] call() throws IOException {
+            Md4Checksum md4 = new Md4Checksum();
+            if (length > 0) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                byte[] bytes = new byte[Math.min(READ_SIZE, length)];
+                while (buffer.hasRemaining()) {
+                    int count = Math.min(bytes.length, buffer.remaining());
+                    buffer.get(bytes, 0, count);
+                    md4.update(bytes, 0, count);
+                }
+            }
+            return md4.getDigest();
+        }
+    }
+
+    /**
+     * A stored hash and the attributes of the file it was calculated from
+     */
+    private static final class HashEntry {
+
+        private final long size;
+        private final long modified;
+        private final String fileKey;
+        private final String hash;
+
+        HashEntry(BasicFileAttributes attr, String hash) {
+            this(attr.size(), attr.lastModifiedTime().toMillis(), fileKey(attr), hash);
+        }
+
+        HashEntry(long size, long modified, String fileKey, String hash) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.hash = hash;
+        }
+
+        boolean matches(BasicFileAttributes attr) {
+            return size == attr.size()
+                    && modified == attr.lastModifiedTime().toMillis()
+                    && fileKey.equals(fileKey(attr));
+        }
+
+        String toLine(String key) {
+            return key + SEPARATOR + size + SEPARATOR + modified + SEPARATOR + fileKey + SEPARATOR + hash + "\n";
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools.cache;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.execchain.ClientExecChain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Execution chain element that applies the per host freshness policies to the
+ * responses coming from the origin servers which don't send any caching headers.
+ *
+ * It sits below the caching layer, so the cache sees the adjusted headers when
+ * deciding if and how long a response can be served without revalidation.
+ */
+public class HttpFreshnessExec implements ClientExecChain {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpFreshnessExec.class);
+    private static final Pattern RULE_PATTERN = Pattern.compile(",?\\s*([^=]+)=(\\d+)");
+    private final ClientExecChain backend;
+    private final Map<Pattern, Integer> lifetimes;
+
+    public HttpFreshnessExec(ClientExecChain backend, Map<Pattern, Integer> lifetimes) {
+        this.backend = backend;
+        this.lifetimes = lifetimes;
+    }
+
+    /**
+     * Parse the freshness rules in the same "regex=value" format as
+     * mjb.MaxDownloadSlots
+     *
+     * @param rules
+     * @return map of host pattern to lifetime in seconds
+     */
+    public static Map<Pattern, Integer> parseRules(String rules) {
+        Map<Pattern, Integer> result = new LinkedHashMap<>();
+        if (StringUtils.isBlank(rules)) {
+            return result;
+        }
+
+        Matcher matcher = RULE_PATTERN.matcher(rules);
+        while (matcher.find()) {
+            String group = matcher.group(1).trim();
+            try {
+                result.put(Pattern.compile(group), Integer.valueOf(matcher.group(2)));
+                LOG.trace("Added http cache freshness '{}' with {} seconds", group, matcher.group(2));
+            } catch (PatternSyntaxException | NumberFormatException error) {
+                LOG.debug("Rule '{}' is no valid regexp, ignored", group);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public CloseableHttpResponse execute(HttpRoute route, HttpRequestWrapper request, HttpClientContext clientContext,
+            HttpExecutionAware execAware) throws IOException, HttpException {
+        CloseableHttpResponse response = backend.execute(route, request, clientContext, execAware);
+
+        if (!"GET".equalsIgnoreCase(request.getRequestLine().getMethod())
+                || response.getStatusLine().getStatusCode() != HttpStatus.SC_OK
+                || hasCachingHeaders(response)) {
+            // the caching headers sent by the host, like no-store or private, always win
+            return response;
+        }
+
+        Integer lifetime = getLifetime(route.getTargetHost().getHostName());
+        if (lifetime != null) {
+            response.setHeader("Cache-Control", "max-age=" + lifetime);
+            if (response.getFirstHeader("Date") == null) {
+                response.setHeader("Date", DateUtils.formatDate(new Date()));
+            }
+        }
+
+        return response;
+    }
+
+    private static boolean hasCachingHeaders(HttpResponse response) {
+        return response.containsHeader("Cache-Control")
+                || response.containsHeader("Expires")
+                || response.containsHeader("Pragma");
+    }
+
+    private Integer getLifetime(String hostName) {
+        for (Map.Entry<Pattern, Integer> entry : lifetimes.entrySet()) {
+            if (entry.getKey().matcher(hostName).matches()) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools.cache;
+
+import com.moviejukebox.model.JukeboxStatistics;
+import com.moviejukebox.model.enumerations.JukeboxStatistic;
+import com.moviejukebox.tools.FilteringLayout;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.Header;
+import org.apache.http.client.cache.HttpCacheEntry;
+import org.apache.http.client.cache.HttpCacheStorage;
+import org.apache.http.client.cache.HttpCacheUpdateCallback;
+import org.apache.http.message.BasicHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Disk backed storage for the http response cache.
+ *
+ * Each cache entry is serialised to its own file below the cache directory so
+ * that the responses survive between runs and can be revalidated with the
+ * stored ETag / Last-Modified headers instead of being downloaded again.
+ *
+ * The number of entries and their total size are capped, the least recently
+ * used files are removed when a cap is exceeded.
+ *
+ * The files are named after the hash of the request key, and only a masked
+ * copy of the key, without the API keys and the values of the key and token
+ * parameters, is stored with the entry. The request URIs inside the entry are
+ * masked or replaced by their hash as well.
+ */
+public class PersistentHttpCacheStorage implements HttpCacheStorage {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistentHttpCacheStorage.class);
+    private static final String CACHE_EXT = ".cache";
+    private static final int LOCK_STRIPES = 64;
+    private static final String MASK = "[MASKED]";
+    // the query parameters holding credentials, like api_key, apikey, token or sig
+    // prefix of the keys in the stored variant maps, followed by the hash of the real key
+    static final String HASHED_KEY = "sha256:";
+    // the response headers holding a request URI
+    private static final List<String> URI_HEADERS = Arrays.asList("location", "content-location");
+    private static final Pattern SECRET_PARAM = Pattern.compile("([?&;][^=&;#]*(?:key|token|secret|sig|password|pass)[^=&;#]*=)[^&;#]*", Pattern.CASE_INSENSITIVE);
+    private final File cacheDir;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final AtomicInteger entryCount = new AtomicInteger(0);
+    private final AtomicLong totalBytes = new AtomicLong(0);
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+    private final Lock purgeLock = new ReentrantLock();
+
+    /**
+     * Create the storage
+     *
+     * @param cacheDir the directory to store the entries in
+     * @param maxEntries the maximum number of entries
+     * @param maxBytes the maximum total size of the entries in bytes, 0 for no limit
+     */
+    public PersistentHttpCacheStorage(File cacheDir, int maxEntries, long maxBytes) {
+        this.cacheDir = cacheDir;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            LOG.warn("Failed to create http cache directory {}", cacheDir.getAbsolutePath());
+        }
+
+        File[] cacheFiles = listCacheFiles();
+        entryCount.set(cacheFiles.length);
+        totalBytes.set(sumLength(cacheFiles));
+        LOG.debug("Http cache '{}' contains {} entries, {} bytes", cacheDir.getAbsolutePath(), entryCount.get(), totalBytes.get());
+    }
+
+    @Override
+    public void putEntry(String key, HttpCacheEntry entry) throws IOException {
+        String hash = hashKey(key);
+        Lock lock = getLock(hash);
+        lock.lock();
+        try {
+            writeEntry(getCacheFile(hash), key, entry);
+            JukeboxStatistics.increment(JukeboxStatistic.HTTP_CACHE_STORES);
+        } finally {
+            lock.unlock();
+        }
+
+        if (isFull()) {
+            purge();
+        }
+    }
+
+    @Override
+    public HttpCacheEntry getEntry(String key) throws IOException {
+        String hash = hashKey(key);
+        Lock lock = getLock(hash);
+        lock.lock();
+        try {
+            HttpCacheEntry entry = readEntry(getCacheFile(hash), key);
+            if (entry == null) {
+                JukeboxStatistics.increment(JukeboxStatistic.HTTP_CACHE_MISSES);
+            } else {
+                JukeboxStatistics.increment(JukeboxStatistic.HTTP_CACHE_HITS);
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeEntry(String key) throws IOException {
+        String hash = hashKey(key);
+        Lock lock = getLock(hash);
+        lock.lock();
+        try {
+            deleteEntry(getCacheFile(hash));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateEntry(String key, HttpCacheUpdateCallback callback) throws IOException {
+        String hash = hashKey(key);
+        Lock lock = getLock(hash);
+        lock.lock();
+        try {
+            File cacheFile = getCacheFile(hash);
+            HttpCacheEntry updated = callback.update(readEntry(cacheFile, key));
+            if (updated == null) {
+                deleteEntry(cacheFile);
+            } else {
+                writeEntry(cacheFile, key, updated);
+                JukeboxStatistics.increment(JukeboxStatistic.HTTP_CACHE_UPDATES);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (isFull()) {
+            purge();
+        }
+    }
+
+    /**
+     * Get the number of entries currently in the cache
+     *
+     * @return
+     */
+    public int size() {
+        return entryCount.get();
+    }
+
+    /**
+     * Get the total size of the entries in bytes
+     *
+     * @return
+     */
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * Remove the least recently used entries until the cache is back under 90%
+     * of the maximum number of entries and of the maximum size
+     */
+    public void purge() {
+        if (!purgeLock.tryLock()) {
+            // another thread is already purging
+            return;
+        }
+
+        try {
+            File[] cacheFiles = listCacheFiles();
+            int target = (int) (maxEntries * 0.9);
+            long targetBytes = (long) (maxBytes * 0.9);
+            long bytes = sumLength(cacheFiles);
+            if (cacheFiles.length <= target && (maxBytes <= 0 || bytes <= targetBytes)) {
+                entryCount.set(cacheFiles.length);
+                totalBytes.set(bytes);
+                return;
+            }
+
+            Arrays.sort(cacheFiles, new Comparator<File>() {
+                @Override
+                public int compare(File file1, File file2) {
+                    return Long.compare(file1.lastModified(), file2.lastModified());
+                }
+            });
+
+            int removed = 0;
+            for (int i = 0; i < cacheFiles.length; i++) {
+                if (cacheFiles.length - removed <= target && (maxBytes <= 0 || bytes <= targetBytes)) {
+                    break;
+                }
+                long length = cacheFiles[i].length();
+                if (cacheFiles[i].delete()) {
+                    removed++;
+                    bytes -= length;
+                }
+            }
+
+            entryCount.set(cacheFiles.length - removed);
+            totalBytes.set(bytes);
+            JukeboxStatistics.increment(JukeboxStatistic.HTTP_CACHE_EVICTIONS, removed);
+            LOG.debug("Purged {} entries from the http cache", removed);
+        } finally {
+            purgeLock.unlock();
+        }
+    }
+
+    private HttpCacheEntry readEntry(File cacheFile, String key) {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            String storedKey = (String) ois.readObject();
+            if (!key.startsWith(HASHED_KEY) && !maskKey(key).equals(storedKey)) {
+                // hash collision, treat as a miss
+                return null;
+            }
+
+            HttpCacheEntry entry = (HttpCacheEntry) ois.readObject();
+            // touch the file so that the purge removes the least recently used entries first
+            cacheFile.setLastModified(System.currentTimeMillis());
+            return entry;
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            LOG.debug("Failed to read http cache entry {}: {}", cacheFile.getName(), ex.getMessage());
+            deleteEntry(cacheFile);
+            return null;
+        }
+    }
+
+    private void deleteEntry(File cacheFile) {
+        long length = cacheFile.length();
+        if (cacheFile.exists() && cacheFile.delete()) {
+            entryCount.decrementAndGet();
+            totalBytes.addAndGet(-length);
+        }
+    }
+
+    private void writeEntry(File cacheFile, String key, HttpCacheEntry entry) throws IOException {
+        File parent = cacheFile.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed to create http cache directory " + parent.getAbsolutePath());
+        }
+
+        // write to a temporary file first, so that a crash never leaves a half written entry
+        File tempFile = new File(parent, cacheFile.getName() + ".tmp");
+        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            oos.writeObject(maskKey(key));
+            oos.writeObject(sanitizeEntry(entry));
+        }
+
+        long oldLength = cacheFile.length();
+        boolean exists = cacheFile.exists();
+        if (exists && !cacheFile.delete()) {
+            tempFile.delete();
+            throw new IOException("Failed to replace http cache entry " + cacheFile.getAbsolutePath());
+        }
+
+        long newLength = tempFile.length();
+        if (!tempFile.renameTo(cacheFile)) {
+            tempFile.delete();
+            if (exists) {
+                entryCount.decrementAndGet();
+                totalBytes.addAndGet(-oldLength);
+            }
+            throw new IOException("Failed to write http cache entry " + cacheFile.getAbsolutePath());
+        }
+
+        if (!exists) {
+            entryCount.incrementAndGet();
+        }
+        totalBytes.addAndGet(newLength - oldLength);
+    }
+
+    private boolean isFull() {
+        return entryCount.get() > maxEntries || (maxBytes > 0 && totalBytes.get() > maxBytes);
+    }
+
+    /**
+     * Remove the API keys and the values of the credential parameters from the key
+     *
+     * @param key
+     * @return the key as it is stored in the cache file
+     */
+    static String maskKey(String key) {
+        Matcher matcher = SECRET_PARAM.matcher(FilteringLayout.maskApiKeys(key));
+        StringBuffer masked = new StringBuffer();
+        while (matcher.find()) {
+            matcher.appendReplacement(masked, Matcher.quoteReplacement(matcher.group(1) + MASK));
+        }
+        matcher.appendTail(masked);
+        return masked.toString();
+    }
+
+    /**
+     * Replace the request URIs in the entry by their hash or their masked copy
+     *
+     * The variant map holds the full request URI of each variant, those are
+     * replaced by the hashed key which maps to the same cache file.
+     *
+     * @param entry
+     * @return the entry as it is stored in the cache file
+     */
+    static HttpCacheEntry sanitizeEntry(HttpCacheEntry entry) {
+        Map<String, String> variantMap = new HashMap<>();
+        for (Map.Entry<String, String> variant : entry.getVariantMap().entrySet()) {
+            variantMap.put(variant.getKey(), HASHED_KEY + hashKey(variant.getValue()));
+        }
+
+        Header[] headers = entry.getAllHeaders();
+        for (int i = 0; i < headers.length; i++) {
+            if (URI_HEADERS.contains(headers[i].getName().toLowerCase())) {
+                headers[i] = new BasicHeader(headers[i].getName(), maskKey(headers[i].getValue()));
+            }
+        }
+
+        return new HttpCacheEntry(entry.getRequestDate(), entry.getResponseDate(), entry.getStatusLine(), headers,
+                entry.getResource(), variantMap, entry.getRequestMethod());
+    }
+
+    /**
+     * Get the hash of the key, a key from a stored variant map is already hashed
+     *
+     * @param key
+     * @return
+     */
+    private static String hashKey(String key) {
+        if (key.startsWith(HASHED_KEY)) {
+            return key.substring(HASHED_KEY.length());
+        }
+        return DigestUtils.sha256Hex(key);
+    }
+
+    private File getCacheFile(String hash) {
+        // spread the files over 256 sub directories to keep the listings short
+        return new File(new File(cacheDir, hash.substring(0, 2)), hash + CACHE_EXT);
+    }
+
+    private Lock getLock(String hash) {
+        return locks[(hash.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+
+    private File[] listCacheFiles() {
+        File[] subDirs = cacheDir.listFiles();
+        if (subDirs == null) {
+            return new File[0];
+        }
+
+        FileFilter cacheFilter = new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(CACHE_EXT);
+            }
+        };
+
+        List<File> result = new ArrayList<>();
+        for (File subDir : subDirs) {
+            if (subDir.isDirectory()) {
+                File[] files = subDir.listFiles(cacheFilter);
+                if (files != null) {
+                    result.addAll(Arrays.asList(files));
+                }
+            }
+        }
+        return result.toArray(new File[result.size()]);
+    }
+
+    private static long sumLength(File[] files) {
+        long length = 0;
+        for (File file : files) {
+            length += file.length();
+        }
+        return length;
+    }
+}
@@ -0,0 +1,701 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools.downloader;
+
+import com.moviejukebox.model.JukeboxStatistics;
+import com.moviejukebox.model.enumerations.JukeboxStatistic;
+import com.moviejukebox.tools.FileTools;
+import com.moviejukebox.tools.HostConcurrencyLimiter;
+import com.moviejukebox.tools.HostConcurrencyLimiter.HostLimit;
+import com.moviejukebox.tools.PropertiesUtil;
+import com.moviejukebox.tools.YamjHttpClientBuilder;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.ContentTooLongException;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.http.WebBrowserUserAgentSelector;
+
+/**
+ * Non-blocking downloader for artwork and trailers.
+ *
+ * The downloads run on the I/O reactor of an asynchronous http client and are
+ * streamed into a ".part" file next to the target, which is renamed to the
+ * target once it is complete. The caller gets a Future and an optional
+ * callback, so it does not need to hold a thread while the data arrives.
+ *
+ * The I/O reactor only moves the data: the file writes, the copies for other
+ * targets and the callbacks run on a small worker pool. The reactor stops
+ * reading a response while its last chunk is being written. Each request
+ * waits for a download slot of the HostConcurrencyLimiter without blocking a
+ * thread, and reports its outcome to it.
+ *
+ * Requests for a URL that is already being downloaded join the running
+ * download instead of opening a second connection. Resumable downloads keep
+ * the partial file when they fail and continue from it with a Range request
+ * on the next attempt.
+ */
+public final class AsyncDownloader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncDownloader.class);
+    private static final String PART_EXT = ".part";
+    private static final int BUFFER_SIZE = 65536;
+    private static final int MAX_CONNECTIONS = PropertiesUtil.getIntProperty("mjb.download.async.maxConnections", 32);
+    private static final int WORKER_THREADS = Math.max(1, PropertiesUtil.getIntProperty("mjb.download.async.threads", 4));
+    private static final long MAX_SIZE = PropertiesUtil.getLongProperty("mjb.download.async.maxSize", 0L);
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(WORKER_THREADS, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "AsyncDownload");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final ConcurrentMap<String, DownloadTask> IN_FLIGHT = new ConcurrentHashMap<>();
+    private static final Lock LOCK = new ReentrantLock();
+    private static CloseableHttpAsyncClient httpClient;
+
+    private AsyncDownloader() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    /**
+     * Download the URL into the file
+     *
+     * @param url the URL to download
+     * @param target the file to save to
+     * @param callback optional callback, called when the download has finished
+     * @return the future of the downloaded file
+     */
+    public static Future<File> download(String url, File target, FutureCallback<File> callback) {
+        return download(url, target, false, null, null, callback);
+    }
+
+    /**
+     * Download the URL into the file
+     *
+     * @param url the URL to download
+     * @param target the file to save to
+     * @param resume keep the partial file on failure and resume from it
+     * @param userAgent the user agent to use, null for the default one
+     * @param listener optional listener for the progress
+     * @param callback optional callback, called when the download has finished
+     * @return the future of the downloaded file
+     */
+    public static Future<File> download(String url, File target, boolean resume, String userAgent,
+            DownloadProgressListener listener, FutureCallback<File> callback) {
+        BasicFuture<File> future = new BasicFuture<>(callback);
+        Waiter waiter = new Waiter(target, future);
+
+        while (true) {
+            DownloadTask task = new DownloadTask(url, target, resume);
+            DownloadTask running = IN_FLIGHT.putIfAbsent(url, task);
+            if (running == null) {
+                task.addWaiter(waiter);
+                start(task, userAgent, listener);
+                return future;
+            }
+
+            if (running.addWaiter(waiter)) {
+                LOG.debug("Joined running download of '{}'", url);
+                JukeboxStatistics.increment(JukeboxStatistic.DOWNLOADS_JOINED);
+                return future;
+            }
+            // the running download has just finished, so start again
+        }
+    }
+
+    /**
+     * Close the http client, aborting any running downloads
+     */
+    public static void shutdown() {
+        LOCK.lock();
+        try {
+            if (httpClient != null) {
+                httpClient.close();
+                httpClient = null;
+            }
+        } catch (IOException ex) {
+            LOG.debug("Failed to close the download client: {}", ex.getMessage());
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static CloseableHttpAsyncClient getHttpClient() {
+        LOCK.lock();
+        try {
+            if (httpClient == null) {
+                LOG.trace("Create new asynchronous download client");
+                httpClient = HttpAsyncClients.custom()
+                        .setMaxConnTotal(MAX_CONNECTIONS)
+                        // the connections per host are limited by the download slots
+                        .setMaxConnPerRoute(MAX_CONNECTIONS)
+                        .setDefaultIOReactorConfig(IOReactorConfig.custom()
+                                .setIoThreadCount(Math.min(4, Runtime.getRuntime().availableProcessors()))
+                                .build())
+                        .setDefaultRequestConfig(YamjHttpClientBuilder.getRequestConfig().build())
+                        .setProxy(YamjHttpClientBuilder.getProxyHost())
+                        .setDefaultCredentialsProvider(YamjHttpClientBuilder.getProxyCredentials())
+                        .setUserAgent(new WebBrowserUserAgentSelector().getUserAgent())
+                        .build();
+                httpClient.start();
+            }
+            return httpClient;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static void start(final DownloadTask task, String userAgent, final DownloadProgressListener listener) {
+        File partFile = task.getPartFile();
+        long offset = 0;
+        if (partFile.exists()) {
+            if (task.isResume() && partFile.length() > 0) {
+                offset = partFile.length();
+            } else if (!partFile.delete()) {
+                LOG.debug("Failed to delete old partial file {}", partFile.getAbsolutePath());
+            }
+        }
+
+        final HttpGet request;
+        try {
+            request = new HttpGet(task.getUrl());
+        } catch (IllegalArgumentException ex) {
+            task.failed(ex);
+            return;
+        }
+        if (request.getURI().getHost() == null) {
+            task.failed(new IOException("No host in URL " + task.getUrl()));
+            return;
+        }
+
+        if (offset > 0) {
+            LOG.debug("Resuming download of '{}' from byte {}", task.getUrl(), offset);
+            request.setHeader("Range", "bytes=" + offset + "-");
+            JukeboxStatistics.increment(JukeboxStatistic.DOWNLOADS_RESUMED);
+        }
+        if (StringUtils.isNotBlank(userAgent)) {
+            request.setHeader("User-Agent", userAgent);
+        }
+
+        final HostLimit hostLimit = HostConcurrencyLimiter.getLimit(request.getURI().getHost());
+        final FileConsumer consumer = new FileConsumer(partFile, offset, listener);
+        hostLimit.acquire(new Runnable() {
+            @Override
+            public void run() {
+                Exchange exchange = new Exchange(task, consumer, hostLimit);
+                try {
+                    getHttpClient().execute(HttpAsyncMethods.create(request), consumer, exchange);
+                } catch (IllegalStateException ex) {
+                    // the client has been shut down
+                    exchange.failed(ex);
+                }
+            }
+        });
+    }
+
+    /**
+     * A caller waiting for a download
+     */
+    private static final class Waiter {
+
+        private final File target;
+        private final BasicFuture<File> future;
+
+        Waiter(File target, BasicFuture<File> future) {
+            this.target = target.getAbsoluteFile();
+            this.future = future;
+        }
+
+        void complete(File downloaded) {
+            if (downloaded.equals(target)) {
+                future.completed(target);
+            } else if (FileTools.copyFile(downloaded, target)) {
+                // the same URL was requested for another file
+                future.completed(target);
+            } else {
+                future.failed(new IOException("Failed to copy " + downloaded.getAbsolutePath() + " to " + target.getAbsolutePath()));
+            }
+        }
+    }
+
+    /**
+     * One download on the wire and the callers waiting for it
+     */
+    private static final class DownloadTask implements FutureCallback<File> {
+
+        private final String url;
+        private final File target;
+        private final boolean resume;
+        private final List<Waiter> waiters = new ArrayList<>(1);
+        private boolean done = false;
+
+        DownloadTask(String url, File target, boolean resume) {
+            this.url = url;
+            this.target = target.getAbsoluteFile();
+            this.resume = resume;
+        }
+
+        String getUrl() {
+            return url;
+        }
+
+        boolean isResume() {
+            return resume;
+        }
+
+        File getPartFile() {
+            return new File(target.getPath() + PART_EXT);
+        }
+
+        synchronized boolean addWaiter(Waiter waiter) {
+            if (done) {
+                return false;
+            }
+            waiters.add(waiter);
+            return true;
+        }
+
+        private List<Waiter> finish() {
+            IN_FLIGHT.remove(url, this);
+            synchronized (this) {
+                done = true;
+                return new ArrayList<>(waiters);
+            }
+        }
+
+        @Override
+        public void completed(File partFile) {
+            try {
+                moveFile(partFile, target);
+            } catch (IOException ex) {
+                failed(ex);
+                return;
+            }
+
+            LOG.debug("Successfully downloaded '{}' to '{}'", url, target.getAbsolutePath());
+            JukeboxStatistics.increment(JukeboxStatistic.DOWNLOADS);
+            for (Waiter waiter : finish()) {
+                waiter.complete(target);
+            }
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            LOG.debug("Failed to download '{}': {}", url, ex.getMessage());
+            JukeboxStatistics.increment(JukeboxStatistic.DOWNLOADS_FAILED);
+            File partFile = getPartFile();
+            if (!resume && partFile.exists() && !partFile.delete()) {
+                LOG.debug("Failed to delete partial file {}", partFile.getAbsolutePath());
+            }
+
+            for (Waiter waiter : finish()) {
+                waiter.future.failed(ex);
+            }
+        }
+
+        @Override
+        public void cancelled() {
+            for (Waiter waiter : finish()) {
+                waiter.future.cancel();
+            }
+        }
+
+        private static void moveFile(File source, File destination) throws IOException {
+            try {
+                Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * The outcome of one request, handed from the I/O reactor to the workers
+     * after the pending writes of the response
+     */
+    private static final class Exchange implements FutureCallback<File> {
+
+        private final DownloadTask task;
+        private final FileConsumer consumer;
+        private final HostLimit hostLimit;
+
+        Exchange(DownloadTask task, FileConsumer consumer, HostLimit hostLimit) {
+            this.task = task;
+            this.consumer = consumer;
+            this.hostLimit = hostLimit;
+        }
+
+        @Override
+        public void completed(final File partFile) {
+            consumer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        consumer.finish();
+                    } catch (IOException ex) {
+                        release();
+                        task.failed(ex);
+                        return;
+                    }
+                    release();
+                    task.completed(partFile);
+                }
+            });
+        }
+
+        @Override
+        public void failed(final Exception ex) {
+            consumer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    consumer.abort();
+                    release();
+                    task.failed(consumer.getWriteError() == null ? ex : consumer.getWriteError());
+                }
+            });
+        }
+
+        @Override
+        public void cancelled() {
+            consumer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    consumer.abort();
+                    hostLimit.release();
+                    task.cancelled();
+                }
+            });
+        }
+
+        private void release() {
+            int statusCode = consumer.getStatusCode();
+            hostLimit.release(consumer.getLatency(), statusCode == 0 ? HostConcurrencyLimiter.STATUS_IO_ERROR : statusCode, consumer.getRetryAfter());
+        }
+    }
+
+    /**
+     * Streams the response body into the partial file.
+     *
+     * The body is read on the I/O reactor and written by the workers, one
+     * chunk at a time, with the input of the connection suspended meanwhile.
+     * The tasks of a response run on the workers in the order they are added.
+     */
+    private static final class FileConsumer extends AbstractAsyncResponseConsumer<File> {
+
+        private final File partFile;
+        private final long offset;
+        private final DownloadProgressListener listener;
+        private final long started = System.currentTimeMillis();
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean running = false;
+        private volatile int statusCode = 0;
+        private volatile long latency = -1;
+        private volatile long retryAfter = 0;
+        private volatile boolean writing = false;
+        private volatile boolean writePending = false;
+        private volatile boolean discardPart = false;
+        private volatile IOException writeError = null;
+        // Used by the I/O reactor
+        private ByteBuffer buffer;
+        private long received;
+        private volatile long contentLength = -1;
+        // Used by the workers
+        private FileChannel channel;
+        private long position;
+
+        FileConsumer(File partFile, long offset, DownloadProgressListener listener) {
+            this.partFile = partFile;
+            this.offset = offset;
+            this.listener = listener;
+        }
+
+        int getStatusCode() {
+            return statusCode;
+        }
+
+        long getLatency() {
+            return latency;
+        }
+
+        long getRetryAfter() {
+            return retryAfter;
+        }
+
+        IOException getWriteError() {
+            return writeError;
+        }
+
+        /**
+         * Run the task on the workers after the tasks added before
+         */
+        void execute(Runnable task) {
+            synchronized (tasks) {
+                tasks.add(task);
+                if (running) {
+                    return;
+                }
+                running = true;
+            }
+
+            WORKERS.execute(new Runnable() {
+                @Override
+                public void run() {
+                    while (true) {
+                        Runnable next;
+                        synchronized (tasks) {
+                            next = tasks.poll();
+                            if (next == null) {
+                                running = false;
+                                return;
+                            }
+                        }
+                        try {
+                            next.run();
+                        } catch (RuntimeException ex) {
+                            LOG.warn("Download of {} failed: {}", partFile.getName(), ex.getMessage());
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        protected void onResponseReceived(HttpResponse response) throws IOException {
+            latency = System.currentTimeMillis() - started;
+            statusCode = response.getStatusLine().getStatusCode();
+            Header retryHeader = response.getFirstHeader("Retry-After");
+            if (retryHeader != null) {
+                retryAfter = HostConcurrencyLimiter.parseRetryAfter(retryHeader.getValue());
+            }
+
+            if (statusCode == HttpStatus.SC_PARTIAL_CONTENT && offset > 0) {
+                Header contentRange = response.getFirstHeader("Content-Range");
+                if (contentRange != null && !contentRange.getValue().startsWith("bytes " + offset + "-")) {
+                    // do not try to resume from this partial file again
+                    discardPart = true;
+                    throw new IOException("Unexpected content range: " + contentRange.getValue());
+                }
+                writing = true;
+                received = offset;
+            } else if (statusCode == HttpStatus.SC_OK) {
+                // the server ignored the range, so start from scratch
+                writing = true;
+                received = 0;
+            }
+        }
+
+        @Override
+        protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) throws IOException {
+            if (entity.getContentLength() >= 0) {
+                contentLength = received + entity.getContentLength();
+            }
+            if (MAX_SIZE > 0 && contentLength > MAX_SIZE) {
+                throw new ContentTooLongException("Download is larger than " + MAX_SIZE + " bytes");
+            }
+        }
+
+        @Override
+        protected void onContentReceived(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+            if (!writing) {
+                // error response, discard the body
+                if (buffer == null) {
+                    buffer = ByteBuffer.allocate(4096);
+                }
+                buffer.clear();
+                decoder.read(buffer);
+                return;
+            }
+
+            // the buffer is reused once the worker has written it
+            final ByteBuffer chunk = (buffer == null || writePending) ? ByteBuffer.allocate(BUFFER_SIZE) : buffer;
+            buffer = chunk;
+            chunk.clear();
+            int read = decoder.read(chunk);
+            if (read <= 0) {
+                return;
+            }
+            received += read;
+            chunk.flip();
+
+            // the connection goes back to the pool after the last chunk, so its input is left alone
+            final IOControl control = decoder.isCompleted() ? null : ioctrl;
+            writePending = true;
+            if (control != null) {
+                control.suspendInput();
+            }
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    write(chunk, control);
+                }
+            });
+        }
+
+        /**
+         * Write the chunk and resume the input of the connection, if it is
+         * not complete
+         */
+        private void write(ByteBuffer chunk, IOControl ioctrl) {
+            try {
+                if (writeError != null) {
+                    return;
+                }
+                open();
+                while (chunk.hasRemaining()) {
+                    position += channel.write(chunk, position);
+                }
+                if (listener != null) {
+                    listener.downloadProgress(position, contentLength);
+                }
+            } catch (IOException ex) {
+                writeError = ex;
+                if (ioctrl != null) {
+                    try {
+                        // abort the request
+                        ioctrl.shutdown();
+                    } catch (IOException error) {
+                        LOG.trace("Failed to close the connection: {}", error.getMessage());
+                    }
+                }
+                return;
+            } finally {
+                writePending = false;
+            }
+            if (ioctrl != null) {
+                ioctrl.requestInput();
+            }
+        }
+
+        @SuppressWarnings("resource")
+        private void open() throws IOException {
+            if (channel != null) {
+                return;
+            }
+            FileTools.makeDirsForFile(partFile);
+            if (offset > 0 && statusCode == HttpStatus.SC_PARTIAL_CONTENT) {
+                channel = new RandomAccessFile(partFile, "rw").getChannel();
+                position = offset;
+            } else {
+                channel = new FileOutputStream(partFile).getChannel();
+                position = 0;
+            }
+        }
+
+        private void closeFile() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ex) {
+                    LOG.trace("Failed to close {}: {}", partFile.getName(), ex.getMessage());
+                }
+                channel = null;
+            }
+        }
+
+        /**
+         * Close the partial file after the last write, on the workers
+         */
+        void finish() throws IOException {
+            try {
+                if (writeError != null) {
+                    throw writeError;
+                }
+                if (writing) {
+                    // an empty body still creates the file
+                    open();
+                }
+            } finally {
+                closeFile();
+            }
+        }
+
+        /**
+         * Close the partial file of a failed request, on the workers
+         */
+        void abort() {
+            closeFile();
+            if (discardPart && partFile.exists() && !partFile.delete()) {
+                LOG.debug("Failed to delete partial file {}", partFile.getAbsolutePath());
+            }
+        }
+
+        @Override
+        protected File buildResult(HttpContext context) throws Exception {
+            if (writing) {
+                if (contentLength >= 0 && received < contentLength) {
+                    throw new IOException("Download incomplete, received " + received + " of " + contentLength + " bytes");
+                }
+                return partFile;
+            }
+
+            if (statusCode == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE && offset > 0) {
+                // the partial file is already complete
+                return partFile;
+            }
+            throw new IOException("Download failed with status " + statusCode);
+        }
+
+        @Override
+        protected void releaseResources() {
+            // the partial file is closed by the workers after the last write
+        }
+    }
+}
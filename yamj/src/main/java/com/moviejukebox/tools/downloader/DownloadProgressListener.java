@@ -23,16 +23,19 @@
 package com.moviejukebox.tools.downloader;
 
 /**
- * This is the interface for the RBCWrapper class
+ * Receives the progress of a download from the AsyncDownloader.
  *
- * It will get the progress as a percentage, if known, otherwise it will return
- * -1.0 to indicate indeterminate progress.
- *
- * Taken from http://stackoverflow.com/a/11068356/443283
- *
- * @author stuart.boston
+ * The callback is made from the I/O thread of the downloader, so it must
+ * return quickly.
  */
-public interface RBCWrapperDelegate {
+public interface DownloadProgressListener {
 
-    void rbcProgressCallback(RBCWrapper rbc, double progress);
+    /**
+     * Called every time data has been written to the file
+     *
+     * @param bytesReceived the size of the file so far, including any resumed
+     * part
+     * @param contentLength the expected size of the file, or -1 if unknown
+     */
+    void downloadProgress(long bytesReceived, long contentLength);
 }
@@ -22,37 +22,36 @@
  */
 package com.moviejukebox.tools.downloader;
 
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.moviejukebox.tools.WebBrowser;
-import com.moviejukebox.tools.YamjHttpClientBuilder;
+import com.moviejukebox.tools.PropertiesUtil;
 
 /**
  * This is the downloader class.
  *
  * It will display the download progress of the file being processed.
  *
- * Taken from http://stackoverflow.com/a/11068356/443283
+ * The file is streamed by the AsyncDownloader, an interrupted download is
+ * resumed from the partial file on the next attempt.
  *
  * @author stuart.boston
  */
-public final class Downloader implements RBCWrapperDelegate {
+public final class Downloader implements DownloadProgressListener {
 
     private static final Logger LOG = LoggerFactory.getLogger(Downloader.class);
     private static final String FORMAT_PERCENTAGE = "\rDownload progress %,d Kb received, %.02f%%";
     private static final String FORMAT_NOPER = "\rDownload progress %,d Kb received";
+    private static final int TIMEOUT_MINUTES = Math.max(1, PropertiesUtil.getIntProperty("mjb.download.async.timeout", 60));
     private boolean showProgress = Boolean.TRUE;
     private boolean downloadOk;
     private long downloadTime;
@@ -66,39 +65,33 @@ public final class Downloader implements RBCWrapperDelegate {
         // The time the download started
         long startTime = System.currentTimeMillis();
 
-        try {
-            URL url = new URL(remoteURL);
-            int contentLength = contentLength(url);
-
-            if (contentLength < 0) {
-                LOG.warn("WARNING: Remote URL is not a file! {}", remoteURL);
-                return;
-            }
-
-            WebBrowser wb = new WebBrowser();
-            HttpURLConnection connection = (HttpURLConnection) wb.openProxiedConnection(url);
-
-            if (remoteURL.toLowerCase().contains(".apple.")) {
-                LOG.debug("Using Apple user agent - '{}'", USER_AGENT_APPLE);
-                connection.setRequestProperty("User-Agent", USER_AGENT_APPLE);
-            } else {
-                LOG.debug("Using normal user agent - '{}'", USER_AGENT_NORMAL);
-                connection.setRequestProperty("User-Agent", USER_AGENT_NORMAL);
-            }
+        String userAgent;
+        if (remoteURL.toLowerCase().contains(".apple.")) {
+            LOG.debug("Using Apple user agent - '{}'", USER_AGENT_APPLE);
+            userAgent = USER_AGENT_APPLE;
+        } else {
+            LOG.debug("Using normal user agent - '{}'", USER_AGENT_NORMAL);
+            userAgent = USER_AGENT_NORMAL;
+        }
 
-            try (ReadableByteChannel rbc = new RBCWrapper(Channels.newChannel(connection.getInputStream()), contentLength, this);
-                 FileOutputStream fos = new FileOutputStream(localPath))
-            {
-                fos.getChannel().transferFrom(rbc, 0, Long.MAX_VALUE);
-                fos.flush();
-            }
-        } catch (MalformedURLException ex) {
-            LOG.debug("Failed to transform URL: {}", ex.getMessage());
-        } catch (IOException ex) {
-            LOG.debug("Output error: {}", ex.getMessage());
+        Future<File> download = AsyncDownloader.download(remoteURL, new File(localPath), true, userAgent, this, null);
+        try {
+            download.get(TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            downloadOk = Boolean.TRUE;
+        } catch (TimeoutException ex) {
+            // the download carries on in the background, a failed one is resumed from the partial file on the next run
+            LOG.debug("Download timed out after {} minutes: {}", TIMEOUT_MINUTES, remoteURL);
+            download.cancel(true);
+        } catch (ExecutionException ex) {
+            LOG.debug("Output error: {}", ex.getCause() == null ? ex.getMessage() : ex.getCause().getMessage());
+        } catch (InterruptedException ex) {
+            LOG.debug("Download interrupted: {}", remoteURL);
+            Thread.currentThread().interrupt();
         }
 
-        downloadOk = Boolean.TRUE;
+        if (showProgress) {
+            System.out.print("\n");
+        }
 
         // Calculate the download time.
         downloadTime = System.currentTimeMillis() - startTime;
@@ -116,42 +109,17 @@ public final class Downloader implements RBCWrapperDelegate {
     }
 
     @Override
-    public void rbcProgressCallback(RBCWrapper rbc, double progress) {
+    public void downloadProgress(long bytesReceived, long contentLength) {
         if (showProgress) {
-            if (progress > 0) {
-                System.out.print(String.format(FORMAT_PERCENTAGE, rbc.getKbReadSoFar(), progress));
+            long kbReceived = bytesReceived / 1024;
+            if (contentLength > 0) {
+                System.out.print(String.format(FORMAT_PERCENTAGE, kbReceived, 100.0 * bytesReceived / contentLength));
             } else {
-                System.out.print(String.format(FORMAT_NOPER, rbc.getKbReadSoFar()));
+                System.out.print(String.format(FORMAT_NOPER, kbReceived));
             }
         }
     }
 
-    /**
-     * Get the content length from the header
-     *
-     * @param url
-     * @return
-     */
-    private static int contentLength(URL url) {
-        HttpURLConnection connection = null;
-        int contentLength = -1;
-
-        try {
-            HttpURLConnection.setFollowRedirects(false);
-            connection = (HttpURLConnection) url.openConnection(YamjHttpClientBuilder.getProxy());
-            connection.setRequestMethod("HEAD");
-            contentLength = connection.getContentLength();
-        } catch (IOException ex) {
-            LOG.trace("Failed to get length from header: {}", ex.getMessage());
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
-        }
-
-        return contentLength;
-    }
-
     public boolean isDownloadOk() {
         return downloadOk;
     }
@@ -26,6 +26,7 @@ import com.moviejukebox.MovieJukebox;
 import com.moviejukebox.model.Jukebox;
 import com.moviejukebox.model.Library;
 import com.moviejukebox.tools.FileTools;
+import com.moviejukebox.tools.JukeboxMetrics;
 import com.moviejukebox.tools.StringTools;
 import com.moviejukebox.tools.SystemTools;
 import java.io.File;
@@ -33,13 +34,15 @@ import java.io.IOException;
 import java.io.OutputStream;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.transform.Result;
-import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
 
 /**
  *
@@ -51,67 +54,202 @@ public class CompleteMoviesWriter {
     private static final String COMPLETE_MOVIES_XML = "CompleteMovies.xml";
     private static final String RSS_XML_FILENAME = "rss.xml";
     private static final String RSS_XSL_FILENAME = "rss.xsl";
+    private static JAXBContext context = null;
 
     protected CompleteMoviesWriter() {
         throw new UnsupportedOperationException("Class cannot be initialised");
     }
 
     /**
-     * Write the CompleteMovies file to the jukebox
+     * Write the CompleteMovies file and the RSS to the jukebox.
+     *
+     * The movies are marshalled once, the SAX events are written to the
+     * CompleteMovies file and transformed to the RSS at the same time, so the
+     * CompleteMovies file is never read back.
      *
      * @param library
      * @param jukebox
      * @return
      */
     public static boolean generate(Library library, Jukebox jukebox) {
-        JAXBContext context;
-
-        try {
-            LOG.info("Generating {}", COMPLETE_MOVIES_XML);
-            context = JAXBContext.newInstance(MovieJukebox.JukeboxXml.class);
-        } catch (JAXBException error) {
-            LOG.warn("RSS is not generated (Context creation error).");
-            LOG.warn(SystemTools.getStackTrace(error));
-            return Boolean.FALSE;
-        }
-
         MovieJukebox.JukeboxXml jukeboxXml = new MovieJukebox.JukeboxXml();
         jukeboxXml.movies = library.values();
 
         File totalMoviesXmlFile = new File(jukebox.getJukeboxTempLocationDetails(), COMPLETE_MOVIES_XML);
         File rootTotalMoviesFile = FileTools.fileCache.getFile(StringTools.appendToPath(jukebox.getJukeboxRootLocationDetails(), COMPLETE_MOVIES_XML));
+        File rssFile = new File(jukebox.getJukeboxTempLocationDetails(), RSS_XML_FILENAME);
 
         if (library.isDirty() || !rootTotalMoviesFile.exists()) {
-            try (OutputStream marStream = FileTools.createFileOutputStream(totalMoviesXmlFile)) {
-                context.createMarshaller().marshal(jukeboxXml, marStream);
-                marStream.flush();
-            } catch (JAXBException ex) {
-                LOG.warn("RSS is not generated (JAXB error): {}", ex.getMessage());
-                LOG.warn(SystemTools.getStackTrace(ex));
-                return Boolean.FALSE;
-            } catch (IOException ex) {
-                LOG.warn("RSS is not generated (Jukebox error): {}", ex.getMessage());
-                LOG.warn(SystemTools.getStackTrace(ex));
+            LOG.info("Generating {}", COMPLETE_MOVIES_XML);
+            if (!write(jukeboxXml, totalMoviesXmlFile, rssFile, new File(RSS_XSL_FILENAME), jukebox.getJukeboxRootLocationDetails())) {
                 return Boolean.FALSE;
             }
+        }
 
-            try {
-                Transformer transformer = MovieJukeboxHTMLWriter.getTransformer(new File(RSS_XSL_FILENAME), jukebox.getJukeboxRootLocationDetails());
+        // These should be added to the list of jukebox files regardless of the state of the library
+        FileTools.addJukeboxFile(COMPLETE_MOVIES_XML);
+        FileTools.addJukeboxFile(RSS_XML_FILENAME);
+        return Boolean.TRUE;
+    }
 
-                Result xmlResult = new StreamResult(new File(jukebox.getJukeboxTempLocationDetails(), RSS_XML_FILENAME));
-                transformer.transform(new StreamSource(totalMoviesXmlFile), xmlResult);
+    /**
+     * Write the CompleteMovies file and the RSS in one pass.
+     *
+     * If the RSS can't be generated, the CompleteMovies file is written alone.
+     *
+     * @param jukeboxXml
+     * @param xmlFile the CompleteMovies file
+     * @param rssFile the RSS file
+     * @param rssXslFile the stylesheet of the RSS
+     * @param styleSheetTargetRootPath
+     * @return false if the CompleteMovies file was not written
+     */
+    static boolean write(MovieJukebox.JukeboxXml jukeboxXml, File xmlFile, File rssFile, File rssXslFile, String styleSheetTargetRootPath) {
+        // The RSS transformer is created before any file is opened
+        TransformerHandler rssHandler = null;
+        try {
+            rssHandler = MovieJukeboxHTMLWriter.getTransformerHandler(rssXslFile, styleSheetTargetRootPath);
+        } catch (TransformerException ex) {
+            LOG.warn("RSS is not generated (Transformer error): {}", ex.getMessage());
+            LOG.warn(SystemTools.getStackTrace(ex));
+        }
 
+        if (rssHandler != null) {
+            try {
+                long start = JukeboxMetrics.start();
+                marshal(jukeboxXml, xmlFile, rssFile, rssHandler);
+                JukeboxMetrics.record(JukeboxMetrics.Group.TRANSFORM, "RSS", start);
                 LOG.debug("RSS has been generated.");
-            } catch (TransformerException ex) {
-                LOG.warn("RSS is not generated (Transformer error): {}", ex.getMessage());
+                return Boolean.TRUE;
+            } catch (JAXBException | TransformerException | IOException ex) {
+                LOG.warn("RSS is not generated: {}", ex.getMessage());
                 LOG.warn(SystemTools.getStackTrace(ex));
-                return Boolean.FALSE;
+                if (rssFile.exists() && !rssFile.delete()) {
+                    LOG.debug("Failed to delete the partial RSS file {}", rssFile.getAbsolutePath());
+                }
             }
         }
 
-        // These should be added to the list of jukebox files regardless of the state of the library
-        FileTools.addJukeboxFile(COMPLETE_MOVIES_XML);
-        FileTools.addJukeboxFile(RSS_XML_FILENAME);
-        return Boolean.TRUE;
+        try {
+            marshal(jukeboxXml, xmlFile, null, null);
+            return Boolean.TRUE;
+        } catch (JAXBException | TransformerException | IOException ex) {
+            LOG.warn("{} is not generated: {}", COMPLETE_MOVIES_XML, ex.getMessage());
+            LOG.warn(SystemTools.getStackTrace(ex));
+            return Boolean.FALSE;
+        }
+    }
+
+    /**
+     * Marshal the movies to the CompleteMovies file and, if there is an RSS
+     * handler, to the RSS file
+     */
+    private static void marshal(MovieJukebox.JukeboxXml jukeboxXml, File xmlFile, File rssFile, TransformerHandler rssHandler)
+            throws JAXBException, TransformerException, IOException {
+        try (OutputStream xmlStream = FileTools.createFileOutputStream(xmlFile);
+                OutputStream rssStream = rssHandler == null ? null : FileTools.createFileOutputStream(rssFile)) {
+            TransformerHandler xmlHandler = MovieJukeboxHTMLWriter.getTransformerHandler(null, null);
+            xmlHandler.setResult(new StreamResult(xmlStream));
+
+            if (rssHandler == null) {
+                getContext().createMarshaller().marshal(jukeboxXml, xmlHandler);
+            } else {
+                rssHandler.setResult(new StreamResult(rssStream));
+                getContext().createMarshaller().marshal(jukeboxXml, new TeeContentHandler(xmlHandler, rssHandler));
+            }
+        }
+    }
+
+    /**
+     * The JAXB context is expensive to create, so it is only created once
+     *
+     * @return
+     * @throws JAXBException
+     */
+    private static synchronized JAXBContext getContext() throws JAXBException {
+        if (context == null) {
+            context = JAXBContext.newInstance(MovieJukebox.JukeboxXml.class);
+        }
+        return context;
+    }
+
+    /**
+     * Passes the SAX events to two handlers
+     */
+    private static final class TeeContentHandler implements ContentHandler {
+
+        private final ContentHandler first;
+        private final ContentHandler second;
+
+        TeeContentHandler(ContentHandler first, ContentHandler second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            first.setDocumentLocator(locator);
+            second.setDocumentLocator(locator);
+        }
+
+        @Override
+        public void startDocument() throws SAXException {
+            first.startDocument();
+            second.startDocument();
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            first.endDocument();
+            second.endDocument();
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) throws SAXException {
+            first.startPrefixMapping(prefix, uri);
+            second.startPrefixMapping(prefix, uri);
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException {
+            first.endPrefixMapping(prefix);
+            second.endPrefixMapping(prefix);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+            first.startElement(uri, localName, qName, atts);
+            second.startElement(uri, localName, qName, atts);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            first.endElement(uri, localName, qName);
+            second.endElement(uri, localName, qName);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            first.characters(ch, start, length);
+            second.characters(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+            first.ignorableWhitespace(ch, start, length);
+            second.ignorableWhitespace(ch, start, length);
+        }
+
+        @Override
+        public void processingInstruction(String target, String data) throws SAXException {
+            first.processingInstruction(target, data);
+            second.processingInstruction(target, data);
+        }
+
+        @Override
+        public void skippedEntity(String name) throws SAXException {
+            first.skippedEntity(name);
+            second.skippedEntity(name);
+        }
     }
 }
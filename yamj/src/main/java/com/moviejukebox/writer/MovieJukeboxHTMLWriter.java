@@ -28,13 +28,19 @@ import com.moviejukebox.tools.*;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.*;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import org.apache.commons.lang3.StringUtils;
@@ -59,6 +65,7 @@ public class MovieJukeboxHTMLWriter {
     private String peopleFolder;
     private static final String SKIN_HOME = SkinProperties.getSkinHome();
     private static final TransformerFactory TRANSFORMER = TransformerFactory.newInstance();
+    private static final Map<String, Templates> TEMPLATES = new ConcurrentHashMap<>();
     private static final String PLAYLIST_IGNORE_EXT = PropertiesUtil.getProperty("mjb.playlist.IgnoreExtensions", "iso,img");
     private static final File PLAYLIST_FILE = new File("playlist.xsl");
     private static final String INDEX_HTML_FILE = "../" + PropertiesUtil.getProperty("mjb.indexFile", "index.htm");
@@ -110,21 +117,18 @@ public class MovieJukeboxHTMLWriter {
 
                 FileTools.addJukeboxFile(baseName + suffix + EXT_HTML);
 
-                if (!finalHtmlFile.exists() || forceHTMLOverwrite || movie.isDirty(DirtyFlag.INFO) || movie.isDirty(DirtyFlag.WATCHED)) {
+                // Issue 216: If the HTML is deleted the generation fails because it looks in the temp directory and not
+                // the original source directory
+                File xmlFile = tempXmlFile.exists() ? tempXmlFile : oldXmlFile;
+                File skinFile = new File(SKIN_HOME, indexStr);
+                BuildGraph.Inputs inputs = getInputs(skinFile, jukebox.getJukeboxRootLocationDetails(), xmlFile);
 
-                    // Issue 216: If the HTML is deleted the generation fails because it looks in the temp directory and not
-                    // the original source directory
-                    if (tempXmlFile.exists()) {
-                        // Use the temp file
-                        xmlSource = new StreamSource(tempXmlFile);
-                    } else {
-                        // Use the file in the original directory
-                        xmlSource = new StreamSource(oldXmlFile);
-                    }
+                if (!finalHtmlFile.exists() || forceHTMLOverwrite || movie.isDirty(DirtyFlag.INFO) || movie.isDirty(DirtyFlag.WATCHED)
+                        || BuildGraph.isStale(finalHtmlFile.getName(), inputs)) {
+                    xmlSource = new StreamSource(xmlFile);
                     Result xmlResult = new StreamResult(tempHtmlFile);
 
                     if (xmlSource != null && xmlResult != null) {
-                        File skinFile = new File(SKIN_HOME, indexStr);
                         Transformer transformer = getTransformer(skinFile, jukebox.getJukeboxRootLocationDetails());
 
                         doTransform(transformer, xmlSource, xmlResult, "Movie: " + movie.getBaseFilename());
@@ -135,6 +139,7 @@ public class MovieJukeboxHTMLWriter {
                                 xmlResult == null ? true : false);
                     }
                 }
+                BuildGraph.record(finalHtmlFile.getName(), inputs);
             }
         } catch (Exception error) {
             LOG.error("Failed generating HTML for movie {}", movie.getBaseFilename());
@@ -170,18 +175,16 @@ public class MovieJukeboxHTMLWriter {
 
                 FileTools.addJukeboxFile(baseName + suffix + EXT_HTML);
 
-                if (!finalHtmlFile.exists() || forceHTMLOverwrite || person.isDirty()) {
-                    if (tempXmlFile.exists()) {
-                        // Use the temp file
-                        xmlSource = new StreamSource(tempXmlFile);
-                    } else {
-                        // Use the file in the original directory
-                        xmlSource = new StreamSource(oldXmlFile);
-                    }
+                File xmlFile = tempXmlFile.exists() ? tempXmlFile : oldXmlFile;
+                File skinFile = new File(SKIN_HOME, indexStr);
+                BuildGraph.Inputs inputs = getInputs(skinFile, jukebox.getJukeboxRootLocationDetails(), xmlFile);
+                String output = peopleFolder + finalHtmlFile.getName();
+
+                if (!finalHtmlFile.exists() || forceHTMLOverwrite || person.isDirty() || BuildGraph.isStale(output, inputs)) {
+                    xmlSource = new StreamSource(xmlFile);
                     Result xmlResult = new StreamResult(tempHtmlFile);
 
                     if (xmlSource != null && xmlResult != null) {
-                        File skinFile = new File(SKIN_HOME, indexStr);
                         if (skinFile.exists()) {
                             Transformer transformer = getTransformer(skinFile, jukebox.getJukeboxRootLocationDetails());
                             doTransform(transformer, xmlSource, xmlResult, "Person: " + person.getName());
@@ -195,6 +198,7 @@ public class MovieJukeboxHTMLWriter {
                                 xmlResult == null ? true : false);
                     }
                 }
+                BuildGraph.record(output, inputs);
             }
         } catch (Exception error) {
             LOG.error("Failed generating HTML for person {}", person.getName());
@@ -244,18 +248,17 @@ public class MovieJukeboxHTMLWriter {
                 return fileNames;
             } // Issue 884
 
-            if (!finalPlaylistFile.exists() || forceHTMLOverwrite || movie.isDirty(DirtyFlag.INFO)) {
+            // Use the temp file if there is one, else the file in the original directory
+            File xmlFile = tempXmlFile.exists() ? tempXmlFile : oldXmlFile;
+            BuildGraph.Inputs inputs = getInputs(PLAYLIST_FILE, jukebox.getJukeboxRootLocationDetails(), xmlFile);
+
+            if (!finalPlaylistFile.exists() || forceHTMLOverwrite || movie.isDirty(DirtyFlag.INFO)
+                    || BuildGraph.isStale(finalPlaylistFile.getName(), inputs)) {
                 FileTools.makeDirsForFile(tempPlaylistFile);
 
                 Transformer transformer = getTransformer(PLAYLIST_FILE, jukebox.getJukeboxRootLocationDetails());
 
-                if (tempXmlFile.exists()) {
-                    // Use the temp file
-                    xmlSource = new StreamSource(tempXmlFile);
-                } else {
-                    // Use the file in the original directory
-                    xmlSource = new StreamSource(oldXmlFile);
-                }
+                xmlSource = new StreamSource(xmlFile);
                 Result xmlResult = new StreamResult(tempPlaylistFile);
 
                 doTransform(transformer, xmlSource, xmlResult, "Movie: " + movie.getBaseName());
@@ -264,6 +267,7 @@ public class MovieJukeboxHTMLWriter {
 
                 fileNames.add(baseName + filenameSuffix);
             }
+            BuildGraph.record(finalPlaylistFile.getName(), inputs);
         } catch (Exception error) {
             LOG.error("Failed generating playlist for video {}", movie.getBaseFilename());
             LOG.error(SystemTools.getStackTrace(error));
@@ -340,21 +344,31 @@ public class MovieJukeboxHTMLWriter {
         File finalPlaylistFile = new File(jukebox.getJukeboxRootLocationDetails() + File.separator + baseName + fileSuffix);
         File tempPlaylistFile = new File(tempFilename + fileSuffix);
 
-        if (!finalPlaylistFile.exists() || forceHTMLOverwrite || movie.isDirty(DirtyFlag.INFO)) {
+        // Issue 237 - Add in the IP address of the MyiHome server so the playlist will work.
+        // Issue 237 - It is perfectly valid for "mjb.myiHome.IP" to be blank, in fact this is
+        // the normal method for stand alone YAMJ
+        List<String> lines = new ArrayList<>(movieFiles.length);
+        BuildGraph.Inputs inputs = new BuildGraph.Inputs();
+        for (int i = 0; i < movieFiles.length; i++) {
+            MovieFile part = movieFiles[(i + offset) % movieFiles.length];
+            // one line each in the format "name|0|0|IP/path" replacing an | that may exist in the title
+            String line = movie.getTitle().replace('|', ' ') + " " + part.getFirstPart() + "|0|0|" + MYIHOME_IP + part.getFilename() + "|";
+            lines.add(line);
+            inputs.add("line", line);
+        }
+
+        if (!finalPlaylistFile.exists() || forceHTMLOverwrite || movie.isDirty(DirtyFlag.INFO)
+                || BuildGraph.isStale(finalPlaylistFile.getName(), inputs)) {
             FileTools.makeDirsForFile(tempPlaylistFile);
 
-            // Issue 237 - Add in the IP address of the MyiHome server so the playlist will work.
-            // Issue 237 - It is perfectly valid for "mjb.myiHome.IP" to be blank, in fact this is
-            // the normal method for stand alone YAMJ
             try (PrintWriter writer = new PrintWriter(tempPlaylistFile, "UTF-8")) {
-                for (int i = 0; i < movieFiles.length; i++) {
-                    MovieFile part = movieFiles[(i + offset) % movieFiles.length];
-                    // write one line each in the format "name|0|0|IP/path" replacing an | that may exist in the title
-                    writer.println(movie.getTitle().replace('|', ' ') + " " + part.getFirstPart() + "|0|0|" + MYIHOME_IP + part.getFilename() + "|");
+                for (String line : lines) {
+                    writer.println(line);
                 }
                 writer.flush();
             }
         }
+        BuildGraph.record(finalPlaylistFile.getName(), inputs);
         return baseName + fileSuffix;
     }
 
@@ -578,7 +592,7 @@ public class MovieJukeboxHTMLWriter {
     public void generateMoviesIndexHTML(final Jukebox jukebox, final Library library, ThreadExecutor<Void> tasks) throws Throwable {
         tasks.restart();
         for (final IndexInfo idx : library.getGeneratedIndexes()) {
-            if (idx.canSkip) { // this is evaluated during XML indexing
+            if (idx.canSkip && !BuildGraph.isEnabled()) { // this is evaluated during XML indexing
                 LOG.debug("Category '{}' & '{}' no change detected, skipping HTML generation.", idx.categoryName, idx.key);
 
                 // Add the index files to the cache so they aren't deleted
@@ -587,12 +601,16 @@ public class MovieJukeboxHTMLWriter {
                     FileTools.addJukeboxFile(idx.baseName + page + EXT_HTML);
                 }
             } else {
-                LOG.debug("Category '{}' & '{}'", idx.categoryName, idx.key);
+                if (idx.canSkip) {
+                    LOG.debug("Category '{}' & '{}' no change detected, only generating HTML with changed stylesheets.", idx.categoryName, idx.key);
+                } else {
+                    LOG.debug("Category '{}' & '{}'", idx.categoryName, idx.key);
+                }
                 tasks.submit(new Callable<Void>() {
                     @Override
                     public Void call() {
                         for (int page = 1; page <= idx.pages; page++) {
-                            writeSingleIndexPage(jukebox, idx, page);
+                            writeSingleIndexPage(jukebox, idx, page, idx.canSkip);
                         }
                         return null;
                     }
@@ -603,14 +621,28 @@ public class MovieJukeboxHTMLWriter {
         tasks.waitFor();
     }
 
-    private static void writeSingleIndexPage(Jukebox jukebox, IndexInfo idx, int page) {
+    /**
+     * Transform the XML of an index page with the index stylesheets
+     *
+     * @param jukebox
+     * @param idx
+     * @param page
+     * @param onlyStale the index is unchanged, only transform the existing XML
+     * with the stylesheets that have changed
+     */
+    private static void writeSingleIndexPage(Jukebox jukebox, IndexInfo idx, int page, boolean onlyStale) {
         try {
             File detailsDir = jukebox.getJukeboxTempLocationDetailsFile();
             FileTools.makeDirs(detailsDir);
 
             String filename = idx.baseName + page;
 
-            File xmlFile = new File(detailsDir, filename + EXT_XML);
+            File xmlFile;
+            if (onlyStale) {
+                xmlFile = new File(jukebox.getJukeboxRootLocationDetailsFile(), filename + EXT_XML);
+            } else {
+                xmlFile = new File(detailsDir, filename + EXT_XML);
+            }
 
             FileTools.addJukeboxFile(xmlFile.getName());
             String indexList = PropertiesUtil.getProperty("mjb.view.indexList", "index.xsl");
@@ -628,23 +660,29 @@ public class MovieJukeboxHTMLWriter {
                 File transformCategory = new File(SKIN_HOME, FileTools.makeSafeFilename(idx.categoryName) + EXT_XSL);
                 File transformBase = new File(SKIN_HOME, indexStr);
 
-                Transformer transformer;
+                File transformFile;
 
                 if (transformCatKey.exists()) {
                     LOG.debug("Using CategoryKey transformation {} for {}", transformCatKey.getName(), xmlFile.getName());
-                    transformer = getTransformer(transformCatKey, jukebox.getJukeboxTempLocationDetails());
+                    transformFile = transformCatKey;
                 } else if (transformCategory.exists()) {
                     LOG.debug("Using Category transformation {} for {}", transformCategory.getName(), xmlFile.getName());
-                    transformer = getTransformer(transformCategory, jukebox.getJukeboxTempLocationDetails());
+                    transformFile = transformCategory;
                 } else {
-                    transformer = getTransformer(transformBase, jukebox.getJukeboxTempLocationDetails());
+                    transformFile = transformBase;
                 }
 
-                // Transformer transformer = getTransformer(new File(skinHome, "index.xsl"), rootPath);
-                Source xmlSource = new StreamSource(xmlFile);
-                Result xmlResult = new StreamResult(htmlFile);
+                BuildGraph.Inputs inputs = getInputs(transformFile, jukebox.getJukeboxTempLocationDetails(), xmlFile);
+                if (!onlyStale || BuildGraph.isStale(htmlFile.getName(), inputs)) {
+                    Transformer transformer = getTransformer(transformFile, jukebox.getJukeboxTempLocationDetails());
 
-                doTransform(transformer, xmlSource, xmlResult, "Category page");
+                    // Transformer transformer = getTransformer(new File(skinHome, "index.xsl"), rootPath);
+                    Source xmlSource = new StreamSource(xmlFile);
+                    Result xmlResult = new StreamResult(htmlFile);
+
+                    doTransform(transformer, xmlSource, xmlResult, "Category page");
+                }
+                BuildGraph.record(htmlFile.getName(), inputs);
             }
         } catch (Exception error) {
             LOG.error("Failed generating HTML library index for Category: {}, Key: {}, Page: {}", idx.categoryName, idx.key, page);
@@ -653,7 +691,7 @@ public class MovieJukeboxHTMLWriter {
     }
 
     /**
-     * Creates and caches Transformer, one for every thread/xsl file.
+     * Creates a Transformer for the xsl file from the cached stylesheet.
      *
      * @param xslFile
      * @param styleSheetTargetRootPath
@@ -665,28 +703,13 @@ public class MovieJukeboxHTMLWriter {
          * Creating a new transformer every time doesn't consume too much time and has no impact on performance.
          * It lets YAMJ save lot of memory.
          * @author Vincent
+         *
+         * Only the compiled stylesheet (Templates) is cached, it does not hold the documents of a transformation.
          */
-        Source xslSource = new StreamSource(xslFile);
-
-        // Sometimes the StreamSource doesn't return an object and we get a null pointer exception, so check it and try loading it again
-        for (int looper = 1; looper < 5; looper++) {
-            xslSource = new StreamSource(xslFile);
-            if (xslSource != null) {
-                // looks ok, so quit the loop
-                break;
-            }
-        }
-
         Transformer transformer = null;
         try {
-            transformer = TRANSFORMER.newTransformer(xslSource);
-            transformer.setParameter("homePage", INDEX_HTML_FILE);
-            transformer.setParameter("rootPath", new File(styleSheetTargetRootPath).getAbsolutePath().replace('\\', '/'));
-            for (Entry<Object, Object> e : PropertiesUtil.getEntrySet()) {
-                if (e.getKey() != null && e.getValue() != null) {
-                    transformer.setParameter(e.getKey().toString(), e.getValue().toString());
-                }
-            }
+            transformer = getTemplates(xslFile).newTransformer();
+            setParameters(transformer, styleSheetTargetRootPath);
         } catch (TransformerConfigurationException ex) {
             LOG.error("Failed to get transformer for XSL: " + xslFile.getAbsolutePath());
             LOG.warn(SystemTools.getStackTrace(ex));
@@ -694,6 +717,78 @@ public class MovieJukeboxHTMLWriter {
         return transformer;
     }
 
+    /**
+     * Creates a SAX handler which transforms the events it receives with the
+     * xsl file, or copies them unchanged if the xsl file is null.
+     *
+     * The result must be set on the handler before it is used.
+     *
+     * @param xslFile
+     * @param styleSheetTargetRootPath
+     * @return
+     * @throws TransformerConfigurationException if the transformer factory
+     * does not support SAX
+     */
+    public static TransformerHandler getTransformerHandler(File xslFile, String styleSheetTargetRootPath) throws TransformerConfigurationException {
+        if (!TRANSFORMER.getFeature(SAXTransformerFactory.FEATURE)) {
+            throw new TransformerConfigurationException("The transformer factory does not support SAX");
+        }
+
+        SAXTransformerFactory factory = (SAXTransformerFactory) TRANSFORMER;
+        if (xslFile == null) {
+            return factory.newTransformerHandler();
+        }
+
+        TransformerHandler handler = factory.newTransformerHandler(getTemplates(xslFile));
+        setParameters(handler.getTransformer(), styleSheetTargetRootPath);
+        return handler;
+    }
+
+    /**
+     * Get the compiled stylesheet of the xsl file, it is compiled again when
+     * the file is changed.
+     *
+     * @param xslFile
+     * @return
+     * @throws TransformerConfigurationException
+     */
+    private static Templates getTemplates(File xslFile) throws TransformerConfigurationException {
+        String key = xslFile.getAbsolutePath() + "@" + xslFile.lastModified();
+        Templates templates = TEMPLATES.get(key);
+        if (templates == null) {
+            synchronized (TRANSFORMER) {
+                templates = TRANSFORMER.newTemplates(new StreamSource(xslFile));
+            }
+            TEMPLATES.put(key, templates);
+        }
+        return templates;
+    }
+
+    /**
+     * Get the inputs of a page transformed from the XML file with the xsl file
+     *
+     * @param xslFile
+     * @param styleSheetTargetRootPath
+     * @param xmlFile
+     * @return
+     */
+    private static BuildGraph.Inputs getInputs(File xslFile, String styleSheetTargetRootPath, File xmlFile) {
+        Map<String, String> parameters = new HashMap<>(2);
+        parameters.put("homePage", INDEX_HTML_FILE);
+        parameters.put("rootPath", new File(styleSheetTargetRootPath).getAbsolutePath().replace('\\', '/'));
+        return new BuildGraph.Inputs().addStylesheet(xslFile, parameters).addFile(xmlFile);
+    }
+
+    private static void setParameters(Transformer transformer, String styleSheetTargetRootPath) {
+        transformer.setParameter("homePage", INDEX_HTML_FILE);
+        transformer.setParameter("rootPath", new File(styleSheetTargetRootPath).getAbsolutePath().replace('\\', '/'));
+        for (Entry<Object, Object> e : PropertiesUtil.getEntrySet()) {
+            if (e.getKey() != null && e.getValue() != null) {
+                transformer.setParameter(e.getKey().toString(), e.getValue().toString());
+            }
+        }
+    }
+
     /**
      * Try to safely perform the transformation. Will retry up to maxRetryCount times before throwing the error
      *
@@ -708,7 +803,9 @@ public class MovieJukeboxHTMLWriter {
 
         do {
             try {
+                long start = JukeboxMetrics.start();
                 transformer.transform(xmlSource, xmlResult);
+                JukeboxMetrics.record(JukeboxMetrics.Group.TRANSFORM, StringUtils.substringBefore(message, ":"), start);
                 return;  // If the transform didn't throw an error, return
             } catch (TransformerException ex) {
                 int retryTimes = MAX_RETRY_COUNT - ++retryCount;
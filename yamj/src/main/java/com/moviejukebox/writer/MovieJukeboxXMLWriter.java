@@ -32,6 +32,7 @@ import com.moviejukebox.model.comparator.IndexComparator;
 import com.moviejukebox.model.comparator.SortIgnorePrefixesComparator;
 import com.moviejukebox.model.enumerations.*;
 import com.moviejukebox.plugin.ImdbPlugin;
+import com.moviejukebox.scanner.OutputDirectoryScanner;
 import com.moviejukebox.tools.*;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -1562,6 +1563,9 @@ public class MovieJukeboxXMLWriter {
             Element eMovie = writeMovie(xmlDoc, movie, library);
 
             if (eMovie != null) {
+                // Store the key the output directory scanner would derive from the filename
+                eMovie.setAttribute(OutputDirectoryScanner.KEY_ATTRIBUTE, OutputDirectoryScanner.getFileKey(finalXmlFile));
+                eMovie.setAttribute(OutputDirectoryScanner.KEY_HASH_ATTRIBUTE, OutputDirectoryScanner.getKeyHash());
                 eDetails.appendChild(eMovie);
             }
 
@@ -0,0 +1,139 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.model;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.model.enumerations.CodecType;
+import com.moviejukebox.model.enumerations.OverrideFlag;
+import com.moviejukebox.tools.StringPool;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Heap usage of the movie model.
+ *
+ * The values are created as new strings for every movie, like the readers and
+ * plugins do, so the figures include the effect of the string pool.
+ */
+public class MovieMemoryTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MovieMemoryTest.class);
+    private static final int MOVIE_COUNT = 20000;
+    // the years, genres, countries, certifications and media values of the movies
+    private static final int MAX_POOLED = 100;
+    private static final String[] GENRES = {"Action", "Adventure", "Comedy", "Drama", "Thriller", "Horror", "Sci-Fi", "Romance"};
+    private static final String[] COUNTRIES = {"USA", "UK", "France", "Germany", "Canada"};
+    private static final String[] CERTIFICATIONS = {"G", "PG", "PG-13", "R", "NC-17"};
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    /**
+     * Test that repeated values are shared between the movies
+     */
+    @Test
+    public void testSharedValues() {
+        LOG.info("testSharedValues");
+        Movie first = createMovie(1);
+        // 2000 is a multiple of the size of every value list
+        Movie second = createMovie(1 + 2000);
+
+        assertSame(first.getCertification(), second.getCertification());
+        assertSame(first.getGenres().iterator().next(), second.getGenres().iterator().next());
+        assertSame(first.getCountries().iterator().next(), second.getCountries().iterator().next());
+        assertSame(first.getOverrideSource(OverrideFlag.TITLE), second.getOverrideSource(OverrideFlag.TITLE));
+        assertSame(first.getCodecs().iterator().next().getCodec(), second.getCodecs().iterator().next().getCodec());
+
+        // collections that were never filled are shared too
+        assertSame(first.getAwards(), second.getAwards());
+        assertSame(first.getExtraFiles(), second.getExtraFiles());
+        assertTrue(first.getDidYouKnow().isEmpty());
+
+        first.addDidYouKnow("fact");
+        assertTrue(second.getDidYouKnow().isEmpty());
+    }
+
+    /**
+     * Measure the heap used per movie
+     */
+    @Test
+    public void testHeapPerMovie() {
+        LOG.info("testHeapPerMovie");
+        List<Movie> movies = new ArrayList<>(MOVIE_COUNT);
+
+        int pooled = StringPool.size();
+        long before = usedMemory();
+        for (int i = 0; i < MOVIE_COUNT; i++) {
+            movies.add(createMovie(i));
+        }
+        long after = usedMemory();
+
+        long perMovie = (after - before) / movies.size();
+        LOG.info("{} movies use {} bytes of heap, {} bytes per title", movies.size(), after - before, perMovie);
+
+        // only the limited vocabulary is pooled, not the names and titles of every movie
+        int added = StringPool.size() - pooled;
+        LOG.info("{} values added to the string pool", added);
+        assertTrue("String pool grows with the movies: " + added, added < MAX_POOLED);
+    }
+
+    private static Movie createMovie(int index) {
+        Movie movie = new Movie();
+        String source = new String("imdb");
+        movie.setTitle("Movie title " + index, source);
+        movie.setYear(new String(Integer.toString(1950 + index % 60)), source);
+        movie.setPlot("A plot for movie number " + index, source);
+        movie.setId("imdb", "tt" + (1000000 + index));
+        movie.addRating("imdb", index % 100);
+        movie.setCertification(new String(CERTIFICATIONS[index % CERTIFICATIONS.length]), source);
+        movie.setGenres(Arrays.asList(new String(GENRES[index % GENRES.length]), new String(GENRES[(index + 3) % GENRES.length])), source);
+        movie.addCountry(new String(COUNTRIES[index % COUNTRIES.length]), source);
+        movie.addDirector("Director " + index, source);
+        for (int actor = 0; actor < 5; actor++) {
+            movie.addActor(new String("Actor " + ((index + actor) % 2000)), source);
+        }
+        movie.setContainer(new String("MKV"), source);
+        movie.setResolution(new String("1920x1080"), source);
+        movie.setLanguage(new String("English"), source);
+        movie.addCodec(new Codec(CodecType.VIDEO, new String("H.264")));
+        return movie;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.model.scriptablescraper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.moviejukebox.AbstractTests;
+import java.util.Map;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SectionSSTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SectionSSTest.class);
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    private static SectionSS createSection() {
+        ScriptableScraper ssData = new ScriptableScraper();
+        SectionSS global = ssData.getSection();
+        global.setVariable("search.title", "The Matrix");
+        global.setVariable("search.year", "1999");
+        global.setVariable("count", "1");
+        global.setVariable("movie[1].site_id", "tt0133093");
+        return ssData.addSection("action", global);
+    }
+
+    /**
+     * Test the replacement of the variables
+     */
+    @Test
+    public void testCompileValue() {
+        LOG.info("testCompileValue");
+        SectionSS section = createSection();
+
+        assertEquals("http://site/find?q=The+Matrix&y=1999", section.compileValue("http://site/find?q=${search.title:safe}&y=${search.year}"));
+        assertEquals("plain text", section.compileValue("  plain text  "));
+        assertEquals("a|b|c", section.compileValue(" a | b || c "));
+        assertEquals("${unknown} 1999", section.compileValue("${unknown} ${search.year}"));
+        assertEquals("$100 ${}", section.compileValue("$100 ${}"));
+        assertEquals("tt0133093", section.compileValue("${movie[${count}].site_id}"));
+    }
+
+    /**
+     * Test that the patterns without variables are compiled once
+     */
+    @Test
+    public void testCompilePattern() {
+        LOG.info("testCompilePattern");
+        SectionSS section = createSection();
+
+        assertSame(section.compilePattern("<b>(\\d+)</b>"), section.compilePattern("<b>(\\d+)</b>"));
+        assertEquals("title=The Matrix", section.compilePattern("title=${search.title}").pattern());
+
+        String result = section.parseInput("<b>1</b><b>22</b>", section.compilePattern("<b>(\\d+)</b>"));
+        assertEquals("1" + ScriptableScraper.ARRAY_ITEM_DIVIDER + ScriptableScraper.ARRAY_GROUP_DIVIDER
+                + "22" + ScriptableScraper.ARRAY_ITEM_DIVIDER + ScriptableScraper.ARRAY_GROUP_DIVIDER, result);
+    }
+
+    /**
+     * Test the parsing of the retrieve cookies
+     */
+    @Test
+    public void testCookies() {
+        LOG.info("testCookies");
+        RetrieveSS retrieve = new RetrieveSS("http://site/", "", -1, -1, "lang=en&session=a=b&invalid");
+
+        Map<String, String> cookies = retrieve.getCookieValues();
+        assertEquals(2, cookies.size());
+        assertEquals("en", cookies.get("lang"));
+        assertEquals("a=b", cookies.get("session"));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.model.Codec;
+import com.moviejukebox.model.Movie;
+import com.moviejukebox.model.enumerations.CodecType;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class MovieListingFormatTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MovieListingFormatTest.class);
+    private static final String EOL = System.getProperty("line.separator");
+    private static final List<String> NAMES = Arrays.asList("Title", "Plot", "Year");
+    private static final String[] VALUES = {"Lock, Stock", "Two \"smoking\"\tbarrels", ""};
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    @Test
+    public void testFieldNames() {
+        LOG.info("testFieldNames");
+        assertEquals(MovieListingField.TITLE, MovieListingField.fromName("title"));
+        assertEquals(MovieListingField.POSTER, MovieListingField.fromName("Poster"));
+        assertEquals(MovieListingField.SEASON, MovieListingField.fromName("Season #"));
+        assertEquals(MovieListingField.FILES, MovieListingField.fromName("# Files"));
+        assertNull(MovieListingField.fromName("Unknown"));
+    }
+
+    @Test
+    public void testCodecFields() {
+        LOG.info("testCodecFields");
+        Movie movie = new Movie();
+        assertEquals(Movie.UNKNOWN, MovieListingField.AUDIO_CODEC.value(null, "Movie", movie));
+
+        Codec english = new Codec(CodecType.AUDIO, "AC3");
+        english.setCodecLanguage("English");
+        english.setCodecChannels(6);
+        Codec commentary = new Codec(CodecType.AUDIO, "AAC");
+        commentary.setCodecChannels(2);
+        movie.addCodec(english);
+        movie.addCodec(commentary);
+        movie.addCodec(new Codec(CodecType.VIDEO, "AVC"));
+
+        assertEquals("AC3 (English) / AAC", MovieListingField.AUDIO_CODEC.value(null, "Movie", movie));
+        assertEquals("6 / 2", MovieListingField.AUDIO_CHANNELS.value(null, "Movie", movie));
+        assertEquals("AVC", MovieListingField.VIDEO_CODEC.value(null, "Movie", movie));
+    }
+
+    @Test
+    public void testFormats() throws IOException {
+        LOG.info("testFormats");
+        assertEquals("Title,Plot,Year" + EOL + "\"Lock, Stock\",Two smoking barrels," + EOL, write(MovieListingFormat.CSV));
+        assertEquals("Title\tPlot\tYear" + EOL + "Lock, Stock\tTwo \"smoking\" barrels\t" + EOL, write(MovieListingFormat.TSV));
+        assertEquals("{\"Title\":\"Lock, Stock\",\"Plot\":\"Two \\\"smoking\\\"\\tbarrels\",\"Year\":\"\"}\n", write(MovieListingFormat.JSONL));
+    }
+
+    private static String write(MovieListingFormat format) throws IOException {
+        StringWriter writer = new StringWriter();
+        format.writeHeader(writer, NAMES, ",");
+        format.writeRow(writer, NAMES, VALUES, ",");
+        return writer.toString();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import com.omertron.thetvdbapi.model.Episode;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TheTvDBEpisodesTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TheTvDBEpisodesTest.class);
+    private static final long DAY = 1000L * 60 * 60 * 24;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    @Test
+    public void testIndex() {
+        LOG.info("testIndex");
+        List<Episode> episodes = new ArrayList<>();
+        for (int season = 1; season <= 30; season++) {
+            for (int number = 1; number <= 20; number++) {
+                episodes.add(createEpisode(season + "x" + number, season, number, Integer.toString(season), number + ".0"));
+            }
+        }
+        // a special without DVD numbering and a duplicate that must not win
+        episodes.add(createEpisode("special", 0, 1, null, null));
+        episodes.add(createEpisode("duplicate", 12, 7, "12", "7.0"));
+
+        TheTvDBEpisodes index = new TheTvDBEpisodes(episodes, "1400000000", System.currentTimeMillis());
+        assertEquals("12x7", index.getEpisode(12, 7).getEpisodeName());
+        assertEquals("30x20", index.getEpisode(30, 20).getEpisodeName());
+        assertEquals("special", index.getEpisode(0, 1).getEpisodeName());
+        assertNull(index.getEpisode(31, 1));
+
+        assertEquals("12x7", index.getDvdEpisode(12, 7).getEpisodeName());
+        assertNull(index.getDvdEpisode(-1, -1));
+        assertNull(index.getDvdEpisode(0, 1));
+    }
+
+    @Test
+    public void testStore() throws IOException {
+        LOG.info("testStore");
+        long now = System.currentTimeMillis();
+        List<Episode> episodes = new ArrayList<>();
+        episodes.add(createEpisode("Pilot", 1, 1, "1", "1.0"));
+
+        File storeFile = new File(folder.getRoot(), "cache/80348_en.episodes");
+        new TheTvDBEpisodes(episodes, "1400000000", now).write(storeFile);
+        assertTrue(storeFile.isFile());
+
+        TheTvDBEpisodes stored = TheTvDBEpisodes.read(storeFile);
+        assertNotNull(stored);
+        assertEquals("Pilot", stored.getEpisode(1, 1).getEpisodeName());
+        assertEquals("Pilot", stored.getDvdEpisode(1, 1).getEpisodeName());
+
+        // current as long as the series has not been updated
+        assertTrue(stored.isCurrent("1400000000", now));
+        assertTrue(stored.isCurrent(null, now));
+        assertFalse(stored.isCurrent("1400000500", now));
+        // too old
+        assertFalse(stored.isCurrent("1400000000", now + 8 * DAY));
+
+        assertNull(TheTvDBEpisodes.read(new File(folder.getRoot(), "missing.episodes")));
+    }
+
+    private static Episode createEpisode(String name, int season, int number, String dvdSeason, String dvdNumber) {
+        Episode episode = new Episode();
+        episode.setEpisodeName(name);
+        episode.setSeasonNumber(season);
+        episode.setEpisodeNumber(number);
+        episode.setDvdSeason(dvdSeason);
+        episode.setDvdEpisodeNumber(dvdNumber);
+        return episode;
+    }
+}
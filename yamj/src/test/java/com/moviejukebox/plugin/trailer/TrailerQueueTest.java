@@ -0,0 +1,169 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.plugin.trailer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.model.Jukebox;
+import com.moviejukebox.model.Movie;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Calendar;
+import java.util.List;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TrailerQueueTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrailerQueueTest.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    @Test
+    public void testWindow() {
+        LOG.info("testWindow");
+        assertTrue(TrailerQueue.isInWindow("", time(12, 0)));
+        assertTrue(TrailerQueue.isInWindow("01:00-06:00", time(1, 0)));
+        assertTrue(TrailerQueue.isInWindow("01:00-06:00", time(5, 59)));
+        assertFalse(TrailerQueue.isInWindow("01:00-06:00", time(6, 0)));
+        assertFalse(TrailerQueue.isInWindow("01:00-06:00", time(0, 30)));
+        // Window over midnight
+        assertTrue(TrailerQueue.isInWindow("23:00-02:00", time(23, 30)));
+        assertTrue(TrailerQueue.isInWindow("23:00-02:00", time(1, 0)));
+        assertFalse(TrailerQueue.isInWindow("23:00-02:00", time(12, 0)));
+    }
+
+    @Test
+    public void testQueue() throws IOException {
+        LOG.info("testQueue");
+        File queueFile = new File(folder.getRoot(), "queue.txt");
+        Movie movie = new Movie();
+        movie.setBaseName("Movie (2000)");
+
+        TrailerQueue.readQueue(queueFile);
+        TrailerQueue.add(movie, "TRAILER-Teaser", "http://trailers/teaser.mov", new File(folder.getRoot(), "teaser.mov"), "file:///teaser.mov");
+        TrailerQueue.add(movie, "TRAILER-Teaser", "http://trailers/teaser.mov", new File(folder.getRoot(), "teaser.mov"), "file:///teaser.mov");
+        TrailerQueue.writeQueue(queueFile);
+
+        List<String> lines = Files.readAllLines(queueFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals("Wrong queue " + lines, 1, lines.size());
+        assertTrue(lines.get(0).startsWith("Movie (2000)\tTRAILER-Teaser\thttp://trailers/teaser.mov\t"));
+
+        // Read back and write again unchanged
+        TrailerQueue.readQueue(queueFile);
+        TrailerQueue.writeQueue(queueFile);
+        assertEquals(lines, Files.readAllLines(queueFile.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testDrainOutsideWindow() throws IOException {
+        LOG.info("testDrainOutsideWindow");
+        File queueFile = new File(folder.getRoot(), "queue.txt");
+        Movie movie = new Movie();
+        movie.setBaseName("Movie (2000)");
+
+        TrailerQueue.readQueue(queueFile);
+        TrailerQueue.add(movie, "TRAILER-Teaser", "http://trailers/teaser.mov", new File(folder.getRoot(), "teaser.mov"), "file:///teaser.mov");
+        TrailerQueue.add(movie, "TRAILER-Main", "http://trailers/main.mov", new File(folder.getRoot(), "main.mov"), "file:///main.mov");
+
+        // A window that is closed now, so nothing is downloaded
+        int hour = (Calendar.getInstance().get(Calendar.HOUR_OF_DAY) + 2) % 24;
+        String window = String.format("%02d:00-%02d:30", hour, hour);
+        String root = folder.getRoot().getAbsolutePath();
+        TrailerQueue.drain(new Jukebox(root, root, "Jukebox"), queueFile, window, Long.MAX_VALUE);
+
+        // The queued trailers must be kept for the next run
+        TrailerQueue.readQueue(queueFile);
+        TrailerQueue.writeQueue(queueFile);
+        List<String> lines = Files.readAllLines(queueFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals("Wrong queue " + lines, 2, lines.size());
+        assertTrue(lines.get(0).startsWith("Movie (2000)\tTRAILER-Teaser\t"));
+        assertTrue(lines.get(1).startsWith("Movie (2000)\tTRAILER-Main\t"));
+    }
+
+    @Test
+    public void testDrainAfterDeadline() throws IOException {
+        LOG.info("testDrainAfterDeadline");
+        File queueFile = new File(folder.getRoot(), "queue.txt");
+        Movie movie = new Movie();
+        movie.setBaseName("Movie (2000)");
+
+        TrailerQueue.readQueue(queueFile);
+        TrailerQueue.add(movie, "TRAILER-Main", "http://trailers/main.mov", new File(folder.getRoot(), "main.mov"), "file:///main.mov");
+
+        // The time is used up, so nothing is downloaded and the next scan is not held up
+        String root = folder.getRoot().getAbsolutePath();
+        TrailerQueue.drain(new Jukebox(root, root, "Jukebox"), queueFile, "", System.currentTimeMillis());
+
+        // The queued trailer must be kept for the next run without a failed attempt
+        TrailerQueue.readQueue(queueFile);
+        List<String> lines = Files.readAllLines(queueFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals("Wrong queue " + lines, 1, lines.size());
+        assertTrue(lines.get(0).startsWith("Movie (2000)\tTRAILER-Main\t"));
+        assertTrue(lines.get(0).endsWith("\t0"));
+    }
+
+    @Test
+    public void testPartComplete() {
+        LOG.info("testPartComplete");
+        assertTrue(TrailerQueue.isPartComplete(response(416, null), 1000));
+        assertTrue(TrailerQueue.isPartComplete(response(416, "bytes */1000"), 1000));
+        assertFalse(TrailerQueue.isPartComplete(response(416, "bytes */2000"), 1000));
+        assertFalse(TrailerQueue.isPartComplete(response(416, null), 0));
+        assertFalse(TrailerQueue.isPartComplete(response(404, null), 1000));
+    }
+
+    private static HttpResponse response(int status, String contentRange) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, null);
+        if (contentRange != null) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange);
+        }
+        return response;
+    }
+
+    private static Calendar time(int hour, int minute) {
+        Calendar time = Calendar.getInstance();
+        time.set(Calendar.HOUR_OF_DAY, hour);
+        time.set(Calendar.MINUTE, minute);
+        return time;
+    }
+}
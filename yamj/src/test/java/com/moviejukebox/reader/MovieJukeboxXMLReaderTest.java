@@ -24,16 +24,31 @@ package com.moviejukebox.reader;
 
 import com.moviejukebox.AbstractTests;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
 import org.junit.Test;
 
+import com.moviejukebox.model.Movie;
+import com.moviejukebox.model.MovieFile;
 import com.moviejukebox.model.Person;
+import com.moviejukebox.model.attachment.Attachment;
+import com.moviejukebox.model.attachment.ContentType;
+import com.moviejukebox.model.enumerations.DirtyFlag;
+import com.moviejukebox.model.enumerations.OverrideFlag;
+import com.moviejukebox.plugin.ImdbPlugin;
 import org.junit.BeforeClass;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import static org.junit.Assert.assertEquals;
 
 /**
  *
@@ -43,6 +58,9 @@ public class MovieJukeboxXMLReaderTest extends AbstractTests {
 
     private static final Logger LOG = LoggerFactory.getLogger(MovieJukeboxXMLReaderTest.class);
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @BeforeClass
     public static void setUpClass() {
         doConfiguration();
@@ -53,15 +71,100 @@ public class MovieJukeboxXMLReaderTest extends AbstractTests {
      */
     @Test
     public void testParseMovieXML() {
-        LOG.info("parseMovieXML - no test written");
+        LOG.info("parseMovieXML");
+        File xmlFile = getTestFile("ExampleMovieXML.xml");
+
+        Movie movie = new Movie();
+        MovieJukeboxXMLReader instance = new MovieJukeboxXMLReader();
+        assertTrue(instance.parseMovieXML(xmlFile, movie));
+
+        assertEquals("tt0068646", movie.getId(ImdbPlugin.IMDB_PLUGIN_ID));
+        assertEquals("The Godfather", movie.getTitle());
+        assertEquals("Godfather", movie.getTitleSort());
+        assertEquals("1972", movie.getYear());
+        assertEquals(92, movie.getRating(ImdbPlugin.IMDB_PLUGIN_ID));
+        assertEquals(Arrays.asList("Drama"), new ArrayList<>(movie.getGenres()));
+        assertEquals(Integer.valueOf(1), movie.getSetOrder("Action Movies"));
+        assertTrue(movie.getSetsKeys().contains("Classics"));
+        assertEquals(Arrays.asList("Francis Ford Coppola"), new ArrayList<>(movie.getDirectors()));
+        assertEquals(2, movie.getCodecs().size());
+        assertFalse(movie.getPeople().isEmpty());
+        assertFalse(movie.getAwards().isEmpty());
+    }
+
+    /**
+     * Test that the attachments are read for their own movie file
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testParseMovieXMLAttachments() throws IOException {
+        LOG.info("parseMovieXMLAttachments");
+        File xmlFile = folder.newFile("attachments.xml");
+        String location = xmlFile.getAbsolutePath();
+        FileUtils.writeStringToFile(xmlFile, "<details><movie>"
+                + "<title source=\"nfo\">Test &amp; Title</title><prebuf>0</prebuf><files>"
+                + "<file firstPart=\"1\" lastPart=\"1\" title=\"One\" watched=\"false\"><fileLocation>" + location + "</fileLocation>"
+                + "<fileURL>file1.mkv</fileURL><fileTitle part=\"1\">Part One</fileTitle>"
+                + "<attachments><attachment type=\"MATROSKA\"><attachmentId>1</attachmentId><contentType>POSTER</contentType>"
+                + "<mimeType>image/jpeg</mimeType><part>1</part></attachment></attachments></file>"
+                + "<file firstPart=\"2\" lastPart=\"2\" title=\"Two\" watched=\"false\"><fileLocation>" + location + "</fileLocation>"
+                + "<fileURL>file2.mkv</fileURL>"
+                + "<attachments><attachment type=\"MATROSKA\"><attachmentId>2</attachmentId><contentType>FANART</contentType>"
+                + "<mimeType>image/png</mimeType><part>2</part></attachment></attachments></file>"
+                + "</files></movie></details>", "UTF-8");
+
+        Movie movie = new Movie();
+        MovieJukeboxXMLReader instance = new MovieJukeboxXMLReader();
+        assertTrue(instance.parseMovieXML(xmlFile, movie));
+
+        assertEquals("Test & Title", movie.getTitle());
+        assertEquals("NFO", movie.getOverrideSource(OverrideFlag.TITLE));
+
+        List<MovieFile> files = new ArrayList<>(movie.getFiles());
+        assertEquals(2, files.size());
+        for (MovieFile mf : files) {
+            assertFalse(mf.isNewFile());
+            assertEquals(1, mf.getAttachments().size());
+            Attachment attachment = mf.getAttachments().get(0);
+            assertEquals(mf.getFirstPart(), attachment.getPart());
+            assertEquals(mf.getFirstPart() == 1 ? ContentType.POSTER : ContentType.FANART, attachment.getContentType());
+            assertEquals(xmlFile, attachment.getSourceFile());
+        }
     }
 
     /**
      * Test of parseSetXML method, of class MovieJukeboxXMLReader.
      */
     @Test
-    public void testParseSetXML() {
-        LOG.info("parseSetXML - no test written");
+    public void testParseSetXML() throws IOException {
+        LOG.info("parseSetXML");
+        File xmlFile = folder.newFile("set.xml");
+        FileUtils.writeStringToFile(xmlFile, "<library><movies>"
+                + "<movie><baseFilename>Movie A</baseFilename></movie>"
+                + "<movie><baseFilename>Movie B</baseFilename></movie>"
+                + "</movies></library>", "UTF-8");
+
+        Movie setMaster = new Movie();
+        setMaster.setTitle("Test Set", Movie.UNKNOWN);
+        setMaster.setSetSize(2);
+
+        Movie movieA = new Movie();
+        movieA.setBaseName("Movie A");
+        movieA.addSet("Test Set");
+        Movie movieB = new Movie();
+        movieB.setBaseName("Movie B");
+        movieB.addSet("Test Set");
+        movieA.clearDirty();
+        movieB.clearDirty();
+
+        MovieJukeboxXMLReader instance = new MovieJukeboxXMLReader();
+        assertTrue(instance.parseSetXML(xmlFile, setMaster, Arrays.asList(movieA, movieB)));
+        assertFalse(setMaster.isDirty(DirtyFlag.INFO));
+
+        // A missing movie marks the set as dirty
+        assertTrue(instance.parseSetXML(xmlFile, setMaster, Arrays.asList(movieA)));
+        assertTrue(setMaster.isDirty(DirtyFlag.INFO));
     }
 
     /**
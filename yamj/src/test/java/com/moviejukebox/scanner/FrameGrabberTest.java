@@ -0,0 +1,239 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.model.Movie;
+import com.moviejukebox.model.MovieFile;
+import com.moviejukebox.plugin.MovieImagePlugin;
+import com.moviejukebox.tools.GraphicTools;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.SystemUtils;
+import org.jcodec.api.awt.AWTSequenceEncoder;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FrameGrabberTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FrameGrabberTest.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    @Test
+    public void testOffset() {
+        LOG.info("testOffset");
+        // relative to the runtime of the part
+        assertEquals(480, FrameGrabber.getOffset("20%", 2400, 0, 1));
+        assertEquals(2880, FrameGrabber.getOffset("20%", 2400, 1, 2));
+        // unknown runtime
+        assertEquals(60, FrameGrabber.getOffset("20%", -60, 0, 1));
+        // absolute offsets stay within the part
+        assertEquals(300, FrameGrabber.getOffset("300", 2400, 0, 1));
+        assertEquals(2700, FrameGrabber.getOffset("300", 2400, 1, 2));
+        assertEquals(100, FrameGrabber.getOffset("300", 200, 0, 1));
+        assertEquals(300, FrameGrabber.getOffset(" 300 ", -60, 0, 1));
+        // invalid values
+        assertEquals(60, FrameGrabber.getOffset("abc", -60, 0, 1));
+        assertEquals(2400, FrameGrabber.getOffset("250%", 2400, 0, 1));
+    }
+
+    @Test
+    public void testCommand() {
+        LOG.info("testCommand");
+        File video = new File("episode.mkv");
+        File target = new File("episode.videoimage.jpg");
+        List<String> command = FrameGrabber.buildCommand("ffmpeg", video, 480, target);
+
+        assertEquals("ffmpeg", command.get(0));
+        // the seek must come before the input to jump to the key frame
+        int seek = command.indexOf("-ss");
+        int input = command.indexOf("-i");
+        assertTrue(seek > 0 && seek < input);
+        assertEquals("480", command.get(seek + 1));
+        assertEquals(video.getAbsolutePath(), command.get(input + 1));
+        assertTrue(command.indexOf("nokey") < input);
+        assertEquals(target.getAbsolutePath(), command.get(command.size() - 1));
+    }
+
+    @Test
+    public void testThreads() {
+        LOG.info("testThreads");
+        assertEquals(4, FrameGrabber.getThreads(0, 4));
+        assertEquals(2, FrameGrabber.getThreads(2, 4));
+        assertEquals(4, FrameGrabber.getThreads(16, 4));
+        assertEquals(1, FrameGrabber.getThreads(-1, 0));
+    }
+
+    /**
+     * Grab a frame with a stand-in for ffmpeg that writes a JPEG frame, then
+     * load, generate and save it like the video image scanner does
+     */
+    @Test
+    public void testGrabAndProcess() throws Exception {
+        LOG.info("testGrabAndProcess");
+        File frame = folder.newFile("frame.jpg");
+        ImageIO.write(new BufferedImage(640, 360, BufferedImage.TYPE_INT_RGB), "jpg", frame);
+        String ffmpeg = createFfmpeg("cp '" + frame.getAbsolutePath() + "' \"$target\"\n");
+
+        File target = new File(folder.getRoot(), "jukebox/episode.videoimage.jpg");
+        Future<File> grab = FrameGrabber.grabFrame(ffmpeg, 60, createMovie(), createMovieFile(), 1, target);
+        assertNotNull(grab);
+        assertEquals(target, grab.get());
+
+        BufferedImage image = GraphicTools.loadJPEGImage(target);
+        assertNotNull("Grabbed frame is not an image", image);
+        assertEquals(640, image.getWidth());
+
+        MovieImagePlugin imagePlugin = new MovieImagePlugin() {
+            @Override
+            public BufferedImage generate(Movie movie, BufferedImage moviePoster, String imageType, String perspectiveDirection) {
+                assertEquals("videoimages1", imageType);
+                return GraphicTools.scaleToSize(400, 250, moviePoster);
+            }
+        };
+        BufferedImage processed = imagePlugin.generate(createMovie(), image, "videoimages1", null);
+        GraphicTools.saveImageToDisk(processed, target.getAbsolutePath());
+        BufferedImage saved = GraphicTools.loadJPEGImage(target);
+        assertNotNull(saved);
+        assertTrue(saved.getWidth() <= 400 && saved.getHeight() <= 250);
+        assertEquals(processed.getWidth(), saved.getWidth());
+    }
+
+    @Test
+    public void testGrabFailed() throws Exception {
+        LOG.info("testGrabFailed");
+        File target = new File(folder.getRoot(), "failed.jpg");
+
+        // ffmpeg fails
+        assertGrabFails(FrameGrabber.grabFrame(createFfmpeg("echo 'Invalid data found' >&2\nexit 1\n"), 60, createMovie(), createMovieFile(), 1, target), "exited with 1");
+        // ffmpeg succeeds without writing a frame
+        assertGrabFails(FrameGrabber.grabFrame(createFfmpeg("exit 0\n"), 60, createMovie(), createMovieFile(), 1, target), "No frame grabbed");
+
+        // missing video files are not grabbed
+        MovieFile missing = new MovieFile();
+        missing.setFile(new File(folder.getRoot(), "missing.mkv"));
+        assertNull(FrameGrabber.grabFrame("ffmpeg", 60, createMovie(), missing, 1, target));
+
+        // other videos than MP4 and MKV need ffmpeg
+        MovieFile avi = new MovieFile();
+        avi.setFile(folder.newFile("episode.avi"));
+        assertNull(FrameGrabber.grabFrame(null, 60, createMovie(), avi, 1, target));
+        // the broken video can't be decoded without ffmpeg
+        assertGrabFails(FrameGrabber.grabFrame(null, 60, createMovie(), createMovieFile(), 1, target), "episode.mkv");
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        LOG.info("testTimeout");
+        File target = new File(folder.getRoot(), "timeout.jpg");
+        long start = System.currentTimeMillis();
+        assertGrabFails(FrameGrabber.grabFrame(createFfmpeg("exec sleep 30\n"), 1, createMovie(), createMovieFile(), 1, target), "timed out");
+        assertTrue("The hanging ffmpeg was not stopped", System.currentTimeMillis() - start < 10000);
+    }
+
+    /**
+     * Grab the frame of a synthetic H.264 clip without ffmpeg
+     */
+    @Test
+    public void testDecode() throws Exception {
+        LOG.info("testDecode");
+        File clip = new File(folder.getRoot(), "episode.mp4");
+        AWTSequenceEncoder encoder = AWTSequenceEncoder.createSequenceEncoder(clip, 10);
+        for (int frame = 0; frame < 10; frame++) {
+            encoder.encodeImage(new BufferedImage(320, 176, BufferedImage.TYPE_3BYTE_BGR));
+        }
+        encoder.finish();
+        MovieFile mf = new MovieFile();
+        mf.setFile(clip);
+
+        File target = new File(folder.getRoot(), "jukebox/episode.videoimage.jpg");
+        Future<File> grab = FrameGrabber.grabFrame(null, 60, createMovie(), mf, 1, target);
+        assertNotNull(grab);
+        assertEquals(target, FrameGrabber.await(grab));
+        BufferedImage image = GraphicTools.loadJPEGImage(target);
+        assertNotNull("Grabbed frame is not an image", image);
+        assertEquals(320, image.getWidth());
+        assertEquals(176, image.getHeight());
+    }
+
+    private static void assertGrabFails(Future<File> grab, String message) throws InterruptedException {
+        assertNotNull(grab);
+        try {
+            grab.get();
+            fail("Grab did not fail");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IOException);
+            assertTrue(ex.getCause().getMessage(), ex.getCause().getMessage().contains(message));
+        }
+    }
+
+    /**
+     * Create a shell script standing in for ffmpeg, the last argument is
+     * available as $target
+     */
+    private String createFfmpeg(String body) throws IOException {
+        Assume.assumeFalse("The ffmpeg stand-in is a shell script", SystemUtils.IS_OS_WINDOWS);
+        File script = folder.newFile();
+        FileUtils.writeStringToFile(script, "#!/bin/sh\nfor target; do :; done\n" + body, "UTF-8");
+        assertTrue(script.setExecutable(true));
+        return script.getAbsolutePath();
+    }
+
+    private static Movie createMovie() {
+        return new Movie();
+    }
+
+    private MovieFile createMovieFile() throws IOException {
+        File video = new File(folder.getRoot(), "episode.mkv");
+        if (!video.exists()) {
+            FileUtils.writeByteArrayToFile(video, new byte[1024]);
+        }
+        MovieFile mf = new MovieFile();
+        mf.setFile(video);
+        return mf;
+    }
+}
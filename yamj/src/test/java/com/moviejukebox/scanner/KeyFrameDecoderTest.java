@@ -0,0 +1,219 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.moviejukebox.AbstractTests;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.jcodec.api.awt.AWTSequenceEncoder;
+import org.jcodec.codecs.h264.H264Utils;
+import org.jcodec.common.DemuxerTrack;
+import org.jcodec.common.io.NIOUtils;
+import org.jcodec.common.io.SeekableByteChannel;
+import org.jcodec.common.model.Packet;
+import org.jcodec.containers.mp4.demuxer.MP4Demuxer;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class KeyFrameDecoderTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeyFrameDecoderTest.class);
+    // the encoder writes a key frame every 25 frames, at 10 fps one every 2.5 seconds
+    private static final int FPS = 10;
+    private static final int FRAMES = 60;
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+    private static File mp4;
+    private static File mkv;
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() throws IOException {
+        doConfiguration();
+        mp4 = createClip(new File(folder.getRoot(), "clip.mp4"));
+        mkv = createMkv(mp4, new File(folder.getRoot(), "clip.mkv"));
+    }
+
+    @Test
+    public void testCanDecode() {
+        LOG.info("testCanDecode");
+        assertTrue(KeyFrameDecoder.canDecode(new File("episode.mp4")));
+        assertTrue(KeyFrameDecoder.canDecode(new File("episode.M4V")));
+        assertTrue(KeyFrameDecoder.canDecode(new File("episode.mkv")));
+        assertFalse(KeyFrameDecoder.canDecode(new File("episode.avi")));
+        assertFalse(KeyFrameDecoder.canDecode(new File("VIDEO_TS")));
+    }
+
+    @Test
+    public void testDecodeMp4() throws IOException {
+        LOG.info("testDecodeMp4");
+        assertKeyFrames(mp4);
+    }
+
+    @Test
+    public void testDecodeMkv() throws IOException {
+        LOG.info("testDecodeMkv");
+        assertKeyFrames(mkv);
+    }
+
+    @Test
+    public void testBrokenFile() throws IOException {
+        LOG.info("testBrokenFile");
+        File broken = folder.newFile("broken.mkv");
+        FileUtils.writeByteArrayToFile(broken, new byte[1024]);
+        try {
+            KeyFrameDecoder.decode(broken, 1);
+            fail("Broken file decoded");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("broken.mkv"));
+        }
+    }
+
+    private static void assertKeyFrames(File video) throws IOException {
+        BufferedImage frame = KeyFrameDecoder.decode(video, 1);
+        assertEquals(WIDTH, frame.getWidth());
+        assertEquals(HEIGHT, frame.getHeight());
+        assertColor(Color.RED, frame);
+        // the key frame before the offset, not the next one
+        assertColor(Color.RED, KeyFrameDecoder.decode(video, 2.4));
+        assertColor(Color.GREEN, KeyFrameDecoder.decode(video, 3));
+        assertColor(Color.BLUE, KeyFrameDecoder.decode(video, 5.5));
+        // after the end
+        assertColor(Color.BLUE, KeyFrameDecoder.decode(video, 600));
+    }
+
+    private static void assertColor(Color expected, BufferedImage frame) {
+        Color actual = new Color(frame.getRGB(frame.getWidth() / 2, frame.getHeight() / 2));
+        String message = "Expected " + expected + " but was " + actual;
+        assertTrue(message, Math.abs(expected.getRed() - actual.getRed()) < 40);
+        assertTrue(message, Math.abs(expected.getGreen() - actual.getGreen()) < 40);
+        assertTrue(message, Math.abs(expected.getBlue() - actual.getBlue()) < 40);
+    }
+
+    /**
+     * Encode a clip with a different colour for each group of pictures
+     */
+    private static File createClip(File clip) throws IOException {
+        AWTSequenceEncoder encoder = AWTSequenceEncoder.createSequenceEncoder(clip, FPS);
+        for (int frame = 0; frame < FRAMES; frame++) {
+            BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setColor(frame < 25 ? Color.RED : frame < 50 ? Color.GREEN : Color.BLUE);
+            graphics.fillRect(0, 0, WIDTH, HEIGHT);
+            graphics.dispose();
+            encoder.encodeImage(image);
+        }
+        encoder.finish();
+        return clip;
+    }
+
+    /**
+     * Copy the frames of the MP4 clip into a MKV file.
+     *
+     * The MKV muxer of JCodec does not write the codec private data, so the
+     * EBML elements are written here.
+     */
+    private static File createMkv(File clip, File target) throws IOException {
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        byte[] codecPrivate;
+        try (SeekableByteChannel channel = NIOUtils.readableChannel(clip)) {
+            DemuxerTrack track = MP4Demuxer.createMP4Demuxer(channel).getVideoTrack();
+            ByteBuffer parameterSets = track.getMeta().getCodecPrivate();
+            codecPrivate = toBytes(H264Utils.getAvcCData(H264Utils.createAvcCFromPS(
+                    H264Utils.getRawSPS(parameterSets.duplicate()), H264Utils.getRawPPS(parameterSets.duplicate()), 4)));
+
+            Packet packet;
+            while ((packet = track.nextFrame()) != null) {
+                int timecode = (int) Math.round(packet.getPtsD() * 1000);
+                byte[] header = {(byte) 0x81, (byte) (timecode >> 8), (byte) timecode, (byte) (packet.isKeyFrame() ? 0x80 : 0)};
+                blocks.write(element(0xA3, header, toBytes(H264Utils.encodeMOVPacket(packet.getData()))));
+            }
+        }
+
+        byte[] ebml = element(0x1A45DFA3, number(0x4286, 1), number(0x42F7, 1), number(0x42F2, 4), number(0x42F3, 8),
+                element(0x4282, "matroska".getBytes(StandardCharsets.US_ASCII)), number(0x4287, 2), number(0x4285, 2));
+        byte[] info = element(0x1549A966, number(0x2AD7B1, 1000000));
+        byte[] video = element(0xE0, number(0xB0, WIDTH), number(0xBA, HEIGHT));
+        byte[] trackEntry = element(0xAE, number(0xD7, 1), number(0x73C5, 1), number(0x83, 1),
+                element(0x86, "V_MPEG4/ISO/AVC".getBytes(StandardCharsets.US_ASCII)), element(0x63A2, codecPrivate), video);
+        byte[] cluster = element(0x1F43B675, number(0xE7, 0), blocks.toByteArray());
+        byte[] segment = element(0x18538067, info, element(0x1654AE6B, trackEntry), cluster);
+        FileUtils.writeByteArrayToFile(target, concat(ebml, segment));
+        return target;
+    }
+
+    /**
+     * An EBML element with a size of 8 bytes
+     */
+    private static byte[] element(int id, byte[]... children) throws IOException {
+        byte[] data = concat(children);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            if ((id >>> shift) != 0) {
+                out.write(id >>> shift);
+            }
+        }
+        out.write(0x01);
+        for (int shift = 48; shift >= 0; shift -= 8) {
+            out.write((int) ((long) data.length >>> shift));
+        }
+        out.write(data);
+        return out.toByteArray();
+    }
+
+    private static byte[] number(int id, long value) throws IOException {
+        return element(id, ByteBuffer.allocate(8).putLong(value).array());
+    }
+
+    private static byte[] concat(byte[]... parts) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.model.Library;
+import com.moviejukebox.model.MediaLibraryPath;
+import com.moviejukebox.model.Movie;
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LibraryChangesTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LibraryChangesTest.class);
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    @Test
+    public void testGetVideoDirectory() {
+        LOG.info("testGetVideoDirectory");
+        assertEquals(Paths.get("/movies/Film"), LibraryChanges.getVideoDirectory(Paths.get("/movies/Film/VIDEO_TS")));
+        assertEquals(Paths.get("/movies/Film"), LibraryChanges.getVideoDirectory(Paths.get("/movies/Film/BDMV/STREAM")));
+        assertEquals(Paths.get("/movies/Film"), LibraryChanges.getVideoDirectory(Paths.get("/movies/Film")));
+    }
+
+    /**
+     * Test that only the videos in the changed directories are scanned again
+     */
+    @Test
+    public void testScan() throws Exception {
+        LOG.info("testScan");
+        File root = folder.getRoot();
+        File first = createVideo(root, "Alpha (2001)");
+        createVideo(root, "Beta (2002)");
+
+        MediaLibraryPath mediaLibraryPath = new MediaLibraryPath();
+        mediaLibraryPath.setPath(root.getAbsolutePath());
+        mediaLibraryPath.setExcludes(new ArrayList<>());
+        mediaLibraryPath.setPlayerRootPath("");
+        Collection<MediaLibraryPath> libraries = Collections.singletonList(mediaLibraryPath);
+
+        Library previous = new Library();
+        new MovieDirectoryScanner().scan(mediaLibraryPath, previous);
+        assertEquals(2, previous.size());
+
+        // A new video and a changed video
+        File third = createVideo(root, "Gamma (2003)");
+        assertTrue(first.setLastModified(first.lastModified() + 60000));
+        Collection<File> changed = new ArrayList<>();
+        changed.add(third.getParentFile());
+        changed.add(first);
+
+        LibraryChanges changes = new LibraryChanges(changed);
+        Library library = changes.scan(libraries, previous);
+        assertEquals(3, library.size());
+        for (Movie movie : library.values()) {
+            File file = movie.getFirstFile().getFile();
+            boolean isChanged = file.equals(first) || file.equals(third);
+            assertEquals("Wrong state for " + file.getName(), !isChanged, changes.isUnchanged(movie));
+            assertEquals(isChanged, changes.affects(movie));
+        }
+    }
+
+    /**
+     * Test that the removed videos are dropped from the library
+     */
+    @Test
+    public void testScanRemoved() throws Exception {
+        LOG.info("testScanRemoved");
+        File root = folder.getRoot();
+        File first = createVideo(root, "Alpha (2001)");
+        createVideo(root, "Beta (2002)");
+
+        MediaLibraryPath mediaLibraryPath = new MediaLibraryPath();
+        mediaLibraryPath.setPath(root.getAbsolutePath());
+        mediaLibraryPath.setExcludes(new ArrayList<>());
+        mediaLibraryPath.setPlayerRootPath("");
+
+        Library previous = new Library();
+        new MovieDirectoryScanner().scan(mediaLibraryPath, previous);
+        assertEquals(2, previous.size());
+
+        assertTrue(first.delete());
+        LibraryChanges changes = new LibraryChanges(Collections.singletonList(first));
+        Library library = changes.scan(Collections.singletonList(mediaLibraryPath), previous);
+        assertEquals(1, library.size());
+        Movie movie = library.values().iterator().next();
+        assertTrue(changes.isUnchanged(movie));
+        assertFalse(movie.isDirty());
+    }
+
+    private static File createVideo(File root, String name) throws Exception {
+        File directory = new File(root, name);
+        assertTrue(directory.mkdirs());
+        File video = new File(directory, name + ".avi");
+        assertTrue(video.createNewFile());
+        return video;
+    }
+}
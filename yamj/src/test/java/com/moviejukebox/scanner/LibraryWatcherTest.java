@@ -0,0 +1,88 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.model.MediaLibraryPath;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LibraryWatcherTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LibraryWatcherTest.class);
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpClass() {
+        doConfiguration();
+    }
+
+    /**
+     * Test that a new episode in a new directory is reported and the changes
+     * of the jukebox are ignored
+     */
+    @Test(timeout = 30000)
+    public void testWaitForChanges() throws Exception {
+        LOG.info("testWaitForChanges");
+        final File root = folder.getRoot();
+        final File jukebox = folder.newFolder("Jukebox");
+        folder.newFolder("Movies");
+
+        MediaLibraryPath library = new MediaLibraryPath();
+        library.setPath(root.getAbsolutePath());
+
+        try (LibraryWatcher watcher = new LibraryWatcher(Collections.singletonList(library), Arrays.asList(jukebox), 500)) {
+            assertEquals(2, watcher.size());
+
+            // the jukebox output and the files which are no videos do not count
+            new File(jukebox, "Movie.jpg").createNewFile();
+            new File(root, "index.htm").createNewFile();
+
+            File season = new File(root, "Movies/Show/Season 1");
+            assertTrue(season.mkdirs());
+            // give the watcher time to register the new directories
+            Thread.sleep(200);
+            new File(season, "Show.S01E01.mkv").createNewFile();
+
+            Set<File> changed = watcher.waitForChanges();
+            // the new directory is reported, not the directory it was created in
+            assertTrue("Missing new directory: " + changed, changed.contains(new File(root, "Movies/Show")));
+            assertTrue("Parent directory reported: " + changed, !changed.contains(new File(root, "Movies")));
+            for (File file : changed) {
+                assertTrue("Ignored change reported: " + file, !file.toPath().startsWith(jukebox.toPath()) && !file.equals(new File(root, "index.htm")));
+            }
+            assertEquals(4, watcher.size());
+        }
+    }
+}
@@ -28,9 +28,13 @@ import static org.junit.Assert.*;
 import com.moviejukebox.model.MovieFileNameDTO;
 import com.moviejukebox.tools.StringTools;
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.apache.commons.io.FileUtils;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -499,6 +503,71 @@ public class MovieFilenameScannerTest extends AbstractTests {
         assertEquals("South Park", d.getTitle());
     }
 
+    /**
+     * Compare the scanner with the results recorded in the golden corpus.
+     *
+     * The corpus holds generated scene style names for movies, TV episodes,
+     * multi-part files, extras and DVD folders.
+     */
+    @Test
+    public void testGoldenCorpus() throws IOException {
+        LOG.info("GoldenCorpus");
+        File corpus = FileUtils.getFile("src/test/java/xml_test_files/filenamescanner/golden-corpus.txt");
+        List<String> lines = FileUtils.readLines(corpus, "UTF-8");
+
+        int count = 0;
+        long start = System.nanoTime();
+        for (String line : lines) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 4) {
+                continue;
+            }
+            MovieFileNameDTO d = scanCorpusEntry(fields[0], fields[1], fields[2]);
+            assertEquals(fields[2], fields[3], describe(d));
+            count++;
+        }
+        LOG.info("Scanned {} filenames in {}ms", count, (System.nanoTime() - start) / 1000000);
+        assertTrue("Empty corpus", count > 0);
+    }
+
+    @SuppressWarnings("serial")
+    private static MovieFileNameDTO scanCorpusEntry(final String type, String foldername, String filename) {
+        final File folder = foldername.isEmpty() ? null : new File(foldername) {
+            @Override
+            public boolean isFile() {
+                return false;
+            }
+        };
+
+        final File file = new File(filename) {
+            @Override
+            public boolean isFile() {
+                return "F".equals(type);
+            }
+
+            @Override
+            public File getParentFile() {
+                return folder;
+            }
+        };
+
+        return MovieFilenameScanner.scan(file);
+    }
+
+    private static String describe(MovieFileNameDTO d) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(d.getTitle()).append('|').append(d.getYear()).append('|').append(d.getPartTitle()).append('|').append(d.getEpisodeTitle());
+        sb.append('|').append(d.getSeason()).append('|').append(d.getEpisodes()).append('|').append(d.getPart()).append('|').append(d.isExtra());
+        sb.append('|').append(d.getAudioCodec()).append('|').append(d.getVideoCodec()).append('|').append(d.getContainer());
+        sb.append('|').append(d.getExtension()).append('|').append(d.getFps()).append('|').append(d.getHdResolution());
+        sb.append('|').append(d.getVideoSource()).append('|').append(new TreeMap<>(d.getIdMap())).append('|');
+        for (MovieFileNameDTO.SetDTO set : d.getSets()) {
+            sb.append(set.getTitle()).append('#').append(set.getIndex()).append(',');
+        }
+        sb.append('|').append(d.getLanguages());
+        return sb.toString();
+    }
+
     @SuppressWarnings("serial")
     private static MovieFileNameDTO scan(String filename) {
         File file = new File(filename) {
@@ -0,0 +1,119 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.model.Library;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class OutputDirectoryScannerTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutputDirectoryScannerTest.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    @Test
+    public void testIndexFiles() {
+        LOG.info("testIndexFiles");
+        assertTrue(OutputDirectoryScanner.isIndexFile("CATEGORIES.XML"));
+        assertTrue(OutputDirectoryScanner.isIndexFile("TITLE_ALL_1.XML"));
+        assertTrue(OutputDirectoryScanner.isIndexFile("OTHER_NEW-TV_1.XML"));
+        assertFalse(OutputDirectoryScanner.isIndexFile("TITLE.XML"));
+        assertFalse(OutputDirectoryScanner.isIndexFile("TITLES_OF_THE_WORLD (2001).XML"));
+        assertFalse(OutputDirectoryScanner.isIndexFile("AVATAR (2009).XML"));
+    }
+
+    @Test
+    public void testScan() throws IOException {
+        LOG.info("testScan");
+        File jukebox = folder.newFolder("Jukebox");
+        for (int i = 0; i < 100; i++) {
+            String baseName = "Movie " + i + " (" + (1950 + i) + ")";
+            File xmlFile = new File(jukebox, baseName + ".xml");
+            // every other file has the key stored
+            String attributes = "";
+            if (i % 2 == 0) {
+                attributes = " " + OutputDirectoryScanner.KEY_ATTRIBUTE + "=\"" + OutputDirectoryScanner.getFileKey(xmlFile) + "\" "
+                        + OutputDirectoryScanner.KEY_HASH_ATTRIBUTE + "=\"" + OutputDirectoryScanner.getKeyHash() + "\"";
+            }
+            writeMovie(xmlFile, baseName, "Movie " + i, Integer.toString(1950 + i), attributes);
+        }
+        writeMovie(new File(jukebox, "Title_All_1.xml"), "Title_All_1", "Index", "2000", "");
+        writeMovie(new File(jukebox, "Categories.xml"), "Categories", "Categories", "2000", "");
+
+        Library library = new Library();
+        new OutputDirectoryScanner(jukebox.getAbsolutePath()).scan(library);
+
+        assertEquals(100, library.size());
+        // the videos are added with the key derived from the filename
+        assertTrue(library.containsKey(OutputDirectoryScanner.getFileKey(new File(jukebox, "Movie 7 (1957).xml"))));
+        assertTrue(library.containsKey(OutputDirectoryScanner.getFileKey(new File(jukebox, "Movie 42 (1992).xml"))));
+    }
+
+    @Test
+    public void testStoredKey() throws IOException {
+        LOG.info("testStoredKey");
+        File jukebox = folder.newFolder("Jukebox");
+        File xmlFile = new File(jukebox, "Avatar (2009).xml");
+
+        writeMovie(xmlFile, "Avatar (2009)", "Avatar", "2009", " " + OutputDirectoryScanner.KEY_ATTRIBUTE + "=\"avatar (2009)\" "
+                + OutputDirectoryScanner.KEY_HASH_ATTRIBUTE + "=\"" + OutputDirectoryScanner.getKeyHash() + "\"");
+        assertEquals("avatar (2009)", OutputDirectoryScanner.readFileKey(xmlFile));
+
+        // the key is not used if the filename settings have changed
+        writeMovie(xmlFile, "Avatar (2009)", "Avatar", "2009", " " + OutputDirectoryScanner.KEY_ATTRIBUTE + "=\"avatar (2009)\" "
+                + OutputDirectoryScanner.KEY_HASH_ATTRIBUTE + "=\"other\"");
+        assertNull(OutputDirectoryScanner.readFileKey(xmlFile));
+
+        writeMovie(xmlFile, "Avatar (2009)", "Avatar", "2009", "");
+        assertNull(OutputDirectoryScanner.readFileKey(xmlFile));
+        assertEquals("avatar (2009)", OutputDirectoryScanner.getFileKey(xmlFile));
+    }
+
+    private static void writeMovie(File xmlFile, String baseName, String title, String year, String attributes) throws IOException {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<details><movie isExtra=\"false\" isSet=\"false\" isTV=\"false\"" + attributes + ">"
+                + "<baseFilename>" + baseName + "</baseFilename><title>" + title + "</title><year>" + year + "</year>"
+                + "<prebuf>-1</prebuf></movie></details>";
+        Files.write(xmlFile.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.model.Movie;
+import com.moviejukebox.model.enumerations.DirtyFlag;
+import com.moviejukebox.tools.PropertiesUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pojava.datetime.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class RecheckPlannerTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecheckPlannerTest.class);
+    private static final long DAY = 1000L * 60 * 60 * 24;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    @Test
+    public void testPlan() throws IOException {
+        LOG.info("testPlan");
+        File planFile = new File(folder.getRoot(), "plan.txt");
+        Movie empty = createMovie("Empty", false, 10);
+        Movie stale = createMovie("Stale", true, 100);
+        Movie complete = createMovie("Complete", true, 10);
+
+        RecheckPlanner.readPlan(planFile);
+        RecheckPlanner.writePlan(planFile, Arrays.asList(stale, complete, empty));
+
+        List<String> lines = Files.readAllLines(planFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals("Wrong plan " + lines, 2, lines.size());
+        assertTrue("Wrong order " + lines, lines.get(0).startsWith("Empty\t"));
+        assertTrue("Wrong order " + lines, lines.get(1).startsWith("Stale\t"));
+
+        RecheckPlanner.readPlan(planFile);
+        // The budget not used by the plan goes to the other videos first-come
+        int leftover = PropertiesUtil.getIntProperty("mjb.recheck.Max", 50) - lines.size();
+        for (int count = 0; count < leftover; count++) {
+            assertTrue("Leftover budget not granted", RecheckPlanner.isGranted(createMovie("Other" + count, false, 10)));
+        }
+        assertFalse(RecheckPlanner.isGranted(complete));
+        assertTrue(RecheckPlanner.isGranted(empty));
+        assertTrue(RecheckPlanner.isGranted(stale));
+
+        // Rechecked but still incomplete
+        RecheckPlanner.writePlan(planFile, Collections.singletonList(empty));
+        lines = Files.readAllLines(planFile.toPath(), StandardCharsets.UTF_8);
+        assertTrue("No failure recorded " + lines, lines.get(0).endsWith("\t1"));
+    }
+
+    @Test
+    public void testDirty() throws IOException {
+        LOG.info("testDirty");
+        File planFile = new File(folder.getRoot(), "plan.txt");
+        Movie empty = createMovie("Empty", false, 10);
+
+        RecheckPlanner.readPlan(planFile);
+        RecheckPlanner.writePlan(planFile, Collections.singletonList(empty));
+        RecheckPlanner.readPlan(planFile);
+        assertTrue(RecheckPlanner.isGranted(empty));
+
+        // The recheck writes the XML again, but the video is still incomplete
+        empty.setDirty(DirtyFlag.RECHECK);
+        RecheckPlanner.writePlan(planFile, Collections.singletonList(empty));
+        List<String> lines = Files.readAllLines(planFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals("Wrong plan " + lines, Collections.singletonList("Empty	0	1"), lines);
+
+        // Not planned until it is due again, but the failure is kept
+        RecheckPlanner.readPlan(planFile);
+        Movie reloaded = createMovie("Empty", false, 0);
+        int budget = PropertiesUtil.getIntProperty("mjb.recheck.Max", 50);
+        for (int count = 0; count < budget; count++) {
+            assertTrue("Budget used by the plan", RecheckPlanner.isGranted(createMovie("Other" + count, false, 10)));
+        }
+        RecheckPlanner.writePlan(planFile, Collections.singletonList(reloaded));
+        lines = Files.readAllLines(planFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals("Failure lost " + lines, Collections.singletonList("Empty	0	1"), lines);
+
+        // A complete video is dropped from the plan
+        RecheckPlanner.readPlan(planFile);
+        RecheckPlanner.writePlan(planFile, Collections.singletonList(createMovie("Empty", true, 0)));
+        lines = Files.readAllLines(planFile.toPath(), StandardCharsets.UTF_8);
+        assertTrue("Complete video planned " + lines, lines.isEmpty());
+    }
+
+    private static Movie createMovie(String baseName, boolean complete, int age) {
+        Movie movie = new Movie();
+        movie.setBaseName(baseName);
+        if (complete) {
+            movie.setTitle(baseName, Movie.UNKNOWN);
+            movie.setYear("2000", Movie.UNKNOWN);
+            movie.setPlot("Plot", Movie.UNKNOWN);
+            movie.setGenres(Collections.singletonList("Drama"), Movie.UNKNOWN);
+            movie.setPosterURL("http://poster");
+            movie.addRating("imdb", 50);
+        }
+        movie.setMjbGenerationDate(new DateTime(System.currentTimeMillis() - age * DAY));
+        movie.clearDirty();
+        return movie;
+    }
+}
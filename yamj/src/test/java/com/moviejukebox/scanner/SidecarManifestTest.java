@@ -0,0 +1,98 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.scanner.SidecarManifest.SidecarType;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SidecarManifestTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SidecarManifestTest.class);
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpClass() {
+        doConfiguration();
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        SidecarManifest.clear();
+    }
+
+    @Test
+    public void testClassify() {
+        LOG.info("testClassify");
+        assertEquals(SidecarType.NFO, SidecarManifest.classify("Movie (2010).NFO"));
+        assertEquals(SidecarType.SUBTITLE, SidecarManifest.classify("Movie.en.srt"));
+        assertEquals(SidecarType.WATCHED, SidecarManifest.classify("Movie.avi.watched"));
+        assertEquals(SidecarType.TRAILER, SidecarManifest.classify("Movie [TRAILER-Teaser].mkv"));
+        assertEquals(SidecarType.FANART, SidecarManifest.classify("Movie.fanart.jpg"));
+        assertEquals(SidecarType.BANNER, SidecarManifest.classify("Movie.banner.png"));
+        assertEquals(SidecarType.POSTER, SidecarManifest.classify("folder.jpg"));
+        assertNull(SidecarManifest.classify("Movie.avi"));
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        LOG.info("testLookup");
+        File directory = folder.getRoot();
+        for (String name : Arrays.asList("Movie (2010).avi", "Movie (2010).nfo", "Movie (2010).SRT", "Movie (2010).avi.watched",
+                "Other.avi", "Other.NFO", "Movie (2010).fanart.jpg")) {
+            new File(directory, name).createNewFile();
+        }
+
+        SidecarManifest manifest = SidecarManifest.register(directory, directory.listFiles());
+        assertSame(manifest, SidecarManifest.get(directory));
+        assertSame(manifest, SidecarManifest.forDirectory(directory));
+
+        // names with regex characters are matched literally
+        assertEquals(1, manifest.getFiles(SidecarType.NFO, "Movie (2010)").size());
+        assertEquals(2, manifest.getFiles(SidecarType.NFO, "").size());
+
+        assertNotNull(manifest.find("movie (2010)", SidecarType.SUBTITLE));
+        assertNull(manifest.find("Other", SidecarType.SUBTITLE));
+        assertNotNull(manifest.find("Movie (2010).avi", Arrays.asList("watched")));
+        assertEquals(3, manifest.getSidecars("Movie (2010)").size());
+        assertTrue(manifest.contains("OTHER.AVI"));
+
+        assertTrue(MovieDirectoryScanner.hasSubtitles(new File(directory, "Movie (2010).avi")));
+        assertTrue(!MovieDirectoryScanner.hasSubtitles(new File(directory, "Other.avi")));
+    }
+}
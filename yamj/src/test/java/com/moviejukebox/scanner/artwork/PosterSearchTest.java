@@ -0,0 +1,196 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.scanner.artwork;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.model.IImage;
+import com.moviejukebox.model.IMovieBasicInformation;
+import com.moviejukebox.model.Identifiable;
+import com.moviejukebox.model.Image;
+import com.moviejukebox.model.Movie;
+import com.moviejukebox.plugin.poster.IPosterPlugin;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class PosterSearchTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PosterSearchTest.class);
+    private static final PosterSearch.Validator VALID = new PosterSearch.Validator() {
+        @Override
+        public boolean isValid(IImage posterImage) {
+            return !posterImage.getUrl().contains("small");
+        }
+    };
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    @Test
+    public void testPriority() {
+        LOG.info("testPriority");
+        CountDownLatch fastDone = new CountDownLatch(1);
+        LinkedHashMap<String, IPosterPlugin> plugins = new LinkedHashMap<>();
+        plugins.put("first", new TestPlugin("first", null, 200, null));
+        plugins.put("second", new TestPlugin("second", "http://second/small.jpg", 100, null));
+        plugins.put("third", new TestPlugin("third", "http://third/poster.jpg", 0, fastDone));
+        plugins.put("fourth", new TestPlugin("fourth", "http://fourth/poster.jpg", 0, null));
+
+        Movie movie = new Movie();
+        PosterSearch search = new PosterSearch(plugins, movie, 3, 0, VALID);
+        try {
+            // the first three are searched at the same time
+            PosterSearch.Result result = search.next();
+            assertEquals(0, fastDone.getCount());
+            assertEquals("first", result.getName());
+            assertEquals(Movie.UNKNOWN, result.getPosterImage().getUrl());
+            assertEquals("first-id", movie.getId("first"));
+            // the third has not been reached yet
+            assertEquals(Movie.UNKNOWN, movie.getId("third"));
+
+            result = search.next();
+            assertEquals("second", result.getName());
+            assertFalse(result.isValid());
+
+            result = search.next();
+            assertEquals("third", result.getName());
+            assertTrue(result.isValid());
+            assertEquals("http://third/poster.jpg", result.getPosterImage().getUrl());
+            assertEquals("third-id", movie.getId("third"));
+        } finally {
+            search.close();
+        }
+
+        assertFalse(search.hasNext());
+        assertEquals(Movie.UNKNOWN, movie.getId("fourth"));
+    }
+
+    @Test
+    public void testTimeout() {
+        LOG.info("testTimeout");
+        LinkedHashMap<String, IPosterPlugin> plugins = new LinkedHashMap<>();
+        plugins.put("slow", new TestPlugin("slow", "http://slow/poster.jpg", 5000, null));
+        plugins.put("fast", new TestPlugin("fast", "http://fast/poster.jpg", 0, null));
+
+        Movie movie = new Movie();
+        PosterSearch search = new PosterSearch(plugins, movie, 2, 100, VALID);
+        try {
+            PosterSearch.Result result = search.next();
+            assertEquals("slow", result.getName());
+            assertEquals(Movie.UNKNOWN, result.getPosterImage().getUrl());
+            // the ids of a plugin that timed out are not used
+            assertEquals(Movie.UNKNOWN, movie.getId("slow"));
+
+            result = search.next();
+            assertEquals("fast", result.getName());
+            assertTrue(result.isValid());
+        } finally {
+            search.close();
+        }
+    }
+
+    @Test
+    public void testQueued() throws InterruptedException {
+        LOG.info("testQueued");
+        // the searches of another video take all the threads
+        LinkedHashMap<String, IPosterPlugin> busyPlugins = new LinkedHashMap<>();
+        for (int i = 0; i < PosterSearch.WIDTH; i++) {
+            busyPlugins.put("busy" + i, new TestPlugin("busy" + i, null, 300, null));
+        }
+        final PosterSearch busy = new PosterSearch(busyPlugins, new Movie(), PosterSearch.WIDTH, 0, VALID);
+        Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                busy.next();
+            }
+        });
+        other.start();
+        TimeUnit.MILLISECONDS.sleep(50);
+
+        LinkedHashMap<String, IPosterPlugin> plugins = new LinkedHashMap<>();
+        plugins.put("fast", new TestPlugin("fast", "http://fast/poster.jpg", 0, null));
+        PosterSearch search = new PosterSearch(plugins, new Movie(), 1, 100, VALID);
+        try {
+            // the time spent waiting for a thread does not count
+            PosterSearch.Result result = search.next();
+            assertEquals("fast", result.getName());
+            assertTrue(result.isValid());
+        } finally {
+            search.close();
+            other.join();
+            busy.close();
+        }
+    }
+
+    /**
+     * A poster plugin that sets its id and returns a fixed poster after a delay
+     */
+    private static final class TestPlugin implements IPosterPlugin {
+
+        private final String name;
+        private final String url;
+        private final long delay;
+        private final CountDownLatch done;
+
+        TestPlugin(String name, String url, long delay, CountDownLatch done) {
+            this.name = name;
+            this.url = url;
+            this.delay = delay;
+            this.done = done;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isNeeded() {
+            return true;
+        }
+
+        @Override
+        public IImage getPosterUrl(Identifiable ident, IMovieBasicInformation movieInformation) {
+            ident.setId(name, name + "-id");
+            try {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            } catch (InterruptedException ex) {
+                return Image.UNKNOWN;
+            }
+            if (done != null) {
+                done.countDown();
+            }
+            return url == null ? Image.UNKNOWN : new Image(url);
+        }
+    }
+}
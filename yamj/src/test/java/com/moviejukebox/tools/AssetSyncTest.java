@@ -0,0 +1,130 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class AssetSyncTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AssetSyncTest.class);
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    /**
+     * Test that only the new and changed files are copied
+     */
+    @Test
+    public void testSyncDirectory() throws IOException {
+        LOG.info("testSyncDirectory");
+        File source = folder.newFolder("skin");
+        File target = folder.newFolder("jukebox");
+        File manifest = new File(target, "skin.manifest");
+        write(new File(source, "style.css"), "body {}");
+        write(new File(source, "js/menu.js"), "var a;");
+
+        assertEquals(2, AssetSync.syncDirectory(source, target, manifest, false));
+        assertEquals("var a;", read(new File(target, "js/menu.js")));
+        assertEquals(0, AssetSync.syncDirectory(source, target, manifest, false));
+
+        // same content with a new date is not copied
+        File css = new File(source, "style.css");
+        assertTrue(css.setLastModified(css.lastModified() - 60000));
+        assertEquals(0, AssetSync.syncDirectory(source, target, manifest, false));
+
+        write(css, "body { margin: 0; }");
+        assertEquals(1, AssetSync.syncDirectory(source, target, manifest, false));
+        assertEquals("body { margin: 0; }", read(new File(target, "style.css")));
+
+        // a changed or deleted target is copied again
+        write(new File(target, "style.css"), "changed in the jukebox");
+        assertTrue(new File(target, "js/menu.js").delete());
+        assertEquals(2, AssetSync.syncDirectory(source, target, manifest, false));
+        assertEquals("body { margin: 0; }", read(new File(target, "style.css")));
+
+        assertEquals(2, AssetSync.syncDirectory(source, target, manifest, true));
+    }
+
+    /**
+     * Test that the placeholders share the content and are not changed by
+     * writing one of them
+     */
+    @Test
+    public void testPlaceholder() throws IOException {
+        LOG.info("testPlaceholder");
+        File dummy = folder.newFile("dummy.jpg");
+        write(dummy, "dummy image");
+        File temp = folder.newFolder("temp");
+        File first = new File(temp, "first.jpg");
+        File second = new File(temp, "second.jpg");
+
+        assertTrue(AssetSync.placeholder(dummy, first));
+        assertTrue(AssetSync.placeholder(dummy, second));
+        assertEquals("dummy image", read(second));
+        assertEquals(fileKey(first), fileKey(second));
+
+        // copying a placeholder creates another link
+        File copy = new File(folder.newFolder("jukebox"), "copy.jpg");
+        assertTrue(FileTools.copyFile(second, copy));
+        assertEquals(fileKey(first), fileKey(copy));
+
+        // replacing one placeholder leaves the others alone
+        File image = folder.newFile("image.jpg");
+        write(image, "real image");
+        assertTrue(FileTools.copyFile(image, second));
+        assertEquals("real image", read(second));
+        assertEquals("dummy image", read(first));
+        assertEquals("dummy image", read(copy));
+    }
+
+    private static Object fileKey(File file) throws IOException {
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+    }
+
+    private static String read(File file) throws IOException {
+        return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.tools.AsyncLogAppender.RingBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class AsyncLogAppenderTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncLogAppenderTest.class);
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    /**
+     * Test that the ring buffer keeps the order and reports when it is full
+     */
+    @Test
+    public void testRingBuffer() {
+        LOG.info("testRingBuffer");
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+
+        assertTrue(buffer.isEmpty());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse("Buffer should be full", buffer.offer(4));
+
+        for (int round = 0; round < 10; round++) {
+            assertEquals(Integer.valueOf(round), buffer.poll());
+            assertTrue(buffer.offer(round + 4));
+        }
+        assertFalse(buffer.isEmpty());
+        for (int i = 10; i < 14; i++) {
+            assertEquals(Integer.valueOf(i), buffer.poll());
+        }
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    /**
+     * Test that all the events of several threads are written, even when the
+     * buffer is too small to hold them
+     */
+    @Test
+    public void testAppend() throws InterruptedException {
+        LOG.info("testAppend");
+        final List<String> written = Collections.synchronizedList(new ArrayList<String>());
+        Appender target = new AppenderSkeleton() {
+            @Override
+            protected void append(LoggingEvent event) {
+                written.add(event.getRenderedMessage());
+            }
+
+            @Override
+            public void close() {
+                // nothing to close
+            }
+
+            @Override
+            public boolean requiresLayout() {
+                return false;
+            }
+        };
+
+        final AsyncLogAppender appender = new AsyncLogAppender(Collections.singletonList(target), 16);
+        final org.apache.log4j.Logger logger = org.apache.log4j.Logger.getLogger(AsyncLogAppenderTest.class);
+        final int threadCount = 4;
+        final int eventCount = 500;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final int thread = t;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < eventCount; i++) {
+                        appender.doAppend(new LoggingEvent(AsyncLogAppenderTest.class.getName(), logger, Level.INFO, thread + ":" + i, null));
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        appender.close();
+
+        assertEquals(threadCount * eventCount, written.size());
+        // the events of each thread are written in order
+        int[] next = new int[threadCount];
+        for (String message : written) {
+            String[] parts = message.split(":");
+            int thread = Integer.parseInt(parts[0]);
+            assertEquals(next[thread]++, Integer.parseInt(parts[1]));
+        }
+    }
+
+    /**
+     * Test the detection of the layouts that need the location of the caller
+     */
+    @Test
+    public void testNeedsLocation() {
+        LOG.info("testNeedsLocation");
+        assertTrue(AsyncLogAppender.needsLocation(new PatternLayout("[%d{HH:mm:ss} - %-8t] %C{1}: %m%n")));
+        assertTrue(AsyncLogAppender.needsLocation(new PatternLayout("%-5L %m%n")));
+        assertFalse(AsyncLogAppender.needsLocation(new PatternLayout("%m%n")));
+        assertFalse(AsyncLogAppender.needsLocation(new PatternLayout("%-5p [%t] %m%n")));
+        assertFalse(AsyncLogAppender.needsLocation(null));
+    }
+}
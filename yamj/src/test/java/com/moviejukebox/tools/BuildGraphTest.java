@@ -0,0 +1,137 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.model.enumerations.PropertyOverwrites;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class BuildGraphTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BuildGraphTest.class);
+    private static final Map<String, String> PARAMETERS = Collections.singletonMap("rootPath", "/jukebox");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    @Test
+    public void testStylesheetInputs() throws IOException {
+        LOG.info("testStylesheetInputs");
+        File graphFile = new File(folder.getRoot(), "graph.txt");
+        File xmlFile = writeFile("movie.xml", "<details/>");
+        File included = writeFile("included.xsl", stylesheet("<xsl:param name=\"test.graph.included\"/><xsl:param name=\"test.graph.declared\"/>"));
+        File xslFile = writeFile("detail.xsl", stylesheet("<xsl:include href=\"included.xsl\"/><xsl:param name=\"test.graph.detail\"/><xsl:param name=\"rootPath\"/>"
+                + "<xsl:template match=\"/\"><a href=\"{$rootPath}/{$test.graph.detail}\"><xsl:value-of select=\"concat($test.graph.included, '.')\"/></a></xsl:template>"));
+
+        PropertiesUtil.setProperty("test.graph.detail", "1");
+        PropertiesUtil.setProperty("test.graph.included", "1");
+        PropertiesUtil.setProperty("test.graph.unused", "1");
+        PropertiesUtil.setProperty("test.graph.declared", "1");
+
+        BuildGraph.readFile(graphFile);
+        String hash = inputs(xslFile, xmlFile).getHash();
+        BuildGraph.record("detail.html", inputs(xslFile, xmlFile));
+        BuildGraph.writeFile(graphFile);
+
+        // A property which isn't a parameter of the stylesheet
+        PropertiesUtil.setProperty("test.graph.unused", "2");
+        BuildGraph.readFile(graphFile);
+        assertEquals(hash, inputs(xslFile, xmlFile).getHash());
+        assertFalse(BuildGraph.isStale("detail.html", inputs(xslFile, xmlFile)));
+        assertFalse("Unknown output", BuildGraph.isStale("other.html", inputs(xslFile, xmlFile)));
+
+        // A parameter which is declared, but not used by the stylesheet
+        PropertiesUtil.setProperty("test.graph.declared", "2");
+        assertFalse(BuildGraph.isStale("detail.html", inputs(xslFile, xmlFile)));
+
+        // A parameter of the included stylesheet
+        PropertiesUtil.setProperty("test.graph.included", "2");
+        assertTrue(BuildGraph.isStale("detail.html", inputs(xslFile, xmlFile)));
+        PropertiesUtil.setProperty("test.graph.included", "1");
+
+        // The content of the included stylesheet
+        Files.write(included.toPath(), stylesheet("<xsl:param name=\"test.graph.included\" select=\"1\"/><xsl:param name=\"test.graph.declared\"/>").getBytes(StandardCharsets.UTF_8));
+        BuildGraph.readFile(graphFile);
+        assertNotEquals(hash, inputs(xslFile, xmlFile).getHash());
+        assertTrue(BuildGraph.isStale("detail.html", inputs(xslFile, xmlFile)));
+    }
+
+    @Test
+    public void testTracked() throws IOException {
+        LOG.info("testTracked");
+        File graphFile = new File(folder.getRoot(), "graph.txt");
+
+        // Without the graph of the last run the overwrites are still needed
+        BuildGraph.readFile(graphFile);
+        assertFalse(BuildGraph.isTracked(PropertyOverwrites.HTML));
+
+        BuildGraph.record("detail.html", new BuildGraph.Inputs().add("a", "b"));
+        BuildGraph.writeFile(graphFile);
+        BuildGraph.readFile(graphFile);
+        assertTrue(BuildGraph.isTracked(PropertyOverwrites.HTML));
+        assertFalse(BuildGraph.isTracked(PropertyOverwrites.FANART));
+    }
+
+    @Test
+    public void testInputsHash() {
+        LOG.info("testInputsHash");
+        assertEquals(new BuildGraph.Inputs().add("a", "b").getHash(), new BuildGraph.Inputs().add("a", "b").getHash());
+        assertNotEquals(new BuildGraph.Inputs().add("a", "bc").getHash(), new BuildGraph.Inputs().add("ab", "c").getHash());
+        assertNotEquals(new BuildGraph.Inputs().add("a", null).getHash(), new BuildGraph.Inputs().add("a", "b").getHash());
+    }
+
+    private static BuildGraph.Inputs inputs(File xslFile, File xmlFile) {
+        return new BuildGraph.Inputs().addStylesheet(xslFile, PARAMETERS).addFile(xmlFile);
+    }
+
+    private static String stylesheet(String content) {
+        return "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">" + content + "</xsl:stylesheet>";
+    }
+
+    private File writeFile(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
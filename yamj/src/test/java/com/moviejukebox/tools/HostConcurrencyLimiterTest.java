@@ -0,0 +1,147 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.tools.HostConcurrencyLimiter.HostLimit;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class HostConcurrencyLimiterTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HostConcurrencyLimiterTest.class);
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    /**
+     * Test the additive increase and multiplicative decrease of the limit
+     */
+    @Test
+    public void testAdaptiveLimit() {
+        LOG.info("testAdaptiveLimit");
+        HostLimit limit = new HostLimit("test", 2);
+
+        // two full windows of healthy requests with all slots in use
+        for (int window = 0; window < 2; window++) {
+            for (int i = 0; i < limit.getLimit(); i++) {
+                limit.acquire();
+            }
+            int current = limit.getLimit();
+            for (int i = 0; i < current; i++) {
+                limit.release(100, 200, 0);
+                limit.acquire();
+            }
+            for (int i = 0; i < current; i++) {
+                limit.release();
+            }
+        }
+        assertEquals(4, limit.getLimit());
+        assertEquals(0, limit.getActive());
+
+        limit.acquire();
+        limit.release(100, 429, 0);
+        assertEquals(2, limit.getLimit());
+
+        limit.acquire();
+        limit.release(100, HostConcurrencyLimiter.STATUS_IO_ERROR, 0);
+        assertEquals(1, limit.getLimit());
+
+        limit.acquire();
+        limit.release(100, 503, 0);
+        assertEquals(1, limit.getLimit());
+        assertEquals(3, limit.getThrottled());
+    }
+
+    /**
+     * Test the Retry-After block
+     */
+    @Test
+    public void testRetryAfter() {
+        LOG.info("testRetryAfter");
+        HostLimit limit = new HostLimit("test", 1);
+        limit.acquire();
+        limit.release(10, 429, 200);
+
+        long start = System.currentTimeMillis();
+        limit.acquire();
+        limit.release();
+        assertTrue("Retry-After was not honoured", System.currentTimeMillis() - start >= 150);
+    }
+
+    /**
+     * Test that a queued task gets the slot when it is released, after the Retry-After block
+     */
+    @Test
+    public void testQueuedTask() throws InterruptedException {
+        LOG.info("testQueuedTask");
+        HostLimit limit = new HostLimit("test", 1);
+        final CountDownLatch first = new CountDownLatch(1);
+        final CountDownLatch second = new CountDownLatch(1);
+
+        limit.acquire(new Runnable() {
+            @Override
+            public void run() {
+                first.countDown();
+            }
+        });
+        assertTrue("First task was not run", first.await(1, TimeUnit.SECONDS));
+
+        limit.acquire(new Runnable() {
+            @Override
+            public void run() {
+                second.countDown();
+            }
+        });
+        assertFalse("Second task was run while the slot was in use", second.await(100, TimeUnit.MILLISECONDS));
+
+        long start = System.currentTimeMillis();
+        limit.release(10, 429, 200);
+        assertTrue("Second task was not run", second.await(2, TimeUnit.SECONDS));
+        assertTrue("Retry-After was not honoured", System.currentTimeMillis() - start >= 150);
+        assertEquals(1, limit.getActive());
+
+        limit.release();
+        assertEquals(0, limit.getActive());
+    }
+
+    @Test
+    public void testParseRetryAfter() {
+        LOG.info("testParseRetryAfter");
+        assertEquals(120000, HostConcurrencyLimiter.parseRetryAfter("120"));
+        assertEquals(300000, HostConcurrencyLimiter.parseRetryAfter("3600"));
+        assertEquals(0, HostConcurrencyLimiter.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertEquals(0, HostConcurrencyLimiter.parseRetryAfter("invalid"));
+        assertEquals(0, HostConcurrencyLimiter.parseRetryAfter(null));
+    }
+}
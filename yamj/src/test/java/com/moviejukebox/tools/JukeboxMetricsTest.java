@@ -0,0 +1,117 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.tools.JukeboxMetrics.Gauge;
+import com.moviejukebox.tools.JukeboxMetrics.Group;
+import com.moviejukebox.tools.JukeboxMetrics.Timer;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class JukeboxMetricsTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JukeboxMetricsTest.class);
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    @Before
+    public void setUp() {
+        JukeboxMetrics.reset();
+    }
+
+    /**
+     * Test the histogram of a timer
+     */
+    @Test
+    public void testTimer() {
+        LOG.info("testTimer");
+        for (int looper = 1; looper <= 100; looper++) {
+            JukeboxMetrics.recordNanos(Group.PLUGIN, "imdb", TimeUnit.MILLISECONDS.toNanos(looper));
+        }
+
+        Timer timer = JukeboxMetrics.getTimer(Group.PLUGIN, "imdb");
+        assertSame(timer, JukeboxMetrics.getTimer(Group.PLUGIN, "imdb"));
+        assertEquals(100, timer.getCount());
+        assertEquals(100, TimeUnit.NANOSECONDS.toMillis(timer.getMaxNanos()));
+        assertEquals(50, TimeUnit.NANOSECONDS.toMillis(timer.getMeanNanos()));
+        // the percentiles are the upper bound of the power of two buckets
+        assertEquals(64, timer.getPercentileMillis(50));
+        assertEquals(100, timer.getPercentileMillis(99));
+    }
+
+    /**
+     * Test that a start time from System.nanoTime() is recorded even when it is
+     * not positive
+     */
+    @Test
+    public void testStartNotPositive() {
+        LOG.info("testStartNotPositive");
+        JukeboxMetrics.record(Group.STEP, "scan", 0);
+        JukeboxMetrics.record(Group.STEP, "scan", -1000);
+        JukeboxMetrics.record(Group.STEP, "scan", Long.MIN_VALUE);
+        assertEquals(2, JukeboxMetrics.getTimer(Group.STEP, "scan").getCount());
+    }
+
+    /**
+     * Test the counters and gauges updated by several threads
+     */
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        LOG.info("testConcurrentUpdates");
+        Thread[] threads = new Thread[4];
+        for (int looper = 0; looper < threads.length; looper++) {
+            final int value = looper;
+            threads[looper] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int count = 0; count < 10000; count++) {
+                        JukeboxMetrics.increment("requests");
+                        JukeboxMetrics.gauge("queue", value);
+                    }
+                }
+            });
+            threads[looper].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, JukeboxMetrics.getCounter("requests"));
+        Gauge gauge = JukeboxMetrics.getGauge("queue");
+        assertEquals(40000, gauge.getSamples());
+        assertEquals(3, gauge.getMax());
+        assertTrue(gauge.getMean() >= 0 && gauge.getMean() <= 3);
+    }
+}
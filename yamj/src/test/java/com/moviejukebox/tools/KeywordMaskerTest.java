@@ -0,0 +1,74 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class KeywordMaskerTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeywordMaskerTest.class);
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    /**
+     * Test that all the keys are masked, including keys inside other keys
+     */
+    @Test
+    public void testMask() {
+        LOG.info("testMask");
+        KeywordMasker masker = new KeywordMasker(Arrays.asList("abc123", "c12", "xyz", ""), "[KEY]");
+
+        assertEquals("url?key=[KEY]&other=[KEY]", masker.mask("url?key=abc123&other=xyz"));
+        assertEquals("[KEY][KEY]", masker.mask("abc123xyz"));
+        assertEquals("ab[KEY]", masker.mask("abc12"));
+        // overlapping keys are masked as one
+        assertEquals("[KEY]3", new KeywordMasker(Arrays.asList("abcd", "cdef"), "[KEY]").mask("abcdef3"));
+    }
+
+    /**
+     * Test that the text is returned unchanged when nothing needs to be masked
+     */
+    @Test
+    public void testNoMatch() {
+        LOG.info("testNoMatch");
+        String text = "nothing to see here";
+        assertSame(text, new KeywordMasker(Arrays.asList("secret"), "[KEY]").mask(text));
+
+        KeywordMasker empty = new KeywordMasker(Collections.<String>emptyList(), "[KEY]");
+        assertTrue(empty.isEmpty());
+        assertSame(text, empty.mask(text));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.tools.TraktWatchedIndex.IdType;
+import com.moviejukebox.tools.TraktWatchedIndex.WatchedEntry;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TraktWatchedIndexTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TraktWatchedIndexTest.class);
+    private static final int MOVIE_COUNT = 20000;
+    private static final int SHOW_COUNT = 2000;
+    private static final int SEASONS = 5;
+    private static final int EPISODES = 20;
+
+    @BeforeClass
+    public static void setUpClass() {
+        doConfiguration();
+    }
+
+    @Test
+    public void testFindMovie() {
+        LOG.info("testFindMovie");
+        TraktWatchedIndex index = new TraktWatchedIndex();
+        WatchedEntry entry = index.add(ids("123", "the-movie-2010", null, null, "550", "tt0137523"), 1000L);
+
+        assertSame(entry, index.find(ids("123", null, null, null, null, null)));
+        // the trakt id of the video is also checked against the slug
+        assertSame(entry, index.find(ids("The-Movie-2010", null, null, null, null, null)));
+        assertSame(entry, index.find(ids(null, null, null, null, "550", null)));
+        assertSame(entry, index.find(ids(null, null, null, null, null, "TT0137523")));
+        assertNull(index.find(ids("124", null, null, null, "551", "tt0000001")));
+        assertEquals("123", entry.getTraktId());
+        assertEquals(1000L, entry.getLastWatched());
+    }
+
+    @Test
+    public void testEpisodes() {
+        LOG.info("testEpisodes");
+        TraktWatchedIndex index = new TraktWatchedIndex();
+        WatchedEntry first = index.add(ids("1", null, "71663", null, null, null), 0);
+        WatchedEntry second = index.add(ids("2", null, "80379", null, null, null), 0);
+        index.addEpisode(first, 1, 2, 5000L);
+        index.addEpisode(second, 1, 3, 6000L);
+
+        assertSame(first, index.find(ids(null, null, "71663", null, null, null)));
+        assertEquals(5000L, index.getWatchedDate(first, 1, 2));
+        assertEquals(0L, index.getWatchedDate(first, 1, 3));
+        assertEquals(6000L, index.getWatchedDate(second, 1, 3));
+        assertEquals(0L, index.getWatchedDate(null, 1, 3));
+    }
+
+    /**
+     * Compare the index with a linear scan of a synthetic watched history
+     */
+    @Test
+    public void testLargeHistory() {
+        LOG.info("testLargeHistory");
+        TraktWatchedIndex movies = new TraktWatchedIndex();
+        List<Map<IdType, String>> movieHistory = new ArrayList<>(MOVIE_COUNT);
+        for (int i = 0; i < MOVIE_COUNT; i++) {
+            Map<IdType, String> movieIds = ids(Integer.toString(i), "movie-" + i, null, null, Integer.toString(100000 + i), "tt" + (1000000 + i));
+            movieHistory.add(movieIds);
+            movies.add(movieIds, i);
+        }
+
+        TraktWatchedIndex shows = new TraktWatchedIndex();
+        List<WatchedEntry> showEntries = new ArrayList<>(SHOW_COUNT);
+        for (int i = 0; i < SHOW_COUNT; i++) {
+            WatchedEntry show = shows.add(ids(Integer.toString(i), "show-" + i, Integer.toString(70000 + i), null, null, null), 0);
+            showEntries.add(show);
+            for (int season = 1; season <= SEASONS; season++) {
+                for (int episode = 1; episode <= EPISODES; episode++) {
+                    shows.addEpisode(show, season, episode, season * 100L + episode);
+                }
+            }
+        }
+
+        // the videos are matched by the IMDb id only, the worst case for the old scan
+        long start = System.nanoTime();
+        int linearFound = 0;
+        for (int i = 0; i < MOVIE_COUNT; i += 10) {
+            String imdbId = "tt" + (1000000 + i);
+            for (Map<IdType, String> movieIds : movieHistory) {
+                if (StringUtils.equalsIgnoreCase(imdbId, movieIds.get(IdType.IMDB))) {
+                    linearFound++;
+                    break;
+                }
+            }
+        }
+        long linearTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int indexFound = 0;
+        for (int i = 0; i < MOVIE_COUNT; i += 10) {
+            if (movies.find(ids(null, null, null, null, null, "tt" + (1000000 + i))) != null) {
+                indexFound++;
+            }
+        }
+        long indexTime = System.nanoTime() - start;
+
+        assertEquals(linearFound, indexFound);
+        LOG.info("Matched {} movies: linear scan {}ms, index {}ms", indexFound, linearTime / 1000000, indexTime / 1000000);
+
+        for (int i = 0; i < SHOW_COUNT; i += 100) {
+            WatchedEntry show = shows.find(ids(null, null, Integer.toString(70000 + i), null, null, null));
+            assertSame(showEntries.get(i), show);
+            assertEquals(305L, shows.getWatchedDate(show, 3, 5));
+            assertEquals(0L, shows.getWatchedDate(show, 3, EPISODES + 1));
+        }
+        assertEquals(SHOW_COUNT, shows.size());
+        assertNotNull(movies.find(ids("movie-42", null, null, null, null, null)));
+    }
+
+    private static Map<IdType, String> ids(String trakt, String slug, String tvdb, String tvRage, String tmdb, String imdb) {
+        Map<IdType, String> ids = new EnumMap<>(IdType.class);
+        ids.put(IdType.TRAKT, trakt);
+        ids.put(IdType.SLUG, slug);
+        ids.put(IdType.TVDB, tvdb);
+        ids.put(IdType.TVRAGE, tvRage);
+        ids.put(IdType.TMDB, tmdb);
+        ids.put(IdType.IMDB, imdb);
+        return ids;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TreeCopyTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TreeCopyTest.class);
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    /**
+     * Test the copy of a tree with small and large files
+     */
+    @Test
+    public void testCopyTree() throws IOException {
+        LOG.info("testCopyTree");
+        File source = folder.newFolder("temp");
+        File target = new File(folder.getRoot(), "Jukebox");
+        byte[] large = new byte[300 * 1024];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+        for (int i = 0; i < 150; i++) {
+            FileUtils.writeStringToFile(new File(source, "dir" + (i % 3) + "/file" + i + ".xml"), "file " + i, StandardCharsets.UTF_8);
+        }
+        FileUtils.writeByteArrayToFile(new File(source, "pictures/large.jpg"), large);
+
+        assertEquals(151, TreeCopy.copyTree(source, target, false, false));
+        assertEquals("file 42", FileUtils.readFileToString(new File(target, "dir0/file42.xml"), StandardCharsets.UTF_8));
+        assertArrayEquals(large, FileUtils.readFileToByteArray(new File(target, "pictures/large.jpg")));
+        assertEquals(new File(source, "dir1/file1.xml").lastModified(), new File(target, "dir1/file1.xml").lastModified());
+
+        // only the changed file is copied again
+        FileUtils.writeStringToFile(new File(source, "dir2/file2.xml"), "changed", StandardCharsets.UTF_8);
+        assertEquals(1, TreeCopy.copyTree(source, target, false, false));
+        assertEquals("changed", FileUtils.readFileToString(new File(target, "dir2/file2.xml"), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test that the files are moved when both trees are on the same volume
+     */
+    @Test
+    public void testMoveTree() throws IOException {
+        LOG.info("testMoveTree");
+        File source = folder.newFolder("temp");
+        File target = new File(folder.getRoot(), "Jukebox");
+        FileUtils.writeStringToFile(new File(source, "index.xml"), "index", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(source, "pictures/poster.jpg"), "poster", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(target, "pictures/poster.jpg"), "old poster", StandardCharsets.UTF_8);
+
+        assertEquals(2, TreeCopy.copyTree(source, target, true, false));
+        assertEquals("poster", FileUtils.readFileToString(new File(target, "pictures/poster.jpg"), StandardCharsets.UTF_8));
+        assertTrue(new File(target, "index.xml").exists());
+        assertFalse(new File(source, "index.xml").exists());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import com.moviejukebox.AbstractTests;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import net.anidb.checksum.Ed2kChecksum;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ContentHashStoreTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContentHashStoreTest.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    @Test
+    public void testEd2k() throws IOException {
+        LOG.info("testEd2k");
+        int[] sizes = {0, 1000, ContentHashStore.ED2K_CHUNK_SIZE, ContentHashStore.ED2K_CHUNK_SIZE * 2 + 12345};
+        for (int size : sizes) {
+            byte[] content = createContent(size);
+            File file = writeFile("ed2k-" + size + ".bin", content);
+
+            Ed2kChecksum checksum = new Ed2kChecksum();
+            if (size > 0) {
+                checksum.update(content, 0, content.length);
+            }
+            assertEquals("Wrong hash for size " + size, checksum.getHexDigest(), ContentHashStore.calculateEd2k(file));
+        }
+    }
+
+    @Test
+    public void testStore() throws IOException {
+        LOG.info("testStore");
+        File storeFile = new File(folder.getRoot(), "hashes.txt");
+        ContentHashStore.setStoreFile(storeFile);
+
+        File file = writeFile("video.avi", createContent(200000));
+        String ed2k = ContentHashStore.getEd2k(file);
+        String osdb = ContentHashStore.getOpenSubtitlesHash(file);
+        assertEquals(ContentHashStore.calculateEd2k(file), ed2k);
+        assertEquals(ContentHashStore.calculateOpenSubtitlesHash(file), osdb);
+
+        // Reload the stored hashes
+        ContentHashStore.setStoreFile(storeFile);
+        assertEquals(ed2k, ContentHashStore.getEd2k(file));
+        assertEquals(osdb, ContentHashStore.getOpenSubtitlesHash(file));
+
+        // A changed file is hashed again
+        writeFile("video.avi", createContent(100000));
+        assertEquals(ContentHashStore.calculateEd2k(file), ContentHashStore.getEd2k(file));
+        assertEquals("NoHash", ContentHashStore.getOpenSubtitlesHash(writeFile("small.avi", createContent(1000))));
+    }
+
+    private static byte[] createContent(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private File writeFile(String name, byte[] content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+        return file;
+    }
+}
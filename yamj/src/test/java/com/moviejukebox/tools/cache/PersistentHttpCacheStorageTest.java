@@ -0,0 +1,245 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.cache.HttpCacheEntry;
+import org.apache.http.client.cache.HttpCacheUpdateCallback;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.cache.HeapResource;
+import org.apache.http.impl.execchain.ClientExecChain;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class PersistentHttpCacheStorageTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistentHttpCacheStorageTest.class);
+    private static final String KEY = "http://api.themoviedb.org:80/3/movie/550";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    private static HttpCacheEntry createEntry(String content, String etag) {
+        Header[] headers = new Header[]{
+            new BasicHeader("Date", "Mon, 01 Feb 2016 10:00:00 GMT"),
+            new BasicHeader("ETag", etag)
+        };
+        return new HttpCacheEntry(new Date(), new Date(), new BasicStatusLine(HttpVersion.HTTP_1_1, 200, "OK"),
+                headers, new HeapResource(content.getBytes()));
+    }
+
+    @Test
+    public void testEntriesSurviveNewInstance() throws IOException {
+        LOG.info("testEntriesSurviveNewInstance");
+        PersistentHttpCacheStorage storage = new PersistentHttpCacheStorage(folder.getRoot(), 10, 0);
+        storage.putEntry(KEY, createEntry("content", "\"v1\""));
+        assertEquals(1, storage.size());
+
+        PersistentHttpCacheStorage reopened = new PersistentHttpCacheStorage(folder.getRoot(), 10, 0);
+        assertEquals(1, reopened.size());
+
+        HttpCacheEntry entry = reopened.getEntry(KEY);
+        assertNotNull(entry);
+        assertEquals("\"v1\"", entry.getFirstHeader("ETag").getValue());
+        assertEquals(7, entry.getResource().length());
+
+        reopened.removeEntry(KEY);
+        assertNull(reopened.getEntry(KEY));
+        assertEquals(0, reopened.size());
+    }
+
+    @Test
+    public void testUpdateEntry() throws Exception {
+        LOG.info("testUpdateEntry");
+        PersistentHttpCacheStorage storage = new PersistentHttpCacheStorage(folder.getRoot(), 10, 0);
+        storage.putEntry(KEY, createEntry("content", "\"v1\""));
+
+        storage.updateEntry(KEY, new HttpCacheUpdateCallback() {
+            @Override
+            public HttpCacheEntry update(HttpCacheEntry existing) throws IOException {
+                assertNotNull(existing);
+                return createEntry("updated content", "\"v2\"");
+            }
+        });
+
+        assertEquals("\"v2\"", storage.getEntry(KEY).getFirstHeader("ETag").getValue());
+        assertEquals(1, storage.size());
+    }
+
+    @Test
+    public void testPurge() throws IOException {
+        LOG.info("testPurge");
+        PersistentHttpCacheStorage storage = new PersistentHttpCacheStorage(folder.getRoot(), 10, 0);
+        for (int i = 0; i < 11; i++) {
+            storage.putEntry(KEY + i, createEntry("content" + i, "\"v" + i + "\""));
+        }
+        assertEquals(9, storage.size());
+    }
+
+    @Test
+    public void testPurgeBySize() throws IOException {
+        LOG.info("testPurgeBySize");
+        PersistentHttpCacheStorage storage = new PersistentHttpCacheStorage(folder.getRoot(), 100, 0);
+        storage.putEntry(KEY, createEntry(StringUtils.repeat('x', 1000), "\"v1\""));
+        long entrySize = storage.getTotalBytes();
+        assertTrue(entrySize > 1000);
+
+        // room for four entries
+        long maxBytes = entrySize * 4 + entrySize / 2;
+        storage = new PersistentHttpCacheStorage(folder.getRoot(), 100, maxBytes);
+        for (int i = 0; i < 5; i++) {
+            storage.putEntry(KEY + i, createEntry(StringUtils.repeat('x', 1000), "\"v1\""));
+        }
+        assertTrue("Cache is over its size: " + storage.getTotalBytes(), storage.getTotalBytes() <= maxBytes);
+        assertEquals(4, storage.size());
+        assertEquals(storage.getTotalBytes(), new PersistentHttpCacheStorage(folder.getRoot(), 100, 0).getTotalBytes());
+    }
+
+    @Test
+    public void testMaskedKey() throws IOException {
+        LOG.info("testMaskedKey");
+        String key = "http://api.themoviedb.org:80/3/movie/550?api_key=0123456789abcdef&language=en";
+        assertEquals("http://api.themoviedb.org:80/3/movie/550?api_key=[MASKED]&language=en", PersistentHttpCacheStorage.maskKey(key));
+        assertEquals("http://example.com/search?q=Alien&token=[MASKED]#top", PersistentHttpCacheStorage.maskKey("http://example.com/search?q=Alien&token=abc#top"));
+
+        PersistentHttpCacheStorage storage = new PersistentHttpCacheStorage(folder.getRoot(), 10, 0);
+        storage.putEntry(key, createEntry("content", "\"v1\""));
+        assertNotNull(storage.getEntry(key));
+        assertNull(storage.getEntry(key.replace("0123", "3210")));
+
+        Collection<File> files = FileUtils.listFiles(folder.getRoot(), null, true);
+        assertEquals(1, files.size());
+        File cacheFile = files.iterator().next();
+        assertFalse(cacheFile.getName().contains("themoviedb"));
+        assertFalse("API key stored in the cache", new String(FileUtils.readFileToByteArray(cacheFile), "ISO-8859-1").contains("0123456789abcdef"));
+    }
+
+    @Test
+    public void testMaskedVariants() throws IOException {
+        LOG.info("testMaskedVariants");
+        String variantKey = "{Accept-Encoding=gzip}" + KEY + "?api_key=0123456789abcdef";
+        Header[] headers = new Header[]{
+            new BasicHeader("Date", "Mon, 01 Feb 2016 10:00:00 GMT"),
+            new BasicHeader("Content-Location", KEY + "?api_key=0123456789abcdef")
+        };
+        HttpCacheEntry parent = new HttpCacheEntry(new Date(), new Date(), new BasicStatusLine(HttpVersion.HTTP_1_1, 200, "OK"),
+                headers, null, Collections.singletonMap("{Accept-Encoding=gzip}", variantKey), "GET");
+
+        PersistentHttpCacheStorage storage = new PersistentHttpCacheStorage(folder.getRoot(), 10, 0);
+        storage.putEntry(KEY, parent);
+        storage.putEntry(variantKey, createEntry("variant", "\"v1\""));
+        for (File cacheFile : FileUtils.listFiles(folder.getRoot(), null, true)) {
+            assertFalse("API key stored in the cache", new String(FileUtils.readFileToByteArray(cacheFile), "ISO-8859-1").contains("0123456789abcdef"));
+        }
+
+        // the caching layer looks up the variants with the keys from the stored variant map
+        String storedKey = storage.getEntry(KEY).getVariantMap().get("{Accept-Encoding=gzip}");
+        assertTrue(storedKey.startsWith(PersistentHttpCacheStorage.HASHED_KEY));
+        assertEquals("\"v1\"", storage.getEntry(storedKey).getFirstHeader("ETag").getValue());
+        assertEquals("GET", storage.getEntry(KEY).getRequestMethod());
+
+        storage.removeEntry(storedKey);
+        assertNull(storage.getEntry(variantKey));
+    }
+
+    @Test
+    public void testFreshnessOnlyWithoutCachingHeaders() throws Exception {
+        LOG.info("testFreshnessOnlyWithoutCachingHeaders");
+        Map<Pattern, Integer> rules = HttpFreshnessExec.parseRules(".*themoviedb.*=86400");
+
+        assertEquals("max-age=86400", executeFreshness(rules).getFirstHeader("Cache-Control").getValue());
+        assertEquals("no-store", executeFreshness(rules, new BasicHeader("Cache-Control", "no-store")).getFirstHeader("Cache-Control").getValue());
+        assertEquals("private", executeFreshness(rules, new BasicHeader("Cache-Control", "private")).getFirstHeader("Cache-Control").getValue());
+        assertFalse(executeFreshness(rules, new BasicHeader("Pragma", "no-cache")).containsHeader("Cache-Control"));
+        assertFalse(executeFreshness(HttpFreshnessExec.parseRules(".*imdb.*=3600")).containsHeader("Cache-Control"));
+    }
+
+    private static CloseableHttpResponse executeFreshness(Map<Pattern, Integer> rules, final Header... headers) throws Exception {
+        ClientExecChain backend = new ClientExecChain() {
+            @Override
+            public CloseableHttpResponse execute(HttpRoute route, HttpRequestWrapper request, HttpClientContext clientContext,
+                    HttpExecutionAware execAware) {
+                CloseableHttpResponse response = new StubResponse();
+                response.setHeaders(headers);
+                return response;
+            }
+        };
+        return new HttpFreshnessExec(backend, rules).execute(new HttpRoute(new HttpHost("api.themoviedb.org")),
+                HttpRequestWrapper.wrap(new HttpGet("/3/movie/550")), HttpClientContext.create(), null);
+    }
+
+    private static class StubResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        StubResponse() {
+            super(new BasicStatusLine(HttpVersion.HTTP_1_1, 200, "OK"));
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
+
+    @Test
+    public void testParseFreshnessRules() {
+        LOG.info("testParseFreshnessRules");
+        Map<Pattern, Integer> rules = HttpFreshnessExec.parseRules(".*themoviedb.*=86400, .*imdb.*=3600,[invalid=10");
+        assertEquals(2, rules.size());
+        assertEquals(Integer.valueOf(86400), rules.values().iterator().next());
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.tools.downloader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class AsyncDownloaderTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncDownloaderTest.class);
+    private static final byte[] CONTENT = new byte[200000];
+    private static final AtomicInteger REQUESTS = new AtomicInteger(0);
+    private static final CountDownLatch RELEASE = new CountDownLatch(1);
+    private static HttpServer server;
+    private static String baseUrl;
+    private static String lastRange;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() throws IOException {
+        doConfiguration();
+
+        for (int i = 0; i < CONTENT.length; i++) {
+            CONTENT[i] = (byte) i;
+        }
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/file", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                REQUESTS.incrementAndGet();
+                lastRange = exchange.getRequestHeaders().getFirst("Range");
+                int start = 0;
+                if (lastRange != null) {
+                    start = Integer.parseInt(lastRange.replaceAll("bytes=(\\d+)-", "$1"));
+                    exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (CONTENT.length - 1) + "/" + CONTENT.length);
+                    exchange.sendResponseHeaders(206, CONTENT.length - start);
+                } else {
+                    exchange.sendResponseHeaders(200, CONTENT.length);
+                }
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(CONTENT, start, CONTENT.length - start);
+                }
+            }
+        });
+        server.createContext("/slow", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                REQUESTS.incrementAndGet();
+                try {
+                    RELEASE.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(200, CONTENT.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(CONTENT);
+                }
+            }
+        });
+        server.createContext("/missing", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        AsyncDownloader.shutdown();
+        server.stop(0);
+    }
+
+    /**
+     * Test a complete download
+     */
+    @Test
+    public void testDownload() throws Exception {
+        LOG.info("testDownload");
+        File target = new File(folder.getRoot(), "image.jpg");
+
+        File result = AsyncDownloader.download(baseUrl + "/file", target, null).get(10, TimeUnit.SECONDS);
+        assertEquals(target.getAbsoluteFile(), result);
+        assertArrayEquals(CONTENT, Files.readAllBytes(target.toPath()));
+        assertFalse(new File(target.getPath() + ".part").exists());
+    }
+
+    /**
+     * Test that a partial file is resumed with a range request
+     */
+    @Test
+    public void testResume() throws Exception {
+        LOG.info("testResume");
+        File target = new File(folder.getRoot(), "trailer.mov");
+        Files.write(new File(target.getPath() + ".part").toPath(), Arrays.copyOf(CONTENT, 50000));
+
+        AsyncDownloader.download(baseUrl + "/file", target, true, null, null, null).get(10, TimeUnit.SECONDS);
+        assertEquals("bytes=50000-", lastRange);
+        assertArrayEquals(CONTENT, Files.readAllBytes(target.toPath()));
+    }
+
+    /**
+     * Test that the same URL requested twice is only downloaded once
+     */
+    @Test
+    public void testJoinRunningDownload() throws Exception {
+        LOG.info("testJoinRunningDownload");
+        File first = new File(folder.getRoot(), "first.jpg");
+        File second = new File(folder.getRoot(), "second.jpg");
+        int before = REQUESTS.get();
+
+        Future<File> firstFuture = AsyncDownloader.download(baseUrl + "/slow", first, null);
+        Future<File> secondFuture = AsyncDownloader.download(baseUrl + "/slow", second, null);
+        RELEASE.countDown();
+
+        firstFuture.get(10, TimeUnit.SECONDS);
+        secondFuture.get(10, TimeUnit.SECONDS);
+        assertEquals(before + 1, REQUESTS.get());
+        assertArrayEquals(CONTENT, Files.readAllBytes(first.toPath()));
+        assertArrayEquals(CONTENT, Files.readAllBytes(second.toPath()));
+    }
+
+    /**
+     * Test that an error response fails the future and leaves no file behind
+     */
+    @Test
+    public void testFailedDownload() throws Exception {
+        LOG.info("testFailedDownload");
+        File target = new File(folder.getRoot(), "missing.jpg");
+
+        try {
+            AsyncDownloader.download(baseUrl + "/missing", target, null).get(10, TimeUnit.SECONDS);
+            assertTrue("Download should have failed", false);
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IOException);
+        }
+        assertFalse(target.exists());
+        assertFalse(new File(target.getPath() + ".part").exists());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.MovieJukebox;
+import com.moviejukebox.model.Movie;
+import com.moviejukebox.tools.FileTools;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import javax.xml.bind.JAXBContext;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+public class CompleteMoviesWriterTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompleteMoviesWriterTest.class);
+    private static final File RSS_XSL = new File("../distribution/conf/rss.xsl");
+    private static final String ROOT_PATH = "Jukebox";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    /**
+     * Test that writing both files in one pass gives the same output as
+     * writing the CompleteMovies file and transforming it afterwards
+     */
+    @Test
+    public void testWrite() throws Exception {
+        LOG.info("testWrite");
+        MovieJukebox.JukeboxXml jukeboxXml = createJukeboxXml();
+
+        File xmlFile = new File(folder.getRoot(), "CompleteMovies.xml");
+        File rssFile = new File(folder.getRoot(), "rss.xml");
+        assertTrue(CompleteMoviesWriter.write(jukeboxXml, xmlFile, rssFile, RSS_XSL, ROOT_PATH));
+
+        // Marshal the file and transform it
+        File previousXmlFile = new File(folder.getRoot(), "PreviousCompleteMovies.xml");
+        File previousRssFile = new File(folder.getRoot(), "previous_rss.xml");
+        try (OutputStream stream = FileTools.createFileOutputStream(previousXmlFile)) {
+            JAXBContext.newInstance(MovieJukebox.JukeboxXml.class).createMarshaller().marshal(jukeboxXml, stream);
+        }
+        Transformer transformer = MovieJukeboxHTMLWriter.getTransformer(RSS_XSL, ROOT_PATH);
+        transformer.transform(new StreamSource(previousXmlFile), new StreamResult(previousRssFile));
+
+        assertTrue("CompleteMovies differs", parse(previousXmlFile).isEqualNode(parse(xmlFile)));
+        assertEquals(read(previousRssFile), read(rssFile));
+        assertTrue("No movies in the RSS", read(rssFile).contains("Avatar"));
+    }
+
+    /**
+     * Test that the CompleteMovies file is written when the RSS fails
+     */
+    @Test
+    public void testWriteWithoutRss() throws Exception {
+        LOG.info("testWriteWithoutRss");
+        File brokenXsl = new File(folder.getRoot(), "rss.xsl");
+        Files.write(brokenXsl.toPath(), "<xsl:stylesheet".getBytes(StandardCharsets.UTF_8));
+
+        File xmlFile = new File(folder.getRoot(), "CompleteMovies.xml");
+        File rssFile = new File(folder.getRoot(), "rss.xml");
+        assertTrue(CompleteMoviesWriter.write(createJukeboxXml(), xmlFile, rssFile, brokenXsl, ROOT_PATH));
+        assertTrue(read(xmlFile).contains("Avatar"));
+        assertFalse(rssFile.exists());
+    }
+
+    private static MovieJukebox.JukeboxXml createJukeboxXml() {
+        MovieJukebox.JukeboxXml jukeboxXml = new MovieJukebox.JukeboxXml();
+        jukeboxXml.movies = new ArrayList<>();
+        for (String title : new String[]{"Avatar", "Alien"}) {
+            Movie movie = new Movie();
+            movie.setBaseName(title);
+            movie.setTitle(title, Movie.UNKNOWN);
+            movie.setYear("2009", Movie.UNKNOWN);
+            movie.setId("imdb", "tt0499549");
+            jukeboxXml.movies.add(movie);
+        }
+        return jukeboxXml;
+    }
+
+    private static Document parse(File file) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document doc = factory.newDocumentBuilder().parse(file);
+        doc.normalizeDocument();
+        return doc;
+    }
+
+    private static String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *      Copyright (c) 2004-2016 YAMJ Members
+ *      https://github.com/orgs/YAMJ/people
+ *
+ *      This file is part of the Yet Another Movie Jukebox (YAMJ) project.
+ *
+ *      YAMJ is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      YAMJ is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with YAMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *      Web: https://github.com/YAMJ/yamj-v2
+ *
+ */
+package com.moviejukebox.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.moviejukebox.AbstractTests;
+import com.moviejukebox.model.Jukebox;
+import com.moviejukebox.model.Movie;
+import com.moviejukebox.model.MovieFile;
+import com.moviejukebox.tools.BuildGraph;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class MovieJukeboxHTMLWriterTest extends AbstractTests {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MovieJukeboxHTMLWriterTest.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void configure() {
+        doConfiguration();
+    }
+
+    /**
+     * Test that the playlists are generated again when their content changed,
+     * without the video being dirty or the overwrite being forced
+     */
+    @Test
+    public void testPlaylistGraph() throws IOException {
+        LOG.info("testPlaylistGraph");
+        Jukebox jukebox = new Jukebox(folder.newFolder("root").getAbsolutePath(), folder.newFolder("temp").getAbsolutePath(), "Jukebox");
+        File finalPlaylist = new File(jukebox.getJukeboxRootLocationDetails(), "Show.playlist1.jsp");
+        File tempPlaylist = new File(jukebox.getJukeboxTempLocationDetails(), "Show.playlist1.jsp");
+
+        Movie movie = new Movie();
+        movie.setBaseName("Show");
+        movie.setTitle("Show", Movie.UNKNOWN);
+        for (int part = 1; part <= 2; part++) {
+            MovieFile mf = new MovieFile();
+            mf.setFilename("file:///videos/Show.E0" + part + ".avi");
+            mf.setFirstPart(part);
+            movie.addMovieFile(mf);
+        }
+        movie.clearDirty();
+
+        BuildGraph.readFile(jukebox);
+        new MovieJukeboxHTMLWriter().generatePlaylist(jukebox, movie);
+        assertTrue("Playlist not generated", tempPlaylist.exists());
+        BuildGraph.writeFile(jukebox);
+        FileUtils.moveFile(tempPlaylist, finalPlaylist);
+
+        // Nothing changed, the playlist is kept
+        BuildGraph.readFile(jukebox);
+        new MovieJukeboxHTMLWriter().generatePlaylist(jukebox, movie);
+        assertFalse("Unchanged playlist generated", tempPlaylist.exists());
+        BuildGraph.writeFile(jukebox);
+
+        // A changed title is in the playlist, so it is generated again
+        BuildGraph.readFile(jukebox);
+        movie.setTitle("Renamed Show", Movie.UNKNOWN);
+        movie.clearDirty();
+        new MovieJukeboxHTMLWriter().generatePlaylist(jukebox, movie);
+        assertTrue("Changed playlist not generated", tempPlaylist.exists());
+        List<String> lines = Files.readAllLines(tempPlaylist.toPath(), StandardCharsets.UTF_8);
+        assertEquals("Renamed Show 1|0|0|file:///videos/Show.E01.avi|", lines.get(0));
+    }
+}